@@ -1,5 +1,7 @@
 package com.rengu.operationsmanagementsuitev3.Configuration;
 
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -33,4 +35,31 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return threadPoolTaskExecutor;
 
     }
+
+    /**
+     * 设备部署专用线程池，由{@link com.rengu.operationsmanagementsuitev3.Service.DeploySchedulerService}
+     * 控制提交数量，避免部署任务占满公共异步线程池。
+     */
+    @Bean(name = "deployTaskExecutor")
+    public ThreadPoolTaskExecutor deployTaskExecutor() {
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        threadPoolTaskExecutor.setCorePoolSize(ApplicationConfig.DEPLOY_GLOBAL_CONCURRENCY);
+        threadPoolTaskExecutor.setMaxPoolSize(ApplicationConfig.DEPLOY_GLOBAL_CONCURRENCY);
+        threadPoolTaskExecutor.setThreadNamePrefix("OMS-Deploy-Thread");
+        return threadPoolTaskExecutor;
+    }
+
+    /**
+     * 部署文件预读线程池，每台正在部署的设备同时最多占用一个读取线程，
+     * 见{@link com.rengu.operationsmanagementsuitev3.Service.DeployReadAheadService}。
+     */
+    @Bean(name = "deployReadAheadExecutor")
+    public ThreadPoolTaskExecutor deployReadAheadExecutor() {
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        threadPoolTaskExecutor.setCorePoolSize(ApplicationConfig.DEPLOY_GLOBAL_CONCURRENCY);
+        threadPoolTaskExecutor.setMaxPoolSize(ApplicationConfig.DEPLOY_GLOBAL_CONCURRENCY);
+        threadPoolTaskExecutor.setAllowCoreThreadTimeOut(true);
+        threadPoolTaskExecutor.setThreadNamePrefix("OMS-Deploy-ReadAhead");
+        return threadPoolTaskExecutor;
+    }
 }
@@ -3,6 +3,7 @@ package com.rengu.operationsmanagementsuitev3.Controller;
 import com.rengu.operationsmanagementsuitev3.Entity.ResultEntity;
 import com.rengu.operationsmanagementsuitev3.Service.ComponentFileHistoryService;
 import com.rengu.operationsmanagementsuitev3.Service.ComponentHistoryService;
+import com.rengu.operationsmanagementsuitev3.Service.DeployManifestService;
 import com.rengu.operationsmanagementsuitev3.Utils.ResultUtils;
 import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,11 +28,13 @@ public class ComponentHistoryController {
 
     private final ComponentHistoryService componentHistoryService;
     private final ComponentFileHistoryService componentFileHistoryService;
+    private final DeployManifestService deployManifestService;
 
     @Autowired
-    public ComponentHistoryController(ComponentHistoryService componentHistoryService, ComponentFileHistoryService componentFileHistoryService) {
+    public ComponentHistoryController(ComponentHistoryService componentHistoryService, ComponentFileHistoryService componentFileHistoryService, DeployManifestService deployManifestService) {
         this.componentHistoryService = componentHistoryService;
         this.componentFileHistoryService = componentFileHistoryService;
+        this.deployManifestService = deployManifestService;
     }
 
     // 根据组件历史Id查询组件历史
@@ -49,7 +52,7 @@ public class ComponentHistoryController {
     // 根据Id导出组件文件
     @GetMapping(value = "/{componentFileHistoryId}/export")
     public void exportComponentFileHistoryByComponentHistory(@PathVariable(value = "componentFileHistoryId") String componentFileHistoryId, HttpServletResponse httpServletResponse) throws IOException {
-        File exportFile = componentFileHistoryService.exportComponentFileHistoryByComponentHistory(componentHistoryService.getComponentHistoryById(componentFileHistoryId));
+        File exportFile = deployManifestService.exportDeployManifest(componentHistoryService.getComponentHistoryById(componentFileHistoryId));
         String mimeType = URLConnection.guessContentTypeFromName(exportFile.getName()) == null ? "application/octet-stream" : URLConnection.guessContentTypeFromName(exportFile.getName());
         httpServletResponse.setContentType(mimeType);
         httpServletResponse.setHeader("Content-Disposition", "attachment;filename=" + new String(exportFile.getName().getBytes(StandardCharsets.UTF_8), "ISO8859-1"));
@@ -0,0 +1,84 @@
+package com.rengu.operationsmanagementsuitev3.Controller;
+
+import com.rengu.operationsmanagementsuitev3.Entity.ResultEntity;
+import com.rengu.operationsmanagementsuitev3.Service.DeployBandwidthService;
+import com.rengu.operationsmanagementsuitev3.Service.DeployReadAheadService;
+import com.rengu.operationsmanagementsuitev3.Service.DeploySchedulerService;
+import com.rengu.operationsmanagementsuitev3.Utils.ResultUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 11:05
+ **/
+
+@RestController
+@RequestMapping(value = "/deployscheduler")
+public class DeploySchedulerController {
+
+    private final DeploySchedulerService deploySchedulerService;
+    private final DeployBandwidthService deployBandwidthService;
+    private final DeployReadAheadService deployReadAheadService;
+
+    @Autowired
+    public DeploySchedulerController(DeploySchedulerService deploySchedulerService, DeployBandwidthService deployBandwidthService, DeployReadAheadService deployReadAheadService) {
+        this.deploySchedulerService = deploySchedulerService;
+        this.deployBandwidthService = deployBandwidthService;
+        this.deployReadAheadService = deployReadAheadService;
+    }
+
+    // 查询部署调度器状态，包括非阻塞引擎不支持的已启用部署功能
+    @GetMapping
+    public ResultEntity getDeployScheduler() {
+        return ResultUtils.build(deploySchedulerService.getDeployScheduler());
+    }
+
+    // 修改部署调度器并发数及部署引擎
+    @PatchMapping
+    @PreAuthorize(value = "hasRole('admin')")
+    public ResultEntity updateDeployScheduler(@RequestParam(value = "globalConcurrency", required = false, defaultValue = "0") int globalConcurrency, @RequestParam(value = "designConcurrency", required = false, defaultValue = "0") int designConcurrency, @RequestParam(value = "selectorEngine", required = false) Boolean selectorEngine) {
+        return ResultUtils.build(deploySchedulerService.updateDeployScheduler(globalConcurrency, designConcurrency, selectorEngine));
+    }
+
+    // 查询部署预读配置及磁盘等待、网络等待时间统计
+    @GetMapping(value = "/readahead")
+    public ResultEntity getDeployReadAhead() {
+        return ResultUtils.build(deployReadAheadService.getDeployReadAhead());
+    }
+
+    // 修改部署预读深度，0表示关闭预读
+    @PatchMapping(value = "/readahead")
+    @PreAuthorize(value = "hasRole('admin')")
+    public ResultEntity updateDeployReadAhead(@RequestParam(value = "depth") int depth) {
+        return ResultUtils.build(deployReadAheadService.updateDeployReadAhead(depth));
+    }
+
+    // 查询部署带宽限制
+    @GetMapping(value = "/bandwidth")
+    public ResultEntity getDeployBandwidth() {
+        return ResultUtils.build(deployBandwidthService.getDeployBandwidth());
+    }
+
+    // 修改全局及默认部署带宽限制(字节/秒，0表示不限制)
+    @PatchMapping(value = "/bandwidth")
+    @PreAuthorize(value = "hasRole('admin')")
+    public ResultEntity updateDeployBandwidth(@RequestParam(value = "globalRate", required = false, defaultValue = "-1") long globalRate, @RequestParam(value = "projectRate", required = false, defaultValue = "-1") long projectRate, @RequestParam(value = "deviceRate", required = false, defaultValue = "-1") long deviceRate) {
+        return ResultUtils.build(deployBandwidthService.updateDeployBandwidth(globalRate, projectRate, deviceRate));
+    }
+
+    // 单独设置工程部署带宽限制，rate小于0时恢复默认值
+    @PatchMapping(value = "/bandwidth/project/{projectId}")
+    @PreAuthorize(value = "hasRole('admin')")
+    public ResultEntity updateProjectBandwidth(@PathVariable(value = "projectId") String projectId, @RequestParam(value = "rate") long rate) {
+        return ResultUtils.build(deployBandwidthService.updateProjectBandwidth(projectId, rate));
+    }
+
+    // 单独设置设备部署带宽限制，rate小于0时恢复默认值
+    @PatchMapping(value = "/bandwidth/device/{hostAddress:.+}")
+    @PreAuthorize(value = "hasRole('admin')")
+    public ResultEntity updateDeviceBandwidth(@PathVariable(value = "hostAddress") String hostAddress, @RequestParam(value = "rate") long rate) {
+        return ResultUtils.build(deployBandwidthService.updateDeviceBandwidth(hostAddress, rate));
+    }
+}
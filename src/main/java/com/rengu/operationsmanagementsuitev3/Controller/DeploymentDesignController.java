@@ -14,8 +14,6 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
-
 /**
  * @program: OperationsManagementSuiteV3
  * @author: hanchangming
@@ -81,8 +79,20 @@ public class DeploymentDesignController {
 
     // 下发整个部署设计
     @PutMapping(value = "/{deploymentDesignId}/deploy")
-    public void deployDeploymentDesignById(@PathVariable(value = "deploymentDesignId") String deploymentDesignId) throws IOException {
-        deploymentDesignService.deployDeploymentDesignById(deploymentDesignId);
+    public ResultEntity deployDeploymentDesignById(@PathVariable(value = "deploymentDesignId") String deploymentDesignId, @RequestParam(value = "priority", required = false, defaultValue = "0") int priority, @RequestParam(value = "concurrency", required = false, defaultValue = "0") int concurrency, @RequestParam(value = "incremental", required = false, defaultValue = "false") boolean incremental, @RequestParam(value = "multicast", required = false, defaultValue = "false") boolean multicast) {
+        return ResultUtils.build(deploymentDesignService.deployDeploymentDesignById(deploymentDesignId, priority, concurrency, incremental, multicast));
+    }
+
+    // 估算部署设计的部署耗时
+    @GetMapping(value = "/{deploymentDesignId}/deployestimate")
+    public ResultEntity getDeployEstimateById(@PathVariable(value = "deploymentDesignId") String deploymentDesignId, @RequestParam(value = "concurrency", required = false, defaultValue = "0") int concurrency) {
+        return ResultUtils.build(deploymentDesignService.getDeployEstimateById(deploymentDesignId, concurrency));
+    }
+
+    // 查询部署设计的部署进度
+    @GetMapping(value = "/{deploymentDesignId}/deployprogress")
+    public ResultEntity getDeployScheduleProgressById(@PathVariable(value = "deploymentDesignId") String deploymentDesignId) {
+        return ResultUtils.build(deploymentDesignService.getDeployScheduleProgressById(deploymentDesignId));
     }
 
     // 查询所有部署设计
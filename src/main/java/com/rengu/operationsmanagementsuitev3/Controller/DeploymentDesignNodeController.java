@@ -52,8 +52,8 @@ public class DeploymentDesignNodeController {
 
     // 根据id部署部署设计节点
     @PutMapping(value = "/{deploymentDesignNodeId}/deploy")
-    public void deployDeploymentDesignNodeById(@PathVariable(value = "deploymentDesignNodeId") String deploymentDesignNodeId) throws IOException {
-        deploymentDesignNodeService.deployDeploymentDesignNodeById(deploymentDesignNodeId);
+    public ResultEntity deployDeploymentDesignNodeById(@PathVariable(value = "deploymentDesignNodeId") String deploymentDesignNodeId, @RequestParam(value = "priority", required = false, defaultValue = "0") int priority, @RequestParam(value = "incremental", required = false, defaultValue = "false") boolean incremental) {
+        return ResultUtils.build(deploymentDesignNodeService.deployDeploymentDesignNodeById(deploymentDesignNodeId, priority, incremental));
     }
 
     // 根据id解绑设备
@@ -1,14 +1,20 @@
 package com.rengu.operationsmanagementsuitev3.Controller;
 
 import com.rengu.operationsmanagementsuitev3.Entity.ChunkEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.FileStoreMigrationEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.ResultEntity;
+import com.rengu.operationsmanagementsuitev3.Service.ChunkJanitorService;
+import com.rengu.operationsmanagementsuitev3.Service.ChunkUploadService;
 import com.rengu.operationsmanagementsuitev3.Service.FileService;
+import com.rengu.operationsmanagementsuitev3.Service.FileStoreMigrationService;
 import com.rengu.operationsmanagementsuitev3.Utils.ResultUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
@@ -24,10 +30,16 @@ import java.io.IOException;
 public class FileController {
 
     private final FileService fileService;
+    private final ChunkJanitorService chunkJanitorService;
+    private final ChunkUploadService chunkUploadService;
+    private final FileStoreMigrationService fileStoreMigrationService;
 
     @Autowired
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, ChunkJanitorService chunkJanitorService, ChunkUploadService chunkUploadService, FileStoreMigrationService fileStoreMigrationService) {
         this.fileService = fileService;
+        this.chunkJanitorService = chunkJanitorService;
+        this.chunkUploadService = chunkUploadService;
+        this.fileStoreMigrationService = fileStoreMigrationService;
     }
 
     // 检查文件块是否存在
@@ -38,12 +50,30 @@ public class FileController {
         }
     }
 
+    // 查询尚未上传的文件块序号
+    @GetMapping(value = "/chunks/missing")
+    public ResultEntity getMissingChunks(ChunkEntity chunkEntity) {
+        return ResultUtils.build(fileService.getMissingChunks(chunkEntity));
+    }
+
+    // 查询文件块清理统计信息
+    @GetMapping(value = "/chunks/janitor")
+    public ResultEntity getChunkJanitor() {
+        return ResultUtils.build(chunkJanitorService.getChunkJanitor());
+    }
+
     // 检查文件块是否存在
     @PostMapping(value = "/chunks")
     public void saveChunk(ChunkEntity chunkEntity, @RequestParam(value = "file") MultipartFile multipartFile) throws IOException {
         fileService.saveChunk(chunkEntity, multipartFile);
     }
 
+    // 异步上传文件块，请求体为文件块内容(application/octet-stream)，等待客户端数据时不占用服务器线程
+    @PostMapping(value = "/chunks/stream")
+    public void saveChunkStream(ChunkEntity chunkEntity, HttpServletRequest httpServletRequest) throws IOException {
+        chunkUploadService.saveChunk(chunkEntity, httpServletRequest);
+    }
+
     // 合并文件块
     @PostMapping(value = "/chunks/merge")
     public ResultEntity mergeChunks(ChunkEntity chunkEntity) throws IOException {
@@ -55,4 +85,19 @@ public class FileController {
     public ResultEntity hasFileByMD5(@RequestParam(value = "MD5") String MD5) {
         return ResultUtils.build(fileService.hasFileByMD5(MD5) ? fileService.getFileByMD5(MD5) : fileService.hasFileByMD5(MD5));
     }
-}
\ No newline at end of file
+
+    // 查询文件存储迁移状态
+    @GetMapping(value = "/store/migration")
+    public ResultEntity getFileStoreMigration() {
+        return ResultUtils.build(fileStoreMigrationService.getFileStoreMigration());
+    }
+
+    // 将已有文件迁移到分级目录的文件存储，迁移在后台进行
+    @PostMapping(value = "/store/migration")
+    @PreAuthorize(value = "hasRole('admin')")
+    public ResultEntity migrateFileStore() {
+        FileStoreMigrationEntity fileStoreMigrationEntity = fileStoreMigrationService.startMigration();
+        fileStoreMigrationService.migrateFiles();
+        return ResultUtils.build(fileStoreMigrationEntity);
+    }
+}
@@ -0,0 +1,34 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 文件块清理配置及统计信息
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 17:36
+ **/
+
+@Data
+public class ChunkJanitorEntity implements Serializable {
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    // 文件块总大小配额(字节)及有效期(毫秒)
+    private long quotaSize;
+    private long expireTime;
+    // 上次清理后仍在进行的上传数量及文件块总大小
+    private int liveUploadCount;
+    private long liveSize;
+    // 累计释放的字节数及按已合并、已过期、超过配额删除的上传数量
+    private long reclaimedSize;
+    private long mergedCount;
+    private long expiredCount;
+    private long evictedCount;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date lastCleanTime;
+}
@@ -0,0 +1,22 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 差量传输中目标文件单个数据块的校验信息
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 11:40
+ **/
+
+@Data
+public class DeltaSignatureEntity implements Serializable {
+
+    private int index;
+    // 滚动校验和(弱校验)
+    private long weak;
+    // 数据块MD5(强校验)
+    private String strong;
+}
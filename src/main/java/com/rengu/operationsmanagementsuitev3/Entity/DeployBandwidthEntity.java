@@ -0,0 +1,30 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 部署带宽限制(字节/秒，0表示不限制)
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 12:20
+ **/
+
+@Data
+public class DeployBandwidthEntity implements Serializable {
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    private long globalRate;
+    // 未单独设置时每个工程、每台设备的默认限制
+    private long projectRate;
+    private long deviceRate;
+    // 单独设置的工程(工程Id)及设备(设备IP)限制
+    private Map<String, Long> projectRateMap = new HashMap<>();
+    private Map<String, Long> deviceRateMap = new HashMap<>();
+}
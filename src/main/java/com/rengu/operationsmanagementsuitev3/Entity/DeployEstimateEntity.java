@@ -0,0 +1,31 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 部署设计的预计部署耗时
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 14:40
+ **/
+
+@Data
+public class DeployEstimateEntity implements Serializable {
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    private String deploymentDesignId;
+    // 部署文件总大小(字节)
+    private long totalSize;
+    // 估算使用的并发数
+    private int concurrency;
+    // 预计总耗时(秒)
+    private double estimateTime;
+    private List<DeployEstimateNodeEntity> deployEstimateNodeEntityList = new ArrayList<>();
+}
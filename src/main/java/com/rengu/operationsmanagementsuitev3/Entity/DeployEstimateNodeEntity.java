@@ -0,0 +1,26 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 单个部署节点的预计部署耗时
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 14:40
+ **/
+
+@Data
+public class DeployEstimateNodeEntity implements Serializable {
+
+    private String deploymentDesignNodeId;
+    private String hostAddress;
+    // 部署文件大小(字节)
+    private long totalSize;
+    // 估算使用的吞吐量(kb/s)及是否来自历史部署记录
+    private double throughput;
+    private boolean historical;
+    // 预计耗时(秒)
+    private double estimateTime;
+}
@@ -30,6 +30,12 @@ public class DeployLogDetailEntity implements Serializable {
     private long componentTag;
     private String targetPath;
     private boolean complete;
+    private String mD5;
+    // 文件大小及客户端已确认写入的字节数，用于断点续传
+    private long fileSize;
+    private long committedSize;
+    // 实际传输的字节数(压缩、差量后)
+    private long transferSize;
     @ManyToOne
     private DeployLogEntity deployLogEntity;
 }
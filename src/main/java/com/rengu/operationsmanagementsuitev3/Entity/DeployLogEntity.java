@@ -25,6 +25,18 @@ public class DeployLogEntity implements Serializable {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
     private Date createTime = new Date();
     private boolean complete;
+    // 部署进行中，服务器异常退出时保持为true
+    private boolean running;
+    // 文件总大小、实际传输字节数及压缩比(传输字节数/文件总大小)
+    private long totalSize;
+    private long transferSize;
+    private double compressRatio;
+    // 预读发送时等待磁盘读取及等待网络写出的时间(毫秒)
+    private long diskWaitTime;
+    private long networkWaitTime;
+    // 部署设备及部署耗时(毫秒)，用于统计设备部署吞吐量
+    private String hostAddress;
+    private long deployTime;
     @ManyToOne
     private ProjectEntity projectEntity;
 }
@@ -0,0 +1,26 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 组件历史的部署清单：组件历史保存后不再变化，清单生成一次后供部署、扫描比对及导出重复使用
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 14:08
+ **/
+
+@Data
+public class DeployManifestEntity implements Serializable {
+
+    private String componentHistoryId;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    private long totalSize;
+    private List<DeployManifestFileEntity> deployManifestFileEntityList = new ArrayList<>();
+}
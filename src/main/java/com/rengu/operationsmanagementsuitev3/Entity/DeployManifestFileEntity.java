@@ -0,0 +1,23 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 部署清单中的单个文件
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 14:08
+ **/
+
+@Data
+public class DeployManifestFileEntity implements Serializable {
+
+    private String componentFileHistoryId;
+    // 相对组件历史根目录的路径(以分隔符开头)
+    private String relativePath;
+    private long size;
+    private String mD5;
+    private String localPath;
+}
@@ -21,5 +21,5 @@ public class DeployMetaEntity implements Serializable {
     private Date createTime = new Date();
     private DeviceEntity deviceEntity;
     private ComponentHistoryEntity componentHistoryEntity;
-    private ComponentFileHistoryEntity componentFileHistoryEntity;
+    private DeployManifestFileEntity deployManifestFileEntity;
 }
@@ -0,0 +1,31 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 组播部署中单台设备的接收状态
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 11:42
+ **/
+
+@Data
+public class DeployMulticastReceiverEntity {
+
+    private DeviceEntity deviceEntity;
+    // 部署调度器中该设备的部署任务
+    private DeployTaskEntity deployTaskEntity;
+    // 需要部署的文件(增量部署时只包含已修改及缺失的文件)：组件历史Id/组件文件历史Id -> 部署信息
+    private Map<String, DeployMetaEntity> deployMetaMap = new LinkedHashMap<>();
+    // 是否已加入当前组播会话
+    private boolean joined;
+    // 组播接收完成的文件，其余文件改为单播部署
+    private List<DeployMetaEntity> succeedList = new ArrayList<>();
+    // 分摊到该设备的组播发送字节数
+    private long transferSize;
+}
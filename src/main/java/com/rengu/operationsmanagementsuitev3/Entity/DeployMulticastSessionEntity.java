@@ -0,0 +1,32 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import lombok.Data;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个组件历史版本的组播部署会话
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 11:45
+ **/
+
+@Data
+public class DeployMulticastSessionEntity {
+
+    private long session;
+    private ComponentHistoryEntity componentHistoryEntity;
+    private InetAddress groupAddress;
+    // 组播数据发送及邀请、NACK收发使用的控制端口
+    private MulticastSocket multicastSocket;
+    private DatagramSocket controlSocket;
+    // 设备IP -> 接收状态
+    private Map<String, DeployMulticastReceiverEntity> receiverMap = new LinkedHashMap<>();
+    // 发送限速统计
+    private long startTime;
+    private long sendSize;
+}
@@ -0,0 +1,34 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 部署预读配置及统计信息(时间单位毫秒)
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 16:36
+ **/
+
+@Data
+public class DeployReadAheadEntity implements Serializable {
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    // 单个文件最多预读的缓冲区数，0表示关闭
+    private int depth;
+    // 缓冲区大小、已创建及空闲的缓冲区数
+    private long bufferSize;
+    private int bufferCount;
+    private int idleBufferCount;
+    // 已打开的预读流数、读取字节数及读取耗时
+    private long streamCount;
+    private long readSize;
+    private long readTime;
+    // 发送线程等待磁盘读取及等待网络写出的总时间，前者较大说明瓶颈在磁盘，后者较大说明瓶颈在网络
+    private long diskWaitTime;
+    private long networkWaitTime;
+}
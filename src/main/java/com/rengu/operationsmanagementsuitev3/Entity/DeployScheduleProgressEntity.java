@@ -0,0 +1,29 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 10:20
+ **/
+
+@Data
+public class DeployScheduleProgressEntity implements Serializable {
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    private String deploymentDesignId;
+    private int concurrency;
+    private int total;
+    private int waiting;
+    private int running;
+    private int succeed;
+    private int failed;
+    private double progress;
+    private List<DeployTaskEntity> deployTaskEntityList;
+}
@@ -0,0 +1,28 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 10:24
+ **/
+
+@Data
+public class DeploySchedulerEntity implements Serializable {
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    private int globalConcurrency;
+    private int designConcurrency;
+    private int waiting;
+    private int running;
+    private boolean selectorEngine;
+    // 已启用但非阻塞引擎不支持的部署功能，启用非阻塞引擎时这些功能不生效
+    private List<String> selectorEngineLimitationList = new ArrayList<>();
+}
@@ -0,0 +1,49 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import lombok.Data;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 非阻塞部署引擎中单台设备的会话状态，由所属的Selector线程独占访问
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 13:05
+ **/
+
+@Data
+public class DeploySelectorSessionEntity {
+
+    // 部署日志、进度等与阻塞引擎共用的会话信息
+    private DeploySessionEntity deploySessionEntity;
+    private List<DeployMetaEntity> deployMetaEntityList;
+    private int fileIndex;
+    private int state;
+    private long startTime = System.currentTimeMillis();
+    // 待发送的报文头及文件内容
+    private ByteBuffer writeBuffer;
+    private FileChannel fileChannel;
+    private long position;
+    private long fileSize;
+    // 已预留令牌但尚未发送的字节数，及限速等待结束时间
+    private long reservedSize;
+    private long resumeTime;
+    private long sliceStartTime;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(1024);
+    // 等待回复的超时时间及旧版协议重发结束标志的时间，0表示未等待
+    private long deadline;
+    private long resendTime;
+    private long sequence;
+    // 发送数据的超时时间(有待发送数据时设置，每次发送成功后顺延)，0表示没有待发送数据
+    private long writeDeadline;
+    // 旧版协议当前文件
+    private DeployMetaEntity deployMetaEntity;
+    private DeployLogDetailEntity deployLogDetailEntity;
+    private boolean closed;
+    private CompletableFuture<DeployLogEntity> future = new CompletableFuture<>();
+    // 文件结束处理(写日志、推送进度)及会话结束处理按提交顺序依次执行
+    private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+}
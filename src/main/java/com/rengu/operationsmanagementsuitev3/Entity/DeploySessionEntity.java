@@ -0,0 +1,69 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import lombok.Data;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 单台设备一次部署连接的会话状态
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 09:35
+ **/
+
+@Data
+public class DeploySessionEntity {
+
+    private long startTime = System.currentTimeMillis();
+    private DeploymentDesignEntity deploymentDesignEntity;
+    private DeviceEntity deviceEntity;
+    private SocketChannel socketChannel;
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    // 本次会话协商通过的扩展部署能力
+    private int capability;
+    // 本次会话使用的压缩级别，0表示不压缩
+    private int compressLevel;
+    private DeployLogEntity deployLogEntity;
+    private List<DeployLogDetailEntity> deployLogDetailEntityList = new ArrayList<>();
+    // 已部署成功的文件(按对象判断)，连接异常或部署失败后只重试其余文件
+    private Set<DeployMetaEntity> succeedMetaSet = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    // 已确认写入设备的文件：MD5 -> 部署路径，相同内容的文件改为客户端本地复制
+    private Map<String, String> landedFileMap = new ConcurrentHashMap<>();
+    // 已提交写入线程的日志详情Id
+    private Set<String> savedDetailIdSet = ConcurrentHashMap.newKeySet();
+    // 上次保存续传检查点的时间
+    private volatile long checkpointTime = System.currentTimeMillis();
+    // 记录文件发送数量、进度、速度等
+    private long totalSize;
+    private volatile long totalSendSize;
+    // 实际写入连接的文件数据字节数(压缩、差量后)
+    private volatile long transferSize;
+    // 预读发送时等待磁盘读取及等待网络写出的时间(纳秒)
+    private long diskWaitTime;
+    private long networkWaitTime;
+    private volatile double speed;
+    // 当前进度描述(正在部署的文件)
+    private volatile String description;
+    // 流水线模式：在途窗口、已发送未确认的文件、等待回复的查询(按序号匹配)
+    private Semaphore windowSemaphore;
+    private Map<Long, DeployMetaEntity> pendingMetaMap = new ConcurrentHashMap<>();
+    private Map<Long, DeployLogDetailEntity> pendingDetailMap = new ConcurrentHashMap<>();
+    private Map<Long, CompletableFuture<byte[]>> replyFutureMap = new ConcurrentHashMap<>();
+    // 已发送未确认的本地复制：序号 -> MD5
+    private Map<Long, String> pendingCopyMap = new ConcurrentHashMap<>();
+    // 已发送未确认的部署包，一个序号对应组件历史的全部文件
+    private Map<Long, List<DeployMetaEntity>> pendingBundleMetaMap = new ConcurrentHashMap<>();
+    private Map<Long, List<DeployLogDetailEntity>> pendingBundleDetailMap = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,36 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 10:12
+ **/
+
+@Data
+public class DeployTaskEntity implements Serializable {
+
+    private String id = UUID.randomUUID().toString();
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createTime = new Date();
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date startTime;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date finishTime;
+    private String deploymentDesignId;
+    private String deploymentDesignNodeId;
+    private String hostAddress;
+    private int priority;
+    // 增量部署：只发送扫描结果中已修改及缺失的文件
+    private boolean incremental;
+    private long sequence;
+    // 预计部署耗时(秒)，同优先级的任务中耗时长的先执行
+    private double estimateTime;
+    private int state;
+    private String message;
+}
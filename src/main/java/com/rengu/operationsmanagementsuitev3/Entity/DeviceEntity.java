@@ -28,6 +28,8 @@ public class DeviceEntity implements Serializable {
     private String hostAddress;
     private String description;
     private String deployPath;
+    // 部署压缩级别：为空时使用服务器默认值，0不压缩，1-9为deflate压缩级别
+    private Integer compressLevel;
     private boolean deleted = false;
     @ManyToOne
     private ProjectEntity projectEntity;
@@ -0,0 +1,31 @@
+package com.rengu.operationsmanagementsuitev3.Entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 文件存储迁移状态
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 18:10
+ **/
+
+@Data
+public class FileStoreMigrationEntity implements Serializable {
+
+    private boolean running;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date startTime;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date endTime;
+    // 文件总数、已迁移、无需迁移(已在存储位置)及迁移失败的文件数
+    private long totalCount;
+    private long migratedCount;
+    private long skippedCount;
+    private long failedCount;
+    // 等待删除的原文件数
+    private long pendingDeleteCount;
+}
@@ -27,5 +27,7 @@ public class HeartbeatEntity implements Serializable {
     private double upLoadSpeed;
     private int OSType;
     private String OSName;
+    // 客户端支持的扩展部署能力，旧版客户端为0
+    private int deployCapability;
     private int count = 3;
 }
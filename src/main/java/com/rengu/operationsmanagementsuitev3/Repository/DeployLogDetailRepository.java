@@ -7,6 +7,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,4 +22,8 @@ public interface DeployLogDetailRepository extends JpaRepository<DeployLogDetail
     Page<DeployLogDetailEntity> findAllByDeployLogEntity(Pageable pageable, DeployLogEntity deployLogEntity);
 
     List<DeployLogDetailEntity> findAllByDeployLogEntity(DeployLogEntity deployLogEntity);
+
+    List<DeployLogDetailEntity> findAllByHostNameAndCompleteFalseAndCommittedSizeGreaterThanOrderByCreateTimeAsc(String hostName, long committedSize);
+
+    List<DeployLogDetailEntity> findAllByHostNameAndTargetPathInOrderByCreateTimeAsc(String hostName, Collection<String> targetPaths);
 }
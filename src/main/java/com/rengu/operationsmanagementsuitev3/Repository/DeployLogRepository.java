@@ -21,4 +21,8 @@ public interface DeployLogRepository extends JpaRepository<DeployLogEntity, Stri
     Page<DeployLogEntity> findAllByProjectEntity(Pageable pageable, ProjectEntity projectEntity);
 
     List<DeployLogEntity> findAllByProjectEntity(ProjectEntity projectEntity);
+
+    List<DeployLogEntity> findAllByRunningTrue();
+
+    List<DeployLogEntity> findAllByHostAddressAndCompleteTrueAndDeployTimeGreaterThanAndTotalSizeGreaterThanEqual(Pageable pageable, String hostAddress, long deployTime, long totalSize);
 }
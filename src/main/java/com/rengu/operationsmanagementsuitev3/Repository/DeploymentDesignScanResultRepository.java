@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -21,4 +22,6 @@ public interface DeploymentDesignScanResultRepository extends JpaRepository<Depl
     List<DeploymentDesignScanResultEntity> findAllByOrderId(String orderId);
 
     List<DeploymentDesignScanResultEntity> findAllByDeploymentDesignDetailEntity(DeploymentDesignDetailEntity deploymentDesignDetailEntity);
+
+    Optional<DeploymentDesignScanResultEntity> findFirstByDeploymentDesignDetailEntityOrderByCreateTimeDesc(DeploymentDesignDetailEntity deploymentDesignDetailEntity);
 }
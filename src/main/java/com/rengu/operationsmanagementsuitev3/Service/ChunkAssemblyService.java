@@ -0,0 +1,216 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.ChunkEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件块定位写入：首个文件块到达时按文件总大小创建目标文件，每个文件块直接写入(块序号-1)*块大小的位置，
+ * 不再为每个文件块生成临时文件，合并时只需校验MD5并移动文件。
+ * 已写入的文件块记录在内存位图中，同时写入记录文件(第n个字节为1表示第n块已写入)，服务器重启后按记录文件恢复。
+ * 文件块内容与记录依次同步到磁盘，系统崩溃或断电后恢复的记录同样可信。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 17:05
+ **/
+
+@Slf4j
+@Service
+public class ChunkAssemblyService {
+
+    // 文件标识 -> 已写入的文件块(第n块对应第n-1位)
+    private final Map<String, BitSet> receivedChunkMap = new ConcurrentHashMap<>();
+    // 尚未提交的写入通道 -> 打开时的文件块记录，用于判断上传是否正在写入及写入期间是否已被删除
+    private final Map<FileChannel, BitSet> openChunkMap = new ConcurrentHashMap<>();
+
+    // 将文件块写入目标文件的对应位置
+    public void saveChunk(ChunkEntity chunkEntity, MultipartFile multipartFile) throws IOException {
+        long size = multipartFile.getSize();
+        @Cleanup FileChannel fileChannel = openChunk(chunkEntity, size);
+        long offset = fileChannel.position();
+        @Cleanup ReadableByteChannel readableByteChannel = Channels.newChannel(multipartFile.getInputStream());
+        long writeSize = 0;
+        while (writeSize < size) {
+            long transferSize = fileChannel.transferFrom(readableByteChannel, offset + writeSize, size - writeSize);
+            if (transferSize <= 0) {
+                throw new IOException(ApplicationMessages.FILE_CHUNK_NOT_FOUND + chunkEntity.getIdentifier() + "-" + chunkEntity.getChunkNumber());
+            }
+            writeSize = writeSize + transferSize;
+        }
+        commitChunk(chunkEntity, fileChannel);
+    }
+
+    // 打开目标文件并定位到文件块的写入位置，由调用方按顺序写入size字节后调用commitChunk，再关闭通道
+    public FileChannel openChunk(ChunkEntity chunkEntity, long size) throws IOException {
+        long offset = getChunkOffset(chunkEntity);
+        if (size < 0 || offset + size > chunkEntity.getTotalSize()) {
+            throw new RuntimeException(ApplicationMessages.FILE_CHUNK_ARGS_NOT_FOUND);
+        }
+        BitSet receivedChunks = getReceivedChunks(chunkEntity, true);
+        FileChannel fileChannel = FileChannel.open(getPartFile(chunkEntity.getIdentifier()).toPath(), StandardOpenOption.WRITE);
+        fileChannel.position(offset);
+        openChunkMap.put(fileChannel, receivedChunks);
+        return fileChannel;
+    }
+
+    // 记录文件块已写入，fileChannel为openChunk打开的写入通道
+    public void commitChunk(ChunkEntity chunkEntity, FileChannel fileChannel) throws IOException {
+        // 写入期间上传已被删除(清理或合并失败)时，通道写入的是已删除的文件，不重新创建记录
+        BitSet receivedChunks = openChunkMap.remove(fileChannel);
+        if (receivedChunks == null || receivedChunks != receivedChunkMap.get(chunkEntity.getIdentifier())) {
+            throw new RuntimeException(ApplicationMessages.FILE_CHUNK_NOT_FOUND + chunkEntity.getIdentifier() + "-" + chunkEntity.getChunkNumber());
+        }
+        // 文件块内容同步到磁盘后再写入记录，记录文件中的文件块一定已写入目标文件
+        fileChannel.force(false);
+        @Cleanup FileChannel recordChannel = FileChannel.open(getRecordFile(chunkEntity.getIdentifier()).toPath(), StandardOpenOption.WRITE);
+        recordChannel.write(ByteBuffer.wrap(new byte[]{1}), chunkEntity.getChunkNumber() - 1);
+        recordChannel.force(false);
+        synchronized (receivedChunks) {
+            receivedChunks.set(chunkEntity.getChunkNumber() - 1);
+        }
+    }
+
+    // 检查文件块是否已写入
+    public boolean hasChunk(ChunkEntity chunkEntity) {
+        BitSet receivedChunks = getReceivedChunks(chunkEntity, false);
+        if (receivedChunks == null || chunkEntity.getChunkNumber() < 1) {
+            return false;
+        }
+        synchronized (receivedChunks) {
+            return receivedChunks.get(chunkEntity.getChunkNumber() - 1);
+        }
+    }
+
+    // 查询尚未写入的文件块序号
+    public List<Integer> getMissingChunks(ChunkEntity chunkEntity) {
+        BitSet receivedChunks = getReceivedChunks(chunkEntity, false);
+        List<Integer> missingChunkList = new ArrayList<>();
+        if (receivedChunks == null) {
+            for (int i = 1; i <= chunkEntity.getTotalChunks(); i++) {
+                missingChunkList.add(i);
+            }
+            return missingChunkList;
+        }
+        synchronized (receivedChunks) {
+            for (int i = receivedChunks.nextClearBit(0); i < chunkEntity.getTotalChunks(); i = receivedChunks.nextClearBit(i + 1)) {
+                missingChunkList.add(i + 1);
+            }
+        }
+        return missingChunkList;
+    }
+
+    // 获取已写入全部文件块的目标文件
+    public File getAssembledFile(ChunkEntity chunkEntity) {
+        BitSet receivedChunks = getReceivedChunks(chunkEntity, false);
+        File partFile = getPartFile(chunkEntity.getIdentifier());
+        if (receivedChunks == null || !partFile.exists()) {
+            throw new RuntimeException(ApplicationMessages.FILE_CHUNK_NOT_FOUND + chunkEntity.getIdentifier() + "-1");
+        }
+        synchronized (receivedChunks) {
+            int missingChunk = receivedChunks.nextClearBit(0);
+            if (missingChunk < chunkEntity.getTotalChunks()) {
+                throw new RuntimeException(ApplicationMessages.FILE_CHUNK_NOT_FOUND + chunkEntity.getIdentifier() + "-" + (missingChunk + 1));
+            }
+        }
+        if (chunkEntity.getTotalSize() > 0 && partFile.length() != chunkEntity.getTotalSize()) {
+            throw new RuntimeException(ApplicationMessages.FILE_CHUNK_ARGS_NOT_FOUND);
+        }
+        return partFile;
+    }
+
+    // 检查上传是否有已打开未提交的写入通道，同时清除已关闭的通道
+    public boolean isWriting(String identifier) {
+        BitSet receivedChunks = receivedChunkMap.get(identifier);
+        boolean writing = false;
+        Iterator<Map.Entry<FileChannel, BitSet>> iterator = openChunkMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<FileChannel, BitSet> entry = iterator.next();
+            if (!entry.getKey().isOpen()) {
+                iterator.remove();
+            } else if (entry.getValue() == receivedChunks) {
+                writing = true;
+            }
+        }
+        return writing;
+    }
+
+    // 合并完成或放弃上传时清除文件块记录及目标文件
+    public void deleteChunks(String identifier) {
+        receivedChunkMap.remove(identifier);
+        FileUtils.deleteQuietly(getPartFile(identifier));
+        FileUtils.deleteQuietly(getRecordFile(identifier));
+    }
+
+    // 获取文件块记录，内存中不存在时从记录文件恢复，create为true且无法恢复时按总大小创建目标文件及记录文件，否则返回null
+    private BitSet getReceivedChunks(ChunkEntity chunkEntity, boolean create) {
+        return receivedChunkMap.computeIfAbsent(chunkEntity.getIdentifier(), identifier -> {
+            File partFile = getPartFile(identifier);
+            File recordFile = getRecordFile(identifier);
+            try {
+                if (partFile.exists() && recordFile.exists()) {
+                    return loadReceivedChunks(recordFile);
+                }
+                if (!create) {
+                    return null;
+                }
+                FileUtils.forceMkdir(partFile.getParentFile());
+                @Cleanup RandomAccessFile partRandomAccessFile = new RandomAccessFile(partFile, "rw");
+                partRandomAccessFile.setLength(chunkEntity.getTotalSize());
+                @Cleanup RandomAccessFile recordRandomAccessFile = new RandomAccessFile(recordFile, "rw");
+                recordRandomAccessFile.setLength(chunkEntity.getTotalChunks());
+            } catch (IOException e) {
+                throw new RuntimeException(ApplicationMessages.FILE_CHUNK_ARGS_NOT_FOUND + "：" + e.getMessage());
+            }
+            log.info(chunkEntity.getFilename() + ":创建上传文件，大小" + chunkEntity.getTotalSize() + "字节，文件块" + chunkEntity.getTotalChunks() + "个");
+            return new BitSet(chunkEntity.getTotalChunks());
+        });
+    }
+
+    private BitSet loadReceivedChunks(File recordFile) throws IOException {
+        byte[] records = FileUtils.readFileToByteArray(recordFile);
+        BitSet receivedChunks = new BitSet(records.length);
+        for (int i = 0; i < records.length; i++) {
+            if (records[i] == 1) {
+                receivedChunks.set(i);
+            }
+        }
+        log.info(recordFile.getName() + ":恢复文件块记录，已写入" + receivedChunks.cardinality() + "/" + records.length + "块");
+        return receivedChunks;
+    }
+
+    // 文件块写入位置，块序号从1开始，最后一块可能大于块大小
+    private long getChunkOffset(ChunkEntity chunkEntity) {
+        if (chunkEntity.getChunkNumber() < 1 || chunkEntity.getChunkNumber() > chunkEntity.getTotalChunks() || chunkEntity.getChunkSize() <= 0 || chunkEntity.getTotalSize() < 0) {
+            throw new RuntimeException(ApplicationMessages.FILE_CHUNK_ARGS_NOT_FOUND);
+        }
+        return (chunkEntity.getChunkNumber() - 1) * chunkEntity.getChunkSize();
+    }
+
+    private File getPartFile(String identifier) {
+        return new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + identifier + ".part");
+    }
+
+    private File getRecordFile(String identifier) {
+        return new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + identifier + ".chunks");
+    }
+}
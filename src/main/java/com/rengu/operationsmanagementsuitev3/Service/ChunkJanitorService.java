@@ -0,0 +1,140 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.ChunkJanitorEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件块清理：定期扫描文件块保存路径，按上传标识分组(文件块目录或定位写入的目标文件及记录文件)，
+ * 删除已合并及超过有效期未更新的上传，剩余总大小超过配额时按最后更新时间从旧到新删除。
+ * 正在写入文件块的上传不删除，写入通道仍指向原文件，删除后写入的数据将丢失。
+ * 每次删除后暂停一段时间，避免集中删除占用磁盘。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 17:40
+ **/
+
+@Slf4j
+@Service
+public class ChunkJanitorService {
+
+    private final FileService fileService;
+    private final ChunkAssemblyService chunkAssemblyService;
+    // 统计信息
+    private final AtomicLong reclaimedSize = new AtomicLong();
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private volatile int liveUploadCount;
+    private volatile long liveSize;
+    private volatile Date lastCleanTime;
+
+    @Autowired
+    public ChunkJanitorService(FileService fileService, ChunkAssemblyService chunkAssemblyService) {
+        this.fileService = fileService;
+        this.chunkAssemblyService = chunkAssemblyService;
+    }
+
+    // 清理一次文件块保存路径
+    public synchronized void cleanChunks() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        List<UploadChunks> uploadChunksList = new ArrayList<>();
+        long totalSize = 0;
+        int writingCount = 0;
+        for (UploadChunks uploadChunks : getUploadChunks()) {
+            if (chunkAssemblyService.isWriting(uploadChunks.identifier)) {
+                // 计入总大小但不参与清理
+                writingCount = writingCount + 1;
+                totalSize = totalSize + uploadChunks.size;
+            } else if (fileService.hasFileByMD5(uploadChunks.identifier)) {
+                deleteUploadChunks(uploadChunks, "已合并");
+                mergedCount.incrementAndGet();
+            } else if (now - uploadChunks.lastModified > ApplicationConfig.CHUNK_EXPIRE_TIME) {
+                deleteUploadChunks(uploadChunks, "已过期");
+                expiredCount.incrementAndGet();
+            } else {
+                uploadChunksList.add(uploadChunks);
+                totalSize = totalSize + uploadChunks.size;
+            }
+        }
+        // 超过配额时优先删除最久未更新的上传
+        uploadChunksList.sort(Comparator.comparingLong(uploadChunks -> uploadChunks.lastModified));
+        Iterator<UploadChunks> iterator = uploadChunksList.iterator();
+        while (totalSize > ApplicationConfig.CHUNK_QUOTA_SIZE && iterator.hasNext()) {
+            UploadChunks uploadChunks = iterator.next();
+            deleteUploadChunks(uploadChunks, "超过配额");
+            evictedCount.incrementAndGet();
+            totalSize = totalSize - uploadChunks.size;
+            iterator.remove();
+        }
+        liveUploadCount = uploadChunksList.size() + writingCount;
+        liveSize = totalSize;
+        lastCleanTime = new Date();
+    }
+
+    // 查询清理统计信息
+    public ChunkJanitorEntity getChunkJanitor() {
+        ChunkJanitorEntity chunkJanitorEntity = new ChunkJanitorEntity();
+        chunkJanitorEntity.setQuotaSize(ApplicationConfig.CHUNK_QUOTA_SIZE);
+        chunkJanitorEntity.setExpireTime(ApplicationConfig.CHUNK_EXPIRE_TIME);
+        chunkJanitorEntity.setLiveUploadCount(liveUploadCount);
+        chunkJanitorEntity.setLiveSize(liveSize);
+        chunkJanitorEntity.setReclaimedSize(reclaimedSize.get());
+        chunkJanitorEntity.setMergedCount(mergedCount.get());
+        chunkJanitorEntity.setExpiredCount(expiredCount.get());
+        chunkJanitorEntity.setEvictedCount(evictedCount.get());
+        chunkJanitorEntity.setLastCleanTime(lastCleanTime);
+        return chunkJanitorEntity;
+    }
+
+    // 按上传标识分组统计大小及最后更新时间
+    private Collection<UploadChunks> getUploadChunks() {
+        Map<String, UploadChunks> uploadChunksMap = new HashMap<>();
+        File[] files = new File(ApplicationConfig.CHUNKS_SAVE_PATH).listFiles();
+        if (files == null) {
+            return uploadChunksMap.values();
+        }
+        for (File file : files) {
+            String identifier = file.isDirectory() ? file.getName() : FilenameUtils.getBaseName(file.getName());
+            UploadChunks uploadChunks = uploadChunksMap.computeIfAbsent(identifier, UploadChunks::new);
+            uploadChunks.size = uploadChunks.size + FileUtils.sizeOf(file);
+            uploadChunks.lastModified = Math.max(uploadChunks.lastModified, file.lastModified());
+            if (file.isDirectory()) {
+                File[] chunks = file.listFiles();
+                if (chunks != null) {
+                    for (File chunk : chunks) {
+                        uploadChunks.lastModified = Math.max(uploadChunks.lastModified, chunk.lastModified());
+                    }
+                }
+            }
+        }
+        return uploadChunksMap.values();
+    }
+
+    private void deleteUploadChunks(UploadChunks uploadChunks, String reason) throws InterruptedException {
+        FileUtils.deleteQuietly(new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + uploadChunks.identifier));
+        chunkAssemblyService.deleteChunks(uploadChunks.identifier);
+        reclaimedSize.addAndGet(uploadChunks.size);
+        log.info(uploadChunks.identifier + ":清理文件块(" + reason + ")，释放" + uploadChunks.size + "字节");
+        Thread.sleep(ApplicationConfig.CHUNK_JANITOR_DELETE_INTERVAL);
+    }
+
+    private static class UploadChunks {
+
+        private final String identifier;
+        private long size;
+        private long lastModified;
+
+        UploadChunks(String identifier) {
+            this.identifier = identifier;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.ChunkEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 文件块异步上传：请求体为文件块原始内容，基于Servlet 3.1非阻塞读取，只在有数据可读时由容器线程读取并写入目标文件，
+ * 等待客户端数据期间不占用线程，上传缓慢的客户端不再长时间占用Tomcat工作线程。
+ * 每次读取的数据同步写入磁盘后才继续读取，写入跟不上时不会在内存中积压数据。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 18:40
+ **/
+
+@Slf4j
+@Service
+public class ChunkUploadService {
+
+    private final FileService fileService;
+
+    @Autowired
+    public ChunkUploadService(FileService fileService) {
+        this.fileService = fileService;
+    }
+
+    // 开始异步接收文件块，请求需带Content-Length
+    public void saveChunk(ChunkEntity chunkEntity, HttpServletRequest httpServletRequest) throws IOException {
+        long size = httpServletRequest.getContentLengthLong();
+        if (size < 0) {
+            throw new RuntimeException(ApplicationMessages.FILE_CHUNK_ARGS_NOT_FOUND);
+        }
+        FileChannel fileChannel = fileService.openChunk(chunkEntity, size);
+        try {
+            AsyncContext asyncContext = httpServletRequest.startAsync();
+            asyncContext.setTimeout(ApplicationConfig.CHUNK_UPLOAD_TIME_OUT);
+            ChunkReadListener chunkReadListener = new ChunkReadListener(chunkEntity, size, fileChannel, asyncContext);
+            asyncContext.addListener(chunkReadListener);
+            httpServletRequest.getInputStream().setReadListener(chunkReadListener);
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    // 单个文件块的读取监听，容器保证同一请求的回调不会并发执行
+    private class ChunkReadListener implements ReadListener, AsyncListener {
+
+        private final ChunkEntity chunkEntity;
+        private final long size;
+        private final FileChannel fileChannel;
+        private final AsyncContext asyncContext;
+        private final ServletInputStream servletInputStream;
+        private final byte[] buffer = new byte[ApplicationConfig.CHUNK_UPLOAD_BUFFER_SIZE];
+        private long writeSize;
+        private boolean finished;
+
+        private ChunkReadListener(ChunkEntity chunkEntity, long size, FileChannel fileChannel, AsyncContext asyncContext) throws IOException {
+            this.chunkEntity = chunkEntity;
+            this.size = size;
+            this.fileChannel = fileChannel;
+            this.asyncContext = asyncContext;
+            this.servletInputStream = asyncContext.getRequest().getInputStream();
+        }
+
+        // 读取当前可读的全部数据，isReady返回false后退出，数据到达时容器再次回调
+        @Override
+        public void onDataAvailable() throws IOException {
+            while (servletInputStream.isReady()) {
+                int readSize = servletInputStream.read(buffer);
+                if (readSize < 0) {
+                    return;
+                }
+                if (writeSize + readSize > size) {
+                    throw new IOException(ApplicationMessages.FILE_CHUNK_ARGS_NOT_FOUND);
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, readSize);
+                while (byteBuffer.hasRemaining()) {
+                    fileChannel.write(byteBuffer);
+                }
+                writeSize = writeSize + readSize;
+            }
+        }
+
+        @Override
+        public void onAllDataRead() throws IOException {
+            if (writeSize != size) {
+                finish(HttpServletResponse.SC_BAD_REQUEST, ApplicationMessages.FILE_CHUNK_NOT_FOUND + chunkEntity.getIdentifier() + "-" + chunkEntity.getChunkNumber());
+                return;
+            }
+            fileService.commitChunk(chunkEntity, fileChannel);
+            finish(HttpServletResponse.SC_OK, null);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, throwable.getMessage());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent asyncEvent) {
+            finish(HttpServletResponse.SC_REQUEST_TIMEOUT, "文件块上传超时");
+        }
+
+        @Override
+        public void onError(AsyncEvent asyncEvent) {
+            finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, asyncEvent.getThrowable() == null ? null : asyncEvent.getThrowable().getMessage());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent asyncEvent) {
+            closeFileChannel();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent asyncEvent) {
+        }
+
+        // 关闭写入通道并结束请求，失败的文件块不记录，客户端重新上传
+        private synchronized void finish(int status, String message) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            closeFileChannel();
+            if (message != null) {
+                log.info(chunkEntity.getIdentifier() + "-" + chunkEntity.getChunkNumber() + ":文件块上传失败，已接收" + writeSize + "/" + size + "字节：" + message);
+            }
+            try {
+                ((HttpServletResponse) asyncContext.getResponse()).setStatus(status);
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                log.debug(chunkEntity.getIdentifier() + "-" + chunkEntity.getChunkNumber() + ":文件块上传请求已结束");
+            }
+        }
+
+        private void closeFileChannel() {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                log.debug(chunkEntity.getIdentifier() + "-" + chunkEntity.getChunkNumber() + ":关闭文件块写入通道失败：" + e.getMessage());
+            }
+        }
+    }
+}
@@ -32,11 +32,15 @@ public class ComponentHistoryService {
 
     private final ComponentHistoryRepository componentHistoryRepository;
     private final ComponentFileHistoryService componentFileHistoryService;
+    private final DeployManifestService deployManifestService;
+    private final DeployBundleService deployBundleService;
 
     @Autowired
-    public ComponentHistoryService(ComponentHistoryRepository componentHistoryRepository, ComponentFileHistoryService componentFileHistoryService) {
+    public ComponentHistoryService(ComponentHistoryRepository componentHistoryRepository, ComponentFileHistoryService componentFileHistoryService, DeployManifestService deployManifestService, DeployBundleService deployBundleService) {
         this.componentHistoryRepository = componentHistoryRepository;
         this.componentFileHistoryService = componentFileHistoryService;
+        this.deployManifestService = deployManifestService;
+        this.deployBundleService = deployBundleService;
     }
 
     // 根据组件保存组件历史
@@ -56,6 +60,8 @@ public class ComponentHistoryService {
     public ComponentHistoryEntity deleteComponentHistoryById(String componentHistoryId) throws IOException {
         ComponentHistoryEntity componentHistoryEntity = getComponentHistoryById(componentHistoryId);
         componentFileHistoryService.deleteComponentFileByComponentHistory(componentHistoryEntity);
+        deployBundleService.deleteDeployBundle(componentHistoryEntity);
+        deployManifestService.deleteDeployManifest(componentHistoryEntity);
         componentHistoryRepository.delete(componentHistoryEntity);
         return componentHistoryEntity;
     }
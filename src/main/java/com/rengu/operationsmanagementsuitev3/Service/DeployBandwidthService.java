@@ -0,0 +1,188 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeployBandwidthEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeviceEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 部署带宽控制：发送数据前同时从设备、工程及全局令牌桶扣除令牌，按欠账最多的桶等待一次，
+ * 令牌不足时按预留顺序排队等待，同一桶上的各传输轮流发送，平分可用带宽。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 12:24
+ **/
+
+@Slf4j
+@Service
+public class DeployBandwidthService {
+
+    private final TokenBucket globalBucket = new TokenBucket(ApplicationConfig.DEPLOY_GLOBAL_RATE);
+    // 工程Id -> 令牌桶
+    private final Map<String, TokenBucket> projectBuckets = new ConcurrentHashMap<>();
+    // 设备IP -> 令牌桶
+    private final Map<String, TokenBucket> deviceBuckets = new ConcurrentHashMap<>();
+    // 单独设置的限制
+    private final Map<String, Long> projectRateMap = new ConcurrentHashMap<>();
+    private final Map<String, Long> deviceRateMap = new ConcurrentHashMap<>();
+    private volatile long projectRate = ApplicationConfig.DEPLOY_PROJECT_RATE;
+    private volatile long deviceRate = ApplicationConfig.DEPLOY_DEVICE_RATE;
+
+    // 发送前取得令牌，deviceEntity为空时(如组播)只受全局限制；各桶的欠账同时补充，只需等待最长的一个
+    public void acquire(DeviceEntity deviceEntity, long size) throws InterruptedIOException {
+        long waitTime = reserve(deviceEntity, size);
+        if (waitTime <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(waitTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("部署被中断");
+        }
+    }
+
+    // 非阻塞预留令牌，返回发送前需要等待的毫秒数(0表示可立即发送)，供非阻塞部署引擎使用
+    public long reserve(DeviceEntity deviceEntity, long size) {
+        if (size <= 0) {
+            return 0;
+        }
+        long waitTime = 0;
+        if (deviceEntity != null) {
+            waitTime = deviceBuckets.computeIfAbsent(deviceEntity.getHostAddress(), key -> new TokenBucket(deviceRateMap.getOrDefault(key, deviceRate))).reserve(size);
+            if (deviceEntity.getProjectEntity() != null) {
+                waitTime = Math.max(waitTime, projectBuckets.computeIfAbsent(deviceEntity.getProjectEntity().getId(), key -> new TokenBucket(projectRateMap.getOrDefault(key, projectRate))).reserve(size));
+            }
+        }
+        return Math.max(waitTime, globalBucket.reserve(size));
+    }
+
+    // 查询设备的带宽限制(字节/秒，0表示不限制)
+    public long getDeviceRate(String hostAddress) {
+        return deviceRateMap.getOrDefault(hostAddress, deviceRate);
+    }
+
+    // 查询全局带宽限制(字节/秒，0表示不限制)
+    public long getGlobalRate() {
+        return globalBucket.getRate();
+    }
+
+    // 查询带宽限制
+    public DeployBandwidthEntity getDeployBandwidth() {
+        DeployBandwidthEntity deployBandwidthEntity = new DeployBandwidthEntity();
+        deployBandwidthEntity.setGlobalRate(globalBucket.getRate());
+        deployBandwidthEntity.setProjectRate(projectRate);
+        deployBandwidthEntity.setDeviceRate(deviceRate);
+        deployBandwidthEntity.getProjectRateMap().putAll(projectRateMap);
+        deployBandwidthEntity.getDeviceRateMap().putAll(deviceRateMap);
+        return deployBandwidthEntity;
+    }
+
+    // 修改全局及默认带宽限制(运行时生效)，参数小于0时保持不变
+    public synchronized DeployBandwidthEntity updateDeployBandwidth(long globalRate, long projectRate, long deviceRate) {
+        if (globalRate >= 0) {
+            globalBucket.setRate(globalRate);
+        }
+        if (projectRate >= 0) {
+            this.projectRate = projectRate;
+            for (Map.Entry<String, TokenBucket> entry : projectBuckets.entrySet()) {
+                entry.getValue().setRate(projectRateMap.getOrDefault(entry.getKey(), projectRate));
+            }
+        }
+        if (deviceRate >= 0) {
+            this.deviceRate = deviceRate;
+            for (Map.Entry<String, TokenBucket> entry : deviceBuckets.entrySet()) {
+                entry.getValue().setRate(deviceRateMap.getOrDefault(entry.getKey(), deviceRate));
+            }
+        }
+        log.info("部署带宽限制已修改，全局：" + globalBucket.getRate() + "B/s，工程：" + this.projectRate + "B/s，设备：" + this.deviceRate + "B/s");
+        return getDeployBandwidth();
+    }
+
+    // 单独设置工程带宽限制，rate小于0时恢复默认值
+    public synchronized DeployBandwidthEntity updateProjectBandwidth(String projectId, long rate) {
+        updateBucketRate(projectBuckets, projectRateMap, projectId, rate, projectRate);
+        return getDeployBandwidth();
+    }
+
+    // 单独设置设备带宽限制，rate小于0时恢复默认值
+    public synchronized DeployBandwidthEntity updateDeviceBandwidth(String hostAddress, long rate) {
+        updateBucketRate(deviceBuckets, deviceRateMap, hostAddress, rate, deviceRate);
+        return getDeployBandwidth();
+    }
+
+    private void updateBucketRate(Map<String, TokenBucket> buckets, Map<String, Long> rateMap, String key, long rate, long defaultRate) {
+        if (rate < 0) {
+            rateMap.remove(key);
+        } else {
+            rateMap.put(key, rate);
+        }
+        TokenBucket tokenBucket = buckets.get(key);
+        if (tokenBucket != null) {
+            tokenBucket.setRate(rateMap.getOrDefault(key, defaultRate));
+        }
+    }
+
+    // 令牌桶：按速率持续补充令牌，容量为DEPLOY_RATE_BURST_TIME内的发送量；
+    // 令牌不足时先扣除(允许欠账)再等待欠账补足，后预留的发送需要等待之前的欠账，因此按预留顺序轮流发送
+    private static class TokenBucket {
+
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private volatile long rate;
+        private double tokens;
+        private long lastTime = System.nanoTime();
+
+        TokenBucket(long rate) {
+            this.rate = rate;
+        }
+
+        long getRate() {
+            return rate;
+        }
+
+        void setRate(long rate) {
+            lock.lock();
+            try {
+                refill();
+                this.rate = rate;
+                tokens = Math.min(tokens, getCapacity());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 扣除令牌但不等待，返回欠账补足所需的毫秒数
+        long reserve(long size) {
+            if (rate <= 0) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                refill();
+                tokens = tokens - size;
+                return tokens < 0 ? (long) Math.ceil(-tokens * 1000 / rate) : 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            if (rate > 0) {
+                tokens = Math.min(getCapacity(), tokens + (double) (now - lastTime) * rate / TimeUnit.SECONDS.toNanos(1));
+            }
+            lastTime = now;
+        }
+
+        private double getCapacity() {
+            return (double) rate * ApplicationConfig.DEPLOY_RATE_BURST_TIME / 1000;
+        }
+    }
+}
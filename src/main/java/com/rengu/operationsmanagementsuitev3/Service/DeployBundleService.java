@@ -0,0 +1,119 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.ComponentHistoryEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployManifestEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployManifestFileEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 部署包：将组件历史的全部文件按部署清单顺序打包为一个连续文件，部署时作为一个文件帧发送，由客户端解包，
+ * 避免大量小文件逐个发送帧头及等待确认。组件历史保存后文件不再变化，部署包在首次部署或创建基线时生成，
+ * 删除组件历史时清除。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 15:24
+ **/
+
+@Slf4j
+@Service
+public class DeployBundleService {
+
+    private final DeployManifestService deployManifestService;
+    // 组件历史Id -> 生成部署包时使用的锁，避免多台设备同时部署时重复生成
+    private final Map<String, Object> bundleLockMap = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DeployBundleService(DeployManifestService deployManifestService) {
+        this.deployManifestService = deployManifestService;
+    }
+
+    // 判断组件历史是否适合打包部署(文件数量较多)
+    public boolean isBundleable(DeployManifestEntity deployManifestEntity) {
+        return deployManifestEntity.getDeployManifestFileEntityList().size() >= ApplicationConfig.DEPLOY_BUNDLE_MIN_FILES;
+    }
+
+    // 获取组件历史的部署包，不存在时生成
+    public File getDeployBundle(ComponentHistoryEntity componentHistoryEntity) throws IOException {
+        File bundleFile = getBundleFile(componentHistoryEntity.getId());
+        if (bundleFile.exists()) {
+            return bundleFile;
+        }
+        synchronized (bundleLockMap.computeIfAbsent(componentHistoryEntity.getId(), key -> new Object())) {
+            try {
+                if (!bundleFile.exists()) {
+                    createDeployBundle(componentHistoryEntity, bundleFile);
+                }
+                return bundleFile;
+            } finally {
+                bundleLockMap.remove(componentHistoryEntity.getId());
+            }
+        }
+    }
+
+    // 创建基线时预先生成部署包
+    @Async
+    public void createDeployBundles(List<ComponentHistoryEntity> componentHistoryEntityList) {
+        for (ComponentHistoryEntity componentHistoryEntity : componentHistoryEntityList) {
+            if (!isBundleable(deployManifestService.getDeployManifest(componentHistoryEntity))) {
+                continue;
+            }
+            try {
+                getDeployBundle(componentHistoryEntity);
+            } catch (IOException e) {
+                log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":部署包生成失败：" + e.getMessage());
+            }
+        }
+    }
+
+    // 删除组件历史时清除部署包
+    public void deleteDeployBundle(ComponentHistoryEntity componentHistoryEntity) {
+        FileUtils.deleteQuietly(getBundleFile(componentHistoryEntity.getId()));
+    }
+
+    // 按清单顺序写入每个文件的条目头及内容，先写入临时文件再替换，避免并发读取到不完整的部署包
+    private void createDeployBundle(ComponentHistoryEntity componentHistoryEntity, File bundleFile) throws IOException {
+        DeployManifestEntity deployManifestEntity = deployManifestService.getDeployManifest(componentHistoryEntity);
+        File tempFile = new File(bundleFile.getAbsolutePath() + "." + UUID.randomUUID().toString() + ".tmp");
+        FileUtils.forceMkdir(tempFile.getParentFile());
+        try {
+            @Cleanup OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+            for (DeployManifestFileEntity deployManifestFileEntity : deployManifestEntity.getDeployManifestFileEntityList()) {
+                File file = new File(deployManifestFileEntity.getLocalPath());
+                // 文件大小与清单不一致时条目无法定界
+                if (file.length() != deployManifestFileEntity.getSize()) {
+                    throw new IOException(deployManifestFileEntity.getRelativePath() + ":文件大小与部署清单不一致");
+                }
+                outputStream.write(DeployProtocolUtils.getBundleEntryHeader(deployManifestFileEntity.getSize(), deployManifestFileEntity.getMD5(), deployManifestFileEntity.getRelativePath()));
+                Files.copy(file.toPath(), outputStream);
+            }
+            outputStream.close();
+            Files.move(tempFile.toPath(), bundleFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+        log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":生成部署包，文件" + deployManifestEntity.getDeployManifestFileEntityList().size() + "个，部署包大小" + bundleFile.length() + "字节");
+    }
+
+    private File getBundleFile(String componentHistoryId) {
+        return new File(ApplicationConfig.BUNDLES_SAVE_PATH + File.separator + componentHistoryId + ".bundle");
+    }
+}
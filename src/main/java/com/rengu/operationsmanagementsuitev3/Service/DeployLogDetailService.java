@@ -3,6 +3,7 @@ package com.rengu.operationsmanagementsuitev3.Service;
 import com.rengu.operationsmanagementsuitev3.Entity.DeployLogDetailEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.DeployLogEntity;
 import com.rengu.operationsmanagementsuitev3.Repository.DeployLogDetailRepository;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
 import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +13,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @program: operations-management-suite-v3
@@ -26,6 +31,8 @@ import java.util.List;
 public class DeployLogDetailService {
 
     private final DeployLogDetailRepository deployLogDetailRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     public DeployLogDetailService(DeployLogDetailRepository deployLogDetailRepository) {
@@ -36,6 +43,19 @@ public class DeployLogDetailService {
         return deployLogDetailRepository.saveAll(deployLogDetailEntityList);
     }
 
+    // 批量插入新的日志详情，按批量大小刷新并清理持久化上下文
+    public void insertDeployLogDetails(List<DeployLogDetailEntity> deployLogDetailEntityList) {
+        for (int i = 0; i < deployLogDetailEntityList.size(); i++) {
+            entityManager.persist(deployLogDetailEntityList.get(i));
+            if ((i + 1) % ApplicationConfig.DEPLOY_LOG_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
     public DeployLogDetailEntity deleteDeployLogDetailsById(String deployLogDetailId) {
         DeployLogDetailEntity deployLogDetailEntity = getDeployLogDetailsById(deployLogDetailId);
         deployLogDetailRepository.delete(deployLogDetailEntity);
@@ -71,4 +91,25 @@ public class DeployLogDetailService {
     public List<DeployLogDetailEntity> getDeployLogDetailsByDeployLog(DeployLogEntity deployLogEntity) {
         return deployLogDetailRepository.findAllByDeployLogEntity(deployLogEntity);
     }
+
+    // 查询设备上未完成部署的检查点，同一路径以最近一次记录为准，最近一次已部署完成的路径不再续传
+    public Map<String, DeployLogDetailEntity> getDeployCheckpoints(String hostName) {
+        Map<String, DeployLogDetailEntity> deployCheckpointMap = new HashMap<>();
+        for (DeployLogDetailEntity deployLogDetailEntity : deployLogDetailRepository.findAllByHostNameAndCompleteFalseAndCommittedSizeGreaterThanOrderByCreateTimeAsc(hostName, 0)) {
+            deployCheckpointMap.put(deployLogDetailEntity.getTargetPath(), deployLogDetailEntity);
+        }
+        if (deployCheckpointMap.isEmpty()) {
+            return deployCheckpointMap;
+        }
+        Map<String, DeployLogDetailEntity> latestDetailMap = new HashMap<>();
+        for (DeployLogDetailEntity deployLogDetailEntity : deployLogDetailRepository.findAllByHostNameAndTargetPathInOrderByCreateTimeAsc(hostName, deployCheckpointMap.keySet())) {
+            latestDetailMap.put(deployLogDetailEntity.getTargetPath(), deployLogDetailEntity);
+        }
+        for (DeployLogDetailEntity deployLogDetailEntity : latestDetailMap.values()) {
+            if (deployLogDetailEntity.isComplete()) {
+                deployCheckpointMap.remove(deployLogDetailEntity.getTargetPath());
+            }
+        }
+        return deployCheckpointMap;
+    }
 }
@@ -3,13 +3,16 @@ package com.rengu.operationsmanagementsuitev3.Service;
 import com.rengu.operationsmanagementsuitev3.Entity.DeployLogEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.ProjectEntity;
 import com.rengu.operationsmanagementsuitev3.Repository.DeployLogRepository;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
 import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -58,6 +61,17 @@ public class DeployLogService {
         return deployLogEntityList;
     }
 
+    // 服务器异常退出时未结束的部署日志保持为部署中，启动时标记为已结束且未完成
+    @CacheEvict(value = "DeployLog_Cache", allEntries = true)
+    public List<DeployLogEntity> finishInterruptedDeployLogs() {
+        List<DeployLogEntity> deployLogEntityList = deployLogRepository.findAllByRunningTrue();
+        for (DeployLogEntity deployLogEntity : deployLogEntityList) {
+            deployLogEntity.setRunning(false);
+            deployLogEntity.setComplete(false);
+        }
+        return deployLogRepository.saveAll(deployLogEntityList);
+    }
+
     public boolean hasDeployLogById(String deployLogId) {
         if (StringUtils.isEmpty(deployLogId)) {
             return false;
@@ -84,4 +98,9 @@ public class DeployLogService {
     public Page<DeployLogEntity> getDeployLogs(Pageable pageable) {
         return deployLogRepository.findAll(pageable);
     }
+
+    // 查询设备最近的完整部署记录(按时间倒序)，用于统计部署吞吐量
+    public List<DeployLogEntity> getLatestDeployLogsByHostAddress(String hostAddress, int size) {
+        return deployLogRepository.findAllByHostAddressAndCompleteTrueAndDeployTimeGreaterThanAndTotalSizeGreaterThanEqual(PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createTime")), hostAddress, 0, ApplicationConfig.DEPLOY_THROUGHPUT_MIN_SIZE);
+    }
 }
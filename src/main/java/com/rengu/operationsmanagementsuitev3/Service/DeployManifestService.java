@@ -0,0 +1,202 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.ComponentFileHistoryEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.ComponentHistoryEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployManifestEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployManifestFileEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.CompressUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.FormatUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 部署清单：组件历史保存后文件不再变化，首次使用时生成清单(相对路径、大小、MD5、本地路径)，
+ * 缓存在内存中并保存到磁盘，避免每次部署逐个查询文件树、拼接路径及读取文件大小。
+ * 文件保存位置变化时递增存储版本，版本变化前开始生成的清单可能记录了原保存位置，只返回给本次调用，不再缓存。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 14:12
+ **/
+
+@Slf4j
+@Service
+public class DeployManifestService {
+
+    private final ComponentFileHistoryService componentFileHistoryService;
+    // 组件历史Id -> 部署清单，超出容量时淘汰最久未使用的清单(磁盘中仍保留)
+    private final Map<String, DeployManifestEntity> deployManifestCache = Collections.synchronizedMap(new LinkedHashMap<String, DeployManifestEntity>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeployManifestEntity> eldest) {
+            return size() > ApplicationConfig.DEPLOY_MANIFEST_CACHE_SIZE;
+        }
+    });
+    // 存储版本，文件保存位置每变化一次加一，与缓存的修改使用同一个锁
+    private long generation;
+
+    @Autowired
+    public DeployManifestService(ComponentFileHistoryService componentFileHistoryService) {
+        this.componentFileHistoryService = componentFileHistoryService;
+    }
+
+    // 获取组件历史的部署清单，依次从内存、磁盘读取，均不存在时生成
+    public DeployManifestEntity getDeployManifest(ComponentHistoryEntity componentHistoryEntity) {
+        DeployManifestEntity deployManifestEntity = deployManifestCache.get(componentHistoryEntity.getId());
+        if (deployManifestEntity != null) {
+            return deployManifestEntity;
+        }
+        // 读取文件保存位置前记录存储版本
+        long generation = getGeneration();
+        File manifestFile = getManifestFile(componentHistoryEntity.getId());
+        if (manifestFile.exists()) {
+            try {
+                deployManifestEntity = JsonUtils.readValue(FileUtils.readFileToString(manifestFile, StandardCharsets.UTF_8), DeployManifestEntity.class);
+            } catch (IOException e) {
+                log.info(componentHistoryEntity.getId() + ":部署清单读取失败，重新生成：" + e.getMessage());
+            }
+        }
+        boolean created = false;
+        if (deployManifestEntity == null) {
+            deployManifestEntity = createDeployManifest(componentHistoryEntity);
+            created = true;
+        }
+        // 清单内容不允许修改
+        deployManifestEntity.setDeployManifestFileEntityList(Collections.unmodifiableList(deployManifestEntity.getDeployManifestFileEntityList()));
+        synchronized (deployManifestCache) {
+            // 生成期间文件保存位置已变化，清单可能已过期，不写回缓存及磁盘
+            if (generation == this.generation) {
+                if (created) {
+                    saveManifestFile(manifestFile, deployManifestEntity);
+                }
+                deployManifestCache.put(componentHistoryEntity.getId(), deployManifestEntity);
+            }
+        }
+        return deployManifestEntity;
+    }
+
+    // 删除组件历史时清除部署清单
+    public void deleteDeployManifest(ComponentHistoryEntity componentHistoryEntity) {
+        deployManifestCache.remove(componentHistoryEntity.getId());
+        FileUtils.deleteQuietly(getManifestFile(componentHistoryEntity.getId()));
+    }
+
+    // 单个文件保存位置变化，之后生成完成的清单需要重新读取
+    public void invalidateDeployManifests() {
+        synchronized (deployManifestCache) {
+            generation = generation + 1;
+        }
+    }
+
+    // 文件保存位置变化后清除全部部署清单，之后按需重新生成
+    public void clearDeployManifests() {
+        synchronized (deployManifestCache) {
+            generation = generation + 1;
+            deployManifestCache.clear();
+            File[] manifestFiles = new File(ApplicationConfig.MANIFESTS_SAVE_PATH).listFiles();
+            if (manifestFiles != null) {
+                for (File manifestFile : manifestFiles) {
+                    FileUtils.deleteQuietly(manifestFile);
+                }
+            }
+        }
+    }
+
+    // 判断缓存的部署清单是否仍引用指定的本地文件
+    public boolean isLocalPathReferenced(String localPath) {
+        synchronized (deployManifestCache) {
+            for (DeployManifestEntity deployManifestEntity : deployManifestCache.values()) {
+                for (DeployManifestFileEntity deployManifestFileEntity : deployManifestEntity.getDeployManifestFileEntityList()) {
+                    if (localPath.equals(deployManifestFileEntity.getLocalPath())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // 根据部署清单导出组件历史的全部文件
+    public File exportDeployManifest(ComponentHistoryEntity componentHistoryEntity) throws IOException {
+        // 初始化导出目录
+        File exportDir = new File(FileUtils.getTempDirectoryPath() + File.separator + UUID.randomUUID().toString());
+        exportDir.mkdirs();
+        for (DeployManifestFileEntity deployManifestFileEntity : getDeployManifest(componentHistoryEntity).getDeployManifestFileEntityList()) {
+            FileUtils.copyFile(new File(deployManifestFileEntity.getLocalPath()), new File(exportDir.getAbsolutePath() + File.separator + deployManifestFileEntity.getRelativePath()));
+        }
+        return CompressUtils.compress(exportDir, new File(FileUtils.getTempDirectoryPath() + File.separator + System.currentTimeMillis() + ".zip"));
+    }
+
+    // 一次查询组件历史的全部文件节点，文件夹路径按Id缓存后拼接文件路径
+    private DeployManifestEntity createDeployManifest(ComponentHistoryEntity componentHistoryEntity) {
+        List<ComponentFileHistoryEntity> componentFileHistoryEntityList = componentFileHistoryService.getComponentFileHistorysByComponentHistory(componentHistoryEntity);
+        Map<String, ComponentFileHistoryEntity> componentFileHistoryMap = new HashMap<>();
+        for (ComponentFileHistoryEntity componentFileHistoryEntity : componentFileHistoryEntityList) {
+            componentFileHistoryMap.put(componentFileHistoryEntity.getId(), componentFileHistoryEntity);
+        }
+        Map<String, String> folderPathMap = new HashMap<>();
+        DeployManifestEntity deployManifestEntity = new DeployManifestEntity();
+        deployManifestEntity.setComponentHistoryId(componentHistoryEntity.getId());
+        for (ComponentFileHistoryEntity componentFileHistoryEntity : componentFileHistoryEntityList) {
+            if (componentFileHistoryEntity.isFolder()) {
+                continue;
+            }
+            String fileName = StringUtils.isEmpty(componentFileHistoryEntity.getFileEntity().getType()) ? componentFileHistoryEntity.getName() : componentFileHistoryEntity.getName() + "." + componentFileHistoryEntity.getFileEntity().getType();
+            DeployManifestFileEntity deployManifestFileEntity = new DeployManifestFileEntity();
+            deployManifestFileEntity.setComponentFileHistoryId(componentFileHistoryEntity.getId());
+            deployManifestFileEntity.setRelativePath(FormatUtils.formatPath(getFolderPath(componentFileHistoryEntity.getParentNode(), componentFileHistoryMap, folderPathMap) + File.separatorChar + fileName));
+            deployManifestFileEntity.setSize(componentFileHistoryEntity.getFileEntity().getSize());
+            deployManifestFileEntity.setMD5(componentFileHistoryEntity.getFileEntity().getMD5());
+            deployManifestFileEntity.setLocalPath(componentFileHistoryEntity.getFileEntity().getLocalPath());
+            deployManifestEntity.getDeployManifestFileEntityList().add(deployManifestFileEntity);
+            deployManifestEntity.setTotalSize(deployManifestEntity.getTotalSize() + deployManifestFileEntity.getSize());
+        }
+        log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":生成部署清单，文件" + deployManifestEntity.getDeployManifestFileEntityList().size() + "个，总计" + deployManifestEntity.getTotalSize() + "字节");
+        return deployManifestEntity;
+    }
+
+    // 拼接文件夹相对路径
+    private String getFolderPath(ComponentFileHistoryEntity folderNode, Map<String, ComponentFileHistoryEntity> componentFileHistoryMap, Map<String, String> folderPathMap) {
+        if (folderNode == null) {
+            return "";
+        }
+        String folderPath = folderPathMap.get(folderNode.getId());
+        if (folderPath == null) {
+            ComponentFileHistoryEntity componentFileHistoryEntity = componentFileHistoryMap.getOrDefault(folderNode.getId(), folderNode);
+            folderPath = getFolderPath(componentFileHistoryEntity.getParentNode(), componentFileHistoryMap, folderPathMap) + File.separatorChar + componentFileHistoryEntity.getName();
+            folderPathMap.put(folderNode.getId(), folderPath);
+        }
+        return folderPath;
+    }
+
+    // 先写入临时文件再替换，避免并发读取到不完整的清单
+    private void saveManifestFile(File manifestFile, DeployManifestEntity deployManifestEntity) {
+        try {
+            File tempFile = new File(manifestFile.getAbsolutePath() + "." + UUID.randomUUID().toString() + ".tmp");
+            FileUtils.writeStringToFile(tempFile, JsonUtils.toJson(deployManifestEntity), StandardCharsets.UTF_8);
+            Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.info(deployManifestEntity.getComponentHistoryId() + ":部署清单保存失败：" + e.getMessage());
+        }
+    }
+
+    private long getGeneration() {
+        synchronized (deployManifestCache) {
+            return generation;
+        }
+    }
+
+    private File getManifestFile(String componentHistoryId) {
+        return new File(ApplicationConfig.MANIFESTS_SAVE_PATH + File.separator + componentHistoryId + ".json");
+    }
+}
@@ -1,23 +1,39 @@
 package com.rengu.operationsmanagementsuitev3.Service;
 
 import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Thread.DeployLogWriterThread;
 import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
 import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
+import com.rengu.operationsmanagementsuitev3.Utils.CompressUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.DeltaUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
 import com.rengu.operationsmanagementsuitev3.Utils.FormatUtils;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -37,226 +53,873 @@ public class DeployMetaService {
     public static final int DEPLOY_FINISHED = 2;
     public static final int DEPLOYING = 3;
 
-    private final ComponentFileHistoryService componentFileHistoryService;
+    private final DeployManifestService deployManifestService;
     private final DeployLogService deployLogService;
     private final DeployLogDetailService deployLogDetailService;
-    private final SimpMessagingTemplate simpMessagingTemplate;
+    private final DeploymentDesignDetailService deploymentDesignDetailService;
+    private final DeploymentDesignScanResultService deploymentDesignScanResultService;
+    private final DeployBandwidthService deployBandwidthService;
+    private final DeployProgressService deployProgressService;
+    private final DeployThroughputService deployThroughputService;
+    private final DeployLogWriterThread deployLogWriterThread;
+    private final DeployBundleService deployBundleService;
+    private final DeployReadAheadService deployReadAheadService;
 
     @Autowired
-    public DeployMetaService(ComponentFileHistoryService componentFileHistoryService, DeployLogService deployLogService, DeployLogDetailService deployLogDetailService, SimpMessagingTemplate simpMessagingTemplate) {
-        this.componentFileHistoryService = componentFileHistoryService;
+    public DeployMetaService(DeployManifestService deployManifestService, DeployLogService deployLogService, DeployLogDetailService deployLogDetailService, DeploymentDesignDetailService deploymentDesignDetailService, DeploymentDesignScanResultService deploymentDesignScanResultService, DeployBandwidthService deployBandwidthService, DeployProgressService deployProgressService, DeployThroughputService deployThroughputService, DeployLogWriterThread deployLogWriterThread, DeployBundleService deployBundleService, DeployReadAheadService deployReadAheadService) {
+        this.deployManifestService = deployManifestService;
         this.deployLogService = deployLogService;
         this.deployLogDetailService = deployLogDetailService;
-        this.simpMessagingTemplate = simpMessagingTemplate;
+        this.deploymentDesignDetailService = deploymentDesignDetailService;
+        this.deploymentDesignScanResultService = deploymentDesignScanResultService;
+        this.deployBandwidthService = deployBandwidthService;
+        this.deployProgressService = deployProgressService;
+        this.deployThroughputService = deployThroughputService;
+        this.deployLogWriterThread = deployLogWriterThread;
+        this.deployBundleService = deployBundleService;
+        this.deployReadAheadService = deployReadAheadService;
     }
 
     // 根据部署设计详情创建部署信息
     public List<DeployMetaEntity> createDeployMeta(List<DeploymentDesignDetailEntity> deploymentDesignDetailEntityList) {
         List<DeployMetaEntity> deployMetaEntityList = new ArrayList<>();
         for (DeploymentDesignDetailEntity deploymentDesignDetailEntity : deploymentDesignDetailEntityList) {
-            for (ComponentFileHistoryEntity componentFileHistoryEntity : componentFileHistoryService.getComponentFileHistorysByComponentHistory(deploymentDesignDetailEntity.getComponentHistoryEntity())) {
-                if (!componentFileHistoryEntity.isFolder()) {
-                    DeployMetaEntity deployMetaEntity = new DeployMetaEntity();
-                    deployMetaEntity.setDeviceEntity(deploymentDesignDetailEntity.getDeploymentDesignNodeEntity().getDeviceEntity());
-                    deployMetaEntity.setComponentHistoryEntity(deploymentDesignDetailEntity.getComponentHistoryEntity());
-                    deployMetaEntity.setComponentFileHistoryEntity(componentFileHistoryEntity);
+            for (DeployManifestFileEntity deployManifestFileEntity : deployManifestService.getDeployManifest(deploymentDesignDetailEntity.getComponentHistoryEntity()).getDeployManifestFileEntityList()) {
+                DeployMetaEntity deployMetaEntity = new DeployMetaEntity();
+                deployMetaEntity.setDeviceEntity(deploymentDesignDetailEntity.getDeploymentDesignNodeEntity().getDeviceEntity());
+                deployMetaEntity.setComponentHistoryEntity(deploymentDesignDetailEntity.getComponentHistoryEntity());
+                deployMetaEntity.setDeployManifestFileEntity(deployManifestFileEntity);
+                deployMetaEntityList.add(deployMetaEntity);
+            }
+        }
+        return deployMetaEntityList;
+    }
+
+    // 根据设备扫描结果创建增量部署信息，只包含已修改及缺失的文件
+    public List<DeployMetaEntity> createIncrementalDeployMeta(List<DeploymentDesignDetailEntity> deploymentDesignDetailEntityList) {
+        List<DeployMetaEntity> deployMetaEntityList = new ArrayList<>();
+        for (DeploymentDesignDetailEntity deploymentDesignDetailEntity : deploymentDesignDetailEntityList) {
+            List<DeployMetaEntity> detailDeployMetaEntityList = createDeployMeta(Collections.singletonList(deploymentDesignDetailEntity));
+            DeploymentDesignScanResultEntity deploymentDesignScanResultEntity = getDeploymentDesignScanResult(deploymentDesignDetailEntity);
+            if (deploymentDesignScanResultEntity == null) {
+                // 无法获取扫描结果时按全量部署处理
+                deployMetaEntityList.addAll(detailDeployMetaEntityList);
+                continue;
+            }
+            Set<String> changedPathSet = new HashSet<>();
+            for (DeploymentDesignScanResultDetailEntity deploymentDesignScanResultDetailEntity : deploymentDesignScanResultEntity.getResult()) {
+                if (deploymentDesignScanResultDetailEntity.getType() == ScanHandlerService.SCAN_TYPE_MODIFYED || deploymentDesignScanResultDetailEntity.getType() == ScanHandlerService.SCAN_TYPE_MISSING) {
+                    changedPathSet.add(FormatUtils.formatPath(deploymentDesignScanResultDetailEntity.getTargetPath()));
+                }
+            }
+            int changedCount = 0;
+            for (DeployMetaEntity deployMetaEntity : detailDeployMetaEntityList) {
+                if (changedPathSet.contains(getTargetPath(deployMetaEntity))) {
                     deployMetaEntityList.add(deployMetaEntity);
+                    changedCount = changedCount + 1;
                 }
             }
+            log.info(deploymentDesignDetailEntity.getComponentHistoryEntity().getName() + "-" + deploymentDesignDetailEntity.getComponentHistoryEntity().getVersion() + ":增量部署文件" + changedCount + "个，组件文件总计" + detailDeployMetaEntityList.size() + "个");
         }
         return deployMetaEntityList;
     }
 
-    // 部署元数据
-    public void deployMeta(DeploymentDesignEntity deploymentDesignEntity, DeviceEntity deviceEntity, List<DeployMetaEntity> deployMetaEntityList) throws IOException {
+    // 获取部署设计详情的扫描结果，有效期内的历史结果直接使用，否则重新扫描
+    private DeploymentDesignScanResultEntity getDeploymentDesignScanResult(DeploymentDesignDetailEntity deploymentDesignDetailEntity) {
+        Optional<DeploymentDesignScanResultEntity> deploymentDesignScanResultEntityOptional = deploymentDesignScanResultService.getLatestDeploymentDesignScanResultByDeploymentDesignDetail(deploymentDesignDetailEntity);
+        if (deploymentDesignScanResultEntityOptional.isPresent() && System.currentTimeMillis() - deploymentDesignScanResultEntityOptional.get().getCreateTime().getTime() < ApplicationConfig.DEPLOY_SCAN_CACHE_TIME) {
+            return deploymentDesignScanResultEntityOptional.get();
+        }
+        try {
+            return deploymentDesignDetailService.scanDeploymentDesignDetailsById(deploymentDesignDetailEntity.getId(), null, null);
+        } catch (Exception e) {
+            log.info(deploymentDesignDetailEntity.getId() + ":增量部署扫描失败，改为全量部署：" + e.getMessage());
+            return null;
+        }
+    }
+
+    // 部署元数据，返回本次部署日志(多次重试后连接仍异常时返回null)
+    // 连接异常或文件部署失败时，按指数退避重新建立连接，只重新部署未成功的文件
+    public DeployLogEntity deployMeta(DeploymentDesignEntity deploymentDesignEntity, DeviceEntity deviceEntity, List<DeployMetaEntity> deployMetaEntityList) throws IOException {
         long deployStartTime = System.currentTimeMillis();
         if (DEPLOYING_DEVICE.containsKey(deviceEntity.getHostAddress())) {
             throw new RuntimeException(ApplicationMessages.DEVICE_IS_DEPOLOYING + deviceEntity.getHostAddress());
         } else {
             DEPLOYING_DEVICE.put(deviceEntity.getHostAddress(), deviceEntity);
         }
-        // 初始化Socket、输入输出流
-        @Cleanup Socket socket = null;
-        @Cleanup InputStream inputStream = null;
-        @Cleanup OutputStream outputStream = null;
+        // 建立部署日志节点
+        DeployLogEntity deployLogEntity = new DeployLogEntity();
+        deployLogEntity.setProjectEntity(deviceEntity.getProjectEntity());
+        // 任一文件部署失败时置为false
+        deployLogEntity.setComplete(true);
+        // 建立部署会话
+        DeploySessionEntity deploySessionEntity = new DeploySessionEntity();
+        deploySessionEntity.setDeploymentDesignEntity(deploymentDesignEntity);
+        deploySessionEntity.setDeviceEntity(deviceEntity);
+        deploySessionEntity.setDeployLogEntity(deployLogEntity);
+        long totalSize = getTotalSize(deployMetaEntityList);
+        deploySessionEntity.setTotalSize(totalSize);
         try {
-            // 建立TCP连接
-            socket = new Socket(deviceEntity.getHostAddress(), ApplicationConfig.TCP_DEPLOY_PORT);
-            socket.setTcpNoDelay(true);
-            socket.setSoTimeout(200);
-            // 获取输入输出流
-            inputStream = socket.getInputStream();
-            outputStream = socket.getOutputStream();
-            // 建立部署日志节点
-            DeployLogEntity deployLogEntity = new DeployLogEntity();
-            deployLogEntity.setProjectEntity(deviceEntity.getProjectEntity());
-            List<DeployLogDetailEntity> deployLogDetailEntityList = new ArrayList<>();
-            // 记录文件发送数量、进度、速度等
-            long totalSize = 0;
-            long totalSendSize = 0;
-            double speed = 0;
-            double progress = 0;
-            for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
-                totalSize = totalSize + new File(deployMetaEntity.getComponentFileHistoryEntity().getFileEntity().getLocalPath()).length();
+            startDeploySession(deploySessionEntity);
+            List<DeployMetaEntity> remainDeployMetaEntityList = deployMetaEntityList;
+            IOException exception;
+            int attempt = 1;
+            while (true) {
+                exception = null;
+                try {
+                    deployMetaByConnection(deploySessionEntity, remainDeployMetaEntityList);
+                } catch (IOException e) {
+                    exception = e;
+                    log.info(deviceEntity.getHostAddress() + ":部署连接异常(第" + attempt + "次部署)：" + e.getMessage());
+                }
+                remainDeployMetaEntityList = getFailedDeployMetas(deploySessionEntity, deployMetaEntityList);
+                if (remainDeployMetaEntityList.isEmpty() || attempt >= ApplicationConfig.DEPLOY_RETRY_TIMES || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                long retryInterval = Math.min(ApplicationConfig.DEPLOY_RETRY_INTERVAL << (attempt - 1), ApplicationConfig.DEPLOY_RETRY_MAX_INTERVAL);
+                log.info(deviceEntity.getHostAddress() + ":" + remainDeployMetaEntityList.size() + "个文件未部署成功，" + retryInterval + "ms后第" + (attempt + 1) + "次部署");
+                sendDeployProgress(deploySessionEntity, DEPLOYING, "等待重试-" + remainDeployMetaEntityList.size() + "个文件");
+                try {
+                    Thread.sleep(retryInterval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                // 重试的文件重新计算进度
+                deploySessionEntity.setTotalSendSize(totalSize - getTotalSize(remainDeployMetaEntityList));
+                attempt = attempt + 1;
+            }
+            // 以最终结果为准，重试成功的文件不影响部署结果
+            deployLogEntity.setComplete(remainDeployMetaEntityList.isEmpty());
+            DEPLOYING_DEVICE.remove(deviceEntity.getHostAddress());
+            recordDeployTime(deploySessionEntity);
+            saveDeploySession(deploySessionEntity);
+            if (exception != null && !remainDeployMetaEntityList.isEmpty()) {
+                return null;
             }
-            deploylable:
+            // 若成功部署文件，则打印日志
+            if (deployMetaEntityList.size() > 0) {
+                long deployFileSize = totalSize / 1024;
+                long deployTime = (System.currentTimeMillis() - deployStartTime) / 1000;
+                double deploySpeed = deployFileSize / (double) deployTime;
+                log.info(deviceEntity.getHostAddress() + ":总计部署文件大小：" + deployFileSize + "Kb，总计部署时间：" + deployTime + "s,平均部署速度：" + deploySpeed + "kb/s，实际传输：" + deploySessionEntity.getTransferSize() / 1024 + "Kb，压缩比：" + deployLogEntity.getCompressRatio() + "，部署次数：" + attempt + "，等待磁盘：" + deployLogEntity.getDiskWaitTime() + "ms，等待网络：" + deployLogEntity.getNetworkWaitTime() + "ms");
+            }
+            return deployLogEntity;
+        } finally {
+            // 其它异常中断部署时同样结束部署日志
+            if (deployLogEntity.isRunning()) {
+                deployLogEntity.setComplete(false);
+                saveDeploySession(deploySessionEntity);
+            }
+            deployProgressService.sendFinished(deploymentDesignEntity, deviceEntity.getHostAddress());
+            DEPLOYING_DEVICE.remove(deviceEntity.getHostAddress());
+        }
+    }
+
+    // 建立一次部署连接并发送文件，连接异常时抛出IOException，已确认的文件及写入位置保留在会话中
+    private void deployMetaByConnection(DeploySessionEntity deploySessionEntity, List<DeployMetaEntity> deployMetaEntityList) throws IOException {
+        DeviceEntity deviceEntity = deploySessionEntity.getDeviceEntity();
+        // 建立TCP连接(阻塞模式SocketChannel，文件内容通过transferTo零拷贝发送)
+        @Cleanup SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress(deviceEntity.getHostAddress(), ApplicationConfig.TCP_DEPLOY_PORT));
+        Socket socket = socketChannel.socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(200);
+        deploySessionEntity.setSocketChannel(socketChannel);
+        deploySessionEntity.setInputStream(socket.getInputStream());
+        deploySessionEntity.setOutputStream(socket.getOutputStream());
+        // 清除上次连接中断时在途的文件及查询
+        deploySessionEntity.getPendingMetaMap().clear();
+        deploySessionEntity.getPendingDetailMap().clear();
+        deploySessionEntity.getPendingBundleMetaMap().clear();
+        deploySessionEntity.getPendingBundleDetailMap().clear();
+        deploySessionEntity.getReplyFutureMap().clear();
+        deploySessionEntity.getPendingCopyMap().clear();
+        // 协商扩展部署协议
+        deploySessionEntity.setCapability(negotiateCapability(deploySessionEntity));
+        deploySessionEntity.setCompressLevel(Deflater.NO_COMPRESSION);
+        if (DeployProtocolUtils.hasCapability(deploySessionEntity.getCapability(), DeployProtocolUtils.CAPABILITY_COMPRESS)) {
+            deploySessionEntity.setCompressLevel(deviceEntity.getCompressLevel() == null ? ApplicationConfig.DEPLOY_COMPRESS_LEVEL : deviceEntity.getCompressLevel());
+        }
+        if (DeployProtocolUtils.hasCapability(deploySessionEntity.getCapability(), DeployProtocolUtils.CAPABILITY_PIPELINE)) {
+            // 回复由独立线程阻塞读取，之后的读写直接使用SocketChannel：
+            // JDK 8中Socket适配器的输入输出流均以通道的blockingLock同步，回复线程阻塞读取期间发送线程无法写入报文
+            deploySessionEntity.setInputStream(DeployProtocolUtils.getChannelInputStream(socketChannel));
+            deploySessionEntity.setOutputStream(DeployProtocolUtils.getChannelOutputStream(socketChannel));
+            deployMetaByPipeline(deploySessionEntity, deployMetaEntityList);
+        } else {
+            deployMetaByReply(deploySessionEntity, deployMetaEntityList);
+        }
+        // 发送部署结束标志
+        deploySessionEntity.getOutputStream().write("DeployEnd".getBytes());
+        deploySessionEntity.getOutputStream().flush();
+    }
+
+    // 查询尚未部署成功的文件
+    private List<DeployMetaEntity> getFailedDeployMetas(DeploySessionEntity deploySessionEntity, List<DeployMetaEntity> deployMetaEntityList) {
+        List<DeployMetaEntity> failedDeployMetaEntityList = new ArrayList<>();
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            if (!deploySessionEntity.getSucceedMetaSet().contains(deployMetaEntity)) {
+                failedDeployMetaEntityList.add(deployMetaEntity);
+            }
+        }
+        return failedDeployMetaEntityList;
+    }
+
+    private long getTotalSize(List<DeployMetaEntity> deployMetaEntityList) {
+        long totalSize = 0;
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            totalSize = totalSize + deployMetaEntity.getDeployManifestFileEntity().getSize();
+        }
+        return totalSize;
+    }
+
+    // 记录已通过组播完成部署的文件日志并推送进度
+    public DeployLogEntity saveMulticastDeployLog(DeploymentDesignEntity deploymentDesignEntity, DeviceEntity deviceEntity, List<DeployMetaEntity> deployMetaEntityList, long transferSize) {
+        DeployLogEntity deployLogEntity = new DeployLogEntity();
+        deployLogEntity.setProjectEntity(deviceEntity.getProjectEntity());
+        deployLogEntity.setComplete(true);
+        DeploySessionEntity deploySessionEntity = new DeploySessionEntity();
+        deploySessionEntity.setDeploymentDesignEntity(deploymentDesignEntity);
+        deploySessionEntity.setDeviceEntity(deviceEntity);
+        deploySessionEntity.setDeployLogEntity(deployLogEntity);
+        deploySessionEntity.setTransferSize(transferSize);
+        startDeploySession(deploySessionEntity);
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            DeployLogDetailEntity deployLogDetailEntity = createDeployLogDetail(deploySessionEntity, deployMetaEntity, getTargetPath(deployMetaEntity));
+            deploySessionEntity.setTotalSize(deploySessionEntity.getTotalSize() + deployLogDetailEntity.getFileSize());
+        }
+        for (int i = 0; i < deployMetaEntityList.size(); i++) {
+            DeployLogDetailEntity deployLogDetailEntity = deploySessionEntity.getDeployLogDetailEntityList().get(i);
+            deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() + deployLogDetailEntity.getFileSize());
+            deploySucceed(deploySessionEntity, deployMetaEntityList.get(i), deployLogDetailEntity);
+        }
+        saveDeploySession(deploySessionEntity);
+        return deployLogEntity;
+    }
+
+    // 记录未能开始部署的设备日志(设备离线等)，全部文件按失败处理并推送进度
+    public DeployLogEntity saveFailedDeployLog(DeploymentDesignEntity deploymentDesignEntity, DeviceEntity deviceEntity, List<DeployMetaEntity> deployMetaEntityList, String reason) {
+        DeployLogEntity deployLogEntity = new DeployLogEntity();
+        deployLogEntity.setProjectEntity(deviceEntity.getProjectEntity());
+        deployLogEntity.setComplete(false);
+        DeploySessionEntity deploySessionEntity = new DeploySessionEntity();
+        deploySessionEntity.setDeploymentDesignEntity(deploymentDesignEntity);
+        deploySessionEntity.setDeviceEntity(deviceEntity);
+        deploySessionEntity.setDeployLogEntity(deployLogEntity);
+        deploySessionEntity.setTotalSize(getTotalSize(deployMetaEntityList));
+        startDeploySession(deploySessionEntity);
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            deployFailed(deploySessionEntity, deployMetaEntity, createDeployLogDetail(deploySessionEntity, deployMetaEntity, getTargetPath(deployMetaEntity)), reason);
+        }
+        if (deployMetaEntityList.isEmpty()) {
+            log.info(deviceEntity.getHostAddress() + ":部署失败，" + reason);
+            sendDeployProgress(deploySessionEntity, DEPLOYING_ERROR, reason);
+        }
+        saveDeploySession(deploySessionEntity);
+        deployProgressService.sendFinished(deploymentDesignEntity, deviceEntity.getHostAddress());
+        return deployLogEntity;
+    }
+
+    // 协商扩展部署能力，仅向心跳中上报过能力的客户端发送协商请求，旧版客户端直接返回0
+    private int negotiateCapability(DeploySessionEntity deploySessionEntity) throws IOException {
+        HeartbeatEntity heartbeatEntity = DeviceService.ONLINE_HOST_ADRESS.get(deploySessionEntity.getDeviceEntity().getHostAddress());
+        int capability = heartbeatEntity == null ? 0 : heartbeatEntity.getDeployCapability() & ApplicationConfig.DEPLOY_CAPABILITY;
+        if (capability == 0) {
+            return 0;
+        }
+        deploySessionEntity.getOutputStream().write(DeployProtocolUtils.getModeRequest(capability, ApplicationConfig.DEPLOY_PIPELINE_WINDOW));
+        deploySessionEntity.getOutputStream().flush();
+        byte[] reply = DeployProtocolUtils.readReply(deploySessionEntity.getInputStream(), DeployProtocolUtils.MODE_REPLY_LENGTH, ApplicationConfig.REPLY_TIME_OUT);
+        if (!new String(reply, 0, DeployProtocolUtils.TAG_LENGTH).equals(DeployProtocolUtils.MODE_REPLY_TAG)) {
+            throw new IOException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署协议协商回复格式错误");
+        }
+        // 客户端可以拒绝部分能力，以双方交集为准
+        int acceptCapability = (int) DeployProtocolUtils.parseNumber(reply, DeployProtocolUtils.TAG_LENGTH, DeployProtocolUtils.CAPABILITY_LENGTH, 0) & capability;
+        log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署协议协商完成，启用能力：" + acceptCapability);
+        return acceptCapability;
+    }
+
+    // 逐文件确认部署：每个文件等待路径确认和结束确认后再发送下一个
+    private void deployMetaByReply(DeploySessionEntity deploySessionEntity, List<DeployMetaEntity> deployMetaEntityList) throws IOException {
+        DeviceEntity deviceEntity = deploySessionEntity.getDeviceEntity();
+        InputStream inputStream = deploySessionEntity.getInputStream();
+        OutputStream outputStream = deploySessionEntity.getOutputStream();
+        deploylable:
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            // 检测设备是否在线
+            if (!DeviceService.ONLINE_HOST_ADRESS.containsKey(deployMetaEntity.getDeviceEntity().getHostAddress())) {
+                throw new RuntimeException(ApplicationMessages.DEVICE_IS_OFFLINE + deployMetaEntity.getDeviceEntity().getHostAddress());
+            }
+            // 生成部署路径
+            String targetPath = getTargetPath(deployMetaEntity);
+            // 建立日志详情节点
+            DeployLogDetailEntity deployLogDetailEntity = createDeployLogDetail(deploySessionEntity, deployMetaEntity, targetPath);
+            // 1、发送文件开始标志
+            outputStream.write("fileRecvStart".getBytes());
+            // 2、发送部署路径
+            outputStream.write(FormatUtils.getString(targetPath, 255).getBytes());
+            // 3、接受路径回复确认
+            long startTime = System.currentTimeMillis();
+            while (true) {
+                try {
+                    if (inputStream.read() == 114) {
+                        break;
+                    }
+                } catch (IOException exception) {
+                    if (System.currentTimeMillis() - startTime >= ApplicationConfig.REPLY_TIME_OUT) {
+                        deployFailed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity, "接收路径回复超时");
+                        continue deploylable;
+                    }
+                }
+            }
+            // 4、发送实体文件
+            File file = new File(deployMetaEntity.getDeployManifestFileEntity().getLocalPath());
+            @Cleanup FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            if (!transferFile(deploySessionEntity, fileChannel, 0, fileChannel.size(), targetPath)) {
+                deployFailed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity, "文件读取异常");
+                continue;
+            }
+            deployLogDetailEntity.setTransferSize(fileChannel.size());
+            // 5、结束标志确认
+            startTime = System.currentTimeMillis();
+            while (true) {
+                try {
+                    if (inputStream.read() == 102) {
+                        break;
+                    }
+                } catch (IOException exception) {
+                    outputStream.write("fileRecvEnd".getBytes());
+                    if (System.currentTimeMillis() - startTime >= ApplicationConfig.REPLY_TIME_OUT) {
+                        deployFailed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity, "接收文件结束标志回复超时");
+                        continue deploylable;
+                    }
+                }
+            }
+            deploySucceed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity);
+        }
+    }
+
+    // 流水线部署：连续发送带序号的文件帧，回复线程按序号异步匹配确认，在途文件数不超过窗口大小
+    private void deployMetaByPipeline(DeploySessionEntity deploySessionEntity, List<DeployMetaEntity> deployMetaEntityList) throws IOException {
+        DeviceEntity deviceEntity = deploySessionEntity.getDeviceEntity();
+        boolean resume = DeployProtocolUtils.hasCapability(deploySessionEntity.getCapability(), DeployProtocolUtils.CAPABILITY_RESUME);
+        boolean delta = DeployProtocolUtils.hasCapability(deploySessionEntity.getCapability(), DeployProtocolUtils.CAPABILITY_DELTA);
+        boolean compress = deploySessionEntity.getCompressLevel() > Deflater.NO_COMPRESSION;
+        boolean copy = DeployProtocolUtils.hasCapability(deploySessionEntity.getCapability(), DeployProtocolUtils.CAPABILITY_COPY);
+        // 上次未完成部署的检查点
+        Map<String, DeployLogDetailEntity> deployCheckpointMap = resume ? deployLogDetailService.getDeployCheckpoints(deviceEntity.getHostAddress()) : new HashMap<>();
+        if (resume) {
+            // 同一会话中断后重试时，使用本次会话尚未写入数据库的检查点
+            for (DeployLogDetailEntity deployLogDetailEntity : deploySessionEntity.getDeployLogDetailEntityList()) {
+                if (!deployLogDetailEntity.isComplete() && deployLogDetailEntity.getCommittedSize() > 0) {
+                    deployCheckpointMap.put(deployLogDetailEntity.getTargetPath(), deployLogDetailEntity);
+                }
+            }
+        }
+        // 可打包部署的组件历史Id -> 该组件历史的全部部署信息
+        Map<String, List<DeployMetaEntity>> deployBundleMap = DeployProtocolUtils.hasCapability(deploySessionEntity.getCapability(), DeployProtocolUtils.CAPABILITY_BUNDLE) ? getDeployBundleMap(deployMetaEntityList) : new HashMap<>();
+        deploySessionEntity.setWindowSemaphore(new Semaphore(ApplicationConfig.DEPLOY_PIPELINE_WINDOW));
+        Thread replyThread = new Thread(() -> receivePipelineReply(deploySessionEntity), "OMS-Deploy-Reply-" + deviceEntity.getHostAddress());
+        replyThread.setDaemon(true);
+        replyThread.start();
+        try {
+            long sequence = 0;
             for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
                 // 检测设备是否在线
                 if (!DeviceService.ONLINE_HOST_ADRESS.containsKey(deployMetaEntity.getDeviceEntity().getHostAddress())) {
                     throw new RuntimeException(ApplicationMessages.DEVICE_IS_OFFLINE + deployMetaEntity.getDeviceEntity().getHostAddress());
                 }
-                // 生成部署路径
-                String targetPath = FormatUtils.formatPath(deployMetaEntity.getDeviceEntity().getDeployPath() + deployMetaEntity.getComponentHistoryEntity().getRelativePath() + FormatUtils.getComponentFileHistoryRelativePath(deployMetaEntity.getComponentFileHistoryEntity(), ""));
-                // 建立日志详情节点
-                DeployLogDetailEntity deployLogDetailEntity = new DeployLogDetailEntity();
-                deployLogDetailEntity.setHostName(deviceEntity.getHostAddress());
-                deployLogDetailEntity.setComponentName(deployMetaEntity.getComponentHistoryEntity().getName());
-                deployLogDetailEntity.setComponentVersion(deployMetaEntity.getComponentHistoryEntity().getVersion());
-                deployLogDetailEntity.setComponentTag(deployMetaEntity.getComponentHistoryEntity().getTag());
-                deployLogDetailEntity.setTargetPath(targetPath);
-                deployLogDetailEntity.setDeployLogEntity(deployLogEntity);
-                deployLogDetailEntityList.add(deployLogDetailEntity);
-                // 1、发送文件开始标志
-                outputStream.write("fileRecvStart".getBytes());
-                // 2、发送部署路径
-                outputStream.write(FormatUtils.getString(targetPath, 255).getBytes());
-                // 3、接受路径回复确认
-                long startTime = System.currentTimeMillis();
-                while (true) {
-                    try {
-                        if (inputStream.read() == 114) {
-                            break;
+                // 打包部署的组件历史在遇到第一个文件时发送整个部署包，其余文件跳过
+                List<DeployMetaEntity> deployBundleMetaEntityList = deployBundleMap.get(deployMetaEntity.getComponentHistoryEntity().getId());
+                if (deployBundleMetaEntityList != null && deployBundleMetaEntityList.isEmpty()) {
+                    continue;
+                }
+                // 等待窗口空闲，超时说明客户端已长时间没有确认任何文件，结束本次部署
+                if (!deploySessionEntity.getWindowSemaphore().tryAcquire(ApplicationConfig.REPLY_TIME_OUT, TimeUnit.MILLISECONDS)) {
+                    deployPendingFailed(deploySessionEntity);
+                    return;
+                }
+                if (deployBundleMetaEntityList != null) {
+                    sequence = sequence + 1;
+                    transferBundle(deploySessionEntity, sequence, new ArrayList<>(deployBundleMetaEntityList));
+                    deployBundleMetaEntityList.clear();
+                    continue;
+                }
+                String targetPath = getTargetPath(deployMetaEntity);
+                DeployLogDetailEntity deployLogDetailEntity = createDeployLogDetail(deploySessionEntity, deployMetaEntity, targetPath);
+                String md5 = deployLogDetailEntity.getMD5();
+                File file = new File(deployMetaEntity.getDeployManifestFileEntity().getLocalPath());
+                @Cleanup FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                long fileSize = fileChannel.size();
+                sequence = sequence + 1;
+                deploySessionEntity.getPendingMetaMap().put(sequence, deployMetaEntity);
+                deploySessionEntity.getPendingDetailMap().put(sequence, deployLogDetailEntity);
+                // 相同内容的文件已写入设备时，由客户端从已写入的文件本地复制
+                String sourcePath = copy && md5 != null ? deploySessionEntity.getLandedFileMap().get(md5) : null;
+                if (sourcePath != null && !sourcePath.equals(targetPath)) {
+                    deploySessionEntity.getPendingCopyMap().put(sequence, md5);
+                    deploySessionEntity.getOutputStream().write(DeployProtocolUtils.getCopyFileHeader(sequence, fileSize, md5, sourcePath, targetPath));
+                    deploySessionEntity.getOutputStream().flush();
+                    deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() + fileSize);
+                    deployLogDetailEntity.setTransferSize(0);
+                    continue;
+                }
+                long offset = 0;
+                if (resume) {
+                    // 同一文件存在检查点时先向客户端确认可续传的位置
+                    DeployLogDetailEntity checkpoint = deployCheckpointMap.get(targetPath);
+                    if (checkpoint != null && md5 != null && md5.equals(checkpoint.getMD5()) && checkpoint.getCommittedSize() < fileSize) {
+                        byte[] reply = queryReply(deploySessionEntity, sequence, DeployProtocolUtils.getResumeRequest(sequence, checkpoint.getCommittedSize(), md5, targetPath));
+                        if (reply != null) {
+                            offset = Math.max(0, Math.min(fileSize, DeployProtocolUtils.parseNumber(reply, DeployProtocolUtils.SEQUENCE_LENGTH, DeployProtocolUtils.SIZE_LENGTH, 0)));
                         }
-                    } catch (IOException exception) {
-                        if (System.currentTimeMillis() - startTime >= ApplicationConfig.REPLY_TIME_OUT) {
-                            deployLogEntity.setComplete(false);
-                            deployLogDetailEntity.setComplete(false);
-                            progress = ((double) totalSendSize / totalSize) * 100;
-                            log.info(deployMetaEntity.getComponentHistoryEntity().getName() + "-" + deployMetaEntity.getComponentHistoryEntity().getVersion() + "@" + deviceEntity.getHostAddress() + ":" + targetPath + ",部署失败，接收路径回复超时。当前进度：" + progress + "%");
-                            simpMessagingTemplate.convertAndSend("/deployProgress/" + deploymentDesignEntity.getId(), new DeployProgressEntity(deviceEntity.getHostAddress(), speed, progress, DEPLOYING_ERROR, FilenameUtils.getName(targetPath) + "-部署失败"));
-                            continue deploylable;
+                        if (offset > 0) {
+                            log.info(deviceEntity.getHostAddress() + ":" + targetPath + ",从" + offset + "字节处续传");
                         }
                     }
+                    deployLogDetailEntity.setCommittedSize(offset);
+                }
+                // 大文件且无需续传时尝试差量传输，客户端没有目标文件时改为完整发送
+                if (delta && offset == 0 && fileSize >= ApplicationConfig.DEPLOY_DELTA_MIN_SIZE && transferDelta(deploySessionEntity, deployLogDetailEntity, sequence, fileChannel, fileSize, md5, targetPath)) {
+                    continue;
+                }
+                // 完整发送时对未压缩格式的文件进行流式压缩，已压缩格式直接发送
+                if (compress && offset == 0 && !CompressUtils.isCompressedFile(targetPath)) {
+                    transferCompress(deploySessionEntity, deployLogDetailEntity, sequence, fileChannel, fileSize, md5, targetPath);
+                    continue;
                 }
-                // 4、发送实体文件(判断文件还是文件夹)
-                File file = new File(deployMetaEntity.getComponentFileHistoryEntity().getFileEntity().getLocalPath());
-                @Cleanup RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-                int sendSize = 0;
-                long sendNum = 0;
-                while (sendSize < file.length()) {
-                    long start = System.currentTimeMillis();
-                    // 设置读取缓冲区域大小
-                    byte[] buffer = new byte[10240];
-//                    // 移动读取文件位置后，恢复文件读取位置
-//                    if (randomAccessFile.getFilePointer() != sendSize) {
-//                        randomAccessFile.seek(sendSize);
-//                    }
-                    int readSize = randomAccessFile.read(buffer);
-                    if (readSize != -1) {
-                        // 移动发送大小
-                        sendSize = sendSize + readSize;
-                        byte[] sendBuffer = new byte[readSize];
-                        System.arraycopy(buffer, 0, sendBuffer, 0, readSize);
-//                        // 检测是否为VXWORKS系统
-//                        if (DeviceService.ONLINE_HOST_ADRESS.get(deviceEntity.getHostAddress()).getOSType() == DeviceService.OS_TYPE.VXWORKS.ordinal()) {
-//                            log.info("VxWorks部署逻辑");
-//                            String byteText = new String(sendBuffer, StandardCharsets.UTF_8).replace("\r\n", "\n");
-//                            // 检测最后一个字符是否为\r
-//                            if (byteText.lastIndexOf("\r") + 1 == byteText.length() && sendSize + 1 < file.length()) {
-//                                // 检测下一个字符是否为\n
-//                                byte[] checkBytes = new byte[1];
-//                                checkBytes[0] = randomAccessFile.readByte();
-//                                String checkString = new String(checkBytes, StandardCharsets.UTF_8);
-//                                if (checkString.equals("\n")) {
-//                                    sendSize = sendSize + 1;
-//                                    StringBuilder stringBuilder = new StringBuilder(byteText);
-//                                    stringBuilder.setCharAt(stringBuilder.lastIndexOf("\r"), '\n');
-//                                    byteText = stringBuilder.toString();
-//                                }
-//                            }
-//                            ByteBuffer byteBuffer = ByteBuffer.wrap(byteText.getBytes());
-//                            outputStream.write(byteBuffer.array());
-//                            log.info("VxWorks发送-->" + deployMetaEntity.getComponentHistoryEntity().getName() + "-" + deployMetaEntity.getComponentHistoryEntity().getVersion() + "@" + deviceEntity.getHostAddress() + ":" + targetPath + ",发送字节数：" + byteBuffer.array().length + "|" + byteBuffer.capacity());
-//                        }
-                        outputStream.write(sendBuffer);
-                        // 更新进度数据
-                        totalSendSize = totalSendSize + readSize;
-                        sendNum = sendNum + 1;
-                        // 发送时间单位秒
-                        double time = (double) (System.currentTimeMillis() - start + 1) / 1000;
-                        // 发送大小单位kb
-                        double size = (double) readSize / 1024;
-                        speed = size / time;
-                        progress = ((double) totalSendSize / totalSize) * 100;
-                        if (file.length() <= FileUtils.ONE_MB) {
-                            simpMessagingTemplate.convertAndSend("/deployProgress/" + deploymentDesignEntity.getId(), new DeployProgressEntity(deviceEntity.getHostAddress(), speed, progress, DEPLOYING, FilenameUtils.getName(targetPath) + "-部署中"));
-                        } else {
-                            if (sendNum % 50 == 0) {
-                                simpMessagingTemplate.convertAndSend("/deployProgress/" + deploymentDesignEntity.getId(), new DeployProgressEntity(deviceEntity.getHostAddress(), speed, progress, DEPLOYING, FilenameUtils.getName(targetPath) + "-部署中"));
+                if (resume) {
+                    deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() + offset);
+                    deploySessionEntity.getOutputStream().write(DeployProtocolUtils.getResumeFileHeader(sequence, fileSize, offset, md5, targetPath));
+                } else {
+                    deploySessionEntity.getOutputStream().write(DeployProtocolUtils.getPipelineFileHeader(sequence, fileSize, targetPath));
+                }
+                // 文件帧按长度定界，内容发送不完整时数据流无法继续使用
+                if (!transferFile(deploySessionEntity, fileChannel, offset, fileSize, targetPath)) {
+                    throw new IOException(deviceEntity.getHostAddress() + ":" + targetPath + ",文件读取异常");
+                }
+                deployLogDetailEntity.setTransferSize(fileSize - offset);
+            }
+            // 等待在途文件全部确认
+            if (!deploySessionEntity.getWindowSemaphore().tryAcquire(ApplicationConfig.DEPLOY_PIPELINE_WINDOW, ApplicationConfig.REPLY_TIME_OUT, TimeUnit.MILLISECONDS)) {
+                deployPendingFailed(deploySessionEntity);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(deviceEntity.getHostAddress() + ":部署被中断");
+        }
+    }
+
+    // 流水线回复接收线程：文件确认、写入检查点及各类查询回复
+    private void receivePipelineReply(DeploySessionEntity deploySessionEntity) {
+        InputStream inputStream = deploySessionEntity.getInputStream();
+        try {
+            while (true) {
+                String tag = new String(DeployProtocolUtils.readReply(inputStream, DeployProtocolUtils.TAG_LENGTH, 0));
+                if (tag.equals(DeployProtocolUtils.PIPELINE_FILE_REPLY_TAG)) {
+                    byte[] reply = DeployProtocolUtils.readReply(inputStream, DeployProtocolUtils.PIPELINE_FILE_REPLY_LENGTH, 0);
+                    long sequence = DeployProtocolUtils.parseNumber(reply, 0, DeployProtocolUtils.SEQUENCE_LENGTH, -1);
+                    // 已按超时处理的文件忽略迟到的回复
+                    DeployLogDetailEntity deployLogDetailEntity = deploySessionEntity.getPendingDetailMap().remove(sequence);
+                    if (deployLogDetailEntity == null) {
+                        List<DeployLogDetailEntity> deployLogDetailEntityList = deploySessionEntity.getPendingBundleDetailMap().remove(sequence);
+                        if (deployLogDetailEntityList != null) {
+                            List<DeployMetaEntity> deployMetaEntityList = deploySessionEntity.getPendingBundleMetaMap().remove(sequence);
+                            boolean succeed = reply[DeployProtocolUtils.SEQUENCE_LENGTH] == DeployProtocolUtils.FILE_STATE_SUCCEED;
+                            for (int i = 0; i < deployLogDetailEntityList.size(); i++) {
+                                if (succeed) {
+                                    deploySucceed(deploySessionEntity, deployMetaEntityList.get(i), deployLogDetailEntityList.get(i));
+                                } else {
+                                    deployFailed(deploySessionEntity, deployMetaEntityList.get(i), deployLogDetailEntityList.get(i), "客户端解包失败");
+                                }
                             }
+                            deploySessionEntity.getWindowSemaphore().release();
                         }
+                        continue;
+                    }
+                    DeployMetaEntity deployMetaEntity = deploySessionEntity.getPendingMetaMap().remove(sequence);
+                    String copyMD5 = deploySessionEntity.getPendingCopyMap().remove(sequence);
+                    if (reply[DeployProtocolUtils.SEQUENCE_LENGTH] == DeployProtocolUtils.FILE_STATE_SUCCEED) {
+                        deploySucceed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity);
+                    } else if (copyMD5 != null) {
+                        // 源文件已不可用，重试时完整发送
+                        deploySessionEntity.getLandedFileMap().remove(copyMD5);
+                        deployFailed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity, "客户端本地复制失败");
                     } else {
-                        deployLogEntity.setComplete(false);
-                        deployLogDetailEntity.setComplete(false);
-                        progress = (double) totalSendSize / totalSize;
-                        log.info(deployMetaEntity.getComponentHistoryEntity().getName() + "-" + deployMetaEntity.getComponentHistoryEntity().getVersion() + "@" + deviceEntity.getHostAddress() + ":" + targetPath + ",部署失败，文件读取异常。当前进度：" + progress + "%");
-                        simpMessagingTemplate.convertAndSend("/deployProgress/" + deploymentDesignEntity.getId(), new DeployProgressEntity(deviceEntity.getHostAddress(), speed, progress, DEPLOYING_ERROR, FilenameUtils.getName(targetPath) + "-部署失败"));
-                        continue deploylable;
+                        deployFailed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity, "客户端写入文件失败");
                     }
-                }
-                // 5、发送文件结束标志
-//                outputStream.write("fileRecvEnd".getBytes());
-//                outputStream.flush();
-                // 6、结束标志确认
-                startTime = System.currentTimeMillis();
-                while (true) {
-                    try {
-                        if (inputStream.read() == 102) {
-                            break;
-                        }
-                    } catch (IOException exception) {
-                        outputStream.write("fileRecvEnd".getBytes());
-                        if (System.currentTimeMillis() - startTime >= ApplicationConfig.REPLY_TIME_OUT) {
-                            deployLogEntity.setComplete(false);
-                            deployLogDetailEntity.setComplete(false);
-                            progress = (double) totalSendSize / totalSize;
-                            log.info(deployMetaEntity.getComponentHistoryEntity().getName() + "-" + deployMetaEntity.getComponentHistoryEntity().getVersion() + "@" + deviceEntity.getHostAddress() + ":" + targetPath + ",部署失败，接收文件结束标志回复超时。当前进度：" + progress + "%");
-                            simpMessagingTemplate.convertAndSend("/deployProgress/" + deploymentDesignEntity.getId(), new DeployProgressEntity(deviceEntity.getHostAddress(), speed, progress, DEPLOYING_ERROR, FilenameUtils.getName(targetPath) + "-部署失败"));
-                            continue deploylable;
-                        }
+                    deploySessionEntity.getWindowSemaphore().release();
+                } else if (tag.equals(DeployProtocolUtils.CHECKPOINT_REPLY_TAG)) {
+                    byte[] reply = DeployProtocolUtils.readReply(inputStream, DeployProtocolUtils.CHECKPOINT_REPLY_LENGTH, 0);
+                    DeployLogDetailEntity deployLogDetailEntity = deploySessionEntity.getPendingDetailMap().get(DeployProtocolUtils.parseNumber(reply, 0, DeployProtocolUtils.SEQUENCE_LENGTH, -1));
+                    if (deployLogDetailEntity != null) {
+                        deployLogDetailEntity.setCommittedSize(DeployProtocolUtils.parseNumber(reply, DeployProtocolUtils.SEQUENCE_LENGTH, DeployProtocolUtils.SIZE_LENGTH, 0));
+                        saveDeployCheckpoints(deploySessionEntity);
                     }
+                } else if (tag.equals(DeployProtocolUtils.RESUME_REPLY_TAG)) {
+                    completeReply(deploySessionEntity, DeployProtocolUtils.readReply(inputStream, DeployProtocolUtils.RESUME_REPLY_LENGTH, 0));
+                } else if (tag.equals(DeployProtocolUtils.SIGNATURE_REPLY_TAG)) {
+                    byte[] reply = DeployProtocolUtils.readReply(inputStream, DeployProtocolUtils.SIGNATURE_REPLY_LENGTH, 0);
+                    int count = (int) DeployProtocolUtils.parseNumber(reply, DeployProtocolUtils.SEQUENCE_LENGTH, DeltaUtils.COUNT_LENGTH, 0);
+                    byte[] signatures = DeployProtocolUtils.readReply(inputStream, count * DeltaUtils.SIGNATURE_LENGTH, 0);
+                    byte[] bytes = Arrays.copyOf(reply, reply.length + signatures.length);
+                    System.arraycopy(signatures, 0, bytes, reply.length, signatures.length);
+                    completeReply(deploySessionEntity, bytes);
+                } else {
+                    log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":无法识别的部署回复：" + tag.trim());
+                    break;
                 }
-                deployLogDetailEntity.setComplete(true);
-                progress = ((double) totalSendSize / totalSize) * 100;
-                log.info(deployMetaEntity.getComponentHistoryEntity().getName() + "-" + deployMetaEntity.getComponentHistoryEntity().getVersion() + "@" + deviceEntity.getHostAddress() + ":" + targetPath + ",部署成功，当前进度：" + progress + "%,当前速度：" + speed + "kb/s");
-                simpMessagingTemplate.convertAndSend("/deployProgress/" + deploymentDesignEntity.getId(), new DeployProgressEntity(deviceEntity.getHostAddress(), speed, progress, DEPLOYING_SUCCEED, FilenameUtils.getName(targetPath) + "-部署成功"));
             }
-            // 发送部署结束标志
-            outputStream.write("DeployEnd".getBytes());
+        } catch (IOException exception) {
+            // 部署连接关闭，回复线程退出
+        }
+    }
+
+    // 按序号唤醒等待回复的查询
+    private void completeReply(DeploySessionEntity deploySessionEntity, byte[] reply) {
+        CompletableFuture<byte[]> future = deploySessionEntity.getReplyFutureMap().remove(DeployProtocolUtils.parseNumber(reply, 0, DeployProtocolUtils.SEQUENCE_LENGTH, -1));
+        if (future != null) {
+            future.complete(reply);
+        }
+    }
+
+    // 发送查询并等待回复线程按序号匹配的回复(不含标识)，超时返回null
+    private byte[] queryReply(DeploySessionEntity deploySessionEntity, long sequence, byte[] request) throws IOException, InterruptedException {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        deploySessionEntity.getReplyFutureMap().put(sequence, future);
+        deploySessionEntity.getOutputStream().write(request);
+        deploySessionEntity.getOutputStream().flush();
+        try {
+            return future.get(ApplicationConfig.REPLY_TIME_OUT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":" + new String(request, 0, DeployProtocolUtils.TAG_LENGTH) + "查询回复超时");
+            return null;
+        } finally {
+            deploySessionEntity.getReplyFutureMap().remove(sequence);
+        }
+    }
+
+    // 差量传输：获取客户端目标文件的块校验信息，只发送变化部分，客户端无可用目标文件时返回false
+    private boolean transferDelta(DeploySessionEntity deploySessionEntity, DeployLogDetailEntity deployLogDetailEntity, long sequence, FileChannel fileChannel, long fileSize, String md5, String targetPath) throws IOException, InterruptedException {
+        int blockSize = DeltaUtils.getBlockSize(fileSize);
+        byte[] reply = queryReply(deploySessionEntity, sequence, DeployProtocolUtils.getSignatureRequest(sequence, blockSize, targetPath));
+        if (reply == null) {
+            return false;
+        }
+        int count = (int) DeployProtocolUtils.parseNumber(reply, DeployProtocolUtils.SEQUENCE_LENGTH, DeltaUtils.COUNT_LENGTH, 0);
+        if (count == 0) {
+            return false;
+        }
+        List<DeltaSignatureEntity> deltaSignatureEntityList = DeltaUtils.parseSignatures(reply, DeployProtocolUtils.SIGNATURE_REPLY_LENGTH, count);
+        long start = System.currentTimeMillis();
+        // 差量指令较碎，经缓冲后写入Socket(不关闭缓冲流，避免关闭连接)
+        OutputStream outputStream = new BufferedOutputStream(deploySessionEntity.getOutputStream(), DeltaUtils.LITERAL_BUFFER_SIZE);
+        outputStream.write(DeployProtocolUtils.getDeltaFileHeader(sequence, fileSize, blockSize, md5, targetPath));
+        fileChannel.position(0);
+        long literalSize = DeltaUtils.writeDelta(fileChannel, blockSize, deltaSignatureEntityList, outputStream);
+        outputStream.flush();
+        // 差量数据量发送前未知，发送后扣除令牌，超出的部分由后续发送等待补足
+        deployBandwidthService.acquire(deploySessionEntity.getDeviceEntity(), literalSize);
+        deployLogDetailEntity.setTransferSize(literalSize);
+        deploySessionEntity.setTransferSize(deploySessionEntity.getTransferSize() + literalSize);
+        deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() + fileSize);
+        deploySessionEntity.setSpeed(((double) fileSize / 1024) / ((double) (System.currentTimeMillis() - start + 1) / 1000));
+        log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":" + targetPath + ",差量传输，文件大小：" + fileSize + "字节，实际发送数据：" + literalSize + "字节");
+        sendDeployProgress(deploySessionEntity, DEPLOYING, FilenameUtils.getName(targetPath) + "-部署中");
+        return true;
+    }
+
+    // 压缩传输：按块读取文件进行deflate压缩，压缩数据分段写入Socket，客户端按段拼接后解压
+    private void transferCompress(DeploySessionEntity deploySessionEntity, DeployLogDetailEntity deployLogDetailEntity, long sequence, FileChannel fileChannel, long fileSize, String md5, String targetPath) throws IOException {
+        OutputStream outputStream = deploySessionEntity.getOutputStream();
+        outputStream.write(DeployProtocolUtils.getCompressFileHeader(sequence, fileSize, md5, targetPath));
+        Deflater deflater = new Deflater(deploySessionEntity.getCompressLevel());
+        try {
+            ByteBuffer byteBuffer = ByteBuffer.allocate((int) ApplicationConfig.DEPLOY_TRANSFER_SIZE);
+            byte[] compressBytes = new byte[(int) ApplicationConfig.DEPLOY_TRANSFER_SIZE];
+            long sendSize = 0;
+            long compressSize = 0;
+            while (sendSize < fileSize) {
+                long start = System.currentTimeMillis();
+                byteBuffer.clear();
+                int readSize = fileChannel.read(byteBuffer, sendSize);
+                if (readSize <= 0) {
+                    // 文件帧按长度定界，内容发送不完整时数据流无法继续使用
+                    throw new IOException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":" + targetPath + ",文件读取异常");
+                }
+                sendSize = sendSize + readSize;
+                deflater.setInput(byteBuffer.array(), 0, readSize);
+                while (!deflater.needsInput()) {
+                    compressSize = compressSize + writeCompressSegment(deploySessionEntity, compressBytes, deflater.deflate(compressBytes));
+                }
+                // 更新进度数据(按原始文件大小计算)
+                deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() + readSize);
+                deploySessionEntity.setSpeed(((double) readSize / 1024) / ((double) (System.currentTimeMillis() - start + 1) / 1000));
+                sendDeployProgress(deploySessionEntity, DEPLOYING, FilenameUtils.getName(targetPath) + "-部署中");
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressSize = compressSize + writeCompressSegment(deploySessionEntity, compressBytes, deflater.deflate(compressBytes));
+            }
+            // 长度为0的数据段表示文件结束
+            outputStream.write(DeployProtocolUtils.getCompressSegmentHeader(0));
             outputStream.flush();
-            outputStream.close();
-            inputStream.close();
-            socket.close();
-            DEPLOYING_DEVICE.remove(deviceEntity.getHostAddress());
-            deployLogService.saveDeployLog(deployLogEntity);
-            deployLogDetailService.saveDeployLogDetails(deployLogDetailEntityList);
-            // 若成功部署文件，则打印日志
-            if (deployMetaEntityList.size() > 0) {
-                long deployFileSize = totalSize / 1024;
-                long deployTime = (System.currentTimeMillis() - deployStartTime) / 1000;
-                double deploySpeed = deployFileSize / (double) deployTime;
-                log.info(deviceEntity.getHostAddress() + ":总计部署文件大小：" + deployFileSize + "Kb，总计部署时间：" + deployTime + "s,平均部署速度：" + deploySpeed + "kb/s");
+            deployLogDetailEntity.setTransferSize(compressSize);
+            deploySessionEntity.setTransferSize(deploySessionEntity.getTransferSize() + compressSize);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // 写入一段压缩数据，返回写入的字节数
+    private long writeCompressSegment(DeploySessionEntity deploySessionEntity, byte[] compressBytes, int length) throws IOException {
+        if (length <= 0) {
+            return 0;
+        }
+        deployBandwidthService.acquire(deploySessionEntity.getDeviceEntity(), length);
+        OutputStream outputStream = deploySessionEntity.getOutputStream();
+        outputStream.write(DeployProtocolUtils.getCompressSegmentHeader(length));
+        outputStream.write(compressBytes, 0, length);
+        return DeployProtocolUtils.COMPRESS_SEGMENT_LENGTH + length;
+    }
+
+    // 筛选本次部署包含全部文件且文件数量较多的组件历史，预先生成部署包，生成失败时逐个文件部署
+    private Map<String, List<DeployMetaEntity>> getDeployBundleMap(List<DeployMetaEntity> deployMetaEntityList) {
+        Map<String, List<DeployMetaEntity>> deployBundleMap = new HashMap<>();
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            deployBundleMap.computeIfAbsent(deployMetaEntity.getComponentHistoryEntity().getId(), key -> new ArrayList<>()).add(deployMetaEntity);
+        }
+        Iterator<Map.Entry<String, List<DeployMetaEntity>>> iterator = deployBundleMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            List<DeployMetaEntity> deployBundleMetaEntityList = iterator.next().getValue();
+            ComponentHistoryEntity componentHistoryEntity = deployBundleMetaEntityList.get(0).getComponentHistoryEntity();
+            DeployManifestEntity deployManifestEntity = deployManifestService.getDeployManifest(componentHistoryEntity);
+            if (!deployBundleService.isBundleable(deployManifestEntity) || deployBundleMetaEntityList.size() != deployManifestEntity.getDeployManifestFileEntityList().size()) {
+                iterator.remove();
+                continue;
+            }
+            try {
+                deployBundleService.getDeployBundle(componentHistoryEntity);
+            } catch (IOException e) {
+                log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":部署包生成失败，改为逐个文件部署：" + e.getMessage());
+                iterator.remove();
+            }
+        }
+        return deployBundleMap;
+    }
+
+    // 发送组件历史的部署包，客户端解包后以一个确认回复全部文件的结果
+    private void transferBundle(DeploySessionEntity deploySessionEntity, long sequence, List<DeployMetaEntity> deployMetaEntityList) throws IOException {
+        DeployMetaEntity firstDeployMetaEntity = deployMetaEntityList.get(0);
+        File bundleFile = deployBundleService.getDeployBundle(firstDeployMetaEntity.getComponentHistoryEntity());
+        List<DeployLogDetailEntity> deployLogDetailEntityList = new ArrayList<>();
+        long totalFileSize = 0;
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            DeployLogDetailEntity deployLogDetailEntity = createDeployLogDetail(deploySessionEntity, deployMetaEntity, getTargetPath(deployMetaEntity));
+            deployLogDetailEntity.setTransferSize(deployLogDetailEntity.getFileSize());
+            deployLogDetailEntityList.add(deployLogDetailEntity);
+            totalFileSize = totalFileSize + deployLogDetailEntity.getFileSize();
+        }
+        deploySessionEntity.getPendingBundleMetaMap().put(sequence, deployMetaEntityList);
+        deploySessionEntity.getPendingBundleDetailMap().put(sequence, deployLogDetailEntityList);
+        String targetPath = FormatUtils.formatPath(firstDeployMetaEntity.getDeviceEntity().getDeployPath() + firstDeployMetaEntity.getComponentHistoryEntity().getRelativePath());
+        @Cleanup FileChannel fileChannel = FileChannel.open(bundleFile.toPath(), StandardOpenOption.READ);
+        long bundleSize = fileChannel.size();
+        deploySessionEntity.getOutputStream().write(DeployProtocolUtils.getBundleFileHeader(sequence, bundleSize, deployMetaEntityList.size(), targetPath));
+        if (!transferFile(deploySessionEntity, fileChannel, 0, bundleSize, targetPath)) {
+            throw new IOException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":" + targetPath + ",部署包读取异常");
+        }
+        // 条目头不计入部署进度
+        deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() - (bundleSize - totalFileSize));
+    }
+
+    // 通过FileChannel.transferTo将文件内容直接写入Socket，避免堆内存拷贝，返回是否完整发送
+    private boolean transferFile(DeploySessionEntity deploySessionEntity, FileChannel fileChannel, long position, long fileSize, String targetPath) throws IOException {
+        // 剩余内容较大且有空闲读取线程时启用预读，读取线程读入下一块的同时发送当前块
+        if (deployReadAheadService.isReadAhead(fileSize - position)) {
+            DeployReadAheadService.ReadAheadStream readAheadStream = deployReadAheadService.open(fileChannel, position, fileSize);
+            if (readAheadStream != null) {
+                return transferFileByReadAhead(deploySessionEntity, readAheadStream, targetPath);
+            }
+        }
+        long sendSize = position;
+        while (sendSize < fileSize) {
+            long sliceSize = Math.min(ApplicationConfig.DEPLOY_TRANSFER_SIZE, fileSize - sendSize);
+            deployBandwidthService.acquire(deploySessionEntity.getDeviceEntity(), sliceSize);
+            long start = System.currentTimeMillis();
+            long transferSize = fileChannel.transferTo(sendSize, sliceSize, deploySessionEntity.getSocketChannel());
+            if (transferSize <= 0) {
+                return false;
+            }
+            // 移动发送大小
+            sendSize = sendSize + transferSize;
+            updateTransferProgress(deploySessionEntity, transferSize, System.currentTimeMillis() - start, targetPath);
+        }
+        return true;
+    }
+
+    // 预读发送：从预读流依次取出已读入的缓冲区写入连接，分别统计等待磁盘及等待网络的时间
+    private boolean transferFileByReadAhead(DeploySessionEntity deploySessionEntity, DeployReadAheadService.ReadAheadStream readAheadStream, String targetPath) throws IOException {
+        SocketChannel socketChannel = deploySessionEntity.getSocketChannel();
+        try {
+            ByteBuffer buffer;
+            while ((buffer = readAheadStream.take()) != null) {
+                try {
+                    long transferSize = buffer.remaining();
+                    deployBandwidthService.acquire(deploySessionEntity.getDeviceEntity(), transferSize);
+                    long start = System.nanoTime();
+                    while (buffer.hasRemaining()) {
+                        socketChannel.write(buffer);
+                    }
+                    long writeTime = System.nanoTime() - start;
+                    deployReadAheadService.addNetworkWaitTime(writeTime);
+                    deploySessionEntity.setNetworkWaitTime(deploySessionEntity.getNetworkWaitTime() + writeTime);
+                    updateTransferProgress(deploySessionEntity, transferSize, TimeUnit.NANOSECONDS.toMillis(writeTime), targetPath);
+                } finally {
+                    readAheadStream.release(buffer);
+                }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         } finally {
-            simpMessagingTemplate.convertAndSend("/deployProgress/" + deploymentDesignEntity.getId(), new DeployProgressEntity(deviceEntity.getHostAddress(), 0, 100, DEPLOY_FINISHED, "部署结束"));
-            DEPLOYING_DEVICE.remove(deviceEntity.getHostAddress());
-            if (socket != null && !socket.isClosed()) {
-                outputStream.close();
-                inputStream.close();
-                socket.close();
+            readAheadStream.close();
+            deploySessionEntity.setDiskWaitTime(deploySessionEntity.getDiskWaitTime() + readAheadStream.getDiskWaitTime());
+        }
+        return true;
+    }
+
+    // 更新发送字节数、进度及速度
+    private void updateTransferProgress(DeploySessionEntity deploySessionEntity, long transferSize, long transferTime, String targetPath) {
+        deploySessionEntity.setTransferSize(deploySessionEntity.getTransferSize() + transferSize);
+        // 更新进度数据
+        deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() + transferSize);
+        // 发送时间单位秒
+        double time = (double) (transferTime + 1) / 1000;
+        // 发送大小单位kb
+        double size = (double) transferSize / 1024;
+        deploySessionEntity.setSpeed(size / time);
+        sendDeployProgress(deploySessionEntity, DEPLOYING, FilenameUtils.getName(targetPath) + "-部署中");
+    }
+
+    // 部署开始时保存部署日志，文件部署结束后日志详情即可写入
+    void startDeploySession(DeploySessionEntity deploySessionEntity) {
+        DeployLogEntity deployLogEntity = deploySessionEntity.getDeployLogEntity();
+        deployLogEntity.setHostAddress(deploySessionEntity.getDeviceEntity().getHostAddress());
+        deployLogEntity.setRunning(true);
+        deployLogService.saveDeployLog(deployLogEntity);
+    }
+
+    // 保存部署日志及剩余的详情(未结束的文件)，同时记录本次部署的文件总大小、实际传输字节数及压缩比
+    void saveDeploySession(DeploySessionEntity deploySessionEntity) {
+        DeployLogEntity deployLogEntity = deploySessionEntity.getDeployLogEntity();
+        deployLogEntity.setHostAddress(deploySessionEntity.getDeviceEntity().getHostAddress());
+        deployLogEntity.setRunning(false);
+        deployLogEntity.setTotalSize(deploySessionEntity.getTotalSize());
+        deployLogEntity.setTransferSize(deploySessionEntity.getTransferSize());
+        deployLogEntity.setCompressRatio(deploySessionEntity.getTotalSize() == 0 ? 1 : (double) deploySessionEntity.getTransferSize() / deploySessionEntity.getTotalSize());
+        deployLogEntity.setDiskWaitTime(TimeUnit.NANOSECONDS.toMillis(deploySessionEntity.getDiskWaitTime()));
+        deployLogEntity.setNetworkWaitTime(TimeUnit.NANOSECONDS.toMillis(deploySessionEntity.getNetworkWaitTime()));
+        deployLogService.saveDeployLog(deployLogEntity);
+        for (DeployLogDetailEntity deployLogDetailEntity : deploySessionEntity.getDeployLogDetailEntityList()) {
+            appendDeployLogDetail(deploySessionEntity, deployLogDetailEntity);
+        }
+    }
+
+    // 提交日志详情到写入线程，每条详情只提交一次
+    void appendDeployLogDetail(DeploySessionEntity deploySessionEntity, DeployLogDetailEntity deployLogDetailEntity) {
+        if (deploySessionEntity.getSavedDetailIdSet().add(deployLogDetailEntity.getId())) {
+            deployLogWriterThread.append(deployLogDetailEntity);
+        }
+    }
+
+    // 按间隔将在途文件已确认写入的字节数提交写入线程保存，文件结束后由结束记录覆盖
+    void saveDeployCheckpoints(DeploySessionEntity deploySessionEntity) {
+        long now = System.currentTimeMillis();
+        if (now - deploySessionEntity.getCheckpointTime() < ApplicationConfig.DEPLOY_CHECKPOINT_INTERVAL) {
+            return;
+        }
+        deploySessionEntity.setCheckpointTime(now);
+        for (DeployLogDetailEntity deployLogDetailEntity : deploySessionEntity.getPendingDetailMap().values()) {
+            if (!deployLogDetailEntity.isComplete() && deployLogDetailEntity.getCommittedSize() > 0 && !deploySessionEntity.getSavedDetailIdSet().contains(deployLogDetailEntity.getId())) {
+                deployLogWriterThread.appendCheckpoint(deployLogDetailEntity);
             }
         }
     }
+
+    // 记录部署耗时，完整部署的平均速度计入设备吞吐量
+    void recordDeployTime(DeploySessionEntity deploySessionEntity) {
+        long deployTime = System.currentTimeMillis() - deploySessionEntity.getStartTime();
+        deploySessionEntity.getDeployLogEntity().setDeployTime(deployTime);
+        if (deploySessionEntity.getDeployLogEntity().isComplete()) {
+            deployThroughputService.recordThroughput(deploySessionEntity.getDeviceEntity().getHostAddress(), deploySessionEntity.getTotalSize(), deployTime);
+        }
+    }
+
+    // 生成部署路径
+    String getTargetPath(DeployMetaEntity deployMetaEntity) {
+        return FormatUtils.formatPath(deployMetaEntity.getDeviceEntity().getDeployPath() + deployMetaEntity.getComponentHistoryEntity().getRelativePath() + deployMetaEntity.getDeployManifestFileEntity().getRelativePath());
+    }
+
+    // 建立日志详情节点
+    DeployLogDetailEntity createDeployLogDetail(DeploySessionEntity deploySessionEntity, DeployMetaEntity deployMetaEntity, String targetPath) {
+        DeployLogDetailEntity deployLogDetailEntity = new DeployLogDetailEntity();
+        deployLogDetailEntity.setHostName(deploySessionEntity.getDeviceEntity().getHostAddress());
+        deployLogDetailEntity.setComponentName(deployMetaEntity.getComponentHistoryEntity().getName());
+        deployLogDetailEntity.setComponentVersion(deployMetaEntity.getComponentHistoryEntity().getVersion());
+        deployLogDetailEntity.setComponentTag(deployMetaEntity.getComponentHistoryEntity().getTag());
+        deployLogDetailEntity.setTargetPath(targetPath);
+        deployLogDetailEntity.setMD5(deployMetaEntity.getDeployManifestFileEntity().getMD5());
+        deployLogDetailEntity.setFileSize(deployMetaEntity.getDeployManifestFileEntity().getSize());
+        deployLogDetailEntity.setDeployLogEntity(deploySessionEntity.getDeployLogEntity());
+        deploySessionEntity.getDeployLogDetailEntityList().add(deployLogDetailEntity);
+        return deployLogDetailEntity;
+    }
+
+    // 文件部署成功
+    void deploySucceed(DeploySessionEntity deploySessionEntity, DeployMetaEntity deployMetaEntity, DeployLogDetailEntity deployLogDetailEntity) {
+        deployLogDetailEntity.setComplete(true);
+        deployLogDetailEntity.setCommittedSize(deployLogDetailEntity.getFileSize());
+        deploySessionEntity.getSucceedMetaSet().add(deployMetaEntity);
+        if (deployLogDetailEntity.getMD5() != null) {
+            deploySessionEntity.getLandedFileMap().putIfAbsent(deployLogDetailEntity.getMD5(), deployLogDetailEntity.getTargetPath());
+        }
+        appendDeployLogDetail(deploySessionEntity, deployLogDetailEntity);
+        log.info(deployMetaEntity.getComponentHistoryEntity().getName() + "-" + deployMetaEntity.getComponentHistoryEntity().getVersion() + "@" + deploySessionEntity.getDeviceEntity().getHostAddress() + ":" + deployLogDetailEntity.getTargetPath() + ",部署成功，当前进度：" + deployProgressService.getProgress(deploySessionEntity) + "%,当前速度：" + deploySessionEntity.getSpeed() + "kb/s");
+        sendDeployProgress(deploySessionEntity, DEPLOYING_SUCCEED, FilenameUtils.getName(deployLogDetailEntity.getTargetPath()) + "-部署成功");
+    }
+
+    // 文件部署失败
+    void deployFailed(DeploySessionEntity deploySessionEntity, DeployMetaEntity deployMetaEntity, DeployLogDetailEntity deployLogDetailEntity, String reason) {
+        deploySessionEntity.getDeployLogEntity().setComplete(false);
+        deployLogDetailEntity.setComplete(false);
+        appendDeployLogDetail(deploySessionEntity, deployLogDetailEntity);
+        log.info(deployMetaEntity.getComponentHistoryEntity().getName() + "-" + deployMetaEntity.getComponentHistoryEntity().getVersion() + "@" + deploySessionEntity.getDeviceEntity().getHostAddress() + ":" + deployLogDetailEntity.getTargetPath() + ",部署失败，" + reason + "。当前进度：" + deployProgressService.getProgress(deploySessionEntity) + "%");
+        sendDeployProgress(deploySessionEntity, DEPLOYING_ERROR, FilenameUtils.getName(deployLogDetailEntity.getTargetPath()) + "-部署失败");
+    }
+
+    // 在途文件回复超时，全部按失败处理
+    void deployPendingFailed(DeploySessionEntity deploySessionEntity) {
+        for (Long sequence : new ArrayList<>(deploySessionEntity.getPendingDetailMap().keySet())) {
+            DeployLogDetailEntity deployLogDetailEntity = deploySessionEntity.getPendingDetailMap().remove(sequence);
+            if (deployLogDetailEntity != null) {
+                deployFailed(deploySessionEntity, deploySessionEntity.getPendingMetaMap().remove(sequence), deployLogDetailEntity, "接收文件回复超时");
+            }
+        }
+        for (Long sequence : new ArrayList<>(deploySessionEntity.getPendingBundleDetailMap().keySet())) {
+            List<DeployLogDetailEntity> deployLogDetailEntityList = deploySessionEntity.getPendingBundleDetailMap().remove(sequence);
+            List<DeployMetaEntity> deployMetaEntityList = deploySessionEntity.getPendingBundleMetaMap().remove(sequence);
+            if (deployLogDetailEntityList != null) {
+                for (int i = 0; i < deployLogDetailEntityList.size(); i++) {
+                    deployFailed(deploySessionEntity, deployMetaEntityList.get(i), deployLogDetailEntityList.get(i), "接收部署包回复超时");
+                }
+            }
+        }
+    }
+
+    // 推送部署进度：传输中的进度由汇总任务按频率合并推送，文件结束状态逐条推送
+    void sendDeployProgress(DeploySessionEntity deploySessionEntity, int state, String description) {
+        if (state == DEPLOYING) {
+            deployProgressService.updateProgress(deploySessionEntity, description);
+        } else {
+            deployProgressService.sendProgress(deploySessionEntity, state, description);
+        }
+    }
 }
@@ -0,0 +1,385 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.FormatUtils;
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 组播部署：同一组件历史版本部署到同一网段的多台设备时，文件块只组播一次，
+ * 设备通过NACK请求重传缺失的块，多轮修复后仍未完成的文件交由部署调度器排队单播部署。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 11:50
+ **/
+
+@Slf4j
+@Service
+public class DeployMulticastService {
+
+    private static final AtomicLong SESSION = new AtomicLong(System.currentTimeMillis() % 1000000000L);
+
+    private final ThreadPoolTaskExecutor deployTaskExecutor;
+    private final DeployManifestService deployManifestService;
+    private final DeploymentDesignDetailService deploymentDesignDetailService;
+    private final DeployMetaService deployMetaService;
+    private final DeployBandwidthService deployBandwidthService;
+    private final DeploySchedulerService deploySchedulerService;
+
+    @Autowired
+    public DeployMulticastService(@Qualifier(value = "deployTaskExecutor") ThreadPoolTaskExecutor deployTaskExecutor, DeployManifestService deployManifestService, DeploymentDesignDetailService deploymentDesignDetailService, DeployMetaService deployMetaService, DeployBandwidthService deployBandwidthService, DeploySchedulerService deploySchedulerService) {
+        this.deployTaskExecutor = deployTaskExecutor;
+        this.deployManifestService = deployManifestService;
+        this.deploymentDesignDetailService = deploymentDesignDetailService;
+        this.deployMetaService = deployMetaService;
+        this.deployBandwidthService = deployBandwidthService;
+        this.deploySchedulerService = deploySchedulerService;
+    }
+
+    // 判断设备是否在线且支持组播部署
+    public static boolean isMulticastDevice(DeviceEntity deviceEntity) {
+        HeartbeatEntity heartbeatEntity = deviceEntity == null ? null : DeviceService.ONLINE_HOST_ADRESS.get(deviceEntity.getHostAddress());
+        return heartbeatEntity != null && DeployProtocolUtils.hasCapability(heartbeatEntity.getDeployCapability() & ApplicationConfig.DEPLOY_CAPABILITY, DeployProtocolUtils.CAPABILITY_MULTICAST);
+    }
+
+    // 提交组播部署：空闲设备登记为部署调度器中执行中的任务后在部署线程池中组播，正在部署的设备由部署调度器按普通任务排队
+    public void submitDeploymentDesign(DeploymentDesignEntity deploymentDesignEntity, List<DeploymentDesignNodeEntity> deploymentDesignNodeEntityList, int priority, int concurrency, boolean incremental) {
+        if (deploymentDesignNodeEntityList.isEmpty()) {
+            return;
+        }
+        List<DeployTaskEntity> deployTaskEntityList = deploySchedulerService.startMulticastDeployTasks(deploymentDesignEntity, deploymentDesignNodeEntityList, priority, concurrency, incremental);
+        if (deployTaskEntityList.isEmpty()) {
+            return;
+        }
+        Map<String, DeploymentDesignNodeEntity> deploymentDesignNodeMap = new HashMap<>();
+        for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeEntityList) {
+            deploymentDesignNodeMap.put(deploymentDesignNodeEntity.getId(), deploymentDesignNodeEntity);
+        }
+        deployTaskExecutor.execute(() -> deployByMulticast(deploymentDesignEntity, deployTaskEntityList, deploymentDesignNodeMap));
+    }
+
+    // 执行组播部署，结束后记录组播完成的文件日志，未完成的文件交由部署调度器排队单播
+    private void deployByMulticast(DeploymentDesignEntity deploymentDesignEntity, List<DeployTaskEntity> deployTaskEntityList, Map<String, DeploymentDesignNodeEntity> deploymentDesignNodeMap) {
+        Map<String, DeployMulticastReceiverEntity> receiverMap = new LinkedHashMap<>();
+        Map<String, ComponentHistoryEntity> componentHistoryMap = new LinkedHashMap<>();
+        // 尚未加入组播也未交还部署调度器的任务，组播异常中断时全部交还
+        List<DeployTaskEntity> pendingTaskList = new ArrayList<>(deployTaskEntityList);
+        try {
+            for (DeployTaskEntity deployTaskEntity : deployTaskEntityList) {
+                pendingTaskList.remove(deployTaskEntity);
+                DeploymentDesignNodeEntity deploymentDesignNodeEntity = deploymentDesignNodeMap.get(deployTaskEntity.getDeploymentDesignNodeId());
+                DeviceEntity deviceEntity = deploymentDesignNodeEntity.getDeviceEntity();
+                List<DeployMetaEntity> deployMetaEntityList;
+                try {
+                    List<DeploymentDesignDetailEntity> deploymentDesignDetailEntityList = deploymentDesignDetailService.getDeploymentDesignDetailsByDeploymentDesignNode(deploymentDesignNodeEntity);
+                    deployMetaEntityList = deployTaskEntity.isIncremental() ? deployMetaService.createIncrementalDeployMeta(deploymentDesignDetailEntityList) : deployMetaService.createDeployMeta(deploymentDesignDetailEntityList);
+                } catch (RuntimeException e) {
+                    // 交由部署调度器重新生成，失败时由调度器记录
+                    log.info(deviceEntity.getHostAddress() + ":生成组播部署信息失败，改为单播部署：" + e.getMessage());
+                    deploySchedulerService.releaseMulticastDeployTask(deployTaskEntity, null, e.getMessage());
+                    continue;
+                }
+                if (deployMetaEntityList.isEmpty()) {
+                    deploySchedulerService.releaseMulticastDeployTask(deployTaskEntity, deployMetaEntityList, deployTaskEntity.isIncremental() ? "设备文件无变化" : null);
+                    continue;
+                }
+                // 组播期间占用设备，设备已被手动部署占用时交由部署调度器排队
+                if (DeployMetaService.DEPLOYING_DEVICE.putIfAbsent(deviceEntity.getHostAddress(), deviceEntity) != null) {
+                    deploySchedulerService.releaseMulticastDeployTask(deployTaskEntity, null, ApplicationMessages.DEVICE_IS_DEPOLOYING + deviceEntity.getHostAddress());
+                    continue;
+                }
+                DeployMulticastReceiverEntity deployMulticastReceiverEntity = new DeployMulticastReceiverEntity();
+                deployMulticastReceiverEntity.setDeviceEntity(deviceEntity);
+                deployMulticastReceiverEntity.setDeployTaskEntity(deployTaskEntity);
+                for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+                    deployMulticastReceiverEntity.getDeployMetaMap().put(getDeployMetaKey(deployMetaEntity.getComponentHistoryEntity(), deployMetaEntity.getDeployManifestFileEntity()), deployMetaEntity);
+                    componentHistoryMap.putIfAbsent(deployMetaEntity.getComponentHistoryEntity().getId(), deployMetaEntity.getComponentHistoryEntity());
+                }
+                receiverMap.put(deviceEntity.getHostAddress(), deployMulticastReceiverEntity);
+            }
+            for (ComponentHistoryEntity componentHistoryEntity : componentHistoryMap.values()) {
+                List<DeployMulticastReceiverEntity> deployMulticastReceiverEntityList = new ArrayList<>();
+                for (DeployMulticastReceiverEntity deployMulticastReceiverEntity : receiverMap.values()) {
+                    for (DeployMetaEntity deployMetaEntity : deployMulticastReceiverEntity.getDeployMetaMap().values()) {
+                        if (deployMetaEntity.getComponentHistoryEntity().getId().equals(componentHistoryEntity.getId())) {
+                            deployMulticastReceiverEntityList.add(deployMulticastReceiverEntity);
+                            break;
+                        }
+                    }
+                }
+                deployComponentHistory(componentHistoryEntity, deployMulticastReceiverEntityList);
+            }
+        } catch (RuntimeException e) {
+            log.info(deploymentDesignEntity.getName() + ":组播部署异常，未完成的文件改为单播部署：" + e.getMessage());
+        } finally {
+            for (DeployTaskEntity deployTaskEntity : pendingTaskList) {
+                deploySchedulerService.releaseMulticastDeployTask(deployTaskEntity, null, null);
+            }
+            for (DeployMulticastReceiverEntity deployMulticastReceiverEntity : receiverMap.values()) {
+                DeviceEntity deviceEntity = deployMulticastReceiverEntity.getDeviceEntity();
+                DeployMetaService.DEPLOYING_DEVICE.remove(deviceEntity.getHostAddress());
+                if (!deployMulticastReceiverEntity.getSucceedList().isEmpty()) {
+                    try {
+                        deployMetaService.saveMulticastDeployLog(deploymentDesignEntity, deviceEntity, deployMulticastReceiverEntity.getSucceedList(), deployMulticastReceiverEntity.getTransferSize());
+                    } catch (RuntimeException e) {
+                        log.info(deviceEntity.getHostAddress() + ":记录组播部署日志失败：" + e.getMessage());
+                    }
+                }
+                List<DeployMetaEntity> remainList = new ArrayList<>(deployMulticastReceiverEntity.getDeployMetaMap().values());
+                remainList.removeAll(deployMulticastReceiverEntity.getSucceedList());
+                String message = null;
+                if (!remainList.isEmpty()) {
+                    message = "组播部署未完成文件" + remainList.size() + "个，改为单播部署";
+                    log.info(deviceEntity.getHostAddress() + ":" + message);
+                }
+                deploySchedulerService.releaseMulticastDeployTask(deployMulticastReceiverEntity.getDeployTaskEntity(), remainList, message);
+            }
+            deploySchedulerService.releaseMulticastSession(deploymentDesignEntity.getId());
+        }
+    }
+
+    // 组播部署一个组件历史版本中各设备需要的文件(按部署清单顺序)，接收完成的文件加入设备的成功列表
+    private void deployComponentHistory(ComponentHistoryEntity componentHistoryEntity, List<DeployMulticastReceiverEntity> deployMulticastReceiverEntityList) {
+        List<DeployMetaEntity> deployMetaEntityList = new ArrayList<>();
+        for (DeployManifestFileEntity deployManifestFileEntity : deployManifestService.getDeployManifest(componentHistoryEntity).getDeployManifestFileEntityList()) {
+            String key = getDeployMetaKey(componentHistoryEntity, deployManifestFileEntity);
+            for (DeployMulticastReceiverEntity deployMulticastReceiverEntity : deployMulticastReceiverEntityList) {
+                if (deployMulticastReceiverEntity.getDeployMetaMap().containsKey(key)) {
+                    DeployMetaEntity deployMetaEntity = new DeployMetaEntity();
+                    deployMetaEntity.setComponentHistoryEntity(componentHistoryEntity);
+                    deployMetaEntity.setDeployManifestFileEntity(deployManifestFileEntity);
+                    deployMetaEntityList.add(deployMetaEntity);
+                    break;
+                }
+            }
+        }
+        DeployMulticastSessionEntity deployMulticastSessionEntity = new DeployMulticastSessionEntity();
+        deployMulticastSessionEntity.setSession(SESSION.incrementAndGet());
+        deployMulticastSessionEntity.setComponentHistoryEntity(componentHistoryEntity);
+        // 不支持组播的设备不加入会话，其文件全部改为单播
+        for (DeployMulticastReceiverEntity deployMulticastReceiverEntity : deployMulticastReceiverEntityList) {
+            deployMulticastReceiverEntity.setJoined(false);
+            if (isMulticastDevice(deployMulticastReceiverEntity.getDeviceEntity())) {
+                deployMulticastSessionEntity.getReceiverMap().put(deployMulticastReceiverEntity.getDeviceEntity().getHostAddress(), deployMulticastReceiverEntity);
+            }
+        }
+        if (deployMulticastSessionEntity.getReceiverMap().isEmpty() || deployMetaEntityList.isEmpty()) {
+            return;
+        }
+        try {
+            @Cleanup MulticastSocket multicastSocket = new MulticastSocket();
+            multicastSocket.setTimeToLive(ApplicationConfig.DEPLOY_MULTICAST_TTL);
+            @Cleanup DatagramSocket controlSocket = new DatagramSocket();
+            deployMulticastSessionEntity.setGroupAddress(InetAddress.getByName(ApplicationConfig.SERVER_CAST_ADDRESS));
+            deployMulticastSessionEntity.setMulticastSocket(multicastSocket);
+            deployMulticastSessionEntity.setControlSocket(controlSocket);
+            deployMulticastSessionEntity.setStartTime(System.currentTimeMillis());
+            inviteReceivers(deployMulticastSessionEntity);
+            // 未加入组播的设备文件全部改为单播
+            Set<String> joinedHostSet = new HashSet<>();
+            for (DeployMulticastReceiverEntity deployMulticastReceiverEntity : deployMulticastSessionEntity.getReceiverMap().values()) {
+                if (deployMulticastReceiverEntity.isJoined()) {
+                    joinedHostSet.add(deployMulticastReceiverEntity.getDeviceEntity().getHostAddress());
+                }
+            }
+            if (joinedHostSet.isEmpty()) {
+                return;
+            }
+            log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":组播部署开始，会话：" + deployMulticastSessionEntity.getSession() + "，设备数：" + joinedHostSet.size());
+            for (int fileIndex = 0; fileIndex < deployMetaEntityList.size(); fileIndex++) {
+                DeployMetaEntity deployMetaEntity = deployMetaEntityList.get(fileIndex);
+                String key = getDeployMetaKey(componentHistoryEntity, deployMetaEntity.getDeployManifestFileEntity());
+                // 只等待需要该文件的设备确认，其它已加入的设备收到的是相同内容
+                Set<String> targetHostSet = new HashSet<>();
+                for (String hostAddress : joinedHostSet) {
+                    if (deployMulticastSessionEntity.getReceiverMap().get(hostAddress).getDeployMetaMap().containsKey(key)) {
+                        targetHostSet.add(hostAddress);
+                    }
+                }
+                if (targetHostSet.isEmpty()) {
+                    continue;
+                }
+                Set<String> pendingHostSet = new HashSet<>(targetHostSet);
+                long sendSize = deployMulticastSessionEntity.getSendSize();
+                try {
+                    sendFile(deployMulticastSessionEntity, fileIndex, deployMetaEntity, pendingHostSet);
+                } catch (IOException e) {
+                    log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":组播发送文件失败：" + e.getMessage());
+                }
+                long shareSize = (deployMulticastSessionEntity.getSendSize() - sendSize) / targetHostSet.size();
+                for (String hostAddress : targetHostSet) {
+                    DeployMulticastReceiverEntity deployMulticastReceiverEntity = deployMulticastSessionEntity.getReceiverMap().get(hostAddress);
+                    deployMulticastReceiverEntity.setTransferSize(deployMulticastReceiverEntity.getTransferSize() + shareSize);
+                    if (!pendingHostSet.contains(hostAddress)) {
+                        deployMulticastReceiverEntity.getSucceedList().add(deployMulticastReceiverEntity.getDeployMetaMap().get(key));
+                    }
+                }
+            }
+            sendPacket(deployMulticastSessionEntity, DeployProtocolUtils.getMulticastEnd(deployMulticastSessionEntity.getSession()));
+            log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":组播部署结束，会话：" + deployMulticastSessionEntity.getSession() + "，发送数据：" + deployMulticastSessionEntity.getSendSize() + "字节");
+        } catch (IOException e) {
+            // 组播通道不可用，尚未完成的文件全部改为单播
+            log.info(componentHistoryEntity.getName() + "-" + componentHistoryEntity.getVersion() + ":组播部署异常：" + e.getMessage());
+        }
+    }
+
+    // 向设备单播组播邀请并等待加入回复
+    private void inviteReceivers(DeployMulticastSessionEntity deployMulticastSessionEntity) throws IOException {
+        DatagramSocket controlSocket = deployMulticastSessionEntity.getControlSocket();
+        for (DeployMulticastReceiverEntity deployMulticastReceiverEntity : deployMulticastSessionEntity.getReceiverMap().values()) {
+            byte[] bytes = DeployProtocolUtils.getMulticastInvite(deployMulticastSessionEntity.getSession(), ApplicationConfig.DEPLOY_MULTICAST_PORT, deployMulticastReceiverEntity.getDeviceEntity().getDeployPath());
+            controlSocket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getByName(deployMulticastReceiverEntity.getDeviceEntity().getHostAddress()), ApplicationConfig.UDP_SEND_PORT));
+        }
+        int joinedCount = 0;
+        long startTime = System.currentTimeMillis();
+        DatagramPacket datagramPacket = new DatagramPacket(new byte[512], 512);
+        while (joinedCount < deployMulticastSessionEntity.getReceiverMap().size()) {
+            long remainTime = ApplicationConfig.REPLY_TIME_OUT - (System.currentTimeMillis() - startTime);
+            if (remainTime <= 0) {
+                break;
+            }
+            controlSocket.setSoTimeout((int) remainTime);
+            try {
+                controlSocket.receive(datagramPacket);
+            } catch (SocketTimeoutException e) {
+                break;
+            }
+            byte[] bytes = datagramPacket.getData();
+            if (datagramPacket.getLength() < DeployProtocolUtils.TAG_LENGTH + DeployProtocolUtils.SEQUENCE_LENGTH || !new String(bytes, 0, DeployProtocolUtils.TAG_LENGTH).equals(DeployProtocolUtils.MULTICAST_JOIN_TAG) || DeployProtocolUtils.parseNumber(bytes, DeployProtocolUtils.TAG_LENGTH, DeployProtocolUtils.SEQUENCE_LENGTH, -1) != deployMulticastSessionEntity.getSession()) {
+                continue;
+            }
+            DeployMulticastReceiverEntity deployMulticastReceiverEntity = deployMulticastSessionEntity.getReceiverMap().get(datagramPacket.getAddress().getHostAddress());
+            if (deployMulticastReceiverEntity != null && !deployMulticastReceiverEntity.isJoined()) {
+                deployMulticastReceiverEntity.setJoined(true);
+                joinedCount = joinedCount + 1;
+            }
+        }
+    }
+
+    // 组播单个文件：公告、全部文件块、多轮状态查询及缺失块修复，返回时pendingHostSet中为未完成接收的设备
+    private void sendFile(DeployMulticastSessionEntity deployMulticastSessionEntity, int fileIndex, DeployMetaEntity deployMetaEntity, Set<String> pendingHostSet) throws IOException {
+        DeployManifestFileEntity deployManifestFileEntity = deployMetaEntity.getDeployManifestFileEntity();
+        File file = new File(deployManifestFileEntity.getLocalPath());
+        @Cleanup FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        long fileSize = fileChannel.size();
+        int blockCount = (int) ((fileSize + ApplicationConfig.DEPLOY_MULTICAST_BLOCK_SIZE - 1) / ApplicationConfig.DEPLOY_MULTICAST_BLOCK_SIZE);
+        String relativePath = FormatUtils.formatPath(deployMetaEntity.getComponentHistoryEntity().getRelativePath() + deployManifestFileEntity.getRelativePath());
+        byte[] fileBytes = DeployProtocolUtils.getMulticastFile(deployMulticastSessionEntity.getSession(), fileIndex, fileSize, blockCount, deployManifestFileEntity.getMD5(), relativePath);
+        BitSet blockSet = new BitSet(blockCount);
+        blockSet.set(0, blockCount);
+        for (int round = 0; round <= ApplicationConfig.DEPLOY_MULTICAST_REPAIR_ROUNDS && !pendingHostSet.isEmpty(); round++) {
+            // 公告随每轮修复重发，保证丢失公告的设备也能接收
+            if (round == 0 || !blockSet.isEmpty()) {
+                sendPacket(deployMulticastSessionEntity, fileBytes);
+                sendBlocks(deployMulticastSessionEntity, fileChannel, fileIndex, blockSet);
+            }
+            blockSet = receiveNack(deployMulticastSessionEntity, fileIndex, blockCount, pendingHostSet);
+        }
+    }
+
+    // 组播指定的文件块
+    private void sendBlocks(DeployMulticastSessionEntity deployMulticastSessionEntity, FileChannel fileChannel, int fileIndex, BitSet blockSet) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(DeployProtocolUtils.MULTICAST_BLOCK_HEADER_LENGTH + ApplicationConfig.DEPLOY_MULTICAST_BLOCK_SIZE);
+        for (int blockIndex = blockSet.nextSetBit(0); blockIndex >= 0; blockIndex = blockSet.nextSetBit(blockIndex + 1)) {
+            byteBuffer.clear();
+            byteBuffer.put(DeployProtocolUtils.getMulticastBlockHeader(deployMulticastSessionEntity.getSession(), fileIndex, blockIndex));
+            long position = (long) blockIndex * ApplicationConfig.DEPLOY_MULTICAST_BLOCK_SIZE;
+            while (byteBuffer.hasRemaining()) {
+                if (fileChannel.read(byteBuffer, position + byteBuffer.position() - DeployProtocolUtils.MULTICAST_BLOCK_HEADER_LENGTH) <= 0) {
+                    break;
+                }
+            }
+            sendPacket(deployMulticastSessionEntity, Arrays.copyOf(byteBuffer.array(), byteBuffer.position()));
+        }
+    }
+
+    // 发送状态查询并收集NACK，返回各设备缺失块的并集，已完整接收的设备从pendingHostSet中移除
+    private BitSet receiveNack(DeployMulticastSessionEntity deployMulticastSessionEntity, int fileIndex, int blockCount, Set<String> pendingHostSet) throws IOException {
+        DatagramSocket controlSocket = deployMulticastSessionEntity.getControlSocket();
+        sendPacket(deployMulticastSessionEntity, DeployProtocolUtils.getMulticastStatus(deployMulticastSessionEntity.getSession(), fileIndex));
+        BitSet blockSet = new BitSet(blockCount);
+        Set<String> replyHostSet = new HashSet<>();
+        long startTime = System.currentTimeMillis();
+        DatagramPacket datagramPacket = new DatagramPacket(new byte[65507], 65507);
+        while (replyHostSet.size() < pendingHostSet.size()) {
+            long remainTime = ApplicationConfig.DEPLOY_MULTICAST_NACK_TIME - (System.currentTimeMillis() - startTime);
+            if (remainTime <= 0) {
+                break;
+            }
+            controlSocket.setSoTimeout((int) remainTime);
+            try {
+                controlSocket.receive(datagramPacket);
+            } catch (SocketTimeoutException e) {
+                break;
+            }
+            byte[] bytes = datagramPacket.getData();
+            int pointer = DeployProtocolUtils.TAG_LENGTH;
+            if (datagramPacket.getLength() < pointer + DeployProtocolUtils.SEQUENCE_LENGTH * 3 || !new String(bytes, 0, DeployProtocolUtils.TAG_LENGTH).equals(DeployProtocolUtils.MULTICAST_NACK_TAG)) {
+                continue;
+            }
+            String hostAddress = datagramPacket.getAddress().getHostAddress();
+            long session = DeployProtocolUtils.parseNumber(bytes, pointer, DeployProtocolUtils.SEQUENCE_LENGTH, -1);
+            pointer = pointer + DeployProtocolUtils.SEQUENCE_LENGTH;
+            long index = DeployProtocolUtils.parseNumber(bytes, pointer, DeployProtocolUtils.SEQUENCE_LENGTH, -1);
+            pointer = pointer + DeployProtocolUtils.SEQUENCE_LENGTH;
+            if (session != deployMulticastSessionEntity.getSession() || index != fileIndex || !pendingHostSet.contains(hostAddress) || !replyHostSet.add(hostAddress)) {
+                continue;
+            }
+            long count = DeployProtocolUtils.parseNumber(bytes, pointer, DeployProtocolUtils.SEQUENCE_LENGTH, 0);
+            pointer = pointer + DeployProtocolUtils.SEQUENCE_LENGTH;
+            if (count == 0) {
+                pendingHostSet.remove(hostAddress);
+                replyHostSet.remove(hostAddress);
+                continue;
+            }
+            for (long i = 0; i < count && pointer + DeployProtocolUtils.SEQUENCE_LENGTH * 2 <= datagramPacket.getLength(); i++) {
+                int start = (int) DeployProtocolUtils.parseNumber(bytes, pointer, DeployProtocolUtils.SEQUENCE_LENGTH, 0);
+                int end = (int) DeployProtocolUtils.parseNumber(bytes, pointer + DeployProtocolUtils.SEQUENCE_LENGTH, DeployProtocolUtils.SEQUENCE_LENGTH, blockCount - 1);
+                pointer = pointer + DeployProtocolUtils.SEQUENCE_LENGTH * 2;
+                if (start <= end) {
+                    blockSet.set(Math.max(0, start), Math.min(blockCount, end + 1));
+                }
+            }
+        }
+        return blockSet;
+    }
+
+    // 发送组播数据报，按DEPLOY_MULTICAST_RATE限速，同时计入全局部署带宽
+    private void sendPacket(DeployMulticastSessionEntity deployMulticastSessionEntity, byte[] bytes) throws IOException {
+        // 全局带宽令牌与组播发送速率取较长的等待时间，只等待一次
+        long waitTime = deployBandwidthService.reserve(null, bytes.length);
+        deployMulticastSessionEntity.getMulticastSocket().send(new DatagramPacket(bytes, bytes.length, deployMulticastSessionEntity.getGroupAddress(), ApplicationConfig.DEPLOY_MULTICAST_PORT));
+        deployMulticastSessionEntity.setSendSize(deployMulticastSessionEntity.getSendSize() + bytes.length);
+        long expectTime = deployMulticastSessionEntity.getSendSize() * 1000 / ApplicationConfig.DEPLOY_MULTICAST_RATE;
+        long sleepTime = Math.max(waitTime, expectTime - (System.currentTimeMillis() - deployMulticastSessionEntity.getStartTime()));
+        if (sleepTime > 0) {
+            try {
+                Thread.sleep(sleepTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SocketException("组播部署被中断");
+            }
+        }
+    }
+
+    // 设备需要部署的文件标识
+    private String getDeployMetaKey(ComponentHistoryEntity componentHistoryEntity, DeployManifestFileEntity deployManifestFileEntity) {
+        return componentHistoryEntity.getId() + "/" + deployManifestFileEntity.getComponentFileHistoryId();
+    }
+}
@@ -0,0 +1,120 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeployProgressEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeploySessionEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeploymentDesignEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 部署进度汇总：部署线程只登记进度变化，由定时任务按固定频率推送每个部署设计的进度，
+ * 传输中的进度只推送最新值，文件部署成功、失败及部署结束的状态全部按顺序推送。
+ * 原有主题/deployProgress/{部署设计Id}仍逐条推送单个进度，同一批次的进度另外合并为一条列表消息推送到/deployProgressList/{部署设计Id}。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 13:52
+ **/
+
+@Slf4j
+@Service
+public class DeployProgressService {
+
+    private final SimpMessagingTemplate simpMessagingTemplate;
+    // 部署设计Id -> 待推送的部署进度
+    private final Map<String, DesignProgress> designProgressMap = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DeployProgressService(SimpMessagingTemplate simpMessagingTemplate) {
+        this.simpMessagingTemplate = simpMessagingTemplate;
+    }
+
+    // 登记传输中的进度，推送时读取会话的最新数据
+    public void updateProgress(DeploySessionEntity deploySessionEntity, String description) {
+        deploySessionEntity.setDescription(description);
+        String hostAddress = deploySessionEntity.getDeviceEntity().getHostAddress();
+        updateDesignProgress(deploySessionEntity.getDeploymentDesignEntity().getId(), designProgress -> designProgress.sessionMap.put(hostAddress, deploySessionEntity));
+    }
+
+    // 登记文件部署成功或失败的状态，保证每条都会推送
+    public void sendProgress(DeploySessionEntity deploySessionEntity, int state, String description) {
+        DeployProgressEntity deployProgressEntity = new DeployProgressEntity(deploySessionEntity.getDeviceEntity().getHostAddress(), deploySessionEntity.getSpeed(), getProgress(deploySessionEntity), state, description);
+        updateDesignProgress(deploySessionEntity.getDeploymentDesignEntity().getId(), designProgress -> designProgress.stateQueue.add(deployProgressEntity));
+    }
+
+    // 登记设备部署结束，之后不再推送该设备传输中的进度
+    public void sendFinished(DeploymentDesignEntity deploymentDesignEntity, String hostAddress) {
+        DeployProgressEntity deployProgressEntity = new DeployProgressEntity(hostAddress, 0, 100, DeployMetaService.DEPLOY_FINISHED, "部署结束");
+        updateDesignProgress(deploymentDesignEntity.getId(), designProgress -> {
+            designProgress.sessionMap.remove(hostAddress);
+            designProgress.stateQueue.add(deployProgressEntity);
+        });
+    }
+
+    // 计算部署进度(百分比)
+    public double getProgress(DeploySessionEntity deploySessionEntity) {
+        if (deploySessionEntity.getTotalSize() == 0) {
+            return 100;
+        }
+        return ((double) deploySessionEntity.getTotalSendSize() / deploySessionEntity.getTotalSize()) * 100;
+    }
+
+    // 按固定频率推送各部署设计的合并进度
+    @Scheduled(fixedRate = ApplicationConfig.DEPLOY_PROGRESS_INTERVAL)
+    public void publishProgress() {
+        for (Map.Entry<String, DesignProgress> entry : designProgressMap.entrySet()) {
+            DesignProgress designProgress = entry.getValue();
+            List<DeployProgressEntity> deployProgressEntityList = new ArrayList<>();
+            for (Map.Entry<String, DeploySessionEntity> sessionEntry : designProgress.sessionMap.entrySet()) {
+                // 先移除再读取，读取期间的更新会重新登记并在下次推送
+                DeploySessionEntity deploySessionEntity = sessionEntry.getValue();
+                if (designProgress.sessionMap.remove(sessionEntry.getKey(), deploySessionEntity)) {
+                    deployProgressEntityList.add(new DeployProgressEntity(sessionEntry.getKey(), deploySessionEntity.getSpeed(), getProgress(deploySessionEntity), DeployMetaService.DEPLOYING, deploySessionEntity.getDescription()));
+                }
+            }
+            DeployProgressEntity deployProgressEntity;
+            while ((deployProgressEntity = designProgress.stateQueue.poll()) != null) {
+                deployProgressEntityList.add(deployProgressEntity);
+            }
+            if (!deployProgressEntityList.isEmpty()) {
+                try {
+                    for (DeployProgressEntity progressEntity : deployProgressEntityList) {
+                        simpMessagingTemplate.convertAndSend("/deployProgress/" + entry.getKey(), progressEntity);
+                    }
+                    simpMessagingTemplate.convertAndSend("/deployProgressList/" + entry.getKey(), deployProgressEntityList);
+                } catch (Exception e) {
+                    log.info("部署进度推送失败：" + e.getMessage());
+                }
+            }
+            // 全部进度(含部署结束状态)推送完成后清除该部署设计，之后的进度重新登记
+            designProgressMap.computeIfPresent(entry.getKey(), (key, value) -> value.sessionMap.isEmpty() && value.stateQueue.isEmpty() ? null : value);
+        }
+    }
+
+    // 登记部署设计的进度，与推送后的清除互斥，避免登记到已清除的对象中
+    private void updateDesignProgress(String deploymentDesignId, Consumer<DesignProgress> consumer) {
+        designProgressMap.compute(deploymentDesignId, (key, value) -> {
+            DesignProgress designProgress = value != null ? value : new DesignProgress();
+            consumer.accept(designProgress);
+            return designProgress;
+        });
+    }
+
+    // 单个部署设计待推送的进度：设备IP -> 传输中的会话，以及按顺序推送的文件状态
+    private static class DesignProgress {
+
+        private final Map<String, DeploySessionEntity> sessionMap = new ConcurrentHashMap<>();
+        private final Queue<DeployProgressEntity> stateQueue = new ConcurrentLinkedQueue<>();
+    }
+}
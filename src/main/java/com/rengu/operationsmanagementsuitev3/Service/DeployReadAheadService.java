@@ -0,0 +1,280 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeployReadAheadEntity;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 部署预读：由独立的读取线程将文件内容按顺序读入池化的直接缓冲区，发送线程写出当前缓冲区的同时读取下一块，
+ * 磁盘读取与网络发送互不阻塞。单个文件最多预读深度个缓冲区，全部文件共用的缓冲区总数有上限，
+ * 读取线程全部占用时不再排队等待，由发送线程直接transferTo发送。
+ * 统计发送线程等待磁盘读取及等待网络写出的时间，用于判断部署瓶颈。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 16:40
+ **/
+
+@Slf4j
+@Service
+public class DeployReadAheadService {
+
+    // 文件结束标志
+    private static final ByteBuffer END_OF_FILE = ByteBuffer.allocate(0);
+    // 读取线程等待空闲缓冲区或预读队列空位的间隔，期间检查预读流是否已关闭
+    private static final long POLL_INTERVAL = 100;
+
+    private final ThreadPoolTaskExecutor deployReadAheadExecutor;
+    // 空闲的直接缓冲区，按需创建，总数不超过DEPLOY_READ_AHEAD_BUFFER_COUNT
+    private final BlockingQueue<ByteBuffer> bufferPool = new LinkedBlockingQueue<>();
+    private final AtomicInteger bufferCount = new AtomicInteger();
+    // 正在读取的预读流数量，不超过读取线程池大小
+    private final AtomicInteger readerCount = new AtomicInteger();
+    private volatile int depth = ApplicationConfig.DEPLOY_READ_AHEAD_DEPTH;
+    // 统计信息，时间单位纳秒
+    private final AtomicLong streamCount = new AtomicLong();
+    private final AtomicLong readSize = new AtomicLong();
+    private final AtomicLong readTime = new AtomicLong();
+    private final AtomicLong diskWaitTime = new AtomicLong();
+    private final AtomicLong networkWaitTime = new AtomicLong();
+
+    @Autowired
+    public DeployReadAheadService(@Qualifier(value = "deployReadAheadExecutor") ThreadPoolTaskExecutor deployReadAheadExecutor) {
+        this.deployReadAheadExecutor = deployReadAheadExecutor;
+    }
+
+    // 判断剩余发送内容是否启用预读
+    public boolean isReadAhead(long size) {
+        return depth > 0 && size >= ApplicationConfig.DEPLOY_READ_AHEAD_MIN_SIZE;
+    }
+
+    // 打开预读流，从position读取到end，没有空闲的读取线程时返回null(排队的读取可能导致发送线程等待超时)
+    public ReadAheadStream open(FileChannel fileChannel, long position, long end) {
+        if (readerCount.incrementAndGet() > deployReadAheadExecutor.getMaxPoolSize()) {
+            readerCount.decrementAndGet();
+            return null;
+        }
+        ReadAheadStream readAheadStream = new ReadAheadStream(Math.max(1, depth));
+        streamCount.incrementAndGet();
+        try {
+            deployReadAheadExecutor.execute(() -> {
+                try {
+                    readAheadStream.read(fileChannel, position, end);
+                } finally {
+                    readerCount.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            readerCount.decrementAndGet();
+            throw e;
+        }
+        return readAheadStream;
+    }
+
+    // 读取线程数随部署线程池调整，每台正在部署的设备最多占用一个读取线程
+    public void updatePoolSize(int poolSize) {
+        synchronized (deployReadAheadExecutor) {
+            if (poolSize <= 0 || poolSize == deployReadAheadExecutor.getMaxPoolSize()) {
+                return;
+            }
+            // 先扩大再缩小，保证maxPoolSize始终不小于corePoolSize
+            if (poolSize > deployReadAheadExecutor.getMaxPoolSize()) {
+                deployReadAheadExecutor.setMaxPoolSize(poolSize);
+                deployReadAheadExecutor.setCorePoolSize(poolSize);
+            } else {
+                deployReadAheadExecutor.setCorePoolSize(poolSize);
+                deployReadAheadExecutor.setMaxPoolSize(poolSize);
+            }
+        }
+        log.info("部署预读线程数已修改：" + poolSize);
+    }
+
+    // 记录发送线程写出数据的时间
+    public void addNetworkWaitTime(long time) {
+        networkWaitTime.addAndGet(time);
+    }
+
+    // 查询预读配置及统计信息
+    public DeployReadAheadEntity getDeployReadAhead() {
+        DeployReadAheadEntity deployReadAheadEntity = new DeployReadAheadEntity();
+        deployReadAheadEntity.setDepth(depth);
+        deployReadAheadEntity.setBufferSize(ApplicationConfig.DEPLOY_TRANSFER_SIZE);
+        deployReadAheadEntity.setBufferCount(bufferCount.get());
+        deployReadAheadEntity.setIdleBufferCount(bufferPool.size());
+        deployReadAheadEntity.setStreamCount(streamCount.get());
+        deployReadAheadEntity.setReadSize(readSize.get());
+        deployReadAheadEntity.setReadTime(TimeUnit.NANOSECONDS.toMillis(readTime.get()));
+        deployReadAheadEntity.setDiskWaitTime(TimeUnit.NANOSECONDS.toMillis(diskWaitTime.get()));
+        deployReadAheadEntity.setNetworkWaitTime(TimeUnit.NANOSECONDS.toMillis(networkWaitTime.get()));
+        return deployReadAheadEntity;
+    }
+
+    // 修改预读深度(运行时生效，对之后打开的预读流有效)，0表示关闭预读
+    public DeployReadAheadEntity updateDeployReadAhead(int depth) {
+        if (depth >= 0) {
+            this.depth = depth;
+            log.info("部署预读深度已修改：" + depth);
+        }
+        return getDeployReadAhead();
+    }
+
+    // 取得空闲缓冲区，缓冲区总数已达上限时等待归还，预读流关闭时返回null
+    private ByteBuffer acquireBuffer(ReadAheadStream readAheadStream) throws InterruptedException {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (bufferCount.incrementAndGet() <= ApplicationConfig.DEPLOY_READ_AHEAD_BUFFER_COUNT) {
+            return ByteBuffer.allocateDirect((int) ApplicationConfig.DEPLOY_TRANSFER_SIZE);
+        }
+        bufferCount.decrementAndGet();
+        while (!readAheadStream.closed) {
+            buffer = bufferPool.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (buffer != null && buffer != END_OF_FILE) {
+            buffer.clear();
+            bufferPool.offer(buffer);
+        }
+    }
+
+    // 单个文件的预读流：读取线程按顺序读入缓冲区放入预读队列，发送线程依次取出写出后归还
+    public class ReadAheadStream implements Closeable {
+
+        private final BlockingQueue<ByteBuffer> filledQueue;
+        private volatile boolean closed;
+        private volatile IOException exception;
+        // 发送线程等待读取的时间(纳秒)
+        private long diskWaitTime;
+
+        private ReadAheadStream(int depth) {
+            // 预读队列容量即预读深度
+            this.filledQueue = new ArrayBlockingQueue<>(depth);
+        }
+
+        // 读取线程
+        private void read(FileChannel fileChannel, long position, long end) {
+            ByteBuffer buffer = null;
+            try {
+                while (position < end && !closed) {
+                    buffer = acquireBuffer(this);
+                    if (buffer == null) {
+                        return;
+                    }
+                    buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                    long start = System.nanoTime();
+                    while (buffer.hasRemaining()) {
+                        if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+                            throw new EOFException("文件长度小于预期");
+                        }
+                    }
+                    readTime.addAndGet(System.nanoTime() - start);
+                    readSize.addAndGet(buffer.limit());
+                    position = position + buffer.limit();
+                    buffer.flip();
+                    if (!offer(buffer)) {
+                        return;
+                    }
+                    buffer = null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exception = new InterruptedIOException("文件预读被中断");
+            } catch (IOException e) {
+                exception = e;
+            } finally {
+                releaseBuffer(buffer);
+                try {
+                    offer(END_OF_FILE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // 关闭后放入的缓冲区由读取线程归还
+                if (closed) {
+                    drain();
+                }
+            }
+        }
+
+        // 等待预读队列空位，预读流关闭时返回false
+        private boolean offer(ByteBuffer buffer) throws InterruptedException {
+            while (!closed) {
+                if (filledQueue.offer(buffer, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // 取出下一块已读入的内容，文件读取完毕时返回null，读取异常时抛出
+        public ByteBuffer take() throws IOException {
+            long start = System.nanoTime();
+            ByteBuffer buffer;
+            try {
+                buffer = filledQueue.poll(ApplicationConfig.REPLY_TIME_OUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待文件预读被中断");
+            } finally {
+                long waitTime = System.nanoTime() - start;
+                this.diskWaitTime = this.diskWaitTime + waitTime;
+                DeployReadAheadService.this.diskWaitTime.addAndGet(waitTime);
+            }
+            if (buffer == null) {
+                throw new IOException("文件预读超时");
+            }
+            if (buffer == END_OF_FILE) {
+                if (exception != null) {
+                    throw exception;
+                }
+                return null;
+            }
+            return buffer;
+        }
+
+        // 归还已写出的缓冲区
+        public void release(ByteBuffer buffer) {
+            releaseBuffer(buffer);
+        }
+
+        public long getDiskWaitTime() {
+            return diskWaitTime;
+        }
+
+        // 停止读取并归还未发送的缓冲区
+        @Override
+        public void close() {
+            closed = true;
+            drain();
+        }
+
+        private void drain() {
+            ByteBuffer buffer;
+            while ((buffer = filledQueue.poll()) != null) {
+                releaseBuffer(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 部署调度器：使用独立线程池执行设备部署任务，限制全局及单个部署设计的并发数，
+ * 超出并发限制的任务按优先级(高优先)、预计耗时(长耗时优先，缩短整体部署时间)及提交顺序排队等待。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 10:31
+ **/
+
+@Slf4j
+@Service
+public class DeploySchedulerService {
+
+    // 部署任务状态
+    public static final int TASK_WAITING = 0;
+    public static final int TASK_RUNNING = 1;
+    public static final int TASK_SUCCEED = 2;
+    public static final int TASK_FAILED = 3;
+
+    private final ThreadPoolTaskExecutor deployTaskExecutor;
+    private final DeployMetaService deployMetaService;
+    private final DeploymentDesignDetailService deploymentDesignDetailService;
+    private final DeploySelectorService deploySelectorService;
+    private final DeployThroughputService deployThroughputService;
+    private final DeployBandwidthService deployBandwidthService;
+    private final DeployReadAheadService deployReadAheadService;
+
+    // 等待队列：优先级高的任务优先，同优先级时预计耗时长(速度慢、文件多)的设备先执行，再按提交顺序执行
+    private final PriorityQueue<DeployTaskEntity> waitingQueue = new PriorityQueue<>(Comparator.comparingInt(DeployTaskEntity::getPriority).reversed().thenComparing(Comparator.comparingDouble(DeployTaskEntity::getEstimateTime).reversed()).thenComparingLong(DeployTaskEntity::getSequence));
+    // 部署设计Id -> 该设计下的全部部署任务
+    private final Map<String, List<DeployTaskEntity>> deploymentDesignTasks = new HashMap<>();
+    // 部署设计Id -> 该设计允许的并发数
+    private final Map<String, Integer> deploymentDesignConcurrency = new HashMap<>();
+    // 部署设计Id -> 该设计正在执行的任务数
+    private final Map<String, Integer> deploymentDesignRunning = new HashMap<>();
+    // 部署设计Id -> 该设计全部任务结束的时间，超过保留时间后清除该设计的任务
+    private final Map<String, Long> deploymentDesignFinishTime = new HashMap<>();
+    // 部署任务Id -> 部署节点
+    private final Map<String, DeploymentDesignNodeEntity> taskNodes = new HashMap<>();
+    // 部署任务Id -> 指定部署的文件(组播未完成的文件)，未指定时按部署节点生成
+    private final Map<String, List<DeployMetaEntity>> taskDeployMetas = new HashMap<>();
+    // 正在部署的设备IP，同一设备同一时间只执行一个部署任务
+    private final Set<String> runningHosts = new HashSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int running = 0;
+    private int globalConcurrency = ApplicationConfig.DEPLOY_GLOBAL_CONCURRENCY;
+    private int designConcurrency = ApplicationConfig.DEPLOY_DESIGN_CONCURRENCY;
+    // 使用非阻塞部署引擎时，部署连接由Selector线程驱动，全局并发数不再受线程池大小限制
+    private boolean selectorEngine = ApplicationConfig.DEPLOY_SELECTOR_ENGINE;
+
+    @Autowired
+    public DeploySchedulerService(@Qualifier(value = "deployTaskExecutor") ThreadPoolTaskExecutor deployTaskExecutor, DeployMetaService deployMetaService, DeploymentDesignDetailService deploymentDesignDetailService, DeploySelectorService deploySelectorService, DeployThroughputService deployThroughputService, DeployBandwidthService deployBandwidthService, DeployReadAheadService deployReadAheadService) {
+        this.deployTaskExecutor = deployTaskExecutor;
+        this.deployMetaService = deployMetaService;
+        this.deploymentDesignDetailService = deploymentDesignDetailService;
+        this.deploySelectorService = deploySelectorService;
+        this.deployThroughputService = deployThroughputService;
+        this.deployBandwidthService = deployBandwidthService;
+        this.deployReadAheadService = deployReadAheadService;
+    }
+
+    // 提交整个部署设计的部署任务
+    public DeployScheduleProgressEntity submitDeploymentDesign(DeploymentDesignEntity deploymentDesignEntity, List<DeploymentDesignNodeEntity> deploymentDesignNodeEntityList, int priority, int concurrency, boolean incremental) {
+        // 预计耗时需要查询部署清单，在加锁前完成
+        Map<String, Double> estimateTimeMap = new HashMap<>();
+        for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeEntityList) {
+            estimateTimeMap.put(deploymentDesignNodeEntity.getId(), getEstimateTime(deploymentDesignNodeEntity));
+        }
+        synchronized (this) {
+            deploymentDesignConcurrency.put(deploymentDesignEntity.getId(), concurrency > 0 ? concurrency : designConcurrency);
+            List<DeployTaskEntity> invalidList = new ArrayList<>();
+            for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeEntityList) {
+                DeployTaskEntity deployTaskEntity = createDeployTask(deploymentDesignNodeEntity, priority, incremental, estimateTimeMap.get(deploymentDesignNodeEntity.getId()));
+                // 该节点已在排队或执行中
+                if (deployTaskEntity.getState() != TASK_WAITING || taskNodes.containsKey(deployTaskEntity.getId())) {
+                    continue;
+                }
+                if (deploymentDesignNodeEntity.getDeviceEntity() == null) {
+                    invalidList.add(deployTaskEntity);
+                } else {
+                    taskNodes.put(deployTaskEntity.getId(), deploymentDesignNodeEntity);
+                    waitingQueue.add(deployTaskEntity);
+                }
+            }
+            // 全部节点加入队列后再结束无效节点，避免提前清除该设计的并发记录
+            for (DeployTaskEntity deployTaskEntity : invalidList) {
+                finishDeployTask(deployTaskEntity, TASK_FAILED, ApplicationMessages.DEPLOYMENT_DESIGN_NODE_DEVICE_ARGS_NOT_FOUND);
+            }
+            removeFinishedDeploymentDesign(deploymentDesignEntity.getId());
+        }
+        dispatch();
+        return getDeployScheduleProgress(deploymentDesignEntity.getId());
+    }
+
+    // 提交单个部署节点的部署任务
+    public DeployTaskEntity submitDeploymentDesignNode(DeploymentDesignNodeEntity deploymentDesignNodeEntity, int priority, boolean incremental) {
+        if (deploymentDesignNodeEntity.getDeviceEntity() == null) {
+            throw new RuntimeException(ApplicationMessages.DEPLOYMENT_DESIGN_NODE_DEVICE_ARGS_NOT_FOUND);
+        }
+        double estimateTime = getEstimateTime(deploymentDesignNodeEntity);
+        DeployTaskEntity deployTaskEntity;
+        synchronized (this) {
+            deploymentDesignConcurrency.putIfAbsent(deploymentDesignNodeEntity.getDeploymentDesignEntity().getId(), designConcurrency);
+            deployTaskEntity = createDeployTask(deploymentDesignNodeEntity, priority, incremental, estimateTime);
+            if (deployTaskEntity.getState() == TASK_WAITING && !taskNodes.containsKey(deployTaskEntity.getId())) {
+                taskNodes.put(deployTaskEntity.getId(), deploymentDesignNodeEntity);
+                waitingQueue.add(deployTaskEntity);
+            }
+        }
+        dispatch();
+        return deployTaskEntity;
+    }
+
+    // 登记组播部署任务：空闲设备登记为执行中的任务，由组播会话占用，正在部署的设备按普通任务排队，返回登记成功的任务
+    // 组播会话只有一个发送流，计为部署设计及全局的一个执行中任务
+    public List<DeployTaskEntity> startMulticastDeployTasks(DeploymentDesignEntity deploymentDesignEntity, List<DeploymentDesignNodeEntity> deploymentDesignNodeEntityList, int priority, int concurrency, boolean incremental) {
+        Map<String, Double> estimateTimeMap = new HashMap<>();
+        for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeEntityList) {
+            estimateTimeMap.put(deploymentDesignNodeEntity.getId(), getEstimateTime(deploymentDesignNodeEntity));
+        }
+        List<DeployTaskEntity> startList = new ArrayList<>();
+        synchronized (this) {
+            deploymentDesignConcurrency.put(deploymentDesignEntity.getId(), concurrency > 0 ? concurrency : designConcurrency);
+            for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeEntityList) {
+                DeployTaskEntity deployTaskEntity = createDeployTask(deploymentDesignNodeEntity, priority, incremental, estimateTimeMap.get(deploymentDesignNodeEntity.getId()));
+                if (deployTaskEntity.getState() != TASK_WAITING || taskNodes.containsKey(deployTaskEntity.getId())) {
+                    continue;
+                }
+                taskNodes.put(deployTaskEntity.getId(), deploymentDesignNodeEntity);
+                if (runningHosts.contains(deployTaskEntity.getHostAddress()) || DeployMetaService.DEPLOYING_DEVICE.containsKey(deployTaskEntity.getHostAddress())) {
+                    waitingQueue.add(deployTaskEntity);
+                    continue;
+                }
+                runningHosts.add(deployTaskEntity.getHostAddress());
+                deployTaskEntity.setState(TASK_RUNNING);
+                deployTaskEntity.setStartTime(new Date());
+                startList.add(deployTaskEntity);
+            }
+            if (!startList.isEmpty()) {
+                running = running + 1;
+                deploymentDesignRunning.merge(deploymentDesignEntity.getId(), 1, Integer::sum);
+            }
+        }
+        dispatch();
+        return startList;
+    }
+
+    // 结束组播部署任务并释放设备：remainList为null时按部署节点重新排队，有未完成的文件时排队单播这些文件，否则部署成功
+    public void releaseMulticastDeployTask(DeployTaskEntity deployTaskEntity, List<DeployMetaEntity> remainList, String message) {
+        synchronized (this) {
+            runningHosts.remove(deployTaskEntity.getHostAddress());
+            deployTaskEntity.setMessage(message);
+            if (remainList == null || !remainList.isEmpty()) {
+                if (remainList != null) {
+                    taskDeployMetas.put(deployTaskEntity.getId(), remainList);
+                }
+                deployTaskEntity.setState(TASK_WAITING);
+                waitingQueue.add(deployTaskEntity);
+            } else {
+                taskNodes.remove(deployTaskEntity.getId());
+                finishDeployTask(deployTaskEntity, TASK_SUCCEED, message);
+            }
+        }
+        dispatch();
+    }
+
+    // 组播会话结束，释放其占用的并发数
+    public void releaseMulticastSession(String deploymentDesignId) {
+        synchronized (this) {
+            running = running - 1;
+            deploymentDesignRunning.merge(deploymentDesignId, -1, Integer::sum);
+            removeFinishedDeploymentDesign(deploymentDesignId);
+        }
+        dispatch();
+    }
+
+    // 查询部署设计的调度进度
+    public synchronized DeployScheduleProgressEntity getDeployScheduleProgress(String deploymentDesignId) {
+        DeployScheduleProgressEntity deployScheduleProgressEntity = new DeployScheduleProgressEntity();
+        deployScheduleProgressEntity.setDeploymentDesignId(deploymentDesignId);
+        deployScheduleProgressEntity.setConcurrency(deploymentDesignConcurrency.getOrDefault(deploymentDesignId, designConcurrency));
+        List<DeployTaskEntity> deployTaskEntityList = new ArrayList<>(deploymentDesignTasks.getOrDefault(deploymentDesignId, new ArrayList<>()));
+        for (DeployTaskEntity deployTaskEntity : deployTaskEntityList) {
+            switch (deployTaskEntity.getState()) {
+                case TASK_WAITING:
+                    deployScheduleProgressEntity.setWaiting(deployScheduleProgressEntity.getWaiting() + 1);
+                    break;
+                case TASK_RUNNING:
+                    deployScheduleProgressEntity.setRunning(deployScheduleProgressEntity.getRunning() + 1);
+                    break;
+                case TASK_SUCCEED:
+                    deployScheduleProgressEntity.setSucceed(deployScheduleProgressEntity.getSucceed() + 1);
+                    break;
+                default:
+                    deployScheduleProgressEntity.setFailed(deployScheduleProgressEntity.getFailed() + 1);
+                    break;
+            }
+        }
+        deployScheduleProgressEntity.setTotal(deployTaskEntityList.size());
+        if (!deployTaskEntityList.isEmpty()) {
+            deployScheduleProgressEntity.setProgress(((double) (deployScheduleProgressEntity.getSucceed() + deployScheduleProgressEntity.getFailed()) / deployTaskEntityList.size()) * 100);
+        }
+        deployScheduleProgressEntity.setDeployTaskEntityList(deployTaskEntityList);
+        return deployScheduleProgressEntity;
+    }
+
+    // 估算部署设计的部署耗时：按调度顺序(耗时长的先执行)将各节点分配到并发槽位，取最晚结束时间，且不小于全局带宽限制下的传输时间
+    public DeployEstimateEntity getDeployEstimate(DeploymentDesignEntity deploymentDesignEntity, List<DeploymentDesignNodeEntity> deploymentDesignNodeEntityList, int concurrency) {
+        DeployEstimateEntity deployEstimateEntity = new DeployEstimateEntity();
+        deployEstimateEntity.setDeploymentDesignId(deploymentDesignEntity.getId());
+        synchronized (this) {
+            deployEstimateEntity.setConcurrency(Math.max(1, Math.min(globalConcurrency, concurrency > 0 ? concurrency : designConcurrency)));
+        }
+        for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeEntityList) {
+            DeployEstimateNodeEntity deployEstimateNodeEntity = deployThroughputService.getDeployEstimate(deploymentDesignNodeEntity);
+            deployEstimateEntity.setTotalSize(deployEstimateEntity.getTotalSize() + deployEstimateNodeEntity.getTotalSize());
+            deployEstimateEntity.getDeployEstimateNodeEntityList().add(deployEstimateNodeEntity);
+        }
+        deployEstimateEntity.getDeployEstimateNodeEntityList().sort(Comparator.comparingDouble(DeployEstimateNodeEntity::getEstimateTime).reversed());
+        PriorityQueue<Double> slotQueue = new PriorityQueue<>();
+        for (int i = 0; i < deployEstimateEntity.getConcurrency(); i++) {
+            slotQueue.add(0.0);
+        }
+        double estimateTime = 0;
+        for (DeployEstimateNodeEntity deployEstimateNodeEntity : deployEstimateEntity.getDeployEstimateNodeEntityList()) {
+            double finishTime = slotQueue.poll() + deployEstimateNodeEntity.getEstimateTime();
+            slotQueue.add(finishTime);
+            estimateTime = Math.max(estimateTime, finishTime);
+        }
+        long globalRate = deployBandwidthService.getGlobalRate();
+        if (globalRate > 0) {
+            estimateTime = Math.max(estimateTime, (double) deployEstimateEntity.getTotalSize() / globalRate);
+        }
+        deployEstimateEntity.setEstimateTime(estimateTime);
+        return deployEstimateEntity;
+    }
+
+    // 查询调度器状态
+    public synchronized DeploySchedulerEntity getDeployScheduler() {
+        DeploySchedulerEntity deploySchedulerEntity = new DeploySchedulerEntity();
+        deploySchedulerEntity.setGlobalConcurrency(globalConcurrency);
+        deploySchedulerEntity.setDesignConcurrency(designConcurrency);
+        deploySchedulerEntity.setWaiting(waitingQueue.size());
+        deploySchedulerEntity.setRunning(running);
+        deploySchedulerEntity.setSelectorEngine(selectorEngine);
+        deploySchedulerEntity.setSelectorEngineLimitationList(getSelectorEngineLimitations());
+        return deploySchedulerEntity;
+    }
+
+    // 修改全局及部署设计默认并发数、部署引擎(运行时生效)，selectorEngine为空时保持不变，切换为非阻塞引擎时记录不再生效的部署功能
+    public DeploySchedulerEntity updateDeployScheduler(int globalConcurrency, int designConcurrency, Boolean selectorEngine) {
+        synchronized (this) {
+            if (selectorEngine != null) {
+                List<String> limitationList = getSelectorEngineLimitations();
+                if (selectorEngine && !this.selectorEngine && !limitationList.isEmpty()) {
+                    log.info("已切换为非阻塞部署引擎，以下部署功能不再生效：" + String.join("、", limitationList));
+                }
+                this.selectorEngine = selectorEngine;
+            }
+            if (globalConcurrency > 0) {
+                this.globalConcurrency = globalConcurrency;
+            }
+            // 非阻塞引擎下线程池只用于保存部署日志，无需随并发数扩大
+            int poolSize = this.selectorEngine ? Math.min(this.globalConcurrency, ApplicationConfig.DEPLOY_GLOBAL_CONCURRENCY) : this.globalConcurrency;
+            if (poolSize != deployTaskExecutor.getCorePoolSize()) {
+                // 先扩大再缩小，保证maxPoolSize始终不小于corePoolSize
+                if (poolSize > deployTaskExecutor.getMaxPoolSize()) {
+                    deployTaskExecutor.setMaxPoolSize(poolSize);
+                    deployTaskExecutor.setCorePoolSize(poolSize);
+                } else {
+                    deployTaskExecutor.setCorePoolSize(poolSize);
+                    deployTaskExecutor.setMaxPoolSize(poolSize);
+                }
+            }
+            // 阻塞引擎下每个部署线程最多占用一个预读线程
+            deployReadAheadService.updatePoolSize(this.globalConcurrency);
+            if (designConcurrency > 0) {
+                this.designConcurrency = designConcurrency;
+            }
+        }
+        dispatch();
+        return getDeployScheduler();
+    }
+
+    // 生成部署任务，同一节点已在排队或执行时直接返回已有任务
+    private DeployTaskEntity createDeployTask(DeploymentDesignNodeEntity deploymentDesignNodeEntity, int priority, boolean incremental, double estimateTime) {
+        String deploymentDesignId = deploymentDesignNodeEntity.getDeploymentDesignEntity().getId();
+        deploymentDesignFinishTime.remove(deploymentDesignId);
+        List<DeployTaskEntity> deployTaskEntityList = deploymentDesignTasks.computeIfAbsent(deploymentDesignId, key -> new ArrayList<>());
+        boolean active = false;
+        for (DeployTaskEntity deployTaskEntity : deployTaskEntityList) {
+            if (deployTaskEntity.getState() == TASK_WAITING || deployTaskEntity.getState() == TASK_RUNNING) {
+                active = true;
+                if (deployTaskEntity.getDeploymentDesignNodeId().equals(deploymentDesignNodeEntity.getId())) {
+                    return deployTaskEntity;
+                }
+            }
+        }
+        // 上一轮部署已全部结束，清除历史任务后重新统计进度
+        if (!active) {
+            deployTaskEntityList.clear();
+        }
+        DeployTaskEntity deployTaskEntity = new DeployTaskEntity();
+        deployTaskEntity.setDeploymentDesignId(deploymentDesignId);
+        deployTaskEntity.setDeploymentDesignNodeId(deploymentDesignNodeEntity.getId());
+        deployTaskEntity.setHostAddress(deploymentDesignNodeEntity.getDeviceEntity() == null ? null : deploymentDesignNodeEntity.getDeviceEntity().getHostAddress());
+        deployTaskEntity.setPriority(priority);
+        deployTaskEntity.setIncremental(incremental);
+        deployTaskEntity.setEstimateTime(estimateTime);
+        deployTaskEntity.setSequence(sequence.incrementAndGet());
+        deployTaskEntity.setState(TASK_WAITING);
+        deployTaskEntityList.add(deployTaskEntity);
+        return deployTaskEntity;
+    }
+
+    // 从等待队列中取出满足并发限制的任务执行
+    private void dispatch() {
+        List<DeployTaskEntity> startList = new ArrayList<>();
+        synchronized (this) {
+            List<DeployTaskEntity> blockedList = new ArrayList<>();
+            while (running < globalConcurrency && !waitingQueue.isEmpty()) {
+                DeployTaskEntity deployTaskEntity = waitingQueue.poll();
+                String deploymentDesignId = deployTaskEntity.getDeploymentDesignId();
+                int designRunning = deploymentDesignRunning.getOrDefault(deploymentDesignId, 0);
+                if (designRunning >= deploymentDesignConcurrency.getOrDefault(deploymentDesignId, designConcurrency) || runningHosts.contains(deployTaskEntity.getHostAddress()) || DeployMetaService.DEPLOYING_DEVICE.containsKey(deployTaskEntity.getHostAddress())) {
+                    blockedList.add(deployTaskEntity);
+                    continue;
+                }
+                deploymentDesignRunning.put(deploymentDesignId, designRunning + 1);
+                runningHosts.add(deployTaskEntity.getHostAddress());
+                running = running + 1;
+                deployTaskEntity.setState(TASK_RUNNING);
+                deployTaskEntity.setStartTime(new Date());
+                startList.add(deployTaskEntity);
+            }
+            waitingQueue.addAll(blockedList);
+        }
+        for (DeployTaskEntity deployTaskEntity : startList) {
+            deployTaskExecutor.execute(() -> runDeployTask(deployTaskEntity));
+        }
+    }
+
+    // 执行设备部署任务
+    private void runDeployTask(DeployTaskEntity deployTaskEntity) {
+        DeploymentDesignNodeEntity deploymentDesignNodeEntity;
+        List<DeployMetaEntity> deployMetaEntityList;
+        synchronized (this) {
+            deploymentDesignNodeEntity = taskNodes.remove(deployTaskEntity.getId());
+            deployMetaEntityList = taskDeployMetas.remove(deployTaskEntity.getId());
+        }
+        int state = TASK_FAILED;
+        String message = null;
+        boolean async = false;
+        // 部署开始后由部署过程记录日志，开始前失败时记录失败日志
+        boolean deployStarted = false;
+        try {
+            DeviceEntity deviceEntity = deploymentDesignNodeEntity.getDeviceEntity();
+            if (!DeviceService.ONLINE_HOST_ADRESS.containsKey(deviceEntity.getHostAddress())) {
+                throw new RuntimeException(ApplicationMessages.DEVICE_NOT_ONLINE + deviceEntity.getHostAddress());
+            }
+            if (deployMetaEntityList == null) {
+                List<DeploymentDesignDetailEntity> deploymentDesignDetailEntityList = deploymentDesignDetailService.getDeploymentDesignDetailsByDeploymentDesignNode(deploymentDesignNodeEntity);
+                deployMetaEntityList = deployTaskEntity.isIncremental() ? deployMetaService.createIncrementalDeployMeta(deploymentDesignDetailEntityList) : deployMetaService.createDeployMeta(deploymentDesignDetailEntityList);
+            }
+            deployStarted = true;
+            if (deployTaskEntity.isIncremental() && deployMetaEntityList.isEmpty()) {
+                // 设备文件与部署设计一致，无需建立部署连接
+                state = TASK_SUCCEED;
+                message = "设备文件无变化";
+            } else if (isSelectorEngine()) {
+                // 非阻塞引擎：提交后立即释放线程，部署结束时再结束任务
+                deploySelectorService.deployMeta(deploymentDesignNodeEntity.getDeploymentDesignEntity(), deviceEntity, deployMetaEntityList).whenComplete((deployLogEntity, throwable) -> {
+                    if (throwable != null) {
+                        log.info(deployTaskEntity.getHostAddress() + "部署任务执行失败：" + throwable.getMessage());
+                    }
+                    releaseDeployTask(deployTaskEntity, deployLogEntity != null && deployLogEntity.isComplete() ? TASK_SUCCEED : TASK_FAILED, throwable == null ? null : throwable.getMessage());
+                });
+                async = true;
+            } else {
+                DeployLogEntity deployLogEntity = deployMetaService.deployMeta(deploymentDesignNodeEntity.getDeploymentDesignEntity(), deviceEntity, deployMetaEntityList);
+                if (deployLogEntity != null && deployLogEntity.isComplete()) {
+                    state = TASK_SUCCEED;
+                }
+            }
+        } catch (Exception e) {
+            message = e.getMessage();
+            log.info(deployTaskEntity.getHostAddress() + "部署任务执行失败：" + message);
+            if (!deployStarted) {
+                saveFailedDeployLog(deploymentDesignNodeEntity, deployMetaEntityList, message);
+            }
+        } finally {
+            if (!async) {
+                releaseDeployTask(deployTaskEntity, state, message);
+            }
+        }
+    }
+
+    // 释放并发计数并结束任务，然后调度等待中的任务
+    private void releaseDeployTask(DeployTaskEntity deployTaskEntity, int state, String message) {
+        synchronized (this) {
+            running = running - 1;
+            runningHosts.remove(deployTaskEntity.getHostAddress());
+            deploymentDesignRunning.merge(deployTaskEntity.getDeploymentDesignId(), -1, Integer::sum);
+            finishDeployTask(deployTaskEntity, state, message);
+        }
+        dispatch();
+    }
+
+    // 定时调度：设备被组播或手动部署占用而排队的任务，在设备释放后由此重新调度；同时清除已结束的部署设计
+    @Scheduled(fixedRate = ApplicationConfig.DEPLOY_DISPATCH_INTERVAL)
+    public void dispatchWaitingTasks() {
+        boolean waiting;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<String, Long>> entryIterator = deploymentDesignFinishTime.entrySet().iterator();
+            while (entryIterator.hasNext()) {
+                Map.Entry<String, Long> entry = entryIterator.next();
+                if (now - entry.getValue() > ApplicationConfig.DEPLOY_SCHEDULE_RETAIN_TIME) {
+                    deploymentDesignTasks.remove(entry.getKey());
+                    entryIterator.remove();
+                }
+            }
+            waiting = !waitingQueue.isEmpty();
+        }
+        if (waiting) {
+            dispatch();
+        }
+    }
+
+    // 记录未能开始部署的设备日志，记录失败不影响任务结束
+    private void saveFailedDeployLog(DeploymentDesignNodeEntity deploymentDesignNodeEntity, List<DeployMetaEntity> deployMetaEntityList, String message) {
+        try {
+            deployMetaService.saveFailedDeployLog(deploymentDesignNodeEntity.getDeploymentDesignEntity(), deploymentDesignNodeEntity.getDeviceEntity(), deployMetaEntityList == null ? new ArrayList<>() : deployMetaEntityList, message);
+        } catch (Exception e) {
+            log.info(deploymentDesignNodeEntity.getDeviceEntity().getHostAddress() + ":记录部署失败日志失败：" + e.getMessage());
+        }
+    }
+
+    // 已启用但非阻塞引擎不支持的部署功能：失败重试及流水线以外的扩展能力只由阻塞引擎处理，带宽限制两种引擎均生效
+    private List<String> getSelectorEngineLimitations() {
+        List<String> limitationList = new ArrayList<>();
+        if (ApplicationConfig.DEPLOY_RETRY_TIMES > 1) {
+            limitationList.add("失败重试");
+        }
+        int capability = ApplicationConfig.DEPLOY_CAPABILITY & ~ApplicationConfig.DEPLOY_SELECTOR_CAPABILITY;
+        if (DeployProtocolUtils.hasCapability(capability, DeployProtocolUtils.CAPABILITY_RESUME)) {
+            limitationList.add("断点续传");
+        }
+        if (DeployProtocolUtils.hasCapability(capability, DeployProtocolUtils.CAPABILITY_DELTA)) {
+            limitationList.add("差量传输");
+        }
+        if (DeployProtocolUtils.hasCapability(capability, DeployProtocolUtils.CAPABILITY_COMPRESS)) {
+            limitationList.add("压缩传输");
+        }
+        if (DeployProtocolUtils.hasCapability(capability, DeployProtocolUtils.CAPABILITY_BUNDLE)) {
+            limitationList.add("打包部署");
+        }
+        if (DeployProtocolUtils.hasCapability(capability, DeployProtocolUtils.CAPABILITY_COPY)) {
+            limitationList.add("重复文件复制");
+        }
+        return limitationList;
+    }
+
+    private synchronized boolean isSelectorEngine() {
+        return selectorEngine;
+    }
+
+    // 估算节点部署耗时，估算失败时不影响提交
+    private double getEstimateTime(DeploymentDesignNodeEntity deploymentDesignNodeEntity) {
+        try {
+            return deployThroughputService.getDeployEstimate(deploymentDesignNodeEntity).getEstimateTime();
+        } catch (Exception e) {
+            log.info(deploymentDesignNodeEntity.getId() + ":部署耗时估算失败：" + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void finishDeployTask(DeployTaskEntity deployTaskEntity, int state, String message) {
+        deployTaskEntity.setState(state);
+        deployTaskEntity.setMessage(message);
+        deployTaskEntity.setFinishTime(new Date());
+        removeFinishedDeploymentDesign(deployTaskEntity.getDeploymentDesignId());
+    }
+
+    // 部署设计的任务全部结束时清除并发记录，任务列表保留一段时间供查询调度进度
+    private void removeFinishedDeploymentDesign(String deploymentDesignId) {
+        if (deploymentDesignRunning.getOrDefault(deploymentDesignId, 0) > 0) {
+            return;
+        }
+        for (DeployTaskEntity deployTaskEntity : deploymentDesignTasks.getOrDefault(deploymentDesignId, Collections.emptyList())) {
+            if (deployTaskEntity.getState() == TASK_WAITING || deployTaskEntity.getState() == TASK_RUNNING) {
+                return;
+            }
+        }
+        deploymentDesignRunning.remove(deploymentDesignId);
+        deploymentDesignConcurrency.remove(deploymentDesignId);
+        deploymentDesignFinishTime.put(deploymentDesignId, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,689 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.FormatUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非阻塞部署引擎：由固定数量的Selector线程驱动全部设备的部署连接，与阻塞引擎使用相同的部署协议。
+ * 每个会话是一个状态机，I/O线程只做读写和协议解析，文件结束处理及部署日志的保存在部署线程池中按顺序完成。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 13:10
+ **/
+
+@Slf4j
+@Service
+public class DeploySelectorService {
+
+    // 会话状态
+    private static final int STATE_CONNECT = 0;
+    // 等待协商回复
+    private static final int STATE_NEGOTIATE = 1;
+    // 旧版协议：等待路径确认、发送文件内容、等待结束确认
+    private static final int STATE_PATH_REPLY = 2;
+    private static final int STATE_FILE = 3;
+    private static final int STATE_END_REPLY = 4;
+    // 流水线协议
+    private static final int STATE_PIPELINE = 5;
+    // 发送部署结束标志
+    private static final int STATE_FINISH = 6;
+
+    // 旧版协议等待结束确认时重发结束标志的间隔
+    private static final long RESEND_TIME = 200;
+
+    private final ThreadPoolTaskExecutor deployTaskExecutor;
+    private final DeployMetaService deployMetaService;
+    private final DeployBandwidthService deployBandwidthService;
+    private final DeployProgressService deployProgressService;
+    private final List<SelectorLoop> selectorLoopList = new ArrayList<>();
+    private final AtomicInteger selectorIndex = new AtomicInteger();
+
+    @Autowired
+    public DeploySelectorService(@Qualifier(value = "deployTaskExecutor") ThreadPoolTaskExecutor deployTaskExecutor, DeployMetaService deployMetaService, DeployBandwidthService deployBandwidthService, DeployProgressService deployProgressService) {
+        this.deployTaskExecutor = deployTaskExecutor;
+        this.deployMetaService = deployMetaService;
+        this.deployBandwidthService = deployBandwidthService;
+        this.deployProgressService = deployProgressService;
+    }
+
+    // 提交设备部署，立即返回，部署结束后返回部署日志(连接异常时为null)
+    public CompletableFuture<DeployLogEntity> deployMeta(DeploymentDesignEntity deploymentDesignEntity, DeviceEntity deviceEntity, List<DeployMetaEntity> deployMetaEntityList) {
+        if (DeployMetaService.DEPLOYING_DEVICE.putIfAbsent(deviceEntity.getHostAddress(), deviceEntity) != null) {
+            throw new RuntimeException(ApplicationMessages.DEVICE_IS_DEPOLOYING + deviceEntity.getHostAddress());
+        }
+        DeployLogEntity deployLogEntity = new DeployLogEntity();
+        deployLogEntity.setProjectEntity(deviceEntity.getProjectEntity());
+        deployLogEntity.setComplete(true);
+        DeploySessionEntity deploySessionEntity = new DeploySessionEntity();
+        deploySessionEntity.setDeploymentDesignEntity(deploymentDesignEntity);
+        deploySessionEntity.setDeviceEntity(deviceEntity);
+        deploySessionEntity.setDeployLogEntity(deployLogEntity);
+        try {
+            deployMetaService.startDeploySession(deploySessionEntity);
+        } catch (RuntimeException e) {
+            DeployMetaService.DEPLOYING_DEVICE.remove(deviceEntity.getHostAddress());
+            throw e;
+        }
+        long totalSize = 0;
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            totalSize = totalSize + deployMetaEntity.getDeployManifestFileEntity().getSize();
+        }
+        deploySessionEntity.setTotalSize(totalSize);
+        DeploySelectorSessionEntity deploySelectorSessionEntity = new DeploySelectorSessionEntity();
+        deploySelectorSessionEntity.setDeploySessionEntity(deploySessionEntity);
+        deploySelectorSessionEntity.setDeployMetaEntityList(deployMetaEntityList);
+        deploySelectorSessionEntity.setState(STATE_CONNECT);
+        deploySelectorSessionEntity.setDeadline(System.currentTimeMillis() + ApplicationConfig.REPLY_TIME_OUT);
+        try {
+            SocketChannel socketChannel = SocketChannel.open();
+            deploySessionEntity.setSocketChannel(socketChannel);
+            socketChannel.configureBlocking(false);
+            socketChannel.socket().setTcpNoDelay(true);
+            socketChannel.connect(new InetSocketAddress(deviceEntity.getHostAddress(), ApplicationConfig.TCP_DEPLOY_PORT));
+            getSelectorLoop().register(deploySelectorSessionEntity);
+        } catch (IOException e) {
+            closeSession(deploySelectorSessionEntity, e);
+        }
+        return deploySelectorSessionEntity.getFuture();
+    }
+
+    // 按轮询分配Selector线程，首次使用时启动
+    private synchronized SelectorLoop getSelectorLoop() throws IOException {
+        if (selectorLoopList.isEmpty()) {
+            for (int i = 0; i < ApplicationConfig.DEPLOY_SELECTOR_THREADS; i++) {
+                SelectorLoop selectorLoop = new SelectorLoop(Selector.open());
+                Thread thread = new Thread(selectorLoop, "OMS-Deploy-Selector-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                selectorLoopList.add(selectorLoop);
+            }
+            log.info("OMS服务器-启动非阻塞部署引擎，I/O线程数：" + ApplicationConfig.DEPLOY_SELECTOR_THREADS);
+        }
+        return selectorLoopList.get(Math.abs(selectorIndex.getAndIncrement() % selectorLoopList.size()));
+    }
+
+    // Selector线程：处理连接、读写事件，并定期检查回复超时及限速等待
+    private class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<DeploySelectorSessionEntity> registerQueue = new ConcurrentLinkedQueue<>();
+
+        SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+            registerQueue.add(deploySelectorSessionEntity);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select(ApplicationConfig.DEPLOY_SELECTOR_TICK);
+                    DeploySelectorSessionEntity deploySelectorSessionEntity;
+                    while ((deploySelectorSessionEntity = registerQueue.poll()) != null) {
+                        try {
+                            deploySelectorSessionEntity.getDeploySessionEntity().getSocketChannel().register(selector, SelectionKey.OP_CONNECT, deploySelectorSessionEntity);
+                        } catch (IOException e) {
+                            closeSession(deploySelectorSessionEntity, e);
+                        }
+                    }
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey selectionKey = iterator.next();
+                        iterator.remove();
+                        handleKey(selectionKey);
+                    }
+                    long now = System.currentTimeMillis();
+                    for (SelectionKey selectionKey : new ArrayList<>(selector.keys())) {
+                        if (selectionKey.isValid()) {
+                            handleTimer(selectionKey, now);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.info("非阻塞部署引擎异常：" + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // 处理就绪事件
+    private void handleKey(SelectionKey selectionKey) {
+        DeploySelectorSessionEntity deploySelectorSessionEntity = (DeploySelectorSessionEntity) selectionKey.attachment();
+        try {
+            if (selectionKey.isConnectable()) {
+                if (deploySelectorSessionEntity.getDeploySessionEntity().getSocketChannel().finishConnect()) {
+                    onConnected(deploySelectorSessionEntity);
+                }
+            } else {
+                if (selectionKey.isReadable()) {
+                    onReadable(deploySelectorSessionEntity);
+                }
+                if (selectionKey.isValid() && selectionKey.isWritable()) {
+                    onWritable(deploySelectorSessionEntity);
+                }
+            }
+            updateInterest(deploySelectorSessionEntity, selectionKey);
+        } catch (IOException e) {
+            closeSession(deploySelectorSessionEntity, e);
+        } catch (RuntimeException e) {
+            abortSession(deploySelectorSessionEntity, e);
+        }
+    }
+
+    // 检查回复超时、旧版协议结束标志重发及限速等待
+    private void handleTimer(SelectionKey selectionKey, long now) {
+        DeploySelectorSessionEntity deploySelectorSessionEntity = (DeploySelectorSessionEntity) selectionKey.attachment();
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        try {
+            // 有待发送数据但长时间无法写出(设备停止接收)，按超时处理当前文件并关闭连接
+            if (deploySelectorSessionEntity.getWriteDeadline() > 0 && now >= deploySelectorSessionEntity.getWriteDeadline() && now >= deploySelectorSessionEntity.getResumeTime()) {
+                failWriteTimeout(deploySelectorSessionEntity);
+                throw new IOException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":发送部署数据超时");
+            }
+            switch (deploySelectorSessionEntity.getState()) {
+                case STATE_CONNECT:
+                case STATE_NEGOTIATE:
+                    if (deploySelectorSessionEntity.getDeadline() > 0 && now >= deploySelectorSessionEntity.getDeadline()) {
+                        throw new IOException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署连接回复超时");
+                    }
+                    break;
+                case STATE_PATH_REPLY:
+                    if (now >= deploySelectorSessionEntity.getDeadline() && !hasPendingWrite(deploySelectorSessionEntity)) {
+                        replyFileFailed(deploySelectorSessionEntity, "接收路径回复超时");
+                        nextReplyFile(deploySelectorSessionEntity);
+                    }
+                    break;
+                case STATE_END_REPLY:
+                    if (now >= deploySelectorSessionEntity.getDeadline()) {
+                        replyFileFailed(deploySelectorSessionEntity, "接收文件结束标志回复超时");
+                        nextReplyFile(deploySelectorSessionEntity);
+                    } else if (now >= deploySelectorSessionEntity.getResendTime() && !hasPendingWrite(deploySelectorSessionEntity)) {
+                        deploySelectorSessionEntity.setWriteBuffer(ByteBuffer.wrap("fileRecvEnd".getBytes()));
+                        deploySelectorSessionEntity.setResendTime(now + RESEND_TIME);
+                    }
+                    break;
+                case STATE_PIPELINE:
+                    // 长时间没有收到任何确认，按超时处理在途文件并结束本次部署
+                    if (deploySelectorSessionEntity.getDeadline() > 0 && now >= deploySelectorSessionEntity.getDeadline()) {
+                        complete(deploySelectorSessionEntity, () -> deployMetaService.deployPendingFailed(deploySessionEntity));
+                        finishSession(deploySelectorSessionEntity);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            updateInterest(deploySelectorSessionEntity, selectionKey);
+        } catch (IOException e) {
+            closeSession(deploySelectorSessionEntity, e);
+        } catch (RuntimeException e) {
+            abortSession(deploySelectorSessionEntity, e);
+        }
+    }
+
+    // 连接建立后协商扩展部署能力，旧版客户端直接使用逐文件确认协议
+    private void onConnected(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        HeartbeatEntity heartbeatEntity = DeviceService.ONLINE_HOST_ADRESS.get(deploySessionEntity.getDeviceEntity().getHostAddress());
+        int capability = heartbeatEntity == null ? 0 : heartbeatEntity.getDeployCapability() & ApplicationConfig.DEPLOY_CAPABILITY & ApplicationConfig.DEPLOY_SELECTOR_CAPABILITY;
+        if (capability == 0) {
+            nextReplyFile(deploySelectorSessionEntity);
+            return;
+        }
+        deploySelectorSessionEntity.setWriteBuffer(ByteBuffer.wrap(DeployProtocolUtils.getModeRequest(capability, ApplicationConfig.DEPLOY_PIPELINE_WINDOW)));
+        deploySelectorSessionEntity.setState(STATE_NEGOTIATE);
+        deploySelectorSessionEntity.setDeadline(System.currentTimeMillis() + ApplicationConfig.REPLY_TIME_OUT);
+        deploySessionEntity.setCapability(capability);
+    }
+
+    // 读取并解析回复
+    private void onReadable(DeploySelectorSessionEntity deploySelectorSessionEntity) throws IOException {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        ByteBuffer readBuffer = deploySelectorSessionEntity.getReadBuffer();
+        if (deploySessionEntity.getSocketChannel().read(readBuffer) < 0) {
+            throw new EOFException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署连接已关闭");
+        }
+        readBuffer.flip();
+        try {
+            switch (deploySelectorSessionEntity.getState()) {
+                case STATE_NEGOTIATE:
+                    receiveNegotiateReply(deploySelectorSessionEntity, readBuffer);
+                    break;
+                case STATE_PATH_REPLY:
+                    // 路径确认'r'
+                    if (findReply(readBuffer, (byte) 114) && !hasPendingWrite(deploySelectorSessionEntity)) {
+                        openReplyFile(deploySelectorSessionEntity);
+                    }
+                    break;
+                case STATE_END_REPLY:
+                    // 结束确认'f'
+                    if (findReply(readBuffer, (byte) 102)) {
+                        DeployMetaEntity deployMetaEntity = deploySelectorSessionEntity.getDeployMetaEntity();
+                        DeployLogDetailEntity deployLogDetailEntity = deploySelectorSessionEntity.getDeployLogDetailEntity();
+                        complete(deploySelectorSessionEntity, () -> deployMetaService.deploySucceed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity));
+                        nextReplyFile(deploySelectorSessionEntity);
+                    }
+                    break;
+                case STATE_PIPELINE:
+                    receivePipelineReply(deploySelectorSessionEntity, readBuffer);
+                    break;
+                default:
+                    // 其余状态下不需要回复
+                    readBuffer.position(readBuffer.limit());
+                    break;
+            }
+        } finally {
+            readBuffer.compact();
+        }
+    }
+
+    // 发送待发送的数据，全部发送完成后推进状态
+    private void onWritable(DeploySelectorSessionEntity deploySelectorSessionEntity) throws IOException {
+        if (!flush(deploySelectorSessionEntity)) {
+            return;
+        }
+        switch (deploySelectorSessionEntity.getState()) {
+            case STATE_FILE:
+                closeFile(deploySelectorSessionEntity);
+                deploySelectorSessionEntity.getDeployLogDetailEntity().setTransferSize(deploySelectorSessionEntity.getFileSize());
+                deploySelectorSessionEntity.setState(STATE_END_REPLY);
+                deploySelectorSessionEntity.setDeadline(System.currentTimeMillis() + ApplicationConfig.REPLY_TIME_OUT);
+                deploySelectorSessionEntity.setResendTime(System.currentTimeMillis() + RESEND_TIME);
+                break;
+            case STATE_PIPELINE:
+                closeFile(deploySelectorSessionEntity);
+                nextPipelineFile(deploySelectorSessionEntity);
+                break;
+            case STATE_FINISH:
+                completeSession(deploySelectorSessionEntity);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void receiveNegotiateReply(DeploySelectorSessionEntity deploySelectorSessionEntity, ByteBuffer readBuffer) throws IOException {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        if (readBuffer.remaining() < DeployProtocolUtils.MODE_REPLY_LENGTH) {
+            return;
+        }
+        byte[] reply = new byte[DeployProtocolUtils.MODE_REPLY_LENGTH];
+        readBuffer.get(reply);
+        if (!new String(reply, 0, DeployProtocolUtils.TAG_LENGTH).equals(DeployProtocolUtils.MODE_REPLY_TAG)) {
+            throw new IOException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署协议协商回复格式错误");
+        }
+        int acceptCapability = (int) DeployProtocolUtils.parseNumber(reply, DeployProtocolUtils.TAG_LENGTH, DeployProtocolUtils.CAPABILITY_LENGTH, 0) & deploySessionEntity.getCapability();
+        deploySessionEntity.setCapability(acceptCapability);
+        deploySelectorSessionEntity.setDeadline(0);
+        log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署协议协商完成，启用能力：" + acceptCapability);
+        if (DeployProtocolUtils.hasCapability(acceptCapability, DeployProtocolUtils.CAPABILITY_PIPELINE)) {
+            deploySelectorSessionEntity.setState(STATE_PIPELINE);
+            nextPipelineFile(deploySelectorSessionEntity);
+        } else {
+            nextReplyFile(deploySelectorSessionEntity);
+        }
+    }
+
+    // 解析流水线回复：文件确认及写入检查点
+    private void receivePipelineReply(DeploySelectorSessionEntity deploySelectorSessionEntity, ByteBuffer readBuffer) throws IOException {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        while (readBuffer.remaining() >= DeployProtocolUtils.TAG_LENGTH) {
+            byte[] tagBytes = new byte[DeployProtocolUtils.TAG_LENGTH];
+            readBuffer.mark();
+            readBuffer.get(tagBytes);
+            String tag = new String(tagBytes);
+            int length;
+            if (tag.equals(DeployProtocolUtils.PIPELINE_FILE_REPLY_TAG)) {
+                length = DeployProtocolUtils.PIPELINE_FILE_REPLY_LENGTH;
+            } else if (tag.equals(DeployProtocolUtils.CHECKPOINT_REPLY_TAG)) {
+                length = DeployProtocolUtils.CHECKPOINT_REPLY_LENGTH;
+            } else {
+                throw new IOException(deploySessionEntity.getDeviceEntity().getHostAddress() + ":无法识别的部署回复：" + tag.trim());
+            }
+            if (readBuffer.remaining() < length) {
+                readBuffer.reset();
+                return;
+            }
+            byte[] reply = new byte[length];
+            readBuffer.get(reply);
+            long sequence = DeployProtocolUtils.parseNumber(reply, 0, DeployProtocolUtils.SEQUENCE_LENGTH, -1);
+            if (tag.equals(DeployProtocolUtils.CHECKPOINT_REPLY_TAG)) {
+                DeployLogDetailEntity deployLogDetailEntity = deploySessionEntity.getPendingDetailMap().get(sequence);
+                if (deployLogDetailEntity != null) {
+                    deployLogDetailEntity.setCommittedSize(DeployProtocolUtils.parseNumber(reply, DeployProtocolUtils.SEQUENCE_LENGTH, DeployProtocolUtils.SIZE_LENGTH, 0));
+                    deployMetaService.saveDeployCheckpoints(deploySessionEntity);
+                }
+                continue;
+            }
+            DeployLogDetailEntity deployLogDetailEntity = deploySessionEntity.getPendingDetailMap().remove(sequence);
+            if (deployLogDetailEntity == null) {
+                continue;
+            }
+            DeployMetaEntity deployMetaEntity = deploySessionEntity.getPendingMetaMap().remove(sequence);
+            if (reply[DeployProtocolUtils.SEQUENCE_LENGTH] == DeployProtocolUtils.FILE_STATE_SUCCEED) {
+                complete(deploySelectorSessionEntity, () -> deployMetaService.deploySucceed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity));
+            } else {
+                complete(deploySelectorSessionEntity, () -> deployMetaService.deployFailed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity, "客户端写入文件失败"));
+            }
+            // 收到确认后重新计时，并在窗口空出时继续发送
+            deploySelectorSessionEntity.setDeadline(0);
+            if (!hasPendingWrite(deploySelectorSessionEntity)) {
+                nextPipelineFile(deploySelectorSessionEntity);
+            }
+        }
+    }
+
+    // 流水线协议：窗口未满时开始发送下一个文件，全部确认后发送结束标志
+    private void nextPipelineFile(DeploySelectorSessionEntity deploySelectorSessionEntity) throws IOException {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        if (deploySelectorSessionEntity.getState() != STATE_PIPELINE) {
+            return;
+        }
+        boolean hasNextFile = deploySelectorSessionEntity.getFileIndex() < deploySelectorSessionEntity.getDeployMetaEntityList().size();
+        if (hasNextFile && deploySessionEntity.getPendingDetailMap().size() < ApplicationConfig.DEPLOY_PIPELINE_WINDOW) {
+            DeployMetaEntity deployMetaEntity = nextDeployMeta(deploySelectorSessionEntity);
+            String targetPath = deployMetaService.getTargetPath(deployMetaEntity);
+            DeployLogDetailEntity deployLogDetailEntity = deployMetaService.createDeployLogDetail(deploySessionEntity, deployMetaEntity, targetPath);
+            openFile(deploySelectorSessionEntity, deployMetaEntity);
+            long sequence = deploySelectorSessionEntity.getSequence() + 1;
+            deploySelectorSessionEntity.setSequence(sequence);
+            deploySessionEntity.getPendingMetaMap().put(sequence, deployMetaEntity);
+            deploySessionEntity.getPendingDetailMap().put(sequence, deployLogDetailEntity);
+            deployLogDetailEntity.setTransferSize(deploySelectorSessionEntity.getFileSize());
+            deploySelectorSessionEntity.setWriteBuffer(ByteBuffer.wrap(DeployProtocolUtils.getPipelineFileHeader(sequence, deploySelectorSessionEntity.getFileSize(), targetPath)));
+        } else if (!hasNextFile && deploySessionEntity.getPendingDetailMap().isEmpty()) {
+            finishSession(deploySelectorSessionEntity);
+        } else if (deploySelectorSessionEntity.getDeadline() == 0) {
+            deploySelectorSessionEntity.setDeadline(System.currentTimeMillis() + ApplicationConfig.REPLY_TIME_OUT);
+        }
+    }
+
+    // 旧版协议：发送下一个文件的开始标志及部署路径
+    private void nextReplyFile(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        closeFile(deploySelectorSessionEntity);
+        if (deploySelectorSessionEntity.getFileIndex() >= deploySelectorSessionEntity.getDeployMetaEntityList().size()) {
+            finishSession(deploySelectorSessionEntity);
+            return;
+        }
+        DeployMetaEntity deployMetaEntity = nextDeployMeta(deploySelectorSessionEntity);
+        String targetPath = deployMetaService.getTargetPath(deployMetaEntity);
+        deploySelectorSessionEntity.setDeployMetaEntity(deployMetaEntity);
+        deploySelectorSessionEntity.setDeployLogDetailEntity(deployMetaService.createDeployLogDetail(deploySessionEntity, deployMetaEntity, targetPath));
+        deploySelectorSessionEntity.setWriteBuffer(ByteBuffer.wrap(("fileRecvStart" + FormatUtils.getString(targetPath, 255)).getBytes()));
+        deploySelectorSessionEntity.setState(STATE_PATH_REPLY);
+        deploySelectorSessionEntity.setDeadline(System.currentTimeMillis() + ApplicationConfig.REPLY_TIME_OUT);
+    }
+
+    // 旧版协议：收到路径确认后发送文件内容
+    private void openReplyFile(DeploySelectorSessionEntity deploySelectorSessionEntity) throws IOException {
+        openFile(deploySelectorSessionEntity, deploySelectorSessionEntity.getDeployMetaEntity());
+        deploySelectorSessionEntity.setState(STATE_FILE);
+        deploySelectorSessionEntity.setDeadline(0);
+    }
+
+    // 取出下一个部署文件，设备离线时结束部署
+    private DeployMetaEntity nextDeployMeta(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        DeployMetaEntity deployMetaEntity = deploySelectorSessionEntity.getDeployMetaEntityList().get(deploySelectorSessionEntity.getFileIndex());
+        deploySelectorSessionEntity.setFileIndex(deploySelectorSessionEntity.getFileIndex() + 1);
+        if (!DeviceService.ONLINE_HOST_ADRESS.containsKey(deployMetaEntity.getDeviceEntity().getHostAddress())) {
+            throw new RuntimeException(ApplicationMessages.DEVICE_IS_OFFLINE + deployMetaEntity.getDeviceEntity().getHostAddress());
+        }
+        return deployMetaEntity;
+    }
+
+    // 发送部署结束标志
+    private void finishSession(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        closeFile(deploySelectorSessionEntity);
+        deploySelectorSessionEntity.setState(STATE_FINISH);
+        deploySelectorSessionEntity.setDeadline(0);
+        deploySelectorSessionEntity.setWriteBuffer(ByteBuffer.wrap("DeployEnd".getBytes()));
+    }
+
+    // 发送报文头及文件内容，返回是否全部发送完成
+    private boolean flush(DeploySelectorSessionEntity deploySelectorSessionEntity) throws IOException {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        SocketChannel socketChannel = deploySessionEntity.getSocketChannel();
+        ByteBuffer writeBuffer = deploySelectorSessionEntity.getWriteBuffer();
+        if (writeBuffer != null) {
+            if (socketChannel.write(writeBuffer) > 0) {
+                deploySelectorSessionEntity.setWriteDeadline(System.currentTimeMillis() + ApplicationConfig.REPLY_TIME_OUT);
+            }
+            if (writeBuffer.hasRemaining()) {
+                return false;
+            }
+            deploySelectorSessionEntity.setWriteBuffer(null);
+        }
+        FileChannel fileChannel = deploySelectorSessionEntity.getFileChannel();
+        long now = System.currentTimeMillis();
+        while (fileChannel != null && deploySelectorSessionEntity.getPosition() < deploySelectorSessionEntity.getFileSize()) {
+            // 每个分片发送前预留令牌，令牌不足时暂停写事件直到等待结束
+            if (deploySelectorSessionEntity.getReservedSize() == 0) {
+                long sliceSize = Math.min(ApplicationConfig.DEPLOY_TRANSFER_SIZE, deploySelectorSessionEntity.getFileSize() - deploySelectorSessionEntity.getPosition());
+                deploySelectorSessionEntity.setReservedSize(sliceSize);
+                deploySelectorSessionEntity.setResumeTime(now + deployBandwidthService.reserve(deploySessionEntity.getDeviceEntity(), sliceSize));
+                deploySelectorSessionEntity.setSliceStartTime(now);
+                // 限速等待的时间不计入发送超时
+                deploySelectorSessionEntity.setWriteDeadline(deploySelectorSessionEntity.getResumeTime() + ApplicationConfig.REPLY_TIME_OUT);
+            }
+            if (now < deploySelectorSessionEntity.getResumeTime()) {
+                return false;
+            }
+            long transferSize = fileChannel.transferTo(deploySelectorSessionEntity.getPosition(), deploySelectorSessionEntity.getReservedSize(), socketChannel);
+            if (transferSize <= 0) {
+                // 发送缓冲区已满，等待下一次写事件
+                return false;
+            }
+            deploySelectorSessionEntity.setPosition(deploySelectorSessionEntity.getPosition() + transferSize);
+            deploySelectorSessionEntity.setWriteDeadline(System.currentTimeMillis() + ApplicationConfig.REPLY_TIME_OUT);
+            deploySelectorSessionEntity.setReservedSize(deploySelectorSessionEntity.getReservedSize() - transferSize);
+            deploySessionEntity.setTransferSize(deploySessionEntity.getTransferSize() + transferSize);
+            deploySessionEntity.setTotalSendSize(deploySessionEntity.getTotalSendSize() + transferSize);
+            if (deploySelectorSessionEntity.getReservedSize() == 0) {
+                double time = (double) (System.currentTimeMillis() - deploySelectorSessionEntity.getSliceStartTime() + 1) / 1000;
+                deploySessionEntity.setSpeed(((double) (deploySelectorSessionEntity.getPosition() - 1) % ApplicationConfig.DEPLOY_TRANSFER_SIZE + 1) / 1024 / time);
+                deployMetaService.sendDeployProgress(deploySessionEntity, DeployMetaService.DEPLOYING, FilenameUtils.getName(deployMetaService.getTargetPath(deploySelectorSessionEntity.getDeployMetaEntity())) + "-部署中");
+            }
+        }
+        return true;
+    }
+
+    // 根据待发送数据及限速状态更新关注的事件
+    private void updateInterest(DeploySelectorSessionEntity deploySelectorSessionEntity, SelectionKey selectionKey) {
+        if (!selectionKey.isValid() || deploySelectorSessionEntity.isClosed()) {
+            return;
+        }
+        if (deploySelectorSessionEntity.getState() == STATE_CONNECT) {
+            selectionKey.interestOps(SelectionKey.OP_CONNECT);
+            return;
+        }
+        if (!hasPendingWrite(deploySelectorSessionEntity)) {
+            deploySelectorSessionEntity.setWriteDeadline(0);
+        } else if (deploySelectorSessionEntity.getWriteDeadline() == 0) {
+            deploySelectorSessionEntity.setWriteDeadline(Math.max(System.currentTimeMillis(), deploySelectorSessionEntity.getResumeTime()) + ApplicationConfig.REPLY_TIME_OUT);
+        }
+        int interestOps = SelectionKey.OP_READ;
+        if (hasPendingWrite(deploySelectorSessionEntity) && System.currentTimeMillis() >= deploySelectorSessionEntity.getResumeTime()) {
+            interestOps = interestOps | SelectionKey.OP_WRITE;
+        }
+        selectionKey.interestOps(interestOps);
+    }
+
+    private boolean hasPendingWrite(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        return deploySelectorSessionEntity.getWriteBuffer() != null || (deploySelectorSessionEntity.getFileChannel() != null && deploySelectorSessionEntity.getPosition() < deploySelectorSessionEntity.getFileSize()) || deploySelectorSessionEntity.getState() == STATE_FILE || deploySelectorSessionEntity.getState() == STATE_FINISH;
+    }
+
+    // 在读缓冲中查找单字节确认，之前的数据丢弃
+    private boolean findReply(ByteBuffer readBuffer, byte reply) {
+        while (readBuffer.hasRemaining()) {
+            if (readBuffer.get() == reply) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void openFile(DeploySelectorSessionEntity deploySelectorSessionEntity, DeployMetaEntity deployMetaEntity) throws IOException {
+        closeFile(deploySelectorSessionEntity);
+        deploySelectorSessionEntity.setDeployMetaEntity(deployMetaEntity);
+        File file = new File(deployMetaEntity.getDeployManifestFileEntity().getLocalPath());
+        FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        deploySelectorSessionEntity.setFileChannel(fileChannel);
+        deploySelectorSessionEntity.setPosition(0);
+        deploySelectorSessionEntity.setFileSize(fileChannel.size());
+        deploySelectorSessionEntity.setReservedSize(0);
+    }
+
+    private void closeFile(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        if (deploySelectorSessionEntity.getFileChannel() != null) {
+            try {
+                deploySelectorSessionEntity.getFileChannel().close();
+            } catch (IOException e) {
+                log.info("部署文件关闭失败：" + e.getMessage());
+            }
+            deploySelectorSessionEntity.setFileChannel(null);
+        }
+    }
+
+    private void closeChannel(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        deploySelectorSessionEntity.setClosed(true);
+        closeFile(deploySelectorSessionEntity);
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        if (deploySessionEntity.getSocketChannel() != null) {
+            try {
+                deploySessionEntity.getSocketChannel().close();
+            } catch (IOException e) {
+                log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署连接关闭失败：" + e.getMessage());
+            }
+        }
+        DeployMetaService.DEPLOYING_DEVICE.remove(deploySessionEntity.getDeviceEntity().getHostAddress());
+    }
+
+    // 旧版协议当前文件部署失败
+    private void replyFileFailed(DeploySelectorSessionEntity deploySelectorSessionEntity, String reason) {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        DeployMetaEntity deployMetaEntity = deploySelectorSessionEntity.getDeployMetaEntity();
+        DeployLogDetailEntity deployLogDetailEntity = deploySelectorSessionEntity.getDeployLogDetailEntity();
+        complete(deploySelectorSessionEntity, () -> deployMetaService.deployFailed(deploySessionEntity, deployMetaEntity, deployLogDetailEntity, reason));
+    }
+
+    // 发送超时：旧版协议按失败处理当前文件，流水线协议按失败处理全部在途文件
+    private void failWriteTimeout(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        if (deploySelectorSessionEntity.getState() == STATE_PATH_REPLY || deploySelectorSessionEntity.getState() == STATE_FILE || deploySelectorSessionEntity.getState() == STATE_END_REPLY) {
+            replyFileFailed(deploySelectorSessionEntity, "发送文件超时");
+        } else if (deploySelectorSessionEntity.getState() == STATE_PIPELINE) {
+            complete(deploySelectorSessionEntity, () -> deployMetaService.deployPendingFailed(deploySessionEntity));
+        }
+    }
+
+    // 文件结束处理(写日志、推送进度)可能阻塞，按提交顺序交给部署线程池执行，会话结束处理排在最后
+    private void complete(DeploySelectorSessionEntity deploySelectorSessionEntity, Runnable runnable) {
+        deploySelectorSessionEntity.setCompletion(deploySelectorSessionEntity.getCompletion().thenRunAsync(() -> {
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                // 单个文件处理失败不影响后续处理
+                log.info(deploySelectorSessionEntity.getDeploySessionEntity().getDeviceEntity().getHostAddress() + ":部署结果处理失败：" + e.getMessage());
+            }
+        }, deployTaskExecutor));
+    }
+
+    // 部署正常结束，在部署线程池中保存日志
+    private void completeSession(DeploySelectorSessionEntity deploySelectorSessionEntity) {
+        if (deploySelectorSessionEntity.isClosed()) {
+            return;
+        }
+        closeChannel(deploySelectorSessionEntity);
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        complete(deploySelectorSessionEntity, () -> {
+            try {
+                deployMetaService.recordDeployTime(deploySessionEntity);
+                deployMetaService.saveDeploySession(deploySessionEntity);
+                if (deploySelectorSessionEntity.getDeployMetaEntityList().size() > 0) {
+                    long deployFileSize = deploySessionEntity.getTotalSize() / 1024;
+                    long deployTime = (System.currentTimeMillis() - deploySelectorSessionEntity.getStartTime()) / 1000;
+                    double deploySpeed = deployFileSize / (double) deployTime;
+                    log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":总计部署文件大小：" + deployFileSize + "Kb，总计部署时间：" + deployTime + "s,平均部署速度：" + deploySpeed + "kb/s");
+                }
+                deploySelectorSessionEntity.getFuture().complete(deploySessionEntity.getDeployLogEntity());
+            } catch (RuntimeException e) {
+                deploySelectorSessionEntity.getFuture().completeExceptionally(e);
+            } finally {
+                sendDeployFinished(deploySessionEntity);
+            }
+        });
+    }
+
+    // 连接异常，保留已确认的写入位置供下次部署续传
+    private void closeSession(DeploySelectorSessionEntity deploySelectorSessionEntity, IOException exception) {
+        if (deploySelectorSessionEntity.isClosed()) {
+            return;
+        }
+        closeChannel(deploySelectorSessionEntity);
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        log.info(deploySessionEntity.getDeviceEntity().getHostAddress() + ":部署连接异常：" + exception.getMessage());
+        complete(deploySelectorSessionEntity, () -> {
+            try {
+                deploySessionEntity.getDeployLogEntity().setComplete(false);
+                deployMetaService.saveDeploySession(deploySessionEntity);
+                deploySelectorSessionEntity.getFuture().complete(null);
+            } catch (RuntimeException e) {
+                deploySelectorSessionEntity.getFuture().completeExceptionally(e);
+            } finally {
+                sendDeployFinished(deploySessionEntity);
+            }
+        });
+    }
+
+    // 设备离线等错误，直接结束部署
+    private void abortSession(DeploySelectorSessionEntity deploySelectorSessionEntity, RuntimeException exception) {
+        if (deploySelectorSessionEntity.isClosed()) {
+            return;
+        }
+        closeChannel(deploySelectorSessionEntity);
+        DeploySessionEntity deploySessionEntity = deploySelectorSessionEntity.getDeploySessionEntity();
+        complete(deploySelectorSessionEntity, () -> {
+            try {
+                deploySessionEntity.getDeployLogEntity().setComplete(false);
+                deployMetaService.saveDeploySession(deploySessionEntity);
+            } finally {
+                sendDeployFinished(deploySessionEntity);
+                deploySelectorSessionEntity.getFuture().completeExceptionally(exception);
+            }
+        });
+    }
+
+    private void sendDeployFinished(DeploySessionEntity deploySessionEntity) {
+        deployProgressService.sendFinished(deploySessionEntity.getDeploymentDesignEntity(), deploySessionEntity.getDeviceEntity().getHostAddress());
+    }
+}
@@ -0,0 +1,102 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备部署吞吐量：按每次部署的平均速度计算指数加权平均值，用于估算部署耗时。
+ * 服务启动后首次查询某设备时从最近的部署日志中恢复。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 14:46
+ **/
+
+@Slf4j
+@Service
+public class DeployThroughputService {
+
+    // 设备IP -> 吞吐量(kb/s)，0表示没有历史记录
+    private final Map<String, Double> throughputMap = new ConcurrentHashMap<>();
+    private final DeployLogService deployLogService;
+    private final DeployManifestService deployManifestService;
+    private final DeploymentDesignDetailService deploymentDesignDetailService;
+    private final DeployBandwidthService deployBandwidthService;
+
+    @Autowired
+    public DeployThroughputService(DeployLogService deployLogService, DeployManifestService deployManifestService, DeploymentDesignDetailService deploymentDesignDetailService, DeployBandwidthService deployBandwidthService) {
+        this.deployLogService = deployLogService;
+        this.deployManifestService = deployManifestService;
+        this.deploymentDesignDetailService = deploymentDesignDetailService;
+        this.deployBandwidthService = deployBandwidthService;
+    }
+
+    // 记录一次部署的平均速度，数据量过小时连接及握手耗时占比过大，不参与统计
+    public void recordThroughput(String hostAddress, long size, long time) {
+        if (size < ApplicationConfig.DEPLOY_THROUGHPUT_MIN_SIZE || time <= 0) {
+            return;
+        }
+        // 先恢复历史记录再合并本次速度
+        getThroughput(hostAddress);
+        double speed = ((double) size / 1024) / ((double) time / 1000);
+        double throughput = throughputMap.merge(hostAddress, speed, (oldValue, value) -> oldValue > 0 ? ApplicationConfig.DEPLOY_THROUGHPUT_ALPHA * value + (1 - ApplicationConfig.DEPLOY_THROUGHPUT_ALPHA) * oldValue : value);
+        log.info(hostAddress + ":本次部署平均速度：" + speed + "kb/s，加权平均速度：" + throughput + "kb/s");
+    }
+
+    // 查询设备的吞吐量(kb/s)，没有历史记录时返回0
+    public double getThroughput(String hostAddress) {
+        Double throughput = throughputMap.get(hostAddress);
+        if (throughput == null) {
+            throughput = loadThroughput(hostAddress);
+            throughputMap.putIfAbsent(hostAddress, throughput);
+        }
+        return throughput;
+    }
+
+    // 估算部署节点的部署耗时
+    public DeployEstimateNodeEntity getDeployEstimate(DeploymentDesignNodeEntity deploymentDesignNodeEntity) {
+        DeployEstimateNodeEntity deployEstimateNodeEntity = new DeployEstimateNodeEntity();
+        deployEstimateNodeEntity.setDeploymentDesignNodeId(deploymentDesignNodeEntity.getId());
+        if (deploymentDesignNodeEntity.getDeviceEntity() == null) {
+            return deployEstimateNodeEntity;
+        }
+        String hostAddress = deploymentDesignNodeEntity.getDeviceEntity().getHostAddress();
+        long totalSize = 0;
+        for (DeploymentDesignDetailEntity deploymentDesignDetailEntity : deploymentDesignDetailService.getDeploymentDesignDetailsByDeploymentDesignNode(deploymentDesignNodeEntity)) {
+            totalSize = totalSize + deployManifestService.getDeployManifest(deploymentDesignDetailEntity.getComponentHistoryEntity()).getTotalSize();
+        }
+        double throughput = getThroughput(hostAddress);
+        deployEstimateNodeEntity.setHistorical(throughput > 0);
+        if (throughput <= 0) {
+            throughput = ApplicationConfig.DEPLOY_THROUGHPUT_DEFAULT;
+        }
+        // 设备带宽限制低于历史速度时以带宽限制为准
+        long deviceRate = deployBandwidthService.getDeviceRate(hostAddress);
+        if (deviceRate > 0) {
+            throughput = Math.min(throughput, (double) deviceRate / 1024);
+        }
+        deployEstimateNodeEntity.setHostAddress(hostAddress);
+        deployEstimateNodeEntity.setTotalSize(totalSize);
+        deployEstimateNodeEntity.setThroughput(throughput);
+        deployEstimateNodeEntity.setEstimateTime(((double) totalSize / 1024) / throughput);
+        return deployEstimateNodeEntity;
+    }
+
+    // 从最近的部署日志恢复吞吐量(由旧到新计算加权平均)
+    private double loadThroughput(String hostAddress) {
+        List<DeployLogEntity> deployLogEntityList = deployLogService.getLatestDeployLogsByHostAddress(hostAddress, ApplicationConfig.DEPLOY_THROUGHPUT_HISTORY);
+        double throughput = 0;
+        for (int i = deployLogEntityList.size() - 1; i >= 0; i--) {
+            DeployLogEntity deployLogEntity = deployLogEntityList.get(i);
+            double speed = ((double) deployLogEntity.getTotalSize() / 1024) / ((double) deployLogEntity.getDeployTime() / 1000);
+            throughput = throughput > 0 ? ApplicationConfig.DEPLOY_THROUGHPUT_ALPHA * speed + (1 - ApplicationConfig.DEPLOY_THROUGHPUT_ALPHA) * throughput : speed;
+        }
+        return throughput;
+    }
+}
@@ -1,6 +1,6 @@
 package com.rengu.operationsmanagementsuitev3.Service;
 
-import com.rengu.operationsmanagementsuitev3.Entity.DeployMetaEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployTaskEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.DeploymentDesignEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.DeploymentDesignNodeEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.DeviceEntity;
@@ -13,12 +13,10 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,14 +32,14 @@ import java.util.List;
 public class DeploymentDesignNodeService {
 
     private final DeploymentDesignNodeRepository deploymentDesignNodeRepository;
-    private final DeployMetaService deployMetaService;
     private final DeploymentDesignDetailService deploymentDesignDetailService;
+    private final DeploySchedulerService deploySchedulerService;
 
     @Autowired
-    public DeploymentDesignNodeService(DeploymentDesignNodeRepository deploymentDesignNodeRepository, DeployMetaService deployMetaService, DeploymentDesignDetailService deploymentDesignDetailService) {
+    public DeploymentDesignNodeService(DeploymentDesignNodeRepository deploymentDesignNodeRepository, DeploymentDesignDetailService deploymentDesignDetailService, DeploySchedulerService deploySchedulerService) {
         this.deploymentDesignNodeRepository = deploymentDesignNodeRepository;
-        this.deployMetaService = deployMetaService;
         this.deploymentDesignDetailService = deploymentDesignDetailService;
+        this.deploySchedulerService = deploySchedulerService;
     }
 
     // 根据部署设计保存部署节点
@@ -173,9 +171,8 @@ public class DeploymentDesignNodeService {
         return deviceEntityList;
     }
 
-    // 根据部署设计节点部署
-    @Async
-    public void deployDeploymentDesignNodeById(String deploymentDesignNodeId) throws IOException {
+    // 根据部署设计节点部署(提交至部署调度器排队执行)
+    public DeployTaskEntity deployDeploymentDesignNodeById(String deploymentDesignNodeId, int priority, boolean incremental) {
         DeploymentDesignNodeEntity deploymentDesignNodeEntity = getDeploymentDesignNodeById(deploymentDesignNodeId);
         if (deploymentDesignNodeEntity.getDeviceEntity() == null) {
             throw new RuntimeException(ApplicationMessages.DEPLOYMENT_DESIGN_NODE_DEVICE_ARGS_NOT_FOUND);
@@ -184,7 +181,6 @@ public class DeploymentDesignNodeService {
         if (!DeviceService.ONLINE_HOST_ADRESS.containsKey(deviceEntity.getHostAddress())) {
             throw new RuntimeException(ApplicationMessages.DEVICE_NOT_ONLINE + deviceEntity.getHostAddress());
         }
-        List<DeployMetaEntity> deployMetaEntityList = deployMetaService.createDeployMeta(deploymentDesignDetailService.getDeploymentDesignDetailsByDeploymentDesignNode(deploymentDesignNodeEntity));
-        deployMetaService.deployMeta(deploymentDesignNodeEntity.getDeploymentDesignEntity(), deviceEntity, deployMetaEntityList);
+        return deploySchedulerService.submitDeploymentDesignNode(deploymentDesignNodeEntity, priority, incremental);
     }
 }
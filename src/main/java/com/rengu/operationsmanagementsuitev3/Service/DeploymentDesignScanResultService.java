@@ -13,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -86,4 +87,9 @@ public class DeploymentDesignScanResultService {
     public List<DeploymentDesignScanResultEntity> getDeploymentDesignScanResultsByDeploymentDesignDetail(DeploymentDesignDetailEntity deploymentDesignDetailEntity) {
         return deploymentDesignScanResultRepository.findAllByDeploymentDesignDetailEntity(deploymentDesignDetailEntity);
     }
+
+    // 查询部署设计详情最近一次的扫描结果(不经过缓存，保证取到最新结果)
+    public Optional<DeploymentDesignScanResultEntity> getLatestDeploymentDesignScanResultByDeploymentDesignDetail(DeploymentDesignDetailEntity deploymentDesignDetailEntity) {
+        return deploymentDesignScanResultRepository.findFirstByDeploymentDesignDetailEntityOrderByCreateTimeDesc(deploymentDesignDetailEntity);
+    }
 }
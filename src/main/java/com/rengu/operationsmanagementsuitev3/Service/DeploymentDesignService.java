@@ -1,5 +1,9 @@
 package com.rengu.operationsmanagementsuitev3.Service;
 
+import com.rengu.operationsmanagementsuitev3.Entity.ComponentHistoryEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployEstimateEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployScheduleProgressEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeploymentDesignDetailEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.DeploymentDesignEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.DeploymentDesignNodeEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.ProjectEntity;
@@ -16,8 +20,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -32,11 +38,19 @@ public class DeploymentDesignService {
 
     private final DeploymentDesignRepository deploymentDesignRepository;
     private final DeploymentDesignNodeService deploymentDesignNodeService;
+    private final DeploySchedulerService deploySchedulerService;
+    private final DeployMulticastService deployMulticastService;
+    private final DeploymentDesignDetailService deploymentDesignDetailService;
+    private final DeployBundleService deployBundleService;
 
     @Autowired
-    public DeploymentDesignService(DeploymentDesignRepository deploymentDesignRepository, DeploymentDesignNodeService deploymentDesignNodeService) {
+    public DeploymentDesignService(DeploymentDesignRepository deploymentDesignRepository, DeploymentDesignNodeService deploymentDesignNodeService, DeploySchedulerService deploySchedulerService, DeployMulticastService deployMulticastService, DeploymentDesignDetailService deploymentDesignDetailService, DeployBundleService deployBundleService) {
         this.deploymentDesignRepository = deploymentDesignRepository;
         this.deploymentDesignNodeService = deploymentDesignNodeService;
+        this.deploySchedulerService = deploySchedulerService;
+        this.deployMulticastService = deployMulticastService;
+        this.deploymentDesignDetailService = deploymentDesignDetailService;
+        this.deployBundleService = deployBundleService;
     }
 
     // 根据工程保存部署设计
@@ -70,6 +84,14 @@ public class DeploymentDesignService {
         DeploymentDesignEntity deploymentDesignEntity = copyDeploymentDesignById(deploymentDesignId);
         deploymentDesignEntity.setBaseline(true);
         deploymentDesignRepository.save(deploymentDesignEntity);
+        // 基线内容不再变化，预先生成各组件历史的部署包
+        Map<String, ComponentHistoryEntity> componentHistoryMap = new LinkedHashMap<>();
+        for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeService.getDeploymentDesignNodesByDeploymentDesign(deploymentDesignEntity)) {
+            for (DeploymentDesignDetailEntity deploymentDesignDetailEntity : deploymentDesignDetailService.getDeploymentDesignDetailsByDeploymentDesignNode(deploymentDesignNodeEntity)) {
+                componentHistoryMap.putIfAbsent(deploymentDesignDetailEntity.getComponentHistoryEntity().getId(), deploymentDesignDetailEntity.getComponentHistoryEntity());
+            }
+        }
+        deployBundleService.createDeployBundles(new ArrayList<>(componentHistoryMap.values()));
         return deploymentDesignEntity;
     }
 
@@ -139,12 +161,36 @@ public class DeploymentDesignService {
         return deploymentDesignRepository.existsById(deploymentDesignId);
     }
 
-    // 下发整个部署设计
-    public void deployDeploymentDesignById(String deploymentDesignId) throws IOException {
+    // 下发整个部署设计(全部节点提交至部署调度器，concurrency<=0时使用默认并发数)
+    // 组播模式下支持组播的在线设备改为组播部署，其余节点仍提交至部署调度器
+    public DeployScheduleProgressEntity deployDeploymentDesignById(String deploymentDesignId, int priority, int concurrency, boolean incremental, boolean multicast) {
         DeploymentDesignEntity deploymentDesignEntity = getDeploymentDesignById(deploymentDesignId);
-        for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeService.getDeploymentDesignNodesByDeploymentDesign(deploymentDesignEntity)) {
-            deploymentDesignNodeService.deployDeploymentDesignNodeById(deploymentDesignNodeEntity.getId());
+        List<DeploymentDesignNodeEntity> deploymentDesignNodeEntityList = deploymentDesignNodeService.getDeploymentDesignNodesByDeploymentDesign(deploymentDesignEntity);
+        if (multicast) {
+            List<DeploymentDesignNodeEntity> multicastNodeList = new ArrayList<>();
+            List<DeploymentDesignNodeEntity> unicastNodeList = new ArrayList<>();
+            for (DeploymentDesignNodeEntity deploymentDesignNodeEntity : deploymentDesignNodeEntityList) {
+                if (DeployMulticastService.isMulticastDevice(deploymentDesignNodeEntity.getDeviceEntity())) {
+                    multicastNodeList.add(deploymentDesignNodeEntity);
+                } else {
+                    unicastNodeList.add(deploymentDesignNodeEntity);
+                }
+            }
+            deployMulticastService.submitDeploymentDesign(deploymentDesignEntity, multicastNodeList, priority, concurrency, incremental);
+            deploymentDesignNodeEntityList = unicastNodeList;
         }
+        return deploySchedulerService.submitDeploymentDesign(deploymentDesignEntity, deploymentDesignNodeEntityList, priority, concurrency, incremental);
+    }
+
+    // 估算部署设计的部署耗时(concurrency<=0时使用默认并发数)
+    public DeployEstimateEntity getDeployEstimateById(String deploymentDesignId, int concurrency) {
+        DeploymentDesignEntity deploymentDesignEntity = getDeploymentDesignById(deploymentDesignId);
+        return deploySchedulerService.getDeployEstimate(deploymentDesignEntity, deploymentDesignNodeService.getDeploymentDesignNodesByDeploymentDesign(deploymentDesignEntity), concurrency);
+    }
+
+    // 查询部署设计的部署进度
+    public DeployScheduleProgressEntity getDeployScheduleProgressById(String deploymentDesignId) {
+        return deploySchedulerService.getDeployScheduleProgress(getDeploymentDesignById(deploymentDesignId).getId());
     }
 
     // 查询全部部署组件
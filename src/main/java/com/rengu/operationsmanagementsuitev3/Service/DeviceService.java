@@ -23,6 +23,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -153,6 +154,12 @@ public class DeviceService {
             }
             deviceEntity.setHostAddress(deviceArgs.getHostAddress());
         }
+        if (deviceArgs.getCompressLevel() != null) {
+            if (deviceArgs.getCompressLevel() < Deflater.NO_COMPRESSION || deviceArgs.getCompressLevel() > Deflater.BEST_COMPRESSION) {
+                throw new RuntimeException(ApplicationMessages.DEVICE_COMPRESS_LEVEL_ARGS_NOT_FOUND + deviceArgs.getCompressLevel());
+            }
+            deviceEntity.setCompressLevel(deviceArgs.getCompressLevel());
+        }
         return deviceRepository.save(deviceEntity);
     }
 
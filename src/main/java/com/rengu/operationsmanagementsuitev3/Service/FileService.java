@@ -7,6 +7,7 @@ import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
 import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -26,6 +27,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.*;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -39,27 +45,61 @@ import java.io.IOException;
 public class FileService {
 
     private final FileRepository fileRepository;
+    private final ChunkAssemblyService chunkAssemblyService;
+    private final FileStoreService fileStoreService;
 
     @Autowired
-    public FileService(FileRepository fileRepository) {
+    public FileService(FileRepository fileRepository, ChunkAssemblyService chunkAssemblyService, FileStoreService fileStoreService) {
         this.fileRepository = fileRepository;
+        this.chunkAssemblyService = chunkAssemblyService;
+        this.fileStoreService = fileStoreService;
     }
 
     // 保存文件块
     public void saveChunk(ChunkEntity chunkEntity, MultipartFile multipartFile) throws IOException {
+        if (ApplicationConfig.CHUNK_POSITIONAL_WRITE) {
+            chunkAssemblyService.saveChunk(chunkEntity, multipartFile);
+            return;
+        }
         File chunk = new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + chunkEntity.getIdentifier() + File.separator + chunkEntity.getChunkNumber() + ".tmp");
         chunk.getParentFile().mkdirs();
         chunk.createNewFile();
-        IOUtils.copy(multipartFile.getInputStream(), new FileOutputStream(chunk));
+        @Cleanup FileOutputStream fileOutputStream = new FileOutputStream(chunk);
+        IOUtils.copy(multipartFile.getInputStream(), fileOutputStream);
+    }
+
+    // 打开文件块的写入通道，用于异步上传按顺序写入size字节
+    public FileChannel openChunk(ChunkEntity chunkEntity, long size) throws IOException {
+        if (ApplicationConfig.CHUNK_POSITIONAL_WRITE) {
+            return chunkAssemblyService.openChunk(chunkEntity, size);
+        }
+        if (chunkEntity.getChunkNumber() < 1 || chunkEntity.getChunkNumber() > chunkEntity.getTotalChunks() || size < 0) {
+            throw new RuntimeException(ApplicationMessages.FILE_CHUNK_ARGS_NOT_FOUND);
+        }
+        File chunk = new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + chunkEntity.getIdentifier() + File.separator + chunkEntity.getChunkNumber() + ".tmp");
+        FileUtils.forceMkdir(chunk.getParentFile());
+        return FileChannel.open(chunk.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // 文件块写入完成，fileChannel为openChunk返回的写入通道，提交后由调用方关闭
+    public void commitChunk(ChunkEntity chunkEntity, FileChannel fileChannel) throws IOException {
+        if (ApplicationConfig.CHUNK_POSITIONAL_WRITE) {
+            chunkAssemblyService.commitChunk(chunkEntity, fileChannel);
+        }
     }
 
     // 保存文件信息
     @CacheEvict(value = "File_Cache", allEntries = true)
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public FileEntity saveFile(File file) throws IOException {
+        return saveFile(file, getMD5(file));
+    }
+
+    // 保存已计算MD5的文件信息，事务内不再读取文件内容
+    @CacheEvict(value = "File_Cache", allEntries = true)
+    @Transactional(isolation = Isolation.SERIALIZABLE)
+    public FileEntity saveFile(File file, String MD5) {
         FileEntity fileEntity = new FileEntity();
-        @Cleanup FileInputStream fileInputStream = new FileInputStream(file);
-        String MD5 = DigestUtils.md5Hex(fileInputStream);
         if (hasFileByMD5(MD5)) {
             throw new RuntimeException(ApplicationMessages.FILE_MD5_EXISTED + MD5);
         }
@@ -70,6 +110,13 @@ public class FileService {
         return fileRepository.save(fileEntity);
     }
 
+    // 修改文件保存位置(文件存储迁移)
+    @CacheEvict(value = "File_Cache", allEntries = true)
+    public FileEntity updateFileLocalPath(FileEntity fileEntity, File file) {
+        fileEntity.setLocalPath(file.getAbsolutePath());
+        return fileRepository.save(fileEntity);
+    }
+
     // 根据Id删除文件
     @CacheEvict(value = "File_Cache", allEntries = true)
     public FileEntity deleteFileById(String fileId) throws IOException {
@@ -81,10 +128,29 @@ public class FileService {
 
     // 检查文件块是否存在
     public boolean hasChunk(ChunkEntity chunkEntity) {
+        if (ApplicationConfig.CHUNK_POSITIONAL_WRITE) {
+            return chunkAssemblyService.hasChunk(chunkEntity);
+        }
         File chunk = new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + chunkEntity.getIdentifier() + File.separator + chunkEntity.getChunkNumber() + ".tmp");
         return chunk.exists() && chunkEntity.getChunkSize() == FileUtils.sizeOf(chunk);
     }
 
+    // 查询尚未上传的文件块序号，客户端续传时一次获取
+    public List<Integer> getMissingChunks(ChunkEntity chunkEntity) {
+        if (ApplicationConfig.CHUNK_POSITIONAL_WRITE) {
+            return chunkAssemblyService.getMissingChunks(chunkEntity);
+        }
+        String[] chunkNames = new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + chunkEntity.getIdentifier()).list();
+        Set<String> chunkNameSet = chunkNames == null ? new HashSet<>() : new HashSet<>(Arrays.asList(chunkNames));
+        List<Integer> missingChunkList = new ArrayList<>();
+        for (int i = 1; i <= chunkEntity.getTotalChunks(); i++) {
+            if (!chunkNameSet.contains(i + ".tmp")) {
+                missingChunkList.add(i);
+            }
+        }
+        return missingChunkList;
+    }
+
     // 根据Id判断文件是否存在
     public boolean hasFileById(String fileId) {
         if (StringUtils.isEmpty(fileId)) {
@@ -129,33 +195,70 @@ public class FileService {
         if (hasFileByMD5(chunkEntity.getIdentifier())) {
             return getFileByMD5(chunkEntity.getIdentifier());
         } else {
-            File file = null;
             String extension = FilenameUtils.getExtension(chunkEntity.getFilename());
-            if (StringUtils.isEmpty(extension)) {
-                file = new File(ApplicationConfig.FILES_SAVE_PATH + File.separator + chunkEntity.getIdentifier());
-            } else {
-                file = new File(ApplicationConfig.FILES_SAVE_PATH + File.separator + chunkEntity.getIdentifier() + "." + FilenameUtils.getExtension(chunkEntity.getFilename()));
+            if (ApplicationConfig.CHUNK_POSITIONAL_WRITE) {
+                return moveChunks(chunkEntity, extension);
+            }
+            return mergeChunks(chunkEntity, extension);
+        }
+    }
+
+    // 按顺序读取文件块写入临时文件，同时计算MD5，校验通过后提交到文件存储，整个过程只读取一次文件块
+    private FileEntity mergeChunks(ChunkEntity chunkEntity, String extension) throws IOException {
+        File tempFile = fileStoreService.createTempFile();
+        try {
+            String MD5 = writeChunks(tempFile, chunkEntity);
+            if (!chunkEntity.getIdentifier().equals(MD5)) {
+                throw new RuntimeException("文件合并失败，请检查：" + chunkEntity.getFilename() + "是否正确。");
             }
-            return mergeChunks(file, chunkEntity);
+            File file = fileStoreService.commit(tempFile, MD5, extension);
+            // 合并完成后删除文件块
+            FileUtils.deleteQuietly(new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + chunkEntity.getIdentifier()));
+            return saveFile(file, MD5);
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+    }
+
+    // 定位写入模式下文件块已写入目标文件，校验MD5后提交到文件存储
+    private FileEntity moveChunks(ChunkEntity chunkEntity, String extension) throws IOException {
+        File partFile = chunkAssemblyService.getAssembledFile(chunkEntity);
+        String MD5 = getMD5(partFile);
+        if (!chunkEntity.getIdentifier().equals(MD5)) {
+            // 内容有误时清除已写入的文件块，由客户端重新上传
+            chunkAssemblyService.deleteChunks(chunkEntity.getIdentifier());
+            throw new RuntimeException("文件合并失败，请检查：" + chunkEntity.getFilename() + "是否正确。");
         }
+        File file = fileStoreService.commit(partFile, MD5, extension);
+        chunkAssemblyService.deleteChunks(chunkEntity.getIdentifier());
+        return saveFile(file, MD5);
     }
 
-    private FileEntity mergeChunks(File file, ChunkEntity chunkEntity) throws IOException {
-        file.delete();
-        file.getParentFile().mkdirs();
-        file.createNewFile();
+    // 将全部文件块依次写入目标文件，返回合并后文件的MD5
+    private String writeChunks(File file, ChunkEntity chunkEntity) throws IOException {
+        MessageDigest messageDigest = DigestUtils.getMd5Digest();
+        ByteBuffer buffer = ByteBuffer.allocate(ApplicationConfig.FILE_MERGE_BUFFER_SIZE);
+        @Cleanup FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
         for (int i = 1; i <= chunkEntity.getTotalChunks(); i++) {
             File chunk = new File(ApplicationConfig.CHUNKS_SAVE_PATH + File.separator + chunkEntity.getIdentifier() + File.separator + i + ".tmp");
-            if (chunk.exists()) {
-                FileUtils.writeByteArrayToFile(file, FileUtils.readFileToByteArray(chunk), true);
-            } else {
+            if (!chunk.exists()) {
                 throw new RuntimeException(ApplicationMessages.FILE_CHUNK_NOT_FOUND + chunk.getAbsolutePath());
             }
+            @Cleanup FileChannel chunkChannel = FileChannel.open(chunk.toPath(), StandardOpenOption.READ);
+            while (chunkChannel.read(buffer) != -1) {
+                buffer.flip();
+                messageDigest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
+                buffer.clear();
+            }
         }
+        return Hex.encodeHexString(messageDigest.digest());
+    }
+
+    private String getMD5(File file) throws IOException {
         @Cleanup FileInputStream fileInputStream = new FileInputStream(file);
-        if (!chunkEntity.getIdentifier().equals(DigestUtils.md5Hex(fileInputStream))) {
-            throw new RuntimeException("文件合并失败，请检查：" + file.getAbsolutePath() + "是否正确。");
-        }
-        return saveFile(file);
+        return DigestUtils.md5Hex(fileInputStream);
     }
 }
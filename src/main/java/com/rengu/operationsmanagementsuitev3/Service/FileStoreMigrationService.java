@@ -0,0 +1,160 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.FileEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.FileStoreMigrationEntity;
+import com.rengu.operationsmanagementsuitev3.Repository.FileRepository;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationMessages;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件存储在线迁移：将按旧方式保存在文件保存路径根目录下的文件逐个加入文件存储(同一文件系统内为硬链接)，
+ * 修改文件保存位置后清除部署清单，原文件保留一段时间供已生成的部署信息继续读取，之后删除，仍被缓存的部署清单引用的原文件推迟删除。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 18:15
+ **/
+
+@Slf4j
+@Service
+public class FileStoreMigrationService {
+
+    private final FileRepository fileRepository;
+    private final FileService fileService;
+    private final FileStoreService fileStoreService;
+    private final DeployManifestService deployManifestService;
+    // 迁移状态
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong migratedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong pendingDeleteCount = new AtomicLong();
+    private volatile Date startTime;
+    private volatile Date endTime;
+
+    @Autowired
+    public FileStoreMigrationService(FileRepository fileRepository, FileService fileService, FileStoreService fileStoreService, DeployManifestService deployManifestService) {
+        this.fileRepository = fileRepository;
+        this.fileService = fileService;
+        this.fileStoreService = fileStoreService;
+        this.deployManifestService = deployManifestService;
+    }
+
+    // 开始迁移，已在迁移时抛出异常，之后调用migrateFiles在后台执行
+    public FileStoreMigrationEntity startMigration() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException(ApplicationMessages.FILE_STORE_MIGRATING);
+        }
+        totalCount.set(0);
+        migratedCount.set(0);
+        skippedCount.set(0);
+        failedCount.set(0);
+        startTime = new Date();
+        endTime = null;
+        return getFileStoreMigration();
+    }
+
+    // 分批迁移全部文件，迁移期间文件上传及部署正常进行
+    @Async
+    public void migrateFiles() {
+        List<File> oldFileList = new ArrayList<>();
+        try {
+            log.info("OMS服务器-开始文件存储迁移");
+            int page = 0;
+            Page<FileEntity> fileEntityPage;
+            do {
+                fileEntityPage = fileRepository.findAll(PageRequest.of(page, ApplicationConfig.FILE_MIGRATION_BATCH_SIZE, Sort.by(Sort.Direction.ASC, "id")));
+                totalCount.set(fileEntityPage.getTotalElements());
+                for (FileEntity fileEntity : fileEntityPage.getContent()) {
+                    migrateFile(fileEntity, oldFileList);
+                }
+                page = page + 1;
+            } while (fileEntityPage.hasNext());
+            // 部署清单中记录了文件保存位置，重新生成
+            if (!oldFileList.isEmpty()) {
+                deployManifestService.clearDeployManifests();
+            }
+            log.info("OMS服务器-文件存储迁移完成，迁移：" + migratedCount.get() + "，无需迁移：" + skippedCount.get() + "，失败：" + failedCount.get() + "，原文件将在" + ApplicationConfig.FILE_MIGRATION_GRACE_TIME + "ms后删除");
+            pendingDeleteCount.set(oldFileList.size());
+            while (!oldFileList.isEmpty()) {
+                Thread.sleep(ApplicationConfig.FILE_MIGRATION_GRACE_TIME);
+                Iterator<File> iterator = oldFileList.iterator();
+                while (iterator.hasNext()) {
+                    File oldFile = iterator.next();
+                    if (deployManifestService.isLocalPathReferenced(oldFile.getAbsolutePath())) {
+                        continue;
+                    }
+                    FileUtils.deleteQuietly(oldFile);
+                    iterator.remove();
+                    pendingDeleteCount.decrementAndGet();
+                }
+                if (!oldFileList.isEmpty()) {
+                    log.info("OMS服务器-" + oldFileList.size() + "个原文件仍被部署清单引用，推迟删除");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.info("OMS服务器-文件存储迁移失败：" + e.getMessage());
+        } finally {
+            endTime = new Date();
+            running.set(false);
+        }
+    }
+
+    // 查询迁移状态
+    public FileStoreMigrationEntity getFileStoreMigration() {
+        FileStoreMigrationEntity fileStoreMigrationEntity = new FileStoreMigrationEntity();
+        fileStoreMigrationEntity.setRunning(running.get());
+        fileStoreMigrationEntity.setStartTime(startTime);
+        fileStoreMigrationEntity.setEndTime(endTime);
+        fileStoreMigrationEntity.setTotalCount(totalCount.get());
+        fileStoreMigrationEntity.setMigratedCount(migratedCount.get());
+        fileStoreMigrationEntity.setSkippedCount(skippedCount.get());
+        fileStoreMigrationEntity.setFailedCount(failedCount.get());
+        fileStoreMigrationEntity.setPendingDeleteCount(pendingDeleteCount.get());
+        return fileStoreMigrationEntity;
+    }
+
+    private void migrateFile(FileEntity fileEntity, List<File> oldFileList) {
+        File file = new File(fileEntity.getLocalPath());
+        File storeFile = fileStoreService.getStoreFile(fileEntity.getMD5(), fileEntity.getType());
+        if (file.getAbsolutePath().equals(storeFile.getAbsolutePath())) {
+            skippedCount.incrementAndGet();
+            return;
+        }
+        if (!file.exists()) {
+            failedCount.incrementAndGet();
+            log.info(fileEntity.getMD5() + ":文件存储迁移失败，未发现文件：" + file.getAbsolutePath());
+            return;
+        }
+        try {
+            storeFile = fileStoreService.link(file, fileEntity.getMD5(), fileEntity.getType());
+            fileService.updateFileLocalPath(fileEntity, storeFile);
+            // 修改保存位置前开始生成的部署清单不再缓存
+            deployManifestService.invalidateDeployManifests();
+            oldFileList.add(file);
+            migratedCount.incrementAndGet();
+        } catch (IOException e) {
+            failedCount.incrementAndGet();
+            log.info(fileEntity.getMD5() + ":文件存储迁移失败：" + e.getMessage());
+        }
+    }
+}
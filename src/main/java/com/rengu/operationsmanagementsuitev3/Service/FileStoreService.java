@@ -0,0 +1,107 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * 文件内容存储：按MD5分两级目录保存文件(FILES_SAVE_PATH/ab/cd/MD5.扩展名)，避免单个目录下文件过多。
+ * 文件先写入存储路径下的临时目录，写入磁盘后原子重命名到最终位置，已存在相同MD5的文件时直接使用已有文件。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 18:05
+ **/
+
+@Slf4j
+@Service
+public class FileStoreService {
+
+    // 获取MD5对应的存储文件
+    public File getStoreFile(String MD5, String extension) {
+        String fileName = StringUtils.isEmpty(extension) ? MD5 : MD5 + "." + extension;
+        return new File(ApplicationConfig.FILES_SAVE_PATH + File.separator + MD5.substring(0, 2) + File.separator + MD5.substring(2, 4) + File.separator + fileName);
+    }
+
+    // 创建临时文件，与存储文件位于同一文件系统，保证提交时可以原子重命名
+    public File createTempFile() throws IOException {
+        File tempFile = new File(ApplicationConfig.FILES_SAVE_PATH + File.separator + "tmp" + File.separator + UUID.randomUUID().toString() + ".tmp");
+        FileUtils.forceMkdir(tempFile.getParentFile());
+        return tempFile;
+    }
+
+    // 提交文件：写入磁盘后原子重命名为存储文件，不同文件系统的文件先复制到临时文件，提交后删除源文件
+    public File commit(File file, String MD5, String extension) throws IOException {
+        File storeFile = getStoreFile(MD5, extension);
+        if (storeFile.exists() && storeFile.length() == file.length()) {
+            FileUtils.deleteQuietly(file);
+            return storeFile;
+        }
+        FileUtils.forceMkdir(storeFile.getParentFile());
+        force(file);
+        try {
+            Files.move(file.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            File tempFile = createTempFile();
+            try {
+                Files.copy(file.toPath(), tempFile.toPath());
+                force(tempFile);
+                Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                FileUtils.deleteQuietly(tempFile);
+            }
+            FileUtils.deleteQuietly(file);
+        }
+        forceDirectory(storeFile.getParentFile());
+        return storeFile;
+    }
+
+    // 将已有文件加入存储(硬链接，无法链接时复制)，保留原文件，用于在线迁移
+    public File link(File file, String MD5, String extension) throws IOException {
+        File storeFile = getStoreFile(MD5, extension);
+        if (storeFile.exists() && storeFile.length() == file.length()) {
+            return storeFile;
+        }
+        FileUtils.forceMkdir(storeFile.getParentFile());
+        File tempFile = createTempFile();
+        try {
+            try {
+                Files.createLink(tempFile.toPath(), file.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(file.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                force(tempFile);
+            }
+            Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+        forceDirectory(storeFile.getParentFile());
+        return storeFile;
+    }
+
+    private void force(File file) throws IOException {
+        @Cleanup FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        fileChannel.force(true);
+    }
+
+    // 目录写入磁盘保证重命名持久化，部分系统不支持打开目录，忽略失败
+    private void forceDirectory(File directory) {
+        try {
+            @Cleanup FileChannel fileChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+            fileChannel.force(true);
+        } catch (IOException e) {
+            log.debug(directory.getAbsolutePath() + ":目录写入磁盘失败：" + e.getMessage());
+        }
+    }
+}
@@ -11,10 +11,7 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
@@ -37,11 +34,11 @@ public class ScanHandlerService {
     public static final Map<String, List<ProcessScanResultEntity>> PROCESS_SCAN_RESULT = new ConcurrentHashMap<>();
     public static final Map<String, List<DeploymentDesignScanResultDetailEntity>> DEPLOY_DESIGN_SCAN_RESULT = new ConcurrentHashMap<>();
 
-    private final ComponentFileHistoryService componentFileHistoryService;
+    private final DeployManifestService deployManifestService;
 
     @Autowired
-    public ScanHandlerService(ComponentFileHistoryService componentFileHistoryService) {
-        this.componentFileHistoryService = componentFileHistoryService;
+    public ScanHandlerService(DeployManifestService deployManifestService) {
+        this.deployManifestService = deployManifestService;
     }
 
     @Async
@@ -92,64 +89,48 @@ public class ScanHandlerService {
                 List<DeploymentDesignScanResultDetailEntity> deploymentDesignScanResultDetailEntityList = DEPLOY_DESIGN_SCAN_RESULT.get(orderEntity.getId());
                 ComponentHistoryEntity componentHistoryEntity = deploymentDesignDetailEntity.getComponentHistoryEntity();
                 String targetPath = orderEntity.getTargetPath();
+                // 按相对路径索引部署清单中的文件
+                List<DeployManifestFileEntity> deployManifestFileEntityList = deployManifestService.getDeployManifest(componentHistoryEntity).getDeployManifestFileEntityList();
+                Map<String, DeployManifestFileEntity> deployManifestFileMap = new HashMap<>();
+                for (DeployManifestFileEntity deployManifestFileEntity : deployManifestFileEntityList) {
+                    deployManifestFileMap.putIfAbsent(deployManifestFileEntity.getRelativePath(), deployManifestFileEntity);
+                }
+                Set<String> foundPathSet = new HashSet<>();
                 // 初始化结果列表
                 List<DeploymentDesignScanResultDetailEntity> resultList = new ArrayList<>();
                 for (DeploymentDesignScanResultDetailEntity deploymentDesignScanResultDetailEntity : deploymentDesignScanResultDetailEntityList) {
-                    boolean hasFile = false;
                     String relativePath = deploymentDesignScanResultDetailEntity.getTargetPath().replace(targetPath, "");
-                    for (ComponentFileHistoryEntity componentFileHistoryEntity : componentFileHistoryService.getComponentFileHistorysByComponentHistory(componentHistoryEntity)) {
-                        if (!componentFileHistoryEntity.isFolder()) {
-                            if (relativePath.equals(FormatUtils.getComponentFileHistoryRelativePath(componentFileHistoryEntity, ""))) {
-                                hasFile = true;
-                                // 路径相同
-                                if (deploymentDesignScanResultDetailEntity.getMd5().equals(componentFileHistoryEntity.getFileEntity().getMD5())) {
-                                    // MD5相同
-                                    deploymentDesignScanResultDetailEntity.setType(SCAN_TYPE_CORRECT);
-                                    log.info("发现正确部署文件：" + deploymentDesignScanResultDetailEntity.getTargetPath());
-                                    resultList.add(deploymentDesignScanResultDetailEntity);
-                                    break;
-                                } else {
-                                    // MD5变化
-                                    deploymentDesignScanResultDetailEntity.setType(SCAN_TYPE_MODIFYED);
-                                    log.info("发现修改文件：" + deploymentDesignScanResultDetailEntity.getTargetPath() + ",上报MD5：" + deploymentDesignScanResultDetailEntity.getMd5() + ",服务器MD5：" + componentFileHistoryEntity.getFileEntity().getMD5());
-                                    resultList.add(deploymentDesignScanResultDetailEntity);
-                                    break;
-                                }
-                            }
+                    DeployManifestFileEntity deployManifestFileEntity = deployManifestFileMap.get(relativePath);
+                    if (deployManifestFileEntity != null) {
+                        // 路径相同
+                        foundPathSet.add(relativePath);
+                        if (deploymentDesignScanResultDetailEntity.getMd5().equals(deployManifestFileEntity.getMD5())) {
+                            // MD5相同
+                            deploymentDesignScanResultDetailEntity.setType(SCAN_TYPE_CORRECT);
+                            log.info("发现正确部署文件：" + deploymentDesignScanResultDetailEntity.getTargetPath());
+                        } else {
+                            // MD5变化
+                            deploymentDesignScanResultDetailEntity.setType(SCAN_TYPE_MODIFYED);
+                            log.info("发现修改文件：" + deploymentDesignScanResultDetailEntity.getTargetPath() + ",上报MD5：" + deploymentDesignScanResultDetailEntity.getMd5() + ",服务器MD5：" + deployManifestFileEntity.getMD5());
                         }
-                    }
-                    // 未知文件
-                    if (!hasFile) {
+                        resultList.add(deploymentDesignScanResultDetailEntity);
+                    } else {
+                        // 未知文件
                         log.info("发现未知文件：" + deploymentDesignScanResultDetailEntity.getTargetPath() + ",局部替换后路径：" + relativePath);
                         deploymentDesignScanResultDetailEntity.setType(SCAN_TYPE_UNKNOWN);
                         resultList.add(deploymentDesignScanResultDetailEntity);
                     }
                 }
-                // 生成缺失文件
-                List<ComponentFileHistoryEntity> componentFileHistoryEntityList = componentFileHistoryService.getComponentFileHistorysByComponentHistory(componentHistoryEntity);
-                Iterator<ComponentFileHistoryEntity> componentFileHistoryEntityIterator = componentFileHistoryEntityList.iterator();
-                while (componentFileHistoryEntityIterator.hasNext()) {
-                    ComponentFileHistoryEntity componentFileHistoryEntity = componentFileHistoryEntityIterator.next();
-                    if (componentFileHistoryEntity.isFolder()) {
-                        componentFileHistoryEntityIterator.remove();
-                    } else {
-                        for (DeploymentDesignScanResultDetailEntity deploymentDesignScanResultDetailEntity : deploymentDesignScanResultDetailEntityList) {
-                            String relativePath = deploymentDesignScanResultDetailEntity.getTargetPath().replace(targetPath, "");
-                            // 路径相同，文件发现，移除
-                            if (FormatUtils.getComponentFileHistoryRelativePath(componentFileHistoryEntity, "").equals(relativePath)) {
-                                componentFileHistoryEntityIterator.remove();
-                                break;
-                            }
-                        }
+                // 生成缺失文件结果：清单中未被扫描发现的文件
+                for (DeployManifestFileEntity deployManifestFileEntity : deployManifestFileEntityList) {
+                    if (foundPathSet.contains(deployManifestFileEntity.getRelativePath())) {
+                        continue;
                     }
-                }
-                // 生成缺失文件结果
-                for (ComponentFileHistoryEntity componentFileHistoryEntity : componentFileHistoryEntityList) {
                     DeploymentDesignScanResultDetailEntity deploymentDesignScanResultDetailEntity = new DeploymentDesignScanResultDetailEntity();
                     deploymentDesignScanResultDetailEntity.setType(SCAN_TYPE_MISSING);
-                    deploymentDesignScanResultDetailEntity.setTargetPath(FormatUtils.formatPath(orderEntity.getTargetPath() + FormatUtils.getComponentFileHistoryRelativePath(componentFileHistoryEntity, "")));
+                    deploymentDesignScanResultDetailEntity.setTargetPath(FormatUtils.formatPath(orderEntity.getTargetPath() + deployManifestFileEntity.getRelativePath()));
                     deploymentDesignScanResultDetailEntity.setName(FilenameUtils.getName(deploymentDesignScanResultDetailEntity.getTargetPath()));
-                    deploymentDesignScanResultDetailEntity.setMd5(componentFileHistoryEntity.getFileEntity().getMD5());
+                    deploymentDesignScanResultDetailEntity.setMd5(deployManifestFileEntity.getMD5());
                     log.info("发现缺失文件：" + deploymentDesignScanResultDetailEntity.getTargetPath());
                     resultList.add(deploymentDesignScanResultDetailEntity);
                 }
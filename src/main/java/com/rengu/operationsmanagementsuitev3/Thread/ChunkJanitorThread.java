@@ -0,0 +1,45 @@
+package com.rengu.operationsmanagementsuitev3.Thread;
+
+import com.rengu.operationsmanagementsuitev3.Service.ChunkJanitorService;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件块清理线程：按固定间隔清理已合并、已过期及超过配额的上传文件块
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 17:45
+ **/
+
+@Slf4j
+@Component
+public class ChunkJanitorThread {
+
+    private final ChunkJanitorService chunkJanitorService;
+
+    @Autowired
+    public ChunkJanitorThread(ChunkJanitorService chunkJanitorService) {
+        this.chunkJanitorService = chunkJanitorService;
+    }
+
+    // 文件块清理线程
+    @Async
+    public void ChunkJanitor() {
+        log.info("OMS服务器-启动文件块清理线程，清理间隔：" + ApplicationConfig.CHUNK_JANITOR_INTERVAL + "ms，配额：" + ApplicationConfig.CHUNK_QUOTA_SIZE + "字节");
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                try {
+                    chunkJanitorService.cleanChunks();
+                } catch (RuntimeException e) {
+                    log.info("OMS服务器-文件块清理失败：" + e.getMessage());
+                }
+                Thread.sleep(ApplicationConfig.CHUNK_JANITOR_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.rengu.operationsmanagementsuitev3.Thread;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeployLogDetailEntity;
+import com.rengu.operationsmanagementsuitev3.Service.DeployLogDetailService;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 部署日志详情写入线程：部署线程在文件部署结束时提交日志详情，
+ * 由本线程按数量或时间阈值批量写入数据库，部署过程中即可查询已完成的文件记录。
+ * 传输中的文件按间隔提交续传检查点，同一文件只保存最新的检查点，文件结束时由结束记录覆盖。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 15:06
+ **/
+
+@Slf4j
+@Component
+public class DeployLogWriterThread {
+
+    // 队列满时提交方等待写入，避免数据库异常时无限占用内存
+    private final BlockingQueue<DeployLogDetailEntity> deployLogDetailQueue = new ArrayBlockingQueue<>(ApplicationConfig.DEPLOY_LOG_QUEUE_SIZE);
+    // 日志详情Id -> 待保存的续传检查点
+    private final Map<String, DeployLogDetailEntity> checkpointMap = new ConcurrentHashMap<>();
+    // 已按检查点保存过的日志详情Id，结束记录需要更新而不是插入
+    private final Set<String> checkpointIdSet = ConcurrentHashMap.newKeySet();
+    private final DeployLogDetailService deployLogDetailService;
+
+    @Autowired
+    public DeployLogWriterThread(DeployLogDetailService deployLogDetailService) {
+        this.deployLogDetailService = deployLogDetailService;
+    }
+
+    // 提交日志详情
+    public void append(DeployLogDetailEntity deployLogDetailEntity) {
+        checkpointMap.remove(deployLogDetailEntity.getId());
+        try {
+            deployLogDetailQueue.put(deployLogDetailEntity);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 无法排队时直接写入，保证记录不丢失
+            deployLogDetailService.saveDeployLogDetails(new ArrayList<>(Collections.singletonList(deployLogDetailEntity)));
+        }
+    }
+
+    // 提交续传检查点，不阻塞提交方，同一文件未写入的检查点被新的检查点替换
+    public void appendCheckpoint(DeployLogDetailEntity deployLogDetailEntity) {
+        checkpointMap.put(deployLogDetailEntity.getId(), deployLogDetailEntity);
+    }
+
+    // 部署日志写入线程
+    @Async
+    public void DeployLogWriter() {
+        log.info("OMS服务器-启动部署日志写入线程，批量大小：" + ApplicationConfig.DEPLOY_LOG_BATCH_SIZE + "，写入间隔：" + ApplicationConfig.DEPLOY_LOG_FLUSH_TIME + "ms");
+        List<DeployLogDetailEntity> deployLogDetailEntityList = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                // 等待第一条记录，之后在写入间隔内继续收集直到达到批量大小；没有记录时按间隔保存检查点
+                DeployLogDetailEntity deployLogDetailEntity = deployLogDetailQueue.poll(ApplicationConfig.DEPLOY_LOG_FLUSH_TIME, TimeUnit.MILLISECONDS);
+                writeCheckpoints();
+                if (deployLogDetailEntity == null) {
+                    continue;
+                }
+                deployLogDetailEntityList.add(deployLogDetailEntity);
+                long deadline = System.currentTimeMillis() + ApplicationConfig.DEPLOY_LOG_FLUSH_TIME;
+                while (deployLogDetailEntityList.size() < ApplicationConfig.DEPLOY_LOG_BATCH_SIZE) {
+                    long waitTime = deadline - System.currentTimeMillis();
+                    if (waitTime <= 0) {
+                        break;
+                    }
+                    deployLogDetailEntity = deployLogDetailQueue.poll(waitTime, TimeUnit.MILLISECONDS);
+                    if (deployLogDetailEntity == null) {
+                        break;
+                    }
+                    deployLogDetailEntityList.add(deployLogDetailEntity);
+                    deployLogDetailQueue.drainTo(deployLogDetailEntityList, ApplicationConfig.DEPLOY_LOG_BATCH_SIZE - deployLogDetailEntityList.size());
+                }
+                write(deployLogDetailEntityList);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                deployLogDetailEntityList.clear();
+            }
+        }
+    }
+
+    // 服务关闭时写入队列中剩余的记录
+    @PreDestroy
+    public void flush() {
+        writeCheckpoints();
+        List<DeployLogDetailEntity> deployLogDetailEntityList = new ArrayList<>();
+        while (deployLogDetailQueue.drainTo(deployLogDetailEntityList, ApplicationConfig.DEPLOY_LOG_BATCH_SIZE) > 0) {
+            write(deployLogDetailEntityList);
+            deployLogDetailEntityList.clear();
+        }
+    }
+
+    // 保存检查点，已提交结束记录的文件不再保存
+    private void writeCheckpoints() {
+        if (checkpointMap.isEmpty()) {
+            return;
+        }
+        List<DeployLogDetailEntity> deployLogDetailEntityList = new ArrayList<>();
+        for (DeployLogDetailEntity deployLogDetailEntity : checkpointMap.values()) {
+            if (checkpointMap.remove(deployLogDetailEntity.getId(), deployLogDetailEntity)) {
+                // 先登记再保存，之后提交的结束记录按更新处理
+                checkpointIdSet.add(deployLogDetailEntity.getId());
+                deployLogDetailEntityList.add(deployLogDetailEntity);
+            }
+        }
+        try {
+            deployLogDetailService.saveDeployLogDetails(deployLogDetailEntityList);
+        } catch (Exception e) {
+            log.info("部署续传检查点写入失败，丢弃" + deployLogDetailEntityList.size() + "条记录：" + e.getMessage());
+        }
+    }
+
+    private void write(List<DeployLogDetailEntity> deployLogDetailEntityList) {
+        if (deployLogDetailEntityList.isEmpty()) {
+            return;
+        }
+        // 已保存过检查点的记录更新，其余批量插入
+        List<DeployLogDetailEntity> updateDetailList = new ArrayList<>();
+        deployLogDetailEntityList.removeIf(deployLogDetailEntity -> checkpointIdSet.remove(deployLogDetailEntity.getId()) && updateDetailList.add(deployLogDetailEntity));
+        if (!updateDetailList.isEmpty()) {
+            try {
+                deployLogDetailService.saveDeployLogDetails(updateDetailList);
+            } catch (Exception e) {
+                log.info("部署日志写入失败，丢弃" + updateDetailList.size() + "条记录：" + e.getMessage());
+            }
+            if (deployLogDetailEntityList.isEmpty()) {
+                return;
+            }
+        }
+        try {
+            deployLogDetailService.insertDeployLogDetails(deployLogDetailEntityList);
+        } catch (Exception e) {
+            // 批量插入失败(如记录已存在)时逐条合并保存
+            log.info("部署日志批量写入失败，改为逐条保存：" + e.getMessage());
+            try {
+                deployLogDetailService.saveDeployLogDetails(deployLogDetailEntityList);
+            } catch (Exception exception) {
+                log.info("部署日志写入失败，丢弃" + deployLogDetailEntityList.size() + "条记录：" + exception.getMessage());
+            }
+        }
+    }
+}
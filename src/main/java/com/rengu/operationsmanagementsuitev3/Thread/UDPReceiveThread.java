@@ -3,6 +3,7 @@ package com.rengu.operationsmanagementsuitev3.Thread;
 import com.rengu.operationsmanagementsuitev3.Entity.HeartbeatEntity;
 import com.rengu.operationsmanagementsuitev3.Service.DeviceService;
 import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
 import com.rengu.operationsmanagementsuitev3.Utils.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,7 +35,11 @@ public class UDPReceiveThread {
     @Async
     public void UDPMessageReceiver() throws IOException {
         log.info("OMS服务器-启动客户端UDP报文监听线程，监听端口：" + ApplicationConfig.UDP_RECEIVE_PORT);
-        DatagramSocket datagramSocket = new DatagramSocket(ApplicationConfig.UDP_RECEIVE_PORT);
+        receiveHeartbeats(new DatagramSocket(ApplicationConfig.UDP_RECEIVE_PORT));
+    }
+
+    // 接收并解析心跳报文，更新在线设备，Socket关闭后抛出异常结束
+    public void receiveHeartbeats(DatagramSocket datagramSocket) throws IOException {
         DatagramPacket datagramPacket = new DatagramPacket(new byte[512], 512);
         while (true) {
             datagramSocket.receive(datagramPacket);
@@ -50,6 +55,7 @@ public class UDPReceiveThread {
             double downLoadSpeed = 0.0;
             int OSType = 0;
             String OSName = "";
+            int deployCapability = 0;
             try {
                 String codeType = new String(bytes, pointer, 4).trim();
                 pointer = pointer + 4;
@@ -70,6 +76,11 @@ public class UDPReceiveThread {
                 upLoadSpeed = Double.parseDouble(new String(bytes, pointer, 8).trim());
                 pointer = pointer + 8;
                 downLoadSpeed = Double.parseDouble(new String(bytes, pointer, 8).trim());
+                pointer = pointer + 8;
+                // 新版客户端在报文末尾追加部署能力字段，旧版客户端报文长度不足或以'\0'填充时视为不支持
+                if (datagramPacket.getLength() >= pointer + DeployProtocolUtils.CAPABILITY_LENGTH) {
+                    deployCapability = (int) DeployProtocolUtils.parseNumber(bytes, pointer, DeployProtocolUtils.CAPABILITY_LENGTH, 0);
+                }
             } catch (Exception e) {
                 log.info("心跳格式解析异常:" + e.getMessage());
                 e.printStackTrace();
@@ -85,6 +96,7 @@ public class UDPReceiveThread {
             heartbeatEntity.setDownLoadSpeed(downLoadSpeed);
             heartbeatEntity.setOSType(OSType);
             heartbeatEntity.setOSName(OSName);
+            heartbeatEntity.setDeployCapability(deployCapability);
             simpMessagingTemplate.convertAndSend("/deviceInfo/" + heartbeatEntity.getHostAddress(), JsonUtils.toJson(heartbeatEntity));
             if (!DeviceService.ONLINE_HOST_ADRESS.containsKey(heartbeatEntity.getHostAddress())) {
                 log.info(heartbeatEntity.getHostAddress() + "----->建立服务器连接。");
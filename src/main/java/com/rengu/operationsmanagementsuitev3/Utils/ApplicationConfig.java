@@ -29,11 +29,95 @@ public class ApplicationConfig {
 
     // 文件块保存路径
     public static final String CHUNKS_SAVE_PATH = FormatUtils.formatPath(FileUtils.getTempDirectoryPath() + File.separator + "OMS" + File.separator + "CHUNKS");
+    // 文件块直接写入目标文件的对应位置(不生成文件块临时文件)，关闭时按文件块临时文件保存后合并
+    public static final boolean CHUNK_POSITIONAL_WRITE = true;
+    // 文件块清理间隔、上传有效期(超过该时间未更新的上传被删除)、文件块总大小配额及每次删除后的暂停时间
+    public static final long CHUNK_JANITOR_INTERVAL = 1000 * 60 * 10;
+    public static final long CHUNK_EXPIRE_TIME = 1000 * 60 * 60 * 24;
+    public static final long CHUNK_QUOTA_SIZE = 1024L * 1024 * 1024 * 10;
+    public static final long CHUNK_JANITOR_DELETE_INTERVAL = 20;
+    // 异步上传文件块的读取缓冲区大小(每个上传连接一个)及上传超时时间
+    public static final int CHUNK_UPLOAD_BUFFER_SIZE = 1024 * 64;
+    public static final long CHUNK_UPLOAD_TIME_OUT = 1000 * 60 * 30;
+    // 合并文件块时的读写缓冲区大小
+    public static final int FILE_MERGE_BUFFER_SIZE = 1024 * 1024;
     // 文件保存路径
     public static final String FILES_SAVE_PATH = FormatUtils.formatPath(FileUtils.getUserDirectoryPath() + File.separator + "OMS" + File.separator + "FILES");
+    // 文件存储迁移后保留原文件的时间，期间已生成的部署信息仍可读取原文件
+    public static final long FILE_MIGRATION_GRACE_TIME = 1000 * 60 * 10;
+    // 文件存储迁移每批处理的文件数
+    public static final int FILE_MIGRATION_BATCH_SIZE = 100;
+    // 部署清单保存路径及内存中缓存的清单数量
+    public static final String MANIFESTS_SAVE_PATH = FormatUtils.formatPath(FileUtils.getUserDirectoryPath() + File.separator + "OMS" + File.separator + "MANIFESTS");
+    public static final int DEPLOY_MANIFEST_CACHE_SIZE = 256;
+    // 部署包保存路径及打包部署的最少文件数量
+    public static final String BUNDLES_SAVE_PATH = FormatUtils.formatPath(FileUtils.getUserDirectoryPath() + File.separator + "OMS" + File.separator + "BUNDLES");
+    public static final int DEPLOY_BUNDLE_MIN_FILES = 100;
 
     // 扫描超时时间
     public static final long SCAN_TIME_OUT = 1000 * 10;
     // 部署回复超时时间
     public static final long REPLY_TIME_OUT = 1000 * 10;
+    // 部署时单次transferTo发送的最大字节数(同时决定进度上报粒度)
+    public static final long DEPLOY_TRANSFER_SIZE = 1024 * 512;
+    // 文件剩余发送大小超过该值时启用预读，由读取线程预先读入直接缓冲区(每个DEPLOY_TRANSFER_SIZE大小)，
+    // 预读深度为单个文件最多预读的缓冲区数(0表示关闭，直接transferTo)，缓冲区总数为全部部署共用的上限
+    public static final long DEPLOY_READ_AHEAD_MIN_SIZE = 1024 * 1024 * 4;
+    public static final int DEPLOY_READ_AHEAD_DEPTH = 4;
+    public static final int DEPLOY_READ_AHEAD_BUFFER_COUNT = 128;
+    // 单台设备最多部署次数(含首次)、首次重试间隔及最长重试间隔(毫秒)，重试间隔按2倍递增
+    public static final int DEPLOY_RETRY_TIMES = 3;
+    public static final long DEPLOY_RETRY_INTERVAL = 1000;
+    public static final long DEPLOY_RETRY_MAX_INTERVAL = 1000 * 30;
+    // 部署调度器全局并发设备数
+    public static final int DEPLOY_GLOBAL_CONCURRENCY = 50;
+    // 单个部署设计默认并发设备数
+    public static final int DEPLOY_DESIGN_CONCURRENCY = 20;
+    // 调度器定时检查等待任务的间隔(设备被调度器以外的部署占用时，释放后由定时检查重新调度)
+    public static final long DEPLOY_DISPATCH_INTERVAL = 1000;
+    // 部署设计全部任务结束后保留调度进度的时间，超时后清除
+    public static final long DEPLOY_SCHEDULE_RETAIN_TIME = 1000 * 60 * 30;
+    // 增量部署时可直接使用的扫描结果有效期
+    public static final long DEPLOY_SCAN_CACHE_TIME = 1000 * 60 * 5;
+    // 服务器启用的扩展部署能力(与客户端心跳上报的能力取交集)
+    public static final int DEPLOY_CAPABILITY = DeployProtocolUtils.CAPABILITY_PIPELINE | DeployProtocolUtils.CAPABILITY_RESUME | DeployProtocolUtils.CAPABILITY_DELTA | DeployProtocolUtils.CAPABILITY_COMPRESS | DeployProtocolUtils.CAPABILITY_MULTICAST | DeployProtocolUtils.CAPABILITY_BUNDLE | DeployProtocolUtils.CAPABILITY_COPY;
+    // 流水线部署时允许同时在途(已发送未确认)的文件数
+    public static final int DEPLOY_PIPELINE_WINDOW = 32;
+    // 文件大小超过该值时尝试差量传输
+    public static final long DEPLOY_DELTA_MIN_SIZE = 1024 * 1024;
+    // 设备未配置压缩级别时使用的默认压缩级别(优先速度)
+    public static final int DEPLOY_COMPRESS_LEVEL = 1;
+    // 部署进度推送间隔(毫秒)，传输中的进度按该频率合并推送
+    public static final long DEPLOY_PROGRESS_INTERVAL = 250;
+    // 非阻塞部署引擎：I/O线程数、超时检查间隔(毫秒)、默认是否启用及可协商的扩展能力(仅流水线，续传、差量及压缩仍由阻塞引擎处理)
+    public static final int DEPLOY_SELECTOR_THREADS = 4;
+    public static final long DEPLOY_SELECTOR_TICK = 50;
+    public static final boolean DEPLOY_SELECTOR_ENGINE = false;
+    public static final int DEPLOY_SELECTOR_CAPABILITY = DeployProtocolUtils.CAPABILITY_PIPELINE;
+    // 部署带宽限制(字节/秒，0表示不限制)，默认不限制，需要为心跳、扫描等控制报文保留余量时在运行时设置
+    public static final long DEPLOY_GLOBAL_RATE = 0;
+    public static final long DEPLOY_PROJECT_RATE = 0;
+    public static final long DEPLOY_DEVICE_RATE = 0;
+    // 令牌桶容量对应的时间(毫秒)，决定允许的突发流量
+    public static final long DEPLOY_RATE_BURST_TIME = 200;
+    // 设备部署吞吐量(kb/s)：指数加权平均系数、无历史记录时的默认值、参与统计的最小部署大小及启动时读取的历史记录数
+    public static final double DEPLOY_THROUGHPUT_ALPHA = 0.3;
+    public static final double DEPLOY_THROUGHPUT_DEFAULT = 1024 * 10;
+    public static final long DEPLOY_THROUGHPUT_MIN_SIZE = 1024 * 1024;
+    public static final int DEPLOY_THROUGHPUT_HISTORY = 10;
+    // 部署日志详情写入：队列容量、单批写入数量及最长等待时间(毫秒)
+    public static final int DEPLOY_LOG_QUEUE_SIZE = 10000;
+    public static final int DEPLOY_LOG_BATCH_SIZE = 100;
+    public static final long DEPLOY_LOG_FLUSH_TIME = 500;
+    // 部署过程中保存断点续传检查点(客户端已确认写入的字节数)的间隔(毫秒)，进程异常退出后仍可续传
+    public static final long DEPLOY_CHECKPOINT_INTERVAL = 1000 * 5;
+    // 组播部署端口、TTL(仅限本网段)、单个数据报承载的文件块大小(不超过以太网MTU)
+    public static final int DEPLOY_MULTICAST_PORT = 3089;
+    public static final int DEPLOY_MULTICAST_TTL = 1;
+    public static final int DEPLOY_MULTICAST_BLOCK_SIZE = 1400;
+    // 组播发送速率(字节/秒)，避免突发流量超出交换机及设备接收缓冲
+    public static final long DEPLOY_MULTICAST_RATE = 1024 * 1024 * 8;
+    // 每轮等待设备回复接收状态的时间及最大修复轮数，超过轮数仍未完成的设备改为单播部署
+    public static final long DEPLOY_MULTICAST_NACK_TIME = 500;
+    public static final int DEPLOY_MULTICAST_REPAIR_ROUNDS = 5;
 }
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.rengu.operationsmanagementsuitev3.Utils;
 
 import com.rengu.operationsmanagementsuitev3.Entity.RoleEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.DeployLogEntity;
 import com.rengu.operationsmanagementsuitev3.Entity.UserEntity;
+import com.rengu.operationsmanagementsuitev3.Service.DeployLogService;
 import com.rengu.operationsmanagementsuitev3.Service.RoleService;
 import com.rengu.operationsmanagementsuitev3.Service.UserService;
+import com.rengu.operationsmanagementsuitev3.Thread.ChunkJanitorThread;
+import com.rengu.operationsmanagementsuitev3.Thread.DeployLogWriterThread;
 import com.rengu.operationsmanagementsuitev3.Thread.TCPReceiveThread;
 import com.rengu.operationsmanagementsuitev3.Thread.UDPReceiveThread;
 import lombok.extern.slf4j.Slf4j;
@@ -17,6 +21,7 @@ import org.springframework.stereotype.Component;
 import java.io.File;
 import java.io.IOException;
 import java.net.InterfaceAddress;
+import java.util.List;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -33,13 +38,19 @@ public class ApplicationInit implements ApplicationRunner {
     private final UserService userService;
     private final TCPReceiveThread tcpReceiveThread;
     private final UDPReceiveThread udpReceiveThread;
+    private final DeployLogWriterThread deployLogWriterThread;
+    private final ChunkJanitorThread chunkJanitorThread;
+    private final DeployLogService deployLogService;
 
     @Autowired
-    public ApplicationInit(RoleService roleService, UserService userService, TCPReceiveThread tcpReceiveThread, UDPReceiveThread udpReceiveThread) {
+    public ApplicationInit(RoleService roleService, UserService userService, TCPReceiveThread tcpReceiveThread, UDPReceiveThread udpReceiveThread, DeployLogWriterThread deployLogWriterThread, ChunkJanitorThread chunkJanitorThread, DeployLogService deployLogService) {
         this.roleService = roleService;
         this.userService = userService;
         this.tcpReceiveThread = tcpReceiveThread;
         this.udpReceiveThread = udpReceiveThread;
+        this.deployLogWriterThread = deployLogWriterThread;
+        this.chunkJanitorThread = chunkJanitorThread;
+        this.deployLogService = deployLogService;
     }
 
     @Override
@@ -56,10 +67,19 @@ public class ApplicationInit implements ApplicationRunner {
         if (!file.exists()) {
             FileUtils.forceMkdir(file);
         }
+        // 上次运行时未结束的部署日志标记为未完成，需在开始接受部署请求前完成
+        List<DeployLogEntity> deployLogEntityList = deployLogService.finishInterruptedDeployLogs();
+        if (!deployLogEntityList.isEmpty()) {
+            log.info("OMS服务器-标记上次运行中断的部署日志：" + deployLogEntityList.size() + "条");
+        }
         // 启动TCP消息接受线程
         tcpReceiveThread.TCPMessageReceiver();
         // 启动UDP消息接受线程
         udpReceiveThread.UDPMessageReceiver();
+        // 启动部署日志写入线程
+        deployLogWriterThread.DeployLogWriter();
+        // 启动文件块清理线程
+        chunkJanitorThread.ChunkJanitor();
         // 初始化默认管理员角色
         if (!roleService.hasRoleByName(ApplicationConfig.DEFAULT_ADMIN_ROLE_NAME)) {
             RoleEntity roleEntity = new RoleEntity();
@@ -52,6 +52,7 @@ public class ApplicationMessages {
     public static final String DEVICE_NOT_ONLINE = "该设备不在线：";
     public static final String DEVICE_IS_DEPOLOYING = "该设备正在部署：";
     public static final String DEVICE_IS_OFFLINE = "该设备已离线：";
+    public static final String DEVICE_COMPRESS_LEVEL_ARGS_NOT_FOUND = "设备压缩级别参数不合法(0-9)：";
 
     // 组件相关提示信息
     public static final String COMPONENT_NAME_ARGS_NOT_FOUND = "组件名参数不存在或不合法";
@@ -75,6 +76,7 @@ public class ApplicationMessages {
     public static final String FILE_MD5_ARGS_NOT_FOUND = "文件MD5不存在或不合法";
     public static final String FILE_MD5_NOT_FOUND = "未发现该文件MD5：";
     public static final String FILE_MD5_EXISTED = "该文件MD5已存在：";
+    public static final String FILE_STORE_MIGRATING = "文件存储迁移正在进行";
     public static final String FILE_ID_ARGS_NOT_FOUND = "文件Id参数不存在或不合法";
     public static final String FILE_ID_NOT_FOUND = "未发现该文件Id：";
     public static final String FILE_ID_EXISTED = "该文件Id已存在：";
@@ -12,7 +12,10 @@ import org.apache.commons.io.IOUtils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @program: OperationsManagementSuiteV3
@@ -27,6 +30,13 @@ public class CompressUtils {
     private static final String COMPRESS_FILE_TYPE_ERROR = "未知的文件类型:";
 
     private static final String ZIP = "zip";
+    // 已压缩的文件格式，部署时再次压缩收益很小
+    private static final Set<String> COMPRESSED_EXTENSION_SET = new HashSet<>(Arrays.asList("zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar", "war", "lz4", "zst", "apk", "iso", "png", "jpg", "jpeg", "gif", "mp3", "mp4", "avi", "mkv"));
+
+    // 判断文件是否为已压缩格式
+    public static boolean isCompressedFile(String fileName) {
+        return COMPRESSED_EXTENSION_SET.contains(FilenameUtils.getExtension(fileName).toLowerCase());
+    }
 
     // 压缩方法
     public static File compress(File srcDir, File compressFile) throws IOException {
@@ -0,0 +1,224 @@
+package com.rengu.operationsmanagementsuitev3.Utils;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeltaSignatureEntity;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 块级差量传输(rsync算法)
+ * 客户端按固定块大小计算目标文件各块的滚动校验和及MD5，服务器在源文件上逐字节滚动匹配，
+ * 命中的块只发送块序号，其余部分作为字面数据发送。
+ * 滚动校验和：a = Σx(i)，b = Σ(n - i)·x(i)，均对65536取模，weak = b << 16 | a。
+ * 差量指令：'L' + 长度(10) + 字面数据；'B' + 块序号(10)；'E' 结束。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 11:42
+ **/
+public class DeltaUtils {
+
+    public static final char LITERAL = 'L';
+    public static final char BLOCK = 'B';
+    public static final char END = 'E';
+
+    // 单块校验信息长度：弱校验(8位十六进制) + MD5(32)
+    public static final int WEAK_LENGTH = 8;
+    public static final int SIGNATURE_LENGTH = WEAK_LENGTH + 32;
+    public static final int COUNT_LENGTH = 10;
+    public static final int BLOCK_SIZE_LENGTH = 10;
+
+    private static final int MIN_BLOCK_SIZE = 1024 * 2;
+    private static final int MAX_BLOCK_SIZE = 1024 * 64;
+    // 单条字面数据指令的最大长度
+    private static final int MAX_LITERAL_SIZE = 1024 * 64;
+    // 发送差量指令时的缓冲区大小
+    public static final int LITERAL_BUFFER_SIZE = MAX_LITERAL_SIZE + 64;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    // 根据文件大小选择块大小(约为文件大小的平方根，按1K对齐)
+    public static int getBlockSize(long fileSize) {
+        int blockSize = (int) Math.sqrt(fileSize) & ~1023;
+        return Math.max(MIN_BLOCK_SIZE, Math.min(MAX_BLOCK_SIZE, blockSize));
+    }
+
+    // 计算数据块的滚动校验和
+    public static long getWeakChecksum(byte[] bytes, int offset, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            int value = bytes[offset + i] & 0xff;
+            a = a + value;
+            b = b + (length - i) * value;
+        }
+        return ((long) (b & 0xffff) << 16) | (a & 0xffff);
+    }
+
+    // 计算文件各块的校验信息，最后不足一块的部分同样计算
+    public static List<DeltaSignatureEntity> getSignatures(FileChannel fileChannel, int blockSize) throws IOException {
+        List<DeltaSignatureEntity> deltaSignatureEntityList = new ArrayList<>();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(blockSize);
+        int index = 0;
+        long position = 0;
+        while (true) {
+            byteBuffer.clear();
+            while (byteBuffer.hasRemaining()) {
+                int size = fileChannel.read(byteBuffer, position + byteBuffer.position());
+                if (size < 0) {
+                    break;
+                }
+            }
+            int length = byteBuffer.position();
+            if (length == 0) {
+                break;
+            }
+            DeltaSignatureEntity deltaSignatureEntity = new DeltaSignatureEntity();
+            deltaSignatureEntity.setIndex(index);
+            deltaSignatureEntity.setWeak(getWeakChecksum(byteBuffer.array(), 0, length));
+            deltaSignatureEntity.setStrong(getStrongChecksum(byteBuffer.array(), 0, length));
+            deltaSignatureEntityList.add(deltaSignatureEntity);
+            index = index + 1;
+            position = position + length;
+            if (length < blockSize) {
+                break;
+            }
+        }
+        return deltaSignatureEntityList;
+    }
+
+    // 校验信息序列化：弱校验(8位十六进制) + MD5(32)，按块序号排列
+    public static byte[] toBytes(List<DeltaSignatureEntity> deltaSignatureEntityList) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (DeltaSignatureEntity deltaSignatureEntity : deltaSignatureEntityList) {
+            stringBuilder.append(String.format("%08x", deltaSignatureEntity.getWeak())).append(deltaSignatureEntity.getStrong());
+        }
+        return stringBuilder.toString().getBytes();
+    }
+
+    // 校验信息反序列化
+    public static List<DeltaSignatureEntity> parseSignatures(byte[] bytes, int offset, int count) {
+        List<DeltaSignatureEntity> deltaSignatureEntityList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int pointer = offset + i * SIGNATURE_LENGTH;
+            DeltaSignatureEntity deltaSignatureEntity = new DeltaSignatureEntity();
+            deltaSignatureEntity.setIndex(i);
+            deltaSignatureEntity.setWeak(Long.parseLong(new String(bytes, pointer, WEAK_LENGTH), 16));
+            deltaSignatureEntity.setStrong(new String(bytes, pointer + WEAK_LENGTH, SIGNATURE_LENGTH - WEAK_LENGTH).toLowerCase());
+            deltaSignatureEntityList.add(deltaSignatureEntity);
+        }
+        return deltaSignatureEntityList;
+    }
+
+    // 根据目标文件的校验信息生成差量指令，返回字面数据字节数
+    public static long writeDelta(FileChannel fileChannel, int blockSize, List<DeltaSignatureEntity> deltaSignatureEntityList, OutputStream outputStream) throws IOException {
+        Map<Long, List<DeltaSignatureEntity>> deltaSignatureEntityMap = new HashMap<>();
+        for (DeltaSignatureEntity deltaSignatureEntity : deltaSignatureEntityList) {
+            deltaSignatureEntityMap.computeIfAbsent(deltaSignatureEntity.getWeak(), key -> new ArrayList<>()).add(deltaSignatureEntity);
+        }
+        byte[] buffer = new byte[Math.max(BUFFER_SIZE, blockSize * 4)];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        // [literalStart, start)为待发送的字面数据，[start, start + blockSize)为当前匹配窗口，end为缓冲区有效数据末尾
+        int literalStart = 0;
+        int start = 0;
+        int end = 0;
+        boolean eof = false;
+        boolean rolling = false;
+        int a = 0;
+        int b = 0;
+        long literalSize = 0;
+        while (true) {
+            // 缓冲区剩余数据不足一个窗口加一个滚动字节时，输出字面数据并整理缓冲区后继续读取
+            if (!eof && end - start <= blockSize) {
+                literalSize = literalSize + writeLiteral(outputStream, buffer, literalStart, start);
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end = end - start;
+                start = 0;
+                literalStart = 0;
+                byteBuffer.clear();
+                byteBuffer.position(end);
+                while (byteBuffer.hasRemaining()) {
+                    if (fileChannel.read(byteBuffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                end = byteBuffer.position();
+                continue;
+            }
+            if (end - start < blockSize) {
+                break;
+            }
+            if (!rolling) {
+                long weak = getWeakChecksum(buffer, start, blockSize);
+                a = (int) (weak & 0xffff);
+                b = (int) (weak >>> 16);
+                rolling = true;
+            }
+            DeltaSignatureEntity deltaSignatureEntity = matchBlock(deltaSignatureEntityMap, ((long) b << 16) | a, buffer, start, blockSize);
+            if (deltaSignatureEntity != null) {
+                literalSize = literalSize + writeLiteral(outputStream, buffer, literalStart, start);
+                outputStream.write((BLOCK + FormatUtils.getString(String.valueOf(deltaSignatureEntity.getIndex()), 10)).getBytes());
+                start = start + blockSize;
+                literalStart = start;
+                rolling = false;
+                continue;
+            }
+            // 文件末尾已无可滚动的字节
+            if (end - start == blockSize) {
+                break;
+            }
+            int out = buffer[start] & 0xff;
+            int in = buffer[start + blockSize] & 0xff;
+            a = (a - out + in) & 0xffff;
+            b = (b - blockSize * out + a) & 0xffff;
+            start = start + 1;
+            if (start - literalStart >= MAX_LITERAL_SIZE) {
+                literalSize = literalSize + writeLiteral(outputStream, buffer, literalStart, start);
+                literalStart = start;
+            }
+        }
+        literalSize = literalSize + writeLiteral(outputStream, buffer, literalStart, end);
+        outputStream.write(END);
+        return literalSize;
+    }
+
+    // 弱校验命中后使用MD5确认
+    private static DeltaSignatureEntity matchBlock(Map<Long, List<DeltaSignatureEntity>> deltaSignatureEntityMap, long weak, byte[] buffer, int start, int blockSize) {
+        List<DeltaSignatureEntity> deltaSignatureEntityList = deltaSignatureEntityMap.get(weak);
+        if (deltaSignatureEntityList == null) {
+            return null;
+        }
+        String strong = getStrongChecksum(buffer, start, blockSize);
+        for (DeltaSignatureEntity deltaSignatureEntity : deltaSignatureEntityList) {
+            if (deltaSignatureEntity.getStrong().equals(strong)) {
+                return deltaSignatureEntity;
+            }
+        }
+        return null;
+    }
+
+    // 计算数据块MD5
+    private static String getStrongChecksum(byte[] bytes, int offset, int length) {
+        MessageDigest messageDigest = DigestUtils.getMd5Digest();
+        messageDigest.update(bytes, offset, length);
+        return Hex.encodeHexString(messageDigest.digest());
+    }
+
+    // 输出字面数据指令
+    private static int writeLiteral(OutputStream outputStream, byte[] buffer, int from, int to) throws IOException {
+        if (to <= from) {
+            return 0;
+        }
+        outputStream.write((LITERAL + FormatUtils.getString(String.valueOf(to - from), 10)).getBytes());
+        outputStream.write(buffer, from, to - from);
+        return to - from;
+    }
+}
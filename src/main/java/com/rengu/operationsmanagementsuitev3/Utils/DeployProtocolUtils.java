@@ -0,0 +1,266 @@
+package com.rengu.operationsmanagementsuitev3.Utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 扩展部署协议
+ * 客户端在心跳报文末尾上报支持的部署能力，服务器建立部署连接后发送D300协商本次会话使用的能力，
+ * 客户端回复A300确认；未上报能力的旧版客户端继续使用fileRecvStart/r/f的逐文件确认协议。
+ * 扩展协议报文均为定长ASCII字段，不足部分以'\0'补齐。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 09:20
+ **/
+public class DeployProtocolUtils {
+
+    // 部署能力标志位
+    public static final int CAPABILITY_PIPELINE = 1;
+    // 断点续传，依赖流水线模式
+    public static final int CAPABILITY_RESUME = 2;
+    // 块级差量传输，依赖流水线模式
+    public static final int CAPABILITY_DELTA = 4;
+    // 流式压缩，依赖流水线模式
+    public static final int CAPABILITY_COMPRESS = 8;
+    // 组播部署，不经过部署连接协商，由服务器根据心跳上报的能力选择参与组播的设备
+    public static final int CAPABILITY_MULTICAST = 16;
+    // 部署包，依赖流水线模式
+    public static final int CAPABILITY_BUNDLE = 32;
+    // 本地复制，依赖流水线模式
+    public static final int CAPABILITY_COPY = 64;
+
+    // 协商请求：D300 + 能力(8) + 窗口大小(8)
+    public static final String MODE_TAG = "D300";
+    // 协商回复：A300 + 能力(8)
+    public static final String MODE_REPLY_TAG = "A300";
+    // 流水线文件帧：D301 + 序号(10) + 文件大小(20) + 部署路径(255) + 文件内容
+    public static final String PIPELINE_FILE_TAG = "D301";
+    // 流水线文件回复：A301 + 序号(10) + 状态(1)
+    public static final String PIPELINE_FILE_REPLY_TAG = "A301";
+    // 写入检查点回复：A302 + 序号(10) + 客户端已落盘的字节数(20)，客户端在接收过程中定期发送
+    public static final String CHECKPOINT_REPLY_TAG = "A302";
+    // 续传查询：D303 + 序号(10) + 服务器记录的检查点(20) + MD5(32) + 部署路径(255)
+    public static final String RESUME_TAG = "D303";
+    // 续传查询回复：A303 + 序号(10) + 客户端可续传的起始位置(20)，无可用的部分文件时为0
+    public static final String RESUME_REPLY_TAG = "A303";
+    // 续传文件帧：D304 + 序号(10) + 文件大小(20) + 起始位置(20) + MD5(32) + 部署路径(255) + 起始位置之后的文件内容
+    public static final String RESUME_FILE_TAG = "D304";
+    // 块校验查询：D305 + 序号(10) + 块大小(10) + 部署路径(255)
+    public static final String SIGNATURE_TAG = "D305";
+    // 块校验回复：A305 + 序号(10) + 块数量(10) + 块数量 * (弱校验(8) + MD5(32))，目标文件不存在时块数量为0
+    public static final String SIGNATURE_REPLY_TAG = "A305";
+    // 差量文件帧：D306 + 序号(10) + 文件大小(20) + 块大小(10) + MD5(32) + 部署路径(255) + 差量指令(见DeltaUtils)
+    public static final String DELTA_FILE_TAG = "D306";
+    // 压缩文件帧：D307 + 序号(10) + 文件大小(20) + MD5(32) + 部署路径(255) + 若干压缩数据段(长度(10) + zlib数据)，以长度为0的数据段结束
+    public static final String COMPRESS_FILE_TAG = "D307";
+    // 部署包帧：D308 + 序号(10) + 部署包大小(20) + 文件数量(10) + 部署路径(255) + 部署包内容，以A301确认整个部署包
+    // 部署包内容为连续的文件条目：相对路径(255) + 文件大小(20) + MD5(32) + 文件内容，客户端写入部署路径+相对路径
+    public static final String BUNDLE_FILE_TAG = "D308";
+    // 本地复制帧：D309 + 序号(10) + 文件大小(20) + MD5(32) + 源路径(255) + 部署路径(255)，源路径为本次会话中已确认写入的相同MD5文件，
+    // 客户端校验源文件大小及MD5后复制到部署路径，以A301确认，源文件不可用时回复失败
+    public static final String COPY_FILE_TAG = "D309";
+
+    // 组播部署：服务器通过控制端口向设备单播邀请，设备加入组播组后按块接收文件，文件发送完毕后服务器查询接收状态，
+    // 设备以缺失块区间(NACK)回复，服务器合并各设备的缺失块重新组播，多轮修复后仍未完成的设备改为单播部署
+    // 组播邀请：M100 + 会话号(10) + 组播端口(8) + 部署路径(255)，设备向邀请的来源地址回复
+    public static final String MULTICAST_INVITE_TAG = "M100";
+    // 加入回复：N100 + 会话号(10)
+    public static final String MULTICAST_JOIN_TAG = "N100";
+    // 文件公告：M101 + 会话号(10) + 文件序号(10) + 文件大小(20) + 块数量(10) + MD5(32) + 相对路径(255)，设备写入部署路径+相对路径
+    public static final String MULTICAST_FILE_TAG = "M101";
+    // 文件块：M102 + 会话号(10) + 文件序号(10) + 块序号(10) + 块内容
+    public static final String MULTICAST_BLOCK_TAG = "M102";
+    // 接收状态查询：M103 + 会话号(10) + 文件序号(10)
+    public static final String MULTICAST_STATUS_TAG = "M103";
+    // 接收状态回复：N103 + 会话号(10) + 文件序号(10) + 区间数量(10) + 区间数量 * (起始块(10) + 结束块(10))，
+    // 区间数量为0表示文件已完整写入且MD5校验通过，校验失败时回复全部块
+    public static final String MULTICAST_NACK_TAG = "N103";
+    // 会话结束：M104 + 会话号(10)
+    public static final String MULTICAST_END_TAG = "M104";
+
+    // 文件接收状态
+    public static final char FILE_STATE_SUCCEED = '0';
+    public static final char FILE_STATE_FAILED = '1';
+
+    // 字段长度
+    public static final int TAG_LENGTH = 4;
+    public static final int CAPABILITY_LENGTH = 8;
+    public static final int WINDOW_LENGTH = 8;
+    public static final int SEQUENCE_LENGTH = 10;
+    public static final int SIZE_LENGTH = 20;
+    public static final int PATH_LENGTH = 255;
+    public static final int MD5_LENGTH = 32;
+    public static final int COMPRESS_SEGMENT_LENGTH = 10;
+    public static final int PORT_LENGTH = 8;
+    public static final int BUNDLE_ENTRY_HEADER_LENGTH = PATH_LENGTH + SIZE_LENGTH + MD5_LENGTH;
+    public static final int MULTICAST_BLOCK_HEADER_LENGTH = TAG_LENGTH + SEQUENCE_LENGTH * 3;
+    public static final int MODE_REPLY_LENGTH = TAG_LENGTH + CAPABILITY_LENGTH;
+    // 各回复去掉标识后的长度
+    public static final int PIPELINE_FILE_REPLY_LENGTH = SEQUENCE_LENGTH + 1;
+    public static final int CHECKPOINT_REPLY_LENGTH = SEQUENCE_LENGTH + SIZE_LENGTH;
+    public static final int RESUME_REPLY_LENGTH = SEQUENCE_LENGTH + SIZE_LENGTH;
+    public static final int SIGNATURE_REPLY_LENGTH = SEQUENCE_LENGTH + DeltaUtils.COUNT_LENGTH;
+
+    // 判断是否具备某项能力
+    public static boolean hasCapability(int capability, int flag) {
+        return (capability & flag) == flag;
+    }
+
+    // 解析定长数字字段，空字段或格式错误时返回默认值
+    public static long parseNumber(byte[] bytes, int offset, int length, long defaultValue) {
+        String value = new String(bytes, offset, length).trim();
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    // 生成协商请求
+    public static byte[] getModeRequest(int capability, int window) {
+        return (MODE_TAG + FormatUtils.getString(String.valueOf(capability), CAPABILITY_LENGTH) + FormatUtils.getString(String.valueOf(window), WINDOW_LENGTH)).getBytes();
+    }
+
+    // 生成流水线文件帧头
+    public static byte[] getPipelineFileHeader(long sequence, long size, String targetPath) {
+        return (PIPELINE_FILE_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成续传查询
+    public static byte[] getResumeRequest(long sequence, long checkpoint, String md5, String targetPath) {
+        return (RESUME_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(checkpoint), SIZE_LENGTH) + FormatUtils.getString(md5, MD5_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成续传文件帧头
+    public static byte[] getResumeFileHeader(long sequence, long size, long offset, String md5, String targetPath) {
+        return (RESUME_FILE_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(String.valueOf(offset), SIZE_LENGTH) + FormatUtils.getString(md5, MD5_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成块校验查询
+    public static byte[] getSignatureRequest(long sequence, int blockSize, String targetPath) {
+        return (SIGNATURE_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(blockSize), DeltaUtils.BLOCK_SIZE_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成差量文件帧头
+    public static byte[] getDeltaFileHeader(long sequence, long size, int blockSize, String md5, String targetPath) {
+        return (DELTA_FILE_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(String.valueOf(blockSize), DeltaUtils.BLOCK_SIZE_LENGTH) + FormatUtils.getString(md5, MD5_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成压缩文件帧头
+    public static byte[] getCompressFileHeader(long sequence, long size, String md5, String targetPath) {
+        return (COMPRESS_FILE_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(md5, MD5_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成部署包帧头
+    public static byte[] getBundleFileHeader(long sequence, long size, int fileCount, String targetPath) {
+        return (BUNDLE_FILE_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(String.valueOf(fileCount), SEQUENCE_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成本地复制帧
+    public static byte[] getCopyFileHeader(long sequence, long size, String md5, String sourcePath, String targetPath) {
+        return (COPY_FILE_TAG + FormatUtils.getString(String.valueOf(sequence), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(md5, MD5_LENGTH) + FormatUtils.getString(sourcePath, PATH_LENGTH) + FormatUtils.getString(targetPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成部署包文件条目头
+    public static byte[] getBundleEntryHeader(long size, String md5, String relativePath) {
+        return (FormatUtils.getString(relativePath, PATH_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(md5, MD5_LENGTH)).getBytes();
+    }
+
+    // 生成压缩数据段长度字段
+    public static byte[] getCompressSegmentHeader(int length) {
+        return FormatUtils.getString(String.valueOf(length), COMPRESS_SEGMENT_LENGTH).getBytes();
+    }
+
+    // 生成组播邀请
+    public static byte[] getMulticastInvite(long session, int port, String deployPath) {
+        return (MULTICAST_INVITE_TAG + FormatUtils.getString(String.valueOf(session), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(port), PORT_LENGTH) + FormatUtils.getString(deployPath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成组播文件公告
+    public static byte[] getMulticastFile(long session, int fileIndex, long size, int blockCount, String md5, String relativePath) {
+        return (MULTICAST_FILE_TAG + FormatUtils.getString(String.valueOf(session), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(fileIndex), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(size), SIZE_LENGTH) + FormatUtils.getString(String.valueOf(blockCount), SEQUENCE_LENGTH) + FormatUtils.getString(md5, MD5_LENGTH) + FormatUtils.getString(relativePath, PATH_LENGTH)).getBytes();
+    }
+
+    // 生成组播文件块报文头
+    public static byte[] getMulticastBlockHeader(long session, int fileIndex, int blockIndex) {
+        return (MULTICAST_BLOCK_TAG + FormatUtils.getString(String.valueOf(session), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(fileIndex), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(blockIndex), SEQUENCE_LENGTH)).getBytes();
+    }
+
+    // 生成组播接收状态查询
+    public static byte[] getMulticastStatus(long session, int fileIndex) {
+        return (MULTICAST_STATUS_TAG + FormatUtils.getString(String.valueOf(session), SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(fileIndex), SEQUENCE_LENGTH)).getBytes();
+    }
+
+    // 生成组播会话结束
+    public static byte[] getMulticastEnd(long session) {
+        return (MULTICAST_END_TAG + FormatUtils.getString(String.valueOf(session), SEQUENCE_LENGTH)).getBytes();
+    }
+
+    // 读取定长回复，timeout<=0时阻塞等待(需配合SoTimeout使用)
+    public static byte[] readReply(InputStream inputStream, int length, long timeout) throws IOException {
+        byte[] bytes = new byte[length];
+        int readSize = 0;
+        long startTime = System.currentTimeMillis();
+        while (readSize < length) {
+            try {
+                int size = inputStream.read(bytes, readSize, length - readSize);
+                if (size < 0) {
+                    throw new EOFException("部署连接已关闭");
+                }
+                readSize = readSize + size;
+            } catch (SocketTimeoutException exception) {
+                if (timeout > 0 && System.currentTimeMillis() - startTime >= timeout) {
+                    throw exception;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    // 直接读取SocketChannel的输入流(阻塞模式，不支持SoTimeout)
+    // JDK 8中socket().getInputStream()在整个阻塞读取期间持有通道的blockingLock，回复线程读取时发送线程无法写入
+    public static InputStream getChannelInputStream(SocketChannel socketChannel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] bytes = new byte[1];
+                int size = read(bytes, 0, 1);
+                return size < 0 ? -1 : bytes[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                return socketChannel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+        };
+    }
+
+    // 直接写入SocketChannel的输出流，写满全部数据后返回，不获取通道的blockingLock
+    public static OutputStream getChannelOutputStream(SocketChannel socketChannel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, offset, length);
+                while (byteBuffer.hasRemaining()) {
+                    socketChannel.write(byteBuffer);
+                }
+            }
+        };
+    }
+}
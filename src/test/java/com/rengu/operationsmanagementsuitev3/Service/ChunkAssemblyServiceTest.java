@@ -0,0 +1,158 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.ChunkEntity;
+import lombok.Cleanup;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * 文件块定位写入：乱序写入的文件块按序号落在目标文件的对应位置，已写入记录在服务重启后可从记录文件恢复
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 20:35
+ **/
+
+public class ChunkAssemblyServiceTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    // 3个文件块，最后一块大于块大小
+    private static final int TOTAL_SIZE = CHUNK_SIZE * 3 + 500;
+    private static final int TOTAL_CHUNKS = 3;
+
+    private final byte[] content = new byte[TOTAL_SIZE];
+    private String identifier;
+    private ChunkAssemblyService chunkAssemblyService;
+
+    @Before
+    public void setUp() {
+        new Random(20261017).nextBytes(content);
+        identifier = UUID.randomUUID().toString();
+        chunkAssemblyService = new ChunkAssemblyService();
+    }
+
+    @After
+    public void tearDown() {
+        chunkAssemblyService.deleteChunks(identifier);
+    }
+
+    @Test
+    public void chunksAreWrittenAtTheirOffsets() throws IOException {
+        writeChunk(chunkAssemblyService, 3);
+        writeChunk(chunkAssemblyService, 1);
+        assertEquals(Collections.singletonList(2), chunkAssemblyService.getMissingChunks(createChunk(1)));
+        writeChunk(chunkAssemblyService, 2);
+
+        assertTrue(chunkAssemblyService.getMissingChunks(createChunk(1)).isEmpty());
+        assertArrayEquals(content, FileUtils.readFileToByteArray(chunkAssemblyService.getAssembledFile(createChunk(1))));
+    }
+
+    @Test
+    public void bitmapIsRecoveredFromRecordFile() throws IOException {
+        writeChunk(chunkAssemblyService, 2);
+        // 已打开但未提交的文件块不计入记录
+        chunkAssemblyService.openChunk(createChunk(3), getChunkSize(3)).close();
+
+        // 新实例模拟服务器重启，内存中没有文件块记录
+        ChunkAssemblyService restartedChunkAssemblyService = new ChunkAssemblyService();
+
+        assertTrue(restartedChunkAssemblyService.hasChunk(createChunk(2)));
+        assertFalse(restartedChunkAssemblyService.hasChunk(createChunk(3)));
+        assertEquals(Arrays.asList(1, 3), restartedChunkAssemblyService.getMissingChunks(createChunk(1)));
+        writeChunk(restartedChunkAssemblyService, 1);
+        writeChunk(restartedChunkAssemblyService, 3);
+        assertArrayEquals(content, FileUtils.readFileToByteArray(restartedChunkAssemblyService.getAssembledFile(createChunk(1))));
+    }
+
+    @Test
+    public void unknownUploadReportsAllChunksMissing() {
+        assertFalse(chunkAssemblyService.hasChunk(createChunk(1)));
+        assertEquals(Arrays.asList(1, 2, 3), chunkAssemblyService.getMissingChunks(createChunk(1)));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void incompleteUploadIsNotAssembled() throws IOException {
+        writeChunk(chunkAssemblyService, 1);
+        chunkAssemblyService.getAssembledFile(createChunk(1));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void chunkBeyondTotalSizeIsRejected() throws IOException {
+        chunkAssemblyService.openChunk(createChunk(3), CHUNK_SIZE * 2);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void chunkNumberBeyondTotalChunksIsRejected() throws IOException {
+        chunkAssemblyService.openChunk(createChunk(TOTAL_CHUNKS + 1), 1);
+    }
+
+    @Test
+    public void openChunkIsReportedAsWritingUntilCommitted() throws IOException {
+        FileChannel fileChannel = chunkAssemblyService.openChunk(createChunk(1), CHUNK_SIZE);
+        assertTrue(chunkAssemblyService.isWriting(identifier));
+        fileChannel.write(ByteBuffer.wrap(content, 0, CHUNK_SIZE));
+        chunkAssemblyService.commitChunk(createChunk(1), fileChannel);
+        fileChannel.close();
+        assertFalse(chunkAssemblyService.isWriting(identifier));
+
+        // 未提交即关闭的通道(上传失败)同样不再计为正在写入
+        chunkAssemblyService.openChunk(createChunk(2), CHUNK_SIZE).close();
+        assertFalse(chunkAssemblyService.isWriting(identifier));
+    }
+
+    @Test
+    public void chunkWrittenToDeletedUploadIsNotRecorded() throws IOException {
+        writeChunk(chunkAssemblyService, 1);
+        @Cleanup FileChannel fileChannel = chunkAssemblyService.openChunk(createChunk(2), CHUNK_SIZE);
+        fileChannel.write(ByteBuffer.wrap(content, CHUNK_SIZE, CHUNK_SIZE));
+        // 写入期间上传被删除，通道写入的是已删除的文件
+        chunkAssemblyService.deleteChunks(identifier);
+
+        try {
+            chunkAssemblyService.commitChunk(createChunk(2), fileChannel);
+            fail("写入已删除文件的文件块不应记录");
+        } catch (RuntimeException e) {
+            // 不重新创建目标文件及记录，客户端查询时全部文件块缺失
+        }
+        assertFalse(chunkAssemblyService.hasChunk(createChunk(2)));
+        assertEquals(Arrays.asList(1, 2, 3), chunkAssemblyService.getMissingChunks(createChunk(1)));
+    }
+
+    // 按异步上传的方式写入文件块：打开后顺序写入，提交记录后关闭
+    private void writeChunk(ChunkAssemblyService chunkAssemblyService, int chunkNumber) throws IOException {
+        ChunkEntity chunkEntity = createChunk(chunkNumber);
+        int offset = (chunkNumber - 1) * CHUNK_SIZE;
+        @Cleanup FileChannel fileChannel = chunkAssemblyService.openChunk(chunkEntity, getChunkSize(chunkNumber));
+        ByteBuffer byteBuffer = ByteBuffer.wrap(content, offset, getChunkSize(chunkNumber));
+        while (byteBuffer.hasRemaining()) {
+            fileChannel.write(byteBuffer);
+        }
+        chunkAssemblyService.commitChunk(chunkEntity, fileChannel);
+    }
+
+    private int getChunkSize(int chunkNumber) {
+        return chunkNumber == TOTAL_CHUNKS ? TOTAL_SIZE - (TOTAL_CHUNKS - 1) * CHUNK_SIZE : CHUNK_SIZE;
+    }
+
+    private ChunkEntity createChunk(int chunkNumber) {
+        ChunkEntity chunkEntity = new ChunkEntity();
+        chunkEntity.setIdentifier(identifier);
+        chunkEntity.setFilename("chunk.dat");
+        chunkEntity.setChunkNumber(chunkNumber);
+        chunkEntity.setChunkSize(CHUNK_SIZE);
+        chunkEntity.setTotalChunks(TOTAL_CHUNKS);
+        chunkEntity.setTotalSize(TOTAL_SIZE);
+        return chunkEntity;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeviceEntity;
+import com.rengu.operationsmanagementsuitev3.Entity.ProjectEntity;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 部署带宽令牌桶：欠账按速率补足，多个桶同时扣除时只等待欠账最多的一个，后预留的发送排在之前的欠账之后
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 20:45
+ **/
+
+public class DeployBandwidthServiceTest {
+
+    // 预留与计算之间经过的时间使令牌略有补充，等待时间允许的误差(毫秒)
+    private static final long TOLERANCE = 50;
+
+    private DeployBandwidthService deployBandwidthService;
+    private DeviceEntity deviceEntity;
+
+    @Before
+    public void setUp() {
+        deployBandwidthService = new DeployBandwidthService();
+        deviceEntity = new DeviceEntity();
+        deviceEntity.setHostAddress("127.0.4.1");
+        deviceEntity.setProjectEntity(new ProjectEntity());
+    }
+
+    @Test
+    public void unlimitedByDefault() {
+        assertEquals(0, deployBandwidthService.reserve(deviceEntity, 1024 * 1024 * 100));
+        assertEquals(0, deployBandwidthService.reserve(null, 1024 * 1024 * 100));
+    }
+
+    @Test
+    public void debtIsRepaidAtDeviceRate() {
+        deployBandwidthService.updateDeviceBandwidth(deviceEntity.getHostAddress(), 10000);
+
+        assertEquals(1000, deployBandwidthService.reserve(deviceEntity, 10000), TOLERANCE);
+        // 后预留的发送需要等待之前的欠账
+        assertEquals(1500, deployBandwidthService.reserve(deviceEntity, 5000), TOLERANCE);
+    }
+
+    @Test
+    public void waitsOnceForTheSlowestBucket() {
+        deployBandwidthService.updateDeployBandwidth(40000, 20000, -1);
+        deployBandwidthService.updateDeviceBandwidth(deviceEntity.getHostAddress(), 10000);
+
+        // 设备、工程及全局桶分别需要1000、500、250毫秒，只等待最长的一个
+        assertEquals(1000, deployBandwidthService.reserve(deviceEntity, 10000), TOLERANCE);
+    }
+
+    @Test
+    public void multicastIsLimitedByGlobalRateOnly() {
+        deployBandwidthService.updateDeployBandwidth(20000, -1, 1000);
+
+        assertEquals(500, deployBandwidthService.reserve(null, 10000), TOLERANCE);
+    }
+
+    @Test
+    public void otherDevicesAreNotDelayed() {
+        deployBandwidthService.updateDeviceBandwidth(deviceEntity.getHostAddress(), 10000);
+        deployBandwidthService.reserve(deviceEntity, 10000);
+        DeviceEntity otherDeviceEntity = new DeviceEntity();
+        otherDeviceEntity.setHostAddress("127.0.4.2");
+
+        assertEquals(0, deployBandwidthService.reserve(otherDeviceEntity, 10000));
+    }
+}
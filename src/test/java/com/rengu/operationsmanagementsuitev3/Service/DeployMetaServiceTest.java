@@ -0,0 +1,237 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Configuration.AsyncConfiguration;
+import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Simulator.DeviceAgent;
+import com.rengu.operationsmanagementsuitev3.Simulator.DeviceAgentConfig;
+import com.rengu.operationsmanagementsuitev3.Simulator.DeviceAgentSimulator;
+import com.rengu.operationsmanagementsuitev3.Thread.DeployLogWriterThread;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 扩展部署协议回环测试：在回环地址上启动保存文件内容的模拟客户端，通过DeployMetaService部署后校验客户端落地的内容
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 20:10
+ **/
+
+public class DeployMetaServiceTest {
+
+    // Linux下127.0.0.0/8均可直接绑定，无法绑定时跳过测试
+    private static final String HOST_ADDRESS = "127.0.3.1";
+    private static final String DEPLOY_PATH = "/opt/oms";
+
+    private final Random random = new Random(20261017);
+    private File tempDirectory;
+    private DeviceAgentConfig deviceAgentConfig;
+    private DeviceAgentSimulator deviceAgentSimulator;
+    private DeviceAgent deviceAgent;
+    private ThreadPoolTaskExecutor deployReadAheadExecutor;
+    private DeployManifestService deployManifestService;
+    private DeployLogDetailService deployLogDetailService;
+    private DeployBundleService deployBundleService;
+    private DeployMetaService deployMetaService;
+    private DeviceEntity deviceEntity;
+    private ComponentHistoryEntity componentHistoryEntity;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDirectory = Files.createTempDirectory("oms-deploy-test").toFile();
+        deviceAgentConfig = new DeviceAgentConfig();
+        deviceAgentConfig.setAgentCount(1);
+        deviceAgentConfig.setFirstAddress(HOST_ADDRESS);
+        deviceAgentConfig.setHeartbeatInterval(1000 * 60);
+        deviceAgentConfig.setStoreContent(true);
+        deployReadAheadExecutor = new AsyncConfiguration().deployReadAheadExecutor();
+        deployReadAheadExecutor.initialize();
+        deployManifestService = mock(DeployManifestService.class);
+        deployLogDetailService = mock(DeployLogDetailService.class);
+        deployBundleService = new DeployBundleService(deployManifestService);
+        deployMetaService = new DeployMetaService(deployManifestService, mock(DeployLogService.class), deployLogDetailService, mock(DeploymentDesignDetailService.class), mock(DeploymentDesignScanResultService.class), new DeployBandwidthService(), mock(DeployProgressService.class), mock(DeployThroughputService.class), mock(DeployLogWriterThread.class), deployBundleService, new DeployReadAheadService(deployReadAheadExecutor));
+        deviceEntity = new DeviceEntity();
+        deviceEntity.setHostAddress(HOST_ADDRESS);
+        deviceEntity.setDeployPath(DEPLOY_PATH);
+        componentHistoryEntity = new ComponentHistoryEntity();
+        componentHistoryEntity.setName("component");
+        componentHistoryEntity.setVersion("1.0");
+        componentHistoryEntity.setRelativePath("/component");
+    }
+
+    @After
+    public void tearDown() {
+        if (deviceAgentSimulator != null) {
+            deviceAgentSimulator.stop();
+        }
+        DeviceService.ONLINE_HOST_ADRESS.remove(HOST_ADDRESS);
+        deployBundleService.deleteDeployBundle(componentHistoryEntity);
+        deployReadAheadExecutor.shutdown();
+        FileUtils.deleteQuietly(tempDirectory);
+    }
+
+    @Test
+    public void compressDeployLandsOriginalBytes() throws IOException {
+        startDeviceAgent(DeployProtocolUtils.CAPABILITY_PIPELINE | DeployProtocolUtils.CAPABILITY_COMPRESS);
+        StringBuilder stringBuilder = new StringBuilder();
+        while (stringBuilder.length() < 1024 * 1024) {
+            stringBuilder.append("line-").append(stringBuilder.length() % 1000).append('\n');
+        }
+        byte[] content = stringBuilder.toString().getBytes();
+        DeployMetaEntity deployMetaEntity = createDeployMeta("/conf/application.txt", content);
+
+        DeployLogEntity deployLogEntity = deploy(deployMetaEntity);
+
+        assertTrue(deployLogEntity.isComplete());
+        assertArrayEquals(content, deviceAgent.getFileContent(DEPLOY_PATH + "/component/conf/application.txt"));
+        assertTrue("压缩后传输量应小于文件大小", deployLogEntity.getTransferSize() < content.length / 4);
+    }
+
+    @Test
+    public void deltaDeploySendsOnlyChangedBlocks() throws IOException {
+        startDeviceAgent(DeployProtocolUtils.CAPABILITY_PIPELINE | DeployProtocolUtils.CAPABILITY_DELTA);
+        byte[] oldContent = randomBytes(1024 * 1024 * 2);
+        byte[] content = Arrays.copyOf(oldContent, oldContent.length + 100);
+        // 修改中间一段并在末尾追加数据，其余数据块可由客户端已有文件还原
+        for (int i = 0; i < 1000; i++) {
+            content[1024 * 1024 + i] = (byte) ~content[1024 * 1024 + i];
+        }
+        String targetPath = DEPLOY_PATH + "/component/lib/app.jar";
+        deviceAgent.putFileContent(targetPath, oldContent);
+        DeployMetaEntity deployMetaEntity = createDeployMeta("/lib/app.jar", content);
+
+        DeployLogEntity deployLogEntity = deploy(deployMetaEntity);
+
+        assertTrue(deployLogEntity.isComplete());
+        assertArrayEquals(content, deviceAgent.getFileContent(targetPath));
+        assertEquals(DigestUtils.md5Hex(content), deviceAgent.getDeployedMD5(targetPath));
+        assertTrue("差量传输量应远小于文件大小", deployLogEntity.getTransferSize() < content.length / 10);
+    }
+
+    @Test
+    public void resumeDeploySendsFromConfirmedOffset() throws IOException {
+        startDeviceAgent(DeployProtocolUtils.CAPABILITY_PIPELINE | DeployProtocolUtils.CAPABILITY_RESUME);
+        byte[] content = randomBytes(1024 * 1024);
+        String targetPath = DEPLOY_PATH + "/component/data/model.bin";
+        // 客户端保留上次中断时写入的部分内容，服务器记录的检查点小于客户端已写入的大小
+        deviceAgent.putFileContent(targetPath, Arrays.copyOf(content, 1024 * 600));
+        DeployLogDetailEntity checkpoint = new DeployLogDetailEntity();
+        checkpoint.setTargetPath(targetPath);
+        checkpoint.setMD5(DigestUtils.md5Hex(content));
+        checkpoint.setCommittedSize(1024 * 400);
+        Map<String, DeployLogDetailEntity> deployCheckpointMap = new HashMap<>();
+        deployCheckpointMap.put(targetPath, checkpoint);
+        when(deployLogDetailService.getDeployCheckpoints(HOST_ADDRESS)).thenReturn(deployCheckpointMap);
+        DeployMetaEntity deployMetaEntity = createDeployMeta("/data/model.bin", content);
+
+        DeployLogEntity deployLogEntity = deploy(deployMetaEntity);
+
+        assertTrue(deployLogEntity.isComplete());
+        assertArrayEquals(content, deviceAgent.getFileContent(targetPath));
+        assertEquals(content.length - 1024 * 400, deployLogEntity.getTransferSize());
+    }
+
+    @Test
+    public void copyDeployReusesLandedFile() throws IOException {
+        startDeviceAgent(DeployProtocolUtils.CAPABILITY_PIPELINE | DeployProtocolUtils.CAPABILITY_COPY);
+        byte[] content = randomBytes(1024 * 64);
+        byte[] otherContent = randomBytes(1024 * 1024 * 8);
+        // 相同内容的两个文件之间发送一个较大的文件，第一个文件的确认先于第二个文件到达
+        List<DeployMetaEntity> deployMetaEntityList = Arrays.asList(createDeployMeta("/bin/first.so", content), createDeployMeta("/bin/other.so", otherContent), createDeployMeta("/lib/second.so", content));
+
+        DeployLogEntity deployLogEntity = deploy(deployMetaEntityList);
+
+        assertTrue(deployLogEntity.isComplete());
+        assertEquals(1, deviceAgentSimulator.getCopyCount().get());
+        assertArrayEquals(content, deviceAgent.getFileContent(DEPLOY_PATH + "/component/bin/first.so"));
+        assertArrayEquals(otherContent, deviceAgent.getFileContent(DEPLOY_PATH + "/component/bin/other.so"));
+        assertArrayEquals(content, deviceAgent.getFileContent(DEPLOY_PATH + "/component/lib/second.so"));
+        assertEquals(content.length + otherContent.length, deployLogEntity.getTransferSize());
+    }
+
+    @Test
+    public void bundleDeployUnpacksEveryFile() throws IOException {
+        startDeviceAgent(DeployProtocolUtils.CAPABILITY_PIPELINE | DeployProtocolUtils.CAPABILITY_BUNDLE);
+        DeployManifestEntity deployManifestEntity = new DeployManifestEntity();
+        deployManifestEntity.setComponentHistoryId(componentHistoryEntity.getId());
+        List<DeployMetaEntity> deployMetaEntityList = new ArrayList<>();
+        Map<String, byte[]> contentMap = new HashMap<>();
+        for (int i = 0; i < ApplicationConfig.DEPLOY_BUNDLE_MIN_FILES; i++) {
+            String relativePath = "/resources/" + i + ".dat";
+            byte[] content = randomBytes(random.nextInt(1024 * 8));
+            DeployMetaEntity deployMetaEntity = createDeployMeta(relativePath, content);
+            deployManifestEntity.getDeployManifestFileEntityList().add(deployMetaEntity.getDeployManifestFileEntity());
+            deployMetaEntityList.add(deployMetaEntity);
+            contentMap.put(DEPLOY_PATH + "/component" + relativePath, content);
+        }
+        when(deployManifestService.getDeployManifest(componentHistoryEntity)).thenReturn(deployManifestEntity);
+
+        DeployLogEntity deployLogEntity = deploy(deployMetaEntityList);
+
+        assertTrue(deployLogEntity.isComplete());
+        // 部署包以一个文件帧发送，客户端按一次确认回复全部文件
+        assertEquals(ApplicationConfig.DEPLOY_BUNDLE_MIN_FILES, deviceAgentSimulator.getFileCount().get());
+        for (Map.Entry<String, byte[]> entry : contentMap.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), deviceAgent.getFileContent(entry.getKey()));
+        }
+    }
+
+    // 启动单个模拟客户端，并按心跳上报的能力登记为在线设备
+    private void startDeviceAgent(int deployCapability) throws IOException {
+        deviceAgentConfig.setDeployCapability(deployCapability);
+        deviceAgentSimulator = new DeviceAgentSimulator(deviceAgentConfig);
+        deviceAgentSimulator.start();
+        Assume.assumeTrue("无法绑定回环地址" + HOST_ADDRESS, deviceAgentSimulator.getDeviceAgentList().size() == 1);
+        deviceAgent = deviceAgentSimulator.getDeviceAgentList().get(0);
+        HeartbeatEntity heartbeatEntity = new HeartbeatEntity();
+        heartbeatEntity.setHostAddress(HOST_ADDRESS);
+        heartbeatEntity.setDeployCapability(deployCapability);
+        DeviceService.ONLINE_HOST_ADRESS.put(HOST_ADDRESS, heartbeatEntity);
+    }
+
+    private DeployMetaEntity createDeployMeta(String relativePath, byte[] content) throws IOException {
+        File file = new File(tempDirectory, UUID.randomUUID().toString());
+        FileUtils.writeByteArrayToFile(file, content);
+        DeployManifestFileEntity deployManifestFileEntity = new DeployManifestFileEntity();
+        deployManifestFileEntity.setRelativePath(relativePath);
+        deployManifestFileEntity.setSize(content.length);
+        deployManifestFileEntity.setMD5(DigestUtils.md5Hex(content));
+        deployManifestFileEntity.setLocalPath(file.getAbsolutePath());
+        DeployMetaEntity deployMetaEntity = new DeployMetaEntity();
+        deployMetaEntity.setDeviceEntity(deviceEntity);
+        deployMetaEntity.setComponentHistoryEntity(componentHistoryEntity);
+        deployMetaEntity.setDeployManifestFileEntity(deployManifestFileEntity);
+        return deployMetaEntity;
+    }
+
+    private DeployLogEntity deploy(DeployMetaEntity deployMetaEntity) throws IOException {
+        return deploy(Collections.singletonList(deployMetaEntity));
+    }
+
+    private DeployLogEntity deploy(List<DeployMetaEntity> deployMetaEntityList) throws IOException {
+        DeployLogEntity deployLogEntity = deployMetaService.deployMeta(new DeploymentDesignEntity(), deviceEntity, deployMetaEntityList);
+        assertNotNull(deployLogEntity);
+        return deployLogEntity;
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,266 @@
+package com.rengu.operationsmanagementsuitev3.Service;
+
+import com.rengu.operationsmanagementsuitev3.Configuration.AsyncConfiguration;
+import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Simulator.DeviceAgent;
+import com.rengu.operationsmanagementsuitev3.Simulator.DeviceAgentConfig;
+import com.rengu.operationsmanagementsuitev3.Simulator.DeviceAgentSimulator;
+import com.rengu.operationsmanagementsuitev3.Thread.DeployLogWriterThread;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.FormatUtils;
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 部署文件发送吞吐量对比：同一文件经回环地址上的模拟客户端分别按旧版协议(能力0，fileRecvStart/路径/'r'/'f')和
+ * 流水线协议接收，每种协议分别以改造前的堆内存拷贝发送、transferTo直接发送及预读发送，每轮校验客户端收到内容的MD5并输出MB/s
+ * 旧版协议每个文件包含等待结束确认的读取超时(200ms)，两种协议的结果分开输出，运行的JDK版本随结果一并输出
+ * 此前记录的结果在JDK 17上测得：JDK 8中Socket适配器的输入输出流互相阻塞，部署连接改为直接读写SocketChannel之前流水线轮次无法完成
+ * 默认不执行，运行方式：mvn -B test -Dtest=DeployTransferBenchmarkTest -Dbenchmark=true
+ * 可选参数：-Dbenchmark.size=文件大小(MB，默认256) -Dbenchmark.rounds=每种方式的轮数(默认3)
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 21:40
+ **/
+
+@Slf4j
+public class DeployTransferBenchmarkTest {
+
+    private static final String HOST_ADDRESS = "127.0.6.1";
+    private static final String DEPLOY_PATH = "/opt/oms";
+    // 改造前每次读取并发送的字节数
+    private static final int HEAP_BUFFER_SIZE = 10240;
+    // 预热轮数，不计入结果
+    private static final int WARM_UP_ROUNDS = 1;
+
+    private File tempDirectory;
+    private File file;
+    private String md5;
+    private DeviceAgentSimulator deviceAgentSimulator;
+    private DeviceAgent deviceAgent;
+    private ThreadPoolTaskExecutor deployReadAheadExecutor;
+    private DeployReadAheadService deployReadAheadService;
+    private DeployMetaService deployMetaService;
+    private DeployMetaEntity deployMetaEntity;
+    private HeartbeatEntity heartbeatEntity;
+    private int deployCount;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue("未指定-Dbenchmark=true，跳过吞吐量测试", Boolean.getBoolean("benchmark"));
+        // 固定随机种子生成文件内容，保证每次运行发送相同的数据
+        tempDirectory = Files.createTempDirectory("oms-benchmark").toFile();
+        file = new File(tempDirectory, "benchmark.bin");
+        Random random = new Random(20261017);
+        byte[] bytes = new byte[1024 * 1024];
+        @Cleanup OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+        for (int i = 0; i < Integer.getInteger("benchmark.size", 256); i++) {
+            random.nextBytes(bytes);
+            outputStream.write(bytes);
+        }
+        outputStream.close();
+        @Cleanup InputStream inputStream = FileUtils.openInputStream(file);
+        md5 = DigestUtils.md5Hex(inputStream);
+        // 客户端只启用流水线能力，服务器按心跳中上报的能力选择协议，心跳能力为0时使用旧版协议
+        DeviceAgentConfig deviceAgentConfig = new DeviceAgentConfig();
+        deviceAgentConfig.setAgentCount(1);
+        deviceAgentConfig.setFirstAddress(HOST_ADDRESS);
+        deviceAgentConfig.setHeartbeatInterval(1000 * 60);
+        deviceAgentConfig.setDeployCapability(DeployProtocolUtils.CAPABILITY_PIPELINE);
+        deviceAgentSimulator = new DeviceAgentSimulator(deviceAgentConfig);
+        deviceAgentSimulator.start();
+        Assume.assumeTrue("无法绑定回环地址" + HOST_ADDRESS, deviceAgentSimulator.getDeviceAgentList().size() == 1);
+        deviceAgent = deviceAgentSimulator.getDeviceAgentList().get(0);
+        heartbeatEntity = new HeartbeatEntity();
+        heartbeatEntity.setHostAddress(HOST_ADDRESS);
+        heartbeatEntity.setDeployCapability(DeployProtocolUtils.CAPABILITY_PIPELINE);
+        DeviceService.ONLINE_HOST_ADRESS.put(HOST_ADDRESS, heartbeatEntity);
+        deployReadAheadExecutor = new AsyncConfiguration().deployReadAheadExecutor();
+        deployReadAheadExecutor.initialize();
+        deployReadAheadService = new DeployReadAheadService(deployReadAheadExecutor);
+        deployMetaService = new DeployMetaService(mock(DeployManifestService.class), mock(DeployLogService.class), mock(DeployLogDetailService.class), mock(DeploymentDesignDetailService.class), mock(DeploymentDesignScanResultService.class), new DeployBandwidthService(), mock(DeployProgressService.class), mock(DeployThroughputService.class), mock(DeployLogWriterThread.class), mock(DeployBundleService.class), deployReadAheadService);
+        DeviceEntity deviceEntity = new DeviceEntity();
+        deviceEntity.setHostAddress(HOST_ADDRESS);
+        deviceEntity.setDeployPath(DEPLOY_PATH);
+        ComponentHistoryEntity componentHistoryEntity = new ComponentHistoryEntity();
+        componentHistoryEntity.setName("component");
+        componentHistoryEntity.setVersion("1.0");
+        componentHistoryEntity.setRelativePath("/component");
+        DeployManifestFileEntity deployManifestFileEntity = new DeployManifestFileEntity();
+        deployManifestFileEntity.setSize(file.length());
+        deployManifestFileEntity.setMD5(md5);
+        deployManifestFileEntity.setLocalPath(file.getAbsolutePath());
+        deployMetaEntity = new DeployMetaEntity();
+        deployMetaEntity.setDeviceEntity(deviceEntity);
+        deployMetaEntity.setComponentHistoryEntity(componentHistoryEntity);
+        deployMetaEntity.setDeployManifestFileEntity(deployManifestFileEntity);
+    }
+
+    @After
+    public void tearDown() {
+        if (deviceAgentSimulator != null) {
+            deviceAgentSimulator.stop();
+        }
+        DeviceService.ONLINE_HOST_ADRESS.remove(HOST_ADDRESS);
+        if (deployReadAheadExecutor != null) {
+            deployReadAheadExecutor.shutdown();
+        }
+        FileUtils.deleteQuietly(tempDirectory);
+    }
+
+    @Test
+    public void compareTransferThroughput() throws IOException {
+        int rounds = Integer.getInteger("benchmark.rounds", 3);
+        List<Double> legacyHeapCopyList = new ArrayList<>();
+        List<Double> legacyTransferToList = new ArrayList<>();
+        List<Double> legacyReadAheadList = new ArrayList<>();
+        List<Double> pipelineHeapCopyList = new ArrayList<>();
+        List<Double> pipelineTransferToList = new ArrayList<>();
+        List<Double> pipelineReadAheadList = new ArrayList<>();
+        // 各方式交替执行，减少磁盘缓存及系统负载变化对某一种方式的影响
+        for (int i = 0; i < WARM_UP_ROUNDS + rounds; i++) {
+            heartbeatEntity.setDeployCapability(0);
+            double legacyHeapCopySpeed = measure(this::deployByLegacyHeapCopy);
+            double legacyTransferToSpeed = measureByService(0);
+            double legacyReadAheadSpeed = measureByService(ApplicationConfig.DEPLOY_READ_AHEAD_DEPTH);
+            heartbeatEntity.setDeployCapability(DeployProtocolUtils.CAPABILITY_PIPELINE);
+            double pipelineHeapCopySpeed = measure(this::deployByPipelineHeapCopy);
+            double pipelineTransferToSpeed = measureByService(0);
+            double pipelineReadAheadSpeed = measureByService(ApplicationConfig.DEPLOY_READ_AHEAD_DEPTH);
+            if (i >= WARM_UP_ROUNDS) {
+                legacyHeapCopyList.add(legacyHeapCopySpeed);
+                legacyTransferToList.add(legacyTransferToSpeed);
+                legacyReadAheadList.add(legacyReadAheadSpeed);
+                pipelineHeapCopyList.add(pipelineHeapCopySpeed);
+                pipelineTransferToList.add(pipelineTransferToSpeed);
+                pipelineReadAheadList.add(pipelineReadAheadSpeed);
+            }
+        }
+        log.info("部署吞吐量(" + file.length() / 1024 / 1024 + "MB，" + rounds + "轮，MB/s，Java " + System.getProperty("java.version") + ")：");
+        log.info("旧版协议 改造前(byte[" + HEAP_BUFFER_SIZE + "]+arraycopy+OutputStream.write)：" + format(legacyHeapCopyList));
+        log.info("旧版协议 transferTo(预读关闭)：" + format(legacyTransferToList));
+        log.info("旧版协议 transferTo(预读深度" + ApplicationConfig.DEPLOY_READ_AHEAD_DEPTH + ")：" + format(legacyReadAheadList));
+        log.info("流水线协议 改造前(byte[" + HEAP_BUFFER_SIZE + "]+arraycopy+OutputStream.write)：" + format(pipelineHeapCopyList));
+        log.info("流水线协议 transferTo(预读关闭)：" + format(pipelineTransferToList));
+        log.info("流水线协议 transferTo(预读深度" + ApplicationConfig.DEPLOY_READ_AHEAD_DEPTH + ")：" + format(pipelineReadAheadList));
+    }
+
+    // 执行一次部署并校验客户端收到内容的MD5，返回MB/s，每次部署使用不同的路径，避免读到上一轮的结果
+    private double measure(Deployment deployment) throws IOException {
+        deployCount = deployCount + 1;
+        deployMetaEntity.getDeployManifestFileEntity().setRelativePath("/data/benchmark-" + deployCount + ".bin");
+        long startTime = System.nanoTime();
+        deployment.deploy();
+        long time = System.nanoTime() - startTime;
+        assertEquals(md5, deviceAgent.getDeployedMD5(deployMetaService.getTargetPath(deployMetaEntity)));
+        return (double) file.length() / 1024 / 1024 / (time / 1e9);
+    }
+
+    private double measureByService(int readAheadDepth) throws IOException {
+        deployReadAheadService.updateDeployReadAhead(readAheadDepth);
+        return measure(this::deployByService);
+    }
+
+    private void deployByService() throws IOException {
+        DeployLogEntity deployLogEntity = deployMetaService.deployMeta(new DeploymentDesignEntity(), deployMetaEntity.getDeviceEntity(), Collections.singletonList(deployMetaEntity));
+        assertTrue(deployLogEntity.isComplete());
+    }
+
+    // 按改造前的旧版协议发送：路径确认后以堆内存拷贝发送文件内容，等待结束确认期间每次读取超时补发fileRecvEnd
+    private void deployByLegacyHeapCopy() throws IOException {
+        @Cleanup Socket socket = new Socket(HOST_ADDRESS, ApplicationConfig.TCP_DEPLOY_PORT);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(200);
+        InputStream inputStream = socket.getInputStream();
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write("fileRecvStart".getBytes());
+        outputStream.write(FormatUtils.getString(deployMetaService.getTargetPath(deployMetaEntity), 255).getBytes());
+        readLegacyReply(inputStream, outputStream, 'r', null);
+        sendByHeapCopy(outputStream);
+        readLegacyReply(inputStream, outputStream, 'f', "fileRecvEnd");
+        outputStream.write("DeployEnd".getBytes());
+    }
+
+    // 按改造前的方式发送：每次读取到堆内存缓冲区，复制后写入Socket输出流，帧格式与transferFile相同
+    private void deployByPipelineHeapCopy() throws IOException {
+        @Cleanup Socket socket = new Socket(HOST_ADDRESS, ApplicationConfig.TCP_DEPLOY_PORT);
+        socket.setTcpNoDelay(true);
+        InputStream inputStream = socket.getInputStream();
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(DeployProtocolUtils.getPipelineFileHeader(1, file.length(), deployMetaService.getTargetPath(deployMetaEntity)));
+        sendByHeapCopy(outputStream);
+        byte[] reply = DeployProtocolUtils.readReply(inputStream, DeployProtocolUtils.TAG_LENGTH + DeployProtocolUtils.PIPELINE_FILE_REPLY_LENGTH, ApplicationConfig.REPLY_TIME_OUT);
+        assertEquals(DeployProtocolUtils.FILE_STATE_SUCCEED, (char) reply[reply.length - 1]);
+        outputStream.write("DeployEnd".getBytes());
+    }
+
+    private void sendByHeapCopy(OutputStream outputStream) throws IOException {
+        @Cleanup RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        long sendSize = 0;
+        while (sendSize < file.length()) {
+            byte[] buffer = new byte[HEAP_BUFFER_SIZE];
+            int readSize = randomAccessFile.read(buffer);
+            if (readSize == -1) {
+                break;
+            }
+            sendSize = sendSize + readSize;
+            byte[] sendBuffer = new byte[readSize];
+            System.arraycopy(buffer, 0, sendBuffer, 0, readSize);
+            outputStream.write(sendBuffer);
+        }
+    }
+
+    // 读取旧版协议的单字节确认，读取超时时补发resend(可为空)，超过回复超时时间后抛出异常
+    private void readLegacyReply(InputStream inputStream, OutputStream outputStream, int reply, String resend) throws IOException {
+        long startTime = System.currentTimeMillis();
+        while (true) {
+            try {
+                if (inputStream.read() == reply) {
+                    return;
+                }
+            } catch (SocketTimeoutException exception) {
+                if (resend != null) {
+                    outputStream.write(resend.getBytes());
+                }
+                if (System.currentTimeMillis() - startTime >= ApplicationConfig.REPLY_TIME_OUT) {
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    private String format(List<Double> speedList) {
+        double total = 0;
+        StringBuilder stringBuilder = new StringBuilder();
+        for (double speed : speedList) {
+            total = total + speed;
+            stringBuilder.append(String.format("%.0f", speed)).append(" / ");
+        }
+        return stringBuilder.append("平均").append(String.format("%.0f", total / speedList.size())).toString();
+    }
+
+    private interface Deployment {
+        void deploy() throws IOException;
+    }
+}
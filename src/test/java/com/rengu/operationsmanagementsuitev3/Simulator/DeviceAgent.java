@@ -0,0 +1,659 @@
+package com.rengu.operationsmanagementsuitev3.Simulator;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeltaSignatureEntity;
+import com.rengu.operationsmanagementsuitev3.Service.OrderService;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import com.rengu.operationsmanagementsuitev3.Utils.DeltaUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import com.rengu.operationsmanagementsuitev3.Utils.FormatUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.*;
+import java.net.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 单个模拟客户端：绑定独立的地址发送心跳，响应扫描指令，并按旧版或扩展部署协议接收部署文件。
+ * 接收的文件不写入磁盘，只记录部署路径及MD5，供部署设计扫描时回复；配置保存文件内容时同时在内存中保留接收的内容，
+ * 按已保存的内容回复续传位置及差量校验信息，供测试校验落地的数据。
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 15:45
+ **/
+
+@Slf4j
+public class DeviceAgent {
+
+    // 心跳报文标识，服务器不校验该字段
+    public static final String HEARTBEAT_TAG = "C101";
+    // 旧版部署协议标志
+    private static final String FILE_RECV_END = "fileRecvEnd";
+    private static final int ORDER_BUFFER_SIZE = 1024;
+    private static final int RECEIVE_BUFFER_SIZE = 64 * 1024;
+    // 差量指令中字面数据长度及块序号字段的长度
+    private static final int DELTA_FIELD_LENGTH = 10;
+    // 阻塞线程较多，使用较小的线程栈
+    private static final long THREAD_STACK_SIZE = 128 * 1024;
+
+    private final DeviceAgentConfig deviceAgentConfig;
+    private final DeviceAgentSimulator deviceAgentSimulator;
+    private final InetAddress inetAddress;
+    // 已部署文件：部署路径 -> MD5
+    private final Map<String, String> deployedFileMap = new ConcurrentHashMap<>();
+    // 已保存的文件内容(配置保存文件内容时)：部署路径 -> 内容
+    private final Map<String, byte[]> fileContentMap = new ConcurrentHashMap<>();
+    private DatagramSocket heartbeatSocket;
+    private DatagramSocket orderSocket;
+    private ServerSocket deploySocket;
+    private volatile boolean running;
+
+    public DeviceAgent(DeviceAgentConfig deviceAgentConfig, DeviceAgentSimulator deviceAgentSimulator, InetAddress inetAddress) {
+        this.deviceAgentConfig = deviceAgentConfig;
+        this.deviceAgentSimulator = deviceAgentSimulator;
+        this.inetAddress = inetAddress;
+    }
+
+    public String getHostAddress() {
+        return inetAddress.getHostAddress();
+    }
+
+    // 查询已部署文件的MD5，未部署时返回null
+    public String getDeployedMD5(String targetPath) {
+        return deployedFileMap.get(FormatUtils.formatPath(targetPath));
+    }
+
+    // 查询已保存的文件内容，未保存时返回null
+    public byte[] getFileContent(String targetPath) {
+        return fileContentMap.get(FormatUtils.formatPath(targetPath));
+    }
+
+    // 预置设备上已有的文件(如上一版本或上次中断时写入的部分内容)，作为续传及差量部署的基础
+    public void putFileContent(String targetPath, byte[] content) {
+        fileContentMap.put(FormatUtils.formatPath(targetPath), content);
+        deployedFileMap.put(FormatUtils.formatPath(targetPath), DigestUtils.md5Hex(content));
+    }
+
+    // 绑定心跳、指令及部署端口并启动监听
+    public void start(ScheduledExecutorService scheduledExecutorService, ExecutorService executorService) throws IOException {
+        heartbeatSocket = new DatagramSocket(new InetSocketAddress(inetAddress, 0));
+        // 关闭时阻塞在接收上的线程退出后才释放端口，允许重新启动时立即复用
+        orderSocket = new DatagramSocket(null);
+        orderSocket.setReuseAddress(true);
+        orderSocket.bind(new InetSocketAddress(inetAddress, ApplicationConfig.UDP_SEND_PORT));
+        deploySocket = new ServerSocket();
+        deploySocket.setReuseAddress(true);
+        deploySocket.bind(new InetSocketAddress(inetAddress, ApplicationConfig.TCP_DEPLOY_PORT), 16);
+        running = true;
+        // 心跳在间隔内随机错开，避免所有客户端同时发送
+        long initialDelay = ThreadLocalRandom.current().nextLong(Math.max(1, deviceAgentConfig.getHeartbeatInterval()));
+        scheduledExecutorService.scheduleAtFixedRate(this::sendHeartbeat, initialDelay, deviceAgentConfig.getHeartbeatInterval(), TimeUnit.MILLISECONDS);
+        startThread(() -> receiveOrder(scheduledExecutorService), "OMS-Agent-Order-" + getHostAddress());
+        startThread(() -> acceptDeploy(scheduledExecutorService, executorService), "OMS-Agent-Deploy-" + getHostAddress());
+    }
+
+    public void stop() {
+        running = false;
+        if (heartbeatSocket != null) {
+            heartbeatSocket.close();
+        }
+        if (orderSocket != null) {
+            orderSocket.close();
+        }
+        try {
+            if (deploySocket != null) {
+                deploySocket.close();
+            }
+        } catch (IOException e) {
+            log.info(getHostAddress() + ":关闭部署端口失败：" + e.getMessage());
+        }
+    }
+
+    private void startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(null, runnable, name, THREAD_STACK_SIZE);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // 按UDPReceiveThread解析的格式发送心跳，末尾附加部署能力
+    private void sendHeartbeat() {
+        if (!running) {
+            return;
+        }
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            byteArrayOutputStream.write(HEARTBEAT_TAG.getBytes());
+            byteArrayOutputStream.write(0);
+            byteArrayOutputStream.write(FormatUtils.getString("Simulator", 16).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString("OMS Simulated CPU", 64).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString("2400", 6).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString(String.valueOf(random.nextInt(100)), 4).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString("16384", 6).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString(String.valueOf(4096 + random.nextInt(8192)), 6).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString("0.0", 8).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString("0.0", 8).getBytes());
+            byteArrayOutputStream.write(FormatUtils.getString(String.valueOf(deviceAgentConfig.getDeployCapability()), DeployProtocolUtils.CAPABILITY_LENGTH).getBytes());
+            byte[] bytes = byteArrayOutputStream.toByteArray();
+            heartbeatSocket.send(new DatagramPacket(bytes, bytes.length, new InetSocketAddress(deviceAgentConfig.getServerAddress(), ApplicationConfig.UDP_RECEIVE_PORT)));
+            deviceAgentSimulator.getHeartbeatCount().incrementAndGet();
+        } catch (IOException e) {
+            if (running) {
+                log.info(getHostAddress() + ":心跳发送失败：" + e.getMessage());
+            }
+        }
+    }
+
+    // 接收OrderService发送的扫描指令
+    private void receiveOrder(ScheduledExecutorService scheduledExecutorService) {
+        DatagramPacket datagramPacket = new DatagramPacket(new byte[ORDER_BUFFER_SIZE], ORDER_BUFFER_SIZE);
+        while (running) {
+            try {
+                orderSocket.receive(datagramPacket);
+                String message = new String(datagramPacket.getData(), 0, datagramPacket.getLength());
+                deviceAgentSimulator.getOrderCount().incrementAndGet();
+                byte[] reply = handleOrder(message);
+                if (reply != null) {
+                    scheduledExecutorService.schedule(() -> sendReply(reply), deviceAgentConfig.getReplyLatency(), TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.info(getHostAddress() + ":指令接收失败：" + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // 按TCPReceiveThread解析的格式生成扫描结果
+    private byte[] handleOrder(String message) {
+        String tag = message.substring(0, 4).trim();
+        StringBuilder stringBuilder = new StringBuilder();
+        if (tag.equals(OrderService.DEPLOY_DESIGN_SCAN) || tag.equals(OrderService.DEPLOY_DESIGN_SCAN_WITH_EXTENSIONS)) {
+            int pointer = 4;
+            String id = message.substring(pointer, pointer + 37).trim();
+            pointer = pointer + 37;
+            String deploymentDesignNodeId = message.substring(pointer, pointer + 37).trim();
+            pointer = pointer + 37;
+            String deploymentDesignDetailId = message.substring(pointer, pointer + 37).trim();
+            pointer = pointer + 37;
+            if (tag.equals(OrderService.DEPLOY_DESIGN_SCAN_WITH_EXTENSIONS)) {
+                pointer = pointer + 128;
+            }
+            String targetPath = FormatUtils.formatPath(message.substring(pointer, Math.min(message.length(), pointer + 256)).trim());
+            stringBuilder.append(FormatUtils.getString(OrderService.DEPLOY_DESIGN_SCAN_RESULT_TAG, 4)).append(FormatUtils.getString(id, 36)).append(FormatUtils.getString(deploymentDesignNodeId, 36)).append(FormatUtils.getString(deploymentDesignDetailId, 36));
+            for (Map.Entry<String, String> entry : deployedFileMap.entrySet()) {
+                if (entry.getKey().startsWith(targetPath)) {
+                    stringBuilder.append(FormatUtils.getString(entry.getKey(), 256)).append(FormatUtils.getString(entry.getValue(), 34));
+                }
+            }
+            return stringBuilder.toString().getBytes();
+        }
+        if (tag.equals(OrderService.PROCESS_SCAN_TAG)) {
+            stringBuilder.append(FormatUtils.getString(OrderService.PROCESS_SCAN_RESULT_TAG, 4)).append(FormatUtils.getString(message.substring(5, 42).trim(), 37));
+            for (int i = 0; i < deviceAgentConfig.getProcessCount(); i++) {
+                stringBuilder.append(FormatUtils.getString(String.valueOf(1000 + i), 5)).append(FormatUtils.getString("simulated-process-" + i, 128)).append(FormatUtils.getString("0", 8)).append(FormatUtils.getString(String.valueOf(1024 * (i + 1)), 8));
+            }
+            return stringBuilder.toString().getBytes();
+        }
+        if (tag.equals(OrderService.DISK_SCAN_TAG)) {
+            stringBuilder.append(FormatUtils.getString(OrderService.DISK_SCAN_RESULT_TAG, 4)).append(FormatUtils.getString(message.substring(5, 42).trim(), 37));
+            stringBuilder.append(FormatUtils.getString("/", 32)).append(FormatUtils.getString("512000", 12)).append(FormatUtils.getString("128000", 12));
+            return stringBuilder.toString().getBytes();
+        }
+        log.info(getHostAddress() + ":无法识别的指令：" + tag);
+        return null;
+    }
+
+    // 从本客户端地址连接服务器TCP端口发送扫描结果
+    private void sendReply(byte[] reply) {
+        try (Socket socket = new Socket()) {
+            socket.bind(new InetSocketAddress(inetAddress, 0));
+            socket.connect(new InetSocketAddress(deviceAgentConfig.getServerAddress(), ApplicationConfig.TCP_RECEIVE_PORT), (int) ApplicationConfig.REPLY_TIME_OUT);
+            socket.getOutputStream().write(reply);
+            socket.shutdownOutput();
+            deviceAgentSimulator.getReplyCount().incrementAndGet();
+        } catch (IOException e) {
+            log.info(getHostAddress() + ":扫描结果发送失败：" + e.getMessage());
+        }
+    }
+
+    private void acceptDeploy(ScheduledExecutorService scheduledExecutorService, ExecutorService executorService) {
+        while (running) {
+            try {
+                Socket socket = deploySocket.accept();
+                executorService.execute(() -> handleDeploy(socket, scheduledExecutorService));
+            } catch (IOException e) {
+                if (running) {
+                    log.info(getHostAddress() + ":部署连接接收失败：" + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // 部署会话：连接建立后依次读取报文标识，扩展协议的文件确认按配置的延迟异步回复
+    private void handleDeploy(Socket socket, ScheduledExecutorService scheduledExecutorService) {
+        long startTime = System.currentTimeMillis();
+        DeploySession deploySession = null;
+        try {
+            socket.setTcpNoDelay(true);
+            deploySession = new DeploySession(socket, scheduledExecutorService);
+            while (true) {
+                String tag = deploySession.readString(DeployProtocolUtils.TAG_LENGTH);
+                if (tag.equals(DeployProtocolUtils.MODE_TAG)) {
+                    int capability = (int) deploySession.readNumber(DeployProtocolUtils.CAPABILITY_LENGTH) & deviceAgentConfig.getDeployCapability();
+                    deploySession.readNumber(DeployProtocolUtils.WINDOW_LENGTH);
+                    deploySession.write((DeployProtocolUtils.MODE_REPLY_TAG + FormatUtils.getString(String.valueOf(capability), DeployProtocolUtils.CAPABILITY_LENGTH)).getBytes());
+                } else if (tag.equals("file")) {
+                    // fileRecvStart或服务器等待结束确认期间多发送的fileRecvEnd
+                    if (deploySession.readString(7).equals("RecvSta")) {
+                        deploySession.readString(2);
+                        receiveLegacyFile(deploySession, deploySession.readString(DeployProtocolUtils.PATH_LENGTH));
+                    }
+                } else if (tag.equals("Depl")) {
+                    deploySession.readString(5);
+                    deviceAgentSimulator.getDeployCount().incrementAndGet();
+                    deviceAgentSimulator.getDeployTime().addAndGet(System.currentTimeMillis() - startTime);
+                    break;
+                } else if (tag.equals(DeployProtocolUtils.PIPELINE_FILE_TAG)) {
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    long size = deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    String targetPath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+                    ByteArrayOutputStream contentStream = createContentStream();
+                    String md5 = deploySession.receiveContent(size, contentStream);
+                    completeFile(deploySession, sequence, targetPath, md5, null, contentStream);
+                } else if (tag.equals(DeployProtocolUtils.RESUME_TAG)) {
+                    // 未保存部分文件时始终从头接收，否则从检查点与已保存内容中较小的位置续传
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    long checkpoint = deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    deploySession.readString(DeployProtocolUtils.MD5_LENGTH);
+                    byte[] content = getFileContent(deploySession.readString(DeployProtocolUtils.PATH_LENGTH));
+                    long offset = content == null ? 0 : Math.min(checkpoint, content.length);
+                    deploySession.write((DeployProtocolUtils.RESUME_REPLY_TAG + FormatUtils.getString(String.valueOf(sequence), DeployProtocolUtils.SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(offset), DeployProtocolUtils.SIZE_LENGTH)).getBytes());
+                } else if (tag.equals(DeployProtocolUtils.RESUME_FILE_TAG)) {
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    long size = deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    long offset = deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    String expectMD5 = deploySession.readString(DeployProtocolUtils.MD5_LENGTH);
+                    String targetPath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+                    byte[] content = getFileContent(targetPath);
+                    ByteArrayOutputStream contentStream = createContentStream();
+                    if (contentStream != null && content != null && offset <= content.length) {
+                        contentStream.write(content, 0, (int) offset);
+                    }
+                    String md5 = deploySession.receiveContent(size - offset, contentStream);
+                    if (contentStream != null && contentStream.size() == size) {
+                        completeFile(deploySession, sequence, targetPath, DigestUtils.md5Hex(contentStream.toByteArray()), expectMD5, contentStream);
+                    } else {
+                        completeFile(deploySession, sequence, targetPath, md5, offset == 0 ? expectMD5 : null, null);
+                    }
+                } else if (tag.equals(DeployProtocolUtils.SIGNATURE_TAG)) {
+                    // 未保存目标文件时回复块数量为0，服务器改为完整发送
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    int blockSize = (int) deploySession.readNumber(DeltaUtils.BLOCK_SIZE_LENGTH);
+                    byte[] content = getFileContent(deploySession.readString(DeployProtocolUtils.PATH_LENGTH));
+                    List<DeltaSignatureEntity> deltaSignatureEntityList = content == null || blockSize <= 0 ? new ArrayList<>() : getSignatures(content, blockSize);
+                    deploySession.write((DeployProtocolUtils.SIGNATURE_REPLY_TAG + FormatUtils.getString(String.valueOf(sequence), DeployProtocolUtils.SEQUENCE_LENGTH) + FormatUtils.getString(String.valueOf(deltaSignatureEntityList.size()), DeltaUtils.COUNT_LENGTH) + new String(DeltaUtils.toBytes(deltaSignatureEntityList))).getBytes());
+                } else if (tag.equals(DeployProtocolUtils.DELTA_FILE_TAG)) {
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    int blockSize = (int) deploySession.readNumber(DeltaUtils.BLOCK_SIZE_LENGTH);
+                    String expectMD5 = deploySession.readString(DeployProtocolUtils.MD5_LENGTH);
+                    String targetPath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+                    ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
+                    boolean succeed = deploySession.receiveDelta(getFileContent(targetPath), blockSize, contentStream);
+                    String md5 = DigestUtils.md5Hex(contentStream.toByteArray());
+                    completeFile(deploySession, sequence, targetPath, succeed ? md5 : null, expectMD5, deviceAgentConfig.isStoreContent() ? contentStream : null);
+                } else if (tag.equals(DeployProtocolUtils.COMPRESS_FILE_TAG)) {
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    String expectMD5 = deploySession.readString(DeployProtocolUtils.MD5_LENGTH);
+                    String targetPath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+                    ByteArrayOutputStream contentStream = createContentStream();
+                    String md5 = deploySession.receiveCompressContent(contentStream);
+                    completeFile(deploySession, sequence, targetPath, md5, expectMD5, contentStream);
+                } else if (tag.equals(DeployProtocolUtils.BUNDLE_FILE_TAG)) {
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    long fileCount = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    String targetPath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+                    receiveBundle(deploySession, sequence, targetPath, fileCount);
+                } else if (tag.equals(DeployProtocolUtils.COPY_FILE_TAG)) {
+                    long sequence = deploySession.readNumber(DeployProtocolUtils.SEQUENCE_LENGTH);
+                    deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+                    String expectMD5 = deploySession.readString(DeployProtocolUtils.MD5_LENGTH);
+                    String sourcePath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+                    String targetPath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+                    copyFile(deploySession, sequence, sourcePath, targetPath, expectMD5);
+                } else {
+                    log.info(getHostAddress() + ":无法识别的部署报文：" + tag.trim());
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // 服务器关闭连接
+        } catch (IOException e) {
+            if (running) {
+                log.info(getHostAddress() + ":部署连接异常：" + e.getMessage());
+            }
+        } finally {
+            if (deploySession != null) {
+                deploySession.close();
+            } else {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    log.info(getHostAddress() + ":关闭部署连接失败：" + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // 旧版协议：确认路径后接收文件内容，直到数据流以fileRecvEnd结尾
+    private void receiveLegacyFile(DeploySession deploySession, String targetPath) throws IOException {
+        deploySession.write(new byte[]{'r'});
+        ByteArrayOutputStream contentStream = createContentStream();
+        String md5 = deploySession.receiveLegacyContent(contentStream);
+        if (injectDisconnect()) {
+            throw new IOException("模拟部署连接中断");
+        }
+        deviceAgentSimulator.getFileCount().incrementAndGet();
+        // 不回复结束确认，由服务器按超时处理为失败
+        if (injectFailure()) {
+            deviceAgentSimulator.getFailedFileCount().incrementAndGet();
+            return;
+        }
+        saveFile(targetPath, md5, contentStream);
+        deploySession.writeLater(new byte[]{'f'});
+    }
+
+    // 部署包：按条目写入部署路径+相对路径，全部文件MD5一致时回复成功
+    private void receiveBundle(DeploySession deploySession, long sequence, String targetPath, long fileCount) throws IOException {
+        boolean succeed = true;
+        for (long i = 0; i < fileCount; i++) {
+            String relativePath = deploySession.readString(DeployProtocolUtils.PATH_LENGTH);
+            long size = deploySession.readNumber(DeployProtocolUtils.SIZE_LENGTH);
+            String expectMD5 = deploySession.readString(DeployProtocolUtils.MD5_LENGTH);
+            ByteArrayOutputStream contentStream = createContentStream();
+            String md5 = deploySession.receiveContent(size, contentStream);
+            if (expectMD5.isEmpty() || expectMD5.equalsIgnoreCase(md5)) {
+                saveFile(targetPath + relativePath, md5, contentStream);
+            } else {
+                succeed = false;
+            }
+        }
+        completeReply(deploySession, sequence, succeed, (int) fileCount);
+    }
+
+    // 本地复制：源文件已写入且MD5一致时复制到部署路径，否则回复失败
+    private void copyFile(DeploySession deploySession, long sequence, String sourcePath, String targetPath, String expectMD5) throws IOException {
+        String md5 = deployedFileMap.get(FormatUtils.formatPath(sourcePath));
+        if (md5 != null && md5.equalsIgnoreCase(expectMD5)) {
+            deployedFileMap.put(FormatUtils.formatPath(targetPath), md5);
+            byte[] content = getFileContent(sourcePath);
+            if (content != null) {
+                fileContentMap.put(FormatUtils.formatPath(targetPath), content);
+            }
+            deviceAgentSimulator.getCopyCount().incrementAndGet();
+            completeReply(deploySession, sequence, true, 1);
+        } else {
+            completeReply(deploySession, sequence, false, 1);
+        }
+    }
+
+    // 扩展协议文件接收完成，校验MD5并按配置注入失败，md5为null表示接收的内容无法还原
+    private void completeFile(DeploySession deploySession, long sequence, String targetPath, String md5, String expectMD5, ByteArrayOutputStream contentStream) throws IOException {
+        boolean succeed = md5 != null && (expectMD5 == null || expectMD5.isEmpty() || expectMD5.equalsIgnoreCase(md5));
+        if (succeed) {
+            saveFile(targetPath, md5, contentStream);
+        }
+        completeReply(deploySession, sequence, succeed, 1);
+    }
+
+    private void saveFile(String targetPath, String md5, ByteArrayOutputStream contentStream) {
+        deployedFileMap.put(FormatUtils.formatPath(targetPath), md5);
+        if (contentStream != null) {
+            fileContentMap.put(FormatUtils.formatPath(targetPath), contentStream.toByteArray());
+        }
+    }
+
+    // 配置保存文件内容时创建接收缓冲，否则返回null
+    private ByteArrayOutputStream createContentStream() {
+        return deviceAgentConfig.isStoreContent() ? new ByteArrayOutputStream() : null;
+    }
+
+    // 按DeltaUtils的格式计算已保存内容的块校验信息
+    private List<DeltaSignatureEntity> getSignatures(byte[] content, int blockSize) {
+        List<DeltaSignatureEntity> deltaSignatureEntityList = new ArrayList<>();
+        for (int offset = 0, index = 0; offset < content.length; offset = offset + blockSize, index++) {
+            int length = Math.min(blockSize, content.length - offset);
+            DeltaSignatureEntity deltaSignatureEntity = new DeltaSignatureEntity();
+            deltaSignatureEntity.setIndex(index);
+            deltaSignatureEntity.setWeak(DeltaUtils.getWeakChecksum(content, offset, length));
+            deltaSignatureEntity.setStrong(DigestUtils.md5Hex(Arrays.copyOfRange(content, offset, offset + length)));
+            deltaSignatureEntityList.add(deltaSignatureEntity);
+        }
+        return deltaSignatureEntityList;
+    }
+
+    private void completeReply(DeploySession deploySession, long sequence, boolean succeed, int fileCount) throws IOException {
+        if (injectDisconnect()) {
+            throw new IOException("模拟部署连接中断");
+        }
+        succeed = succeed && !injectFailure();
+        deviceAgentSimulator.getFileCount().addAndGet(fileCount);
+        if (!succeed) {
+            deviceAgentSimulator.getFailedFileCount().addAndGet(fileCount);
+        }
+        byte[] reply = (DeployProtocolUtils.PIPELINE_FILE_REPLY_TAG + FormatUtils.getString(String.valueOf(sequence), DeployProtocolUtils.SEQUENCE_LENGTH) + (succeed ? DeployProtocolUtils.FILE_STATE_SUCCEED : DeployProtocolUtils.FILE_STATE_FAILED)).getBytes();
+        deploySession.writeLater(reply);
+    }
+
+    private boolean injectFailure() {
+        return deviceAgentConfig.getFileFailureRate() > 0 && ThreadLocalRandom.current().nextDouble() < deviceAgentConfig.getFileFailureRate();
+    }
+
+    private boolean injectDisconnect() {
+        return deviceAgentConfig.getDisconnectRate() > 0 && ThreadLocalRandom.current().nextDouble() < deviceAgentConfig.getDisconnectRate();
+    }
+
+    // 单个部署连接的读写状态：按配置限速接收，回复串行写入
+    private class DeploySession {
+
+        private final Socket socket;
+        private final InputStream inputStream;
+        private final OutputStream outputStream;
+        private final ScheduledExecutorService scheduledExecutorService;
+        private final byte[] buffer = new byte[RECEIVE_BUFFER_SIZE];
+        private final long startTime = System.currentTimeMillis();
+        private long receiveSize;
+
+        private DeploySession(Socket socket, ScheduledExecutorService scheduledExecutorService) throws IOException {
+            this.socket = socket;
+            this.inputStream = new BufferedInputStream(socket.getInputStream(), RECEIVE_BUFFER_SIZE);
+            this.outputStream = socket.getOutputStream();
+            this.scheduledExecutorService = scheduledExecutorService;
+        }
+
+        private String readString(int length) throws IOException {
+            byte[] bytes = DeployProtocolUtils.readReply(inputStream, length, 0);
+            throttle(length);
+            return new String(bytes).trim();
+        }
+
+        private long readNumber(int length) throws IOException {
+            byte[] bytes = DeployProtocolUtils.readReply(inputStream, length, 0);
+            throttle(length);
+            return DeployProtocolUtils.parseNumber(bytes, 0, length, 0);
+        }
+
+        // 接收定长内容并计算MD5，contentStream不为null时同时保存内容
+        private String receiveContent(long size, OutputStream contentStream) throws IOException {
+            MessageDigest messageDigest = getMessageDigest();
+            long remainSize = size;
+            while (remainSize > 0) {
+                int readSize = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remainSize));
+                if (readSize < 0) {
+                    throw new EOFException("部署连接已关闭");
+                }
+                messageDigest.update(buffer, 0, readSize);
+                if (contentStream != null) {
+                    contentStream.write(buffer, 0, readSize);
+                }
+                remainSize = remainSize - readSize;
+                throttle(readSize);
+            }
+            return Hex.encodeHexString(messageDigest.digest());
+        }
+
+        // 接收压缩数据段并解压计算MD5
+        private String receiveCompressContent(OutputStream contentStream) throws IOException {
+            MessageDigest messageDigest = getMessageDigest();
+            Inflater inflater = new Inflater();
+            try {
+                byte[] inflateBuffer = new byte[RECEIVE_BUFFER_SIZE];
+                while (true) {
+                    int length = (int) readNumber(DeployProtocolUtils.COMPRESS_SEGMENT_LENGTH);
+                    if (length == 0) {
+                        break;
+                    }
+                    byte[] segment = DeployProtocolUtils.readReply(inputStream, length, 0);
+                    throttle(length);
+                    inflater.setInput(segment);
+                    while (!inflater.needsInput() && !inflater.finished()) {
+                        int inflateSize = inflater.inflate(inflateBuffer);
+                        if (inflateSize == 0 && inflater.needsDictionary()) {
+                            throw new IOException("压缩数据格式错误");
+                        }
+                        messageDigest.update(inflateBuffer, 0, inflateSize);
+                        if (contentStream != null) {
+                            contentStream.write(inflateBuffer, 0, inflateSize);
+                        }
+                    }
+                }
+                return Hex.encodeHexString(messageDigest.digest());
+            } catch (DataFormatException e) {
+                throw new IOException("压缩数据格式错误：" + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+        }
+
+        // 旧版协议没有文件长度，保留末尾可能属于结束标志的字节，数据流以结束标志结尾时完成
+        private String receiveLegacyContent(OutputStream contentStream) throws IOException {
+            MessageDigest messageDigest = getMessageDigest();
+            byte[] endTag = FILE_RECV_END.getBytes();
+            byte[] pending = new byte[0];
+            while (true) {
+                int readSize = inputStream.read(buffer);
+                if (readSize < 0) {
+                    throw new EOFException("部署连接已关闭");
+                }
+                throttle(readSize);
+                byte[] bytes = new byte[pending.length + readSize];
+                System.arraycopy(pending, 0, bytes, 0, pending.length);
+                System.arraycopy(buffer, 0, bytes, pending.length, readSize);
+                int keepSize = Math.min(endTag.length, bytes.length);
+                messageDigest.update(bytes, 0, bytes.length - keepSize);
+                if (contentStream != null) {
+                    contentStream.write(bytes, 0, bytes.length - keepSize);
+                }
+                pending = new byte[keepSize];
+                System.arraycopy(bytes, bytes.length - keepSize, pending, 0, keepSize);
+                if (new String(pending).equals(FILE_RECV_END)) {
+                    return Hex.encodeHexString(messageDigest.digest());
+                }
+            }
+        }
+
+        // 接收差量指令并按目标文件的数据块还原文件内容，引用的数据块不存在时继续读取至结束指令并返回false
+        private boolean receiveDelta(byte[] content, int blockSize, OutputStream contentStream) throws IOException {
+            boolean succeed = true;
+            while (true) {
+                String instruction = readString(1);
+                if (instruction.equals(String.valueOf(DeltaUtils.LITERAL))) {
+                    receiveContent(readNumber(DELTA_FIELD_LENGTH), contentStream);
+                } else if (instruction.equals(String.valueOf(DeltaUtils.BLOCK))) {
+                    long offset = readNumber(DELTA_FIELD_LENGTH) * blockSize;
+                    if (content == null || offset >= content.length) {
+                        succeed = false;
+                        continue;
+                    }
+                    contentStream.write(content, (int) offset, (int) Math.min(blockSize, content.length - offset));
+                } else if (instruction.equals(String.valueOf(DeltaUtils.END))) {
+                    return succeed;
+                } else {
+                    throw new IOException("差量指令格式错误：" + instruction);
+                }
+            }
+        }
+
+        // 按带宽限制等待，使平均接收速度不超过配置值
+        private void throttle(long size) throws IOException {
+            receiveSize = receiveSize + size;
+            deviceAgentSimulator.getReceiveSize().addAndGet(size);
+            if (deviceAgentConfig.getBandwidth() <= 0) {
+                return;
+            }
+            long waitTime = receiveSize * 1000 / deviceAgentConfig.getBandwidth() - (System.currentTimeMillis() - startTime);
+            if (waitTime > 0) {
+                try {
+                    Thread.sleep(waitTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("接收被中断");
+                }
+            }
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            synchronized (outputStream) {
+                outputStream.write(bytes);
+                outputStream.flush();
+            }
+        }
+
+        // 按配置的延迟回复，不阻塞后续文件的接收
+        private void writeLater(byte[] bytes) throws IOException {
+            if (deviceAgentConfig.getReplyLatency() <= 0) {
+                write(bytes);
+                return;
+            }
+            scheduledExecutorService.schedule(() -> {
+                try {
+                    write(bytes);
+                } catch (IOException e) {
+                    log.info(getHostAddress() + ":部署回复发送失败：" + e.getMessage());
+                }
+            }, deviceAgentConfig.getReplyLatency(), TimeUnit.MILLISECONDS);
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.info(getHostAddress() + ":关闭部署连接失败：" + e.getMessage());
+            }
+        }
+
+        private MessageDigest getMessageDigest() throws IOException {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.rengu.operationsmanagementsuitev3.Simulator;
+
+import com.rengu.operationsmanagementsuitev3.Utils.DeployProtocolUtils;
+import lombok.Data;
+
+/**
+ * 模拟客户端配置，可通过-Dsimulator.xxx系统属性覆盖默认值
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 15:40
+ **/
+
+@Data
+public class DeviceAgentConfig {
+
+    // 服务器地址
+    private String serverAddress = "127.0.0.1";
+    // 模拟客户端数量及起始地址，依次递增分配(Linux下127.0.0.0/8均可直接绑定，其它网段需预先配置网卡别名)
+    private int agentCount = 10;
+    private String firstAddress = "127.0.1.1";
+    // 心跳间隔(毫秒)
+    private long heartbeatInterval = 1000;
+    // 心跳中上报的部署能力(组播部署需要加入组播组，模拟客户端不支持)
+    private int deployCapability = DeployProtocolUtils.CAPABILITY_PIPELINE | DeployProtocolUtils.CAPABILITY_RESUME | DeployProtocolUtils.CAPABILITY_DELTA | DeployProtocolUtils.CAPABILITY_COMPRESS | DeployProtocolUtils.CAPABILITY_BUNDLE | DeployProtocolUtils.CAPABILITY_COPY;
+    // 回复延迟(毫秒)，作用于扫描结果及文件确认
+    private long replyLatency = 0;
+    // 单个客户端接收速度(字节/秒，0表示不限制)
+    private long bandwidth = 0;
+    // 文件写入失败概率及部署过程中断开连接的概率(按文件计算)
+    private double fileFailureRate = 0;
+    private double disconnectRate = 0;
+    // 在内存中保存接收的文件内容，按已保存的内容回复续传位置及差量校验信息(用于测试校验落地的数据，压力测试时关闭)
+    private boolean storeContent = false;
+    // 进程扫描结果中的进程数量
+    private int processCount = 20;
+    // 统计信息打印间隔(毫秒)
+    private long reportInterval = 5000;
+
+    public static DeviceAgentConfig fromSystemProperties() {
+        DeviceAgentConfig deviceAgentConfig = new DeviceAgentConfig();
+        deviceAgentConfig.setServerAddress(System.getProperty("simulator.serverAddress", deviceAgentConfig.getServerAddress()));
+        deviceAgentConfig.setAgentCount(Integer.getInteger("simulator.agentCount", deviceAgentConfig.getAgentCount()));
+        deviceAgentConfig.setFirstAddress(System.getProperty("simulator.firstAddress", deviceAgentConfig.getFirstAddress()));
+        deviceAgentConfig.setHeartbeatInterval(Long.getLong("simulator.heartbeatInterval", deviceAgentConfig.getHeartbeatInterval()));
+        deviceAgentConfig.setDeployCapability(Integer.getInteger("simulator.deployCapability", deviceAgentConfig.getDeployCapability()));
+        deviceAgentConfig.setReplyLatency(Long.getLong("simulator.replyLatency", deviceAgentConfig.getReplyLatency()));
+        deviceAgentConfig.setBandwidth(Long.getLong("simulator.bandwidth", deviceAgentConfig.getBandwidth()));
+        deviceAgentConfig.setFileFailureRate(Double.parseDouble(System.getProperty("simulator.fileFailureRate", String.valueOf(deviceAgentConfig.getFileFailureRate()))));
+        deviceAgentConfig.setDisconnectRate(Double.parseDouble(System.getProperty("simulator.disconnectRate", String.valueOf(deviceAgentConfig.getDisconnectRate()))));
+        deviceAgentConfig.setStoreContent(Boolean.parseBoolean(System.getProperty("simulator.storeContent", String.valueOf(deviceAgentConfig.isStoreContent()))));
+        deviceAgentConfig.setProcessCount(Integer.getInteger("simulator.processCount", deviceAgentConfig.getProcessCount()));
+        deviceAgentConfig.setReportInterval(Long.getLong("simulator.reportInterval", deviceAgentConfig.getReportInterval()));
+        return deviceAgentConfig;
+    }
+}
@@ -0,0 +1,137 @@
+package com.rengu.operationsmanagementsuitev3.Simulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟客户端集群：在回环或别名地址上启动多个模拟客户端，对服务器的心跳接收、扫描及部署进行压力测试，
+ * 按固定间隔打印心跳、指令、文件接收等统计信息。
+ * 运行示例：java -Dsimulator.agentCount=1000 -Dsimulator.bandwidth=10485760 ... DeviceAgentSimulator
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 15:58
+ **/
+
+@Slf4j
+public class DeviceAgentSimulator {
+
+    private final DeviceAgentConfig deviceAgentConfig;
+    private final List<DeviceAgent> deviceAgentList = new ArrayList<>();
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final ExecutorService executorService;
+    // 统计信息
+    private final AtomicLong heartbeatCount = new AtomicLong();
+    private final AtomicLong orderCount = new AtomicLong();
+    private final AtomicLong replyCount = new AtomicLong();
+    private final AtomicLong deployCount = new AtomicLong();
+    private final AtomicLong deployTime = new AtomicLong();
+    private final AtomicLong fileCount = new AtomicLong();
+    private final AtomicLong failedFileCount = new AtomicLong();
+    private final AtomicLong copyCount = new AtomicLong();
+    private final AtomicLong receiveSize = new AtomicLong();
+
+    public DeviceAgentSimulator(DeviceAgentConfig deviceAgentConfig) {
+        this.deviceAgentConfig = deviceAgentConfig;
+        this.scheduledExecutorService = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.executorService = Executors.newCachedThreadPool();
+    }
+
+    // 按起始地址依次启动模拟客户端，地址无法绑定时跳过
+    public void start() throws UnknownHostException {
+        int firstAddress = ByteBuffer.wrap(InetAddress.getByName(deviceAgentConfig.getFirstAddress()).getAddress()).getInt();
+        for (int i = 0; i < deviceAgentConfig.getAgentCount(); i++) {
+            InetAddress inetAddress = InetAddress.getByAddress(ByteBuffer.allocate(4).putInt(firstAddress + i).array());
+            DeviceAgent deviceAgent = new DeviceAgent(deviceAgentConfig, this, inetAddress);
+            try {
+                deviceAgent.start(scheduledExecutorService, executorService);
+                deviceAgentList.add(deviceAgent);
+            } catch (IOException e) {
+                deviceAgent.stop();
+                log.info(inetAddress.getHostAddress() + ":模拟客户端启动失败：" + e.getMessage());
+            }
+        }
+        log.info("模拟客户端启动完成，数量：" + deviceAgentList.size() + "，服务器地址：" + deviceAgentConfig.getServerAddress());
+    }
+
+    public void stop() {
+        for (DeviceAgent deviceAgent : deviceAgentList) {
+            deviceAgent.stop();
+        }
+        deviceAgentList.clear();
+        scheduledExecutorService.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    // 打印统计信息及上次打印以来的速率
+    public void report(long[] lastValues, long interval) {
+        long[] values = {heartbeatCount.get(), orderCount.get(), replyCount.get(), deployCount.get(), fileCount.get(), failedFileCount.get(), receiveSize.get()};
+        double seconds = (double) interval / 1000;
+        long deploys = values[3];
+        log.info("心跳：" + values[0] + "(" + (values[0] - lastValues[0]) / seconds + "/s)，指令：" + values[1] + "，扫描回复：" + values[2]
+                + "，完成部署：" + deploys + "(平均耗时" + (deploys == 0 ? 0 : deployTime.get() / deploys) + "ms)，接收文件：" + values[4] + "(" + (values[4] - lastValues[4]) / seconds + "/s)，失败文件：" + values[5] + "，本地复制：" + copyCount.get()
+                + "，接收数据：" + values[6] / 1024 / 1024 + "MB(" + (values[6] - lastValues[6]) / 1024 / seconds + "kb/s)");
+        System.arraycopy(values, 0, lastValues, 0, values.length);
+    }
+
+    public List<DeviceAgent> getDeviceAgentList() {
+        return deviceAgentList;
+    }
+
+    public AtomicLong getHeartbeatCount() {
+        return heartbeatCount;
+    }
+
+    public AtomicLong getOrderCount() {
+        return orderCount;
+    }
+
+    public AtomicLong getReplyCount() {
+        return replyCount;
+    }
+
+    public AtomicLong getDeployCount() {
+        return deployCount;
+    }
+
+    public AtomicLong getDeployTime() {
+        return deployTime;
+    }
+
+    public AtomicLong getFileCount() {
+        return fileCount;
+    }
+
+    public AtomicLong getFailedFileCount() {
+        return failedFileCount;
+    }
+
+    public AtomicLong getCopyCount() {
+        return copyCount;
+    }
+
+    public AtomicLong getReceiveSize() {
+        return receiveSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        DeviceAgentConfig deviceAgentConfig = DeviceAgentConfig.fromSystemProperties();
+        DeviceAgentSimulator deviceAgentSimulator = new DeviceAgentSimulator(deviceAgentConfig);
+        Runtime.getRuntime().addShutdownHook(new Thread(deviceAgentSimulator::stop));
+        deviceAgentSimulator.start();
+        long[] lastValues = new long[7];
+        while (!Thread.currentThread().isInterrupted()) {
+            Thread.sleep(deviceAgentConfig.getReportInterval());
+            deviceAgentSimulator.report(lastValues, deviceAgentConfig.getReportInterval());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.rengu.operationsmanagementsuitev3.Simulator;
+
+import com.rengu.operationsmanagementsuitev3.Configuration.AsyncConfiguration;
+import com.rengu.operationsmanagementsuitev3.Entity.*;
+import com.rengu.operationsmanagementsuitev3.Service.*;
+import com.rengu.operationsmanagementsuitev3.Thread.DeployLogWriterThread;
+import com.rengu.operationsmanagementsuitev3.Thread.UDPReceiveThread;
+import com.rengu.operationsmanagementsuitev3.Utils.ApplicationConfig;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 模拟客户端冒烟测试：少量模拟客户端的心跳由服务器心跳接收登记为在线设备，并完成一次部署
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 21:05
+ **/
+
+public class DeviceAgentSimulatorTest {
+
+    private static final String FIRST_ADDRESS = "127.0.5.1";
+    private static final int AGENT_COUNT = 3;
+    private static final long WAIT_TIME = 1000 * 5;
+
+    private DeviceAgentConfig deviceAgentConfig;
+    private DeviceAgentSimulator deviceAgentSimulator;
+    private DatagramSocket heartbeatSocket;
+    private ThreadPoolTaskExecutor deployReadAheadExecutor;
+    private File tempDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        // 心跳端口被占用(如本机运行着服务器)时跳过测试
+        try {
+            heartbeatSocket = new DatagramSocket(ApplicationConfig.UDP_RECEIVE_PORT);
+        } catch (SocketException e) {
+            Assume.assumeNoException("心跳端口" + ApplicationConfig.UDP_RECEIVE_PORT + "已被占用", e);
+        }
+        UDPReceiveThread udpReceiveThread = new UDPReceiveThread(mock(SimpMessagingTemplate.class));
+        Thread thread = new Thread(() -> {
+            try {
+                udpReceiveThread.receiveHeartbeats(heartbeatSocket);
+            } catch (IOException e) {
+                // 测试结束关闭Socket
+            }
+        }, "OMS-Test-Heartbeat");
+        thread.setDaemon(true);
+        thread.start();
+        deviceAgentConfig = new DeviceAgentConfig();
+        deviceAgentConfig.setAgentCount(AGENT_COUNT);
+        deviceAgentConfig.setFirstAddress(FIRST_ADDRESS);
+        deviceAgentConfig.setHeartbeatInterval(100);
+        deviceAgentSimulator = new DeviceAgentSimulator(deviceAgentConfig);
+        deviceAgentSimulator.start();
+        Assume.assumeTrue("无法绑定回环地址" + FIRST_ADDRESS, deviceAgentSimulator.getDeviceAgentList().size() == AGENT_COUNT);
+        deployReadAheadExecutor = new AsyncConfiguration().deployReadAheadExecutor();
+        deployReadAheadExecutor.initialize();
+        tempDirectory = Files.createTempDirectory("oms-simulator-test").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (heartbeatSocket != null) {
+            heartbeatSocket.close();
+        }
+        if (deviceAgentSimulator != null) {
+            for (DeviceAgent deviceAgent : deviceAgentSimulator.getDeviceAgentList()) {
+                DeviceService.ONLINE_HOST_ADRESS.remove(deviceAgent.getHostAddress());
+            }
+            deviceAgentSimulator.stop();
+        }
+        if (deployReadAheadExecutor != null) {
+            deployReadAheadExecutor.shutdown();
+        }
+        FileUtils.deleteQuietly(tempDirectory);
+    }
+
+    @Test
+    public void heartbeatsRegisterAgentsAndDeploySucceeds() throws Exception {
+        List<DeviceAgent> deviceAgentList = new ArrayList<>(deviceAgentSimulator.getDeviceAgentList());
+        // 心跳接收后登记为在线设备，并记录心跳中上报的部署能力
+        long deadline = System.currentTimeMillis() + WAIT_TIME;
+        while (!isOnline(deviceAgentList) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue("模拟客户端未全部上线", isOnline(deviceAgentList));
+        for (DeviceAgent deviceAgent : deviceAgentList) {
+            assertEquals(deviceAgentConfig.getDeployCapability(), DeviceService.ONLINE_HOST_ADRESS.get(deviceAgent.getHostAddress()).getDeployCapability());
+        }
+
+        DeviceAgent deviceAgent = deviceAgentList.get(0);
+        DeviceEntity deviceEntity = new DeviceEntity();
+        deviceEntity.setHostAddress(deviceAgent.getHostAddress());
+        deviceEntity.setDeployPath("/opt/oms");
+        ComponentHistoryEntity componentHistoryEntity = new ComponentHistoryEntity();
+        componentHistoryEntity.setName("component");
+        componentHistoryEntity.setVersion("1.0");
+        componentHistoryEntity.setRelativePath("/component");
+        DeployManifestEntity deployManifestEntity = new DeployManifestEntity();
+        List<DeployMetaEntity> deployMetaEntityList = new ArrayList<>();
+        Random random = new Random(20261017);
+        for (int i = 0; i < 3; i++) {
+            byte[] content = new byte[1024 * (i + 1) * 100];
+            random.nextBytes(content);
+            File file = new File(tempDirectory, i + ".dat");
+            FileUtils.writeByteArrayToFile(file, content);
+            DeployManifestFileEntity deployManifestFileEntity = new DeployManifestFileEntity();
+            deployManifestFileEntity.setRelativePath("/bin/" + i + ".dat");
+            deployManifestFileEntity.setSize(content.length);
+            deployManifestFileEntity.setMD5(DigestUtils.md5Hex(content));
+            deployManifestFileEntity.setLocalPath(file.getAbsolutePath());
+            DeployMetaEntity deployMetaEntity = new DeployMetaEntity();
+            deployMetaEntity.setDeviceEntity(deviceEntity);
+            deployMetaEntity.setComponentHistoryEntity(componentHistoryEntity);
+            deployMetaEntity.setDeployManifestFileEntity(deployManifestFileEntity);
+            deployMetaEntityList.add(deployMetaEntity);
+            deployManifestEntity.getDeployManifestFileEntityList().add(deployManifestFileEntity);
+        }
+        // 文件数量较少，不打包部署
+        DeployManifestService deployManifestService = mock(DeployManifestService.class);
+        when(deployManifestService.getDeployManifest(componentHistoryEntity)).thenReturn(deployManifestEntity);
+        DeployMetaService deployMetaService = new DeployMetaService(deployManifestService, mock(DeployLogService.class), mock(DeployLogDetailService.class), mock(DeploymentDesignDetailService.class), mock(DeploymentDesignScanResultService.class), new DeployBandwidthService(), mock(DeployProgressService.class), mock(DeployThroughputService.class), mock(DeployLogWriterThread.class), new DeployBundleService(deployManifestService), new DeployReadAheadService(deployReadAheadExecutor));
+
+        DeployLogEntity deployLogEntity = deployMetaService.deployMeta(new DeploymentDesignEntity(), deviceEntity, deployMetaEntityList);
+
+        assertNotNull(deployLogEntity);
+        assertTrue(deployLogEntity.isComplete());
+        for (DeployMetaEntity deployMetaEntity : deployMetaEntityList) {
+            assertEquals(deployMetaEntity.getDeployManifestFileEntity().getMD5(), deviceAgent.getDeployedMD5("/opt/oms/component" + deployMetaEntity.getDeployManifestFileEntity().getRelativePath()));
+        }
+        assertEquals(3, deviceAgentSimulator.getFileCount().get());
+        assertEquals(0, deviceAgentSimulator.getFailedFileCount().get());
+        // 部署结束标志由客户端异步读取
+        deadline = System.currentTimeMillis() + WAIT_TIME;
+        while (deviceAgentSimulator.getDeployCount().get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, deviceAgentSimulator.getDeployCount().get());
+    }
+
+    private boolean isOnline(List<DeviceAgent> deviceAgentList) {
+        for (DeviceAgent deviceAgent : deviceAgentList) {
+            if (!DeviceService.ONLINE_HOST_ADRESS.containsKey(deviceAgent.getHostAddress())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,165 @@
+package com.rengu.operationsmanagementsuitev3.Utils;
+
+import com.rengu.operationsmanagementsuitev3.Entity.DeltaSignatureEntity;
+import lombok.Cleanup;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 差量指令生成：按目标文件的块校验信息生成差量指令，还原后与源文件逐字节比较
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-17 20:25
+ **/
+
+public class DeltaUtilsTest {
+
+    private static final int BLOCK_SIZE = 1024 * 2;
+
+    private final Random random = new Random(20261017);
+    private File tempDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDirectory = Files.createTempDirectory("oms-delta-test").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(tempDirectory);
+    }
+
+    @Test
+    public void unchangedFileSendsNoLiteral() throws IOException {
+        byte[] content = randomBytes(BLOCK_SIZE * 100);
+        ByteArrayOutputStream deltaStream = new ByteArrayOutputStream();
+
+        long literalSize = writeDelta(content, content, deltaStream);
+
+        assertEquals(0, literalSize);
+        assertArrayEquals(content, applyDelta(content, deltaStream.toByteArray()));
+    }
+
+    @Test
+    public void shiftedContentMatchesByRollingChecksum() throws IOException {
+        byte[] oldContent = randomBytes(BLOCK_SIZE * 600);
+        // 开头插入数据使后续数据块整体错位，只有滚动匹配才能找到
+        byte[] insert = randomBytes(777);
+        byte[] content = new byte[oldContent.length + insert.length];
+        System.arraycopy(insert, 0, content, 0, insert.length);
+        System.arraycopy(oldContent, 0, content, insert.length, oldContent.length);
+        ByteArrayOutputStream deltaStream = new ByteArrayOutputStream();
+
+        long literalSize = writeDelta(oldContent, content, deltaStream);
+
+        assertEquals(insert.length, literalSize);
+        assertArrayEquals(content, applyDelta(oldContent, deltaStream.toByteArray()));
+    }
+
+    @Test
+    public void modifiedBlocksAreSentAsLiteral() throws IOException {
+        byte[] oldContent = randomBytes(BLOCK_SIZE * 1000 + 1000);
+        byte[] content = Arrays.copyOf(oldContent, oldContent.length);
+        content[BLOCK_SIZE * 10 + 5] = (byte) ~content[BLOCK_SIZE * 10 + 5];
+        content[BLOCK_SIZE * 700] = (byte) ~content[BLOCK_SIZE * 700];
+        ByteArrayOutputStream deltaStream = new ByteArrayOutputStream();
+
+        long literalSize = writeDelta(oldContent, content, deltaStream);
+
+        // 每处修改只影响所在的一个数据块，最后不足一块的部分无法按块匹配，作为字面数据发送
+        assertEquals(BLOCK_SIZE * 2 + 1000, literalSize);
+        assertArrayEquals(content, applyDelta(oldContent, deltaStream.toByteArray()));
+    }
+
+    @Test
+    public void missingTargetSendsWholeFile() throws IOException {
+        byte[] content = randomBytes(1024 * 1024 * 3 + 17);
+        ByteArrayOutputStream deltaStream = new ByteArrayOutputStream();
+
+        long literalSize = writeDelta(new byte[0], content, deltaStream);
+
+        assertEquals(content.length, literalSize);
+        assertArrayEquals(content, applyDelta(new byte[0], deltaStream.toByteArray()));
+    }
+
+    @Test
+    public void signaturesSurviveSerialization() throws IOException {
+        List<DeltaSignatureEntity> deltaSignatureEntityList = getSignatures(randomBytes(BLOCK_SIZE * 3 + 10));
+
+        List<DeltaSignatureEntity> parsedSignatureEntityList = DeltaUtils.parseSignatures(DeltaUtils.toBytes(deltaSignatureEntityList), 0, deltaSignatureEntityList.size());
+
+        assertEquals(4, parsedSignatureEntityList.size());
+        for (int i = 0; i < deltaSignatureEntityList.size(); i++) {
+            assertEquals(i, parsedSignatureEntityList.get(i).getIndex());
+            assertEquals(deltaSignatureEntityList.get(i).getWeak(), parsedSignatureEntityList.get(i).getWeak());
+            assertEquals(deltaSignatureEntityList.get(i).getStrong(), parsedSignatureEntityList.get(i).getStrong());
+        }
+    }
+
+    // 以oldContent为目标文件、content为源文件生成差量指令，返回字面数据字节数
+    private long writeDelta(byte[] oldContent, byte[] content, ByteArrayOutputStream deltaStream) throws IOException {
+        List<DeltaSignatureEntity> deltaSignatureEntityList = getSignatures(oldContent);
+        @Cleanup FileChannel fileChannel = FileChannel.open(writeFile(content).toPath(), StandardOpenOption.READ);
+        return DeltaUtils.writeDelta(fileChannel, BLOCK_SIZE, deltaSignatureEntityList, deltaStream);
+    }
+
+    private List<DeltaSignatureEntity> getSignatures(byte[] content) throws IOException {
+        if (content.length == 0) {
+            return new ArrayList<>();
+        }
+        @Cleanup FileChannel fileChannel = FileChannel.open(writeFile(content).toPath(), StandardOpenOption.READ);
+        return DeltaUtils.getSignatures(fileChannel, BLOCK_SIZE);
+    }
+
+    // 按客户端的方式还原文件：字面数据直接写入，块引用从目标文件复制
+    private byte[] applyDelta(byte[] oldContent, byte[] delta) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        int pointer = 0;
+        while (true) {
+            char instruction = (char) delta[pointer];
+            pointer = pointer + 1;
+            if (instruction == DeltaUtils.END) {
+                assertEquals("结束指令后不应有数据", delta.length, pointer);
+                return byteArrayOutputStream.toByteArray();
+            }
+            long value = DeployProtocolUtils.parseNumber(delta, pointer, 10, -1);
+            pointer = pointer + 10;
+            if (instruction == DeltaUtils.LITERAL) {
+                byteArrayOutputStream.write(delta, pointer, (int) value);
+                pointer = pointer + (int) value;
+            } else if (instruction == DeltaUtils.BLOCK) {
+                int offset = (int) value * BLOCK_SIZE;
+                byteArrayOutputStream.write(oldContent, offset, Math.min(BLOCK_SIZE, oldContent.length - offset));
+            } else {
+                fail("无法识别的差量指令：" + instruction);
+            }
+        }
+    }
+
+    private File writeFile(byte[] content) throws IOException {
+        File file = File.createTempFile("delta", ".dat", tempDirectory);
+        FileUtils.writeByteArrayToFile(file, content);
+        return file;
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
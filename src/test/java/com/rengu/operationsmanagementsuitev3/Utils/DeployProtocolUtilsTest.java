@@ -0,0 +1,98 @@
+package com.rengu.operationsmanagementsuitev3.Utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * 部署连接读写：回复线程阻塞读取期间，发送线程仍可写入报文(JDK 8的Socket适配器流在此情况下互相阻塞)
+ *
+ * @program: OperationsManagementSuiteV3
+ * @create: 2026-10-18 09:30
+ **/
+
+public class DeployProtocolUtilsTest {
+
+    private static final long WAIT_TIME = 1000 * 5;
+
+    private ServerSocketChannel serverSocketChannel;
+    private SocketChannel socketChannel;
+    private SocketChannel deviceSocketChannel;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        socketChannel = SocketChannel.open(serverSocketChannel.getLocalAddress());
+        deviceSocketChannel = serverSocketChannel.accept();
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executorService.shutdownNow();
+        socketChannel.close();
+        deviceSocketChannel.close();
+        serverSocketChannel.close();
+    }
+
+    @Test
+    public void headerIsWrittenWhileReplyReadIsPending() throws Exception {
+        InputStream inputStream = DeployProtocolUtils.getChannelInputStream(socketChannel);
+        // 按流水线回复线程的方式阻塞读取回复
+        Future<byte[]> replyFuture = executorService.submit(() -> DeployProtocolUtils.readReply(inputStream, DeployProtocolUtils.TAG_LENGTH + DeployProtocolUtils.PIPELINE_FILE_REPLY_LENGTH, 0));
+        Thread.sleep(200);
+        byte[] header = DeployProtocolUtils.getPipelineFileHeader(1, 1024, "/opt/oms/component/bin/app");
+
+        Future<?> writeFuture = executorService.submit(() -> {
+            DeployProtocolUtils.getChannelOutputStream(socketChannel).write(header);
+            return null;
+        });
+
+        try {
+            writeFuture.get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new AssertionError("回复读取期间报文写入被阻塞");
+        }
+        assertArrayEquals(header, readFully(deviceSocketChannel, header.length));
+        // 客户端收到报文后回复，回复线程读取到完整的回复
+        byte[] reply = (DeployProtocolUtils.PIPELINE_FILE_REPLY_TAG + FormatUtils.getString("1", DeployProtocolUtils.SEQUENCE_LENGTH) + DeployProtocolUtils.FILE_STATE_SUCCEED).getBytes();
+        deviceSocketChannel.write(ByteBuffer.wrap(reply));
+        assertArrayEquals(reply, replyFuture.get(WAIT_TIME, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void largeWriteIsSentCompletely() throws Exception {
+        byte[] content = new byte[1024 * 1024 * 8];
+        new Random(20261018).nextBytes(content);
+        // 超过Socket发送缓冲区的数据需多次写入，客户端同时读取
+        Future<byte[]> readFuture = executorService.submit(() -> readFully(deviceSocketChannel, content.length));
+
+        DeployProtocolUtils.getChannelOutputStream(socketChannel).write(content);
+
+        assertArrayEquals(content, readFuture.get(WAIT_TIME, TimeUnit.MILLISECONDS));
+    }
+
+    private byte[] readFully(SocketChannel socketChannel, int length) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(length);
+        while (byteBuffer.hasRemaining()) {
+            if (socketChannel.read(byteBuffer) < 0) {
+                throw new IOException("连接已关闭");
+            }
+        }
+        return byteBuffer.array();
+    }
+}